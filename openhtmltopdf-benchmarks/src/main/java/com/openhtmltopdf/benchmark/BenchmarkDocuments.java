@@ -0,0 +1,267 @@
+package com.openhtmltopdf.benchmark;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import javax.imageio.ImageIO;
+
+import com.openhtmltopdf.bidi.support.ICUBidiReorderer;
+import com.openhtmltopdf.bidi.support.ICUBidiSplitter;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import com.openhtmltopdf.util.IOUtil;
+
+/**
+ * The documents used by the benchmarks. Each is meant to stress a different part of the renderer:
+ * <ul>
+ * <li>long-table: a table of 1000 rows with a repeating header.</li>
+ * <li>dense-text: many justified paragraphs with inline markup.</li>
+ * <li>cjk: paragraphs of Chinese and Japanese text.</li>
+ * <li>images: hundreds of PNG and JPEG images.</li>
+ * <li>rtl: Hebrew and Arabic paragraphs mixed with English.</li>
+ * <li>hamlet: the play from the tests/profiling corpus.</li>
+ * </ul>
+ * The documents only use the fonts built in to PDF unless a font file is given with the
+ * <code>openhtmltopdf.benchmark.font</code> system property, which should be used to
+ * get realistic results for the cjk and rtl documents.
+ */
+public class BenchmarkDocuments {
+    public static final String LONG_TABLE = "long-table";
+    public static final String DENSE_TEXT = "dense-text";
+    public static final String CJK = "cjk";
+    public static final String IMAGES = "images";
+    public static final String RTL = "rtl";
+    public static final String HAMLET = "hamlet";
+
+    private static final String FONT_FAMILY = "benchmark-font";
+
+    private static final String LOREM =
+        "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore " +
+        "et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud exercitation ullamco laboris nisi ut " +
+        "aliquip ex ea commodo consequat. Duis aute irure dolor in reprehenderit in voluptate velit esse cillum.";
+
+    private static final String CJK_TEXT =
+        "人人生而自由，在尊严和权利上一律平等。" +
+        "他们赋有理性和良心，并应以兄弟关系的精神相对待。" +
+        "すべての人間は、生まれながらにして自由であり、" +
+        "かつ、尊厳と権利とについて平等である。";
+
+    private static final String HEBREW_TEXT =
+        "כל בני אדם נולדו בני חורין " +
+        "ושווים בערכם ובזכויותיהם.";
+
+    private static final String ARABIC_TEXT =
+        "يولد جميع الناس أحرارًا " +
+        "متساوين في الكرامة والحقوق.";
+
+    /**
+     * @return the XHTML of the named document.
+     */
+    public static String getDocument(String name) throws IOException {
+        if (LONG_TABLE.equals(name)) {
+            return createLongTable(1000);
+        } else if (DENSE_TEXT.equals(name)) {
+            return createDenseText(600);
+        } else if (CJK.equals(name)) {
+            return createCjkText(400);
+        } else if (IMAGES.equals(name)) {
+            return createImages(400);
+        } else if (RTL.equals(name)) {
+            return createRtlText(400);
+        } else if (HAMLET.equals(name)) {
+            InputStream in = getResource("hamlet.xhtml").openStream();
+            try {
+                return new String(IOUtil.readBytes(in), "UTF-8");
+            } finally {
+                in.close();
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown benchmark document: " + name);
+    }
+
+    /**
+     * @return the XHTML of the long-table document with the given number of rows.
+     */
+    public static String getLongTable(int rows) {
+        return createLongTable(rows);
+    }
+
+    /**
+     * @return the base URI of the named document, used to resolve its stylesheets and images.
+     */
+    public static String getBaseUri(String name) {
+        return HAMLET.equals(name) ? getResource("hamlet.xhtml").toString() : null;
+    }
+
+    private static URL getResource(String file) {
+        return BenchmarkDocuments.class.getResource("/profiling/" + file);
+    }
+
+    /**
+     * Creates a builder for the named document, with the options each benchmark uses.
+     */
+    public static PdfRendererBuilder createBuilder(String name, String html) {
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.withHtmlContent(html, getBaseUri(name));
+        builder.useUnicodeBidiSplitter(new ICUBidiSplitter.ICUBidiSplitterFactory());
+        builder.useUnicodeBidiReorderer(new ICUBidiReorderer());
+
+        String font = System.getProperty("openhtmltopdf.benchmark.font");
+        if (font != null) {
+            builder.useFont(new File(font), FONT_FAMILY);
+        }
+
+        return builder;
+    }
+
+    /**
+     * Creates a renderer for the named document which has not yet been laid out.
+     * Remember to call {@link PdfBoxRenderer#cleanup()} after use.
+     */
+    public static PdfBoxRenderer createRenderer(String name, String html) {
+        return createBuilder(name, html).buildPdfRenderer();
+    }
+
+    private static StringBuilder startDocument(String css) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<html><head><style>");
+        sb.append("body { font-family: '").append(FONT_FAMILY).append("', serif; font-size: 11pt; }");
+        sb.append(css);
+        sb.append("</style></head><body>");
+        return sb;
+    }
+
+    private static String endDocument(StringBuilder sb) {
+        sb.append("</body></html>");
+        return sb.toString();
+    }
+
+    private static String createLongTable(int rows) {
+        StringBuilder sb = startDocument(
+            "table { width: 100%; border-collapse: collapse; -fs-table-paginate: paginate; }" +
+            "th { background-color: #ddd; text-align: left; }" +
+            "td, th { border: 1px solid #999; padding: 2px 4px; }" +
+            "tr.odd td { background-color: #f4f4f4; }" +
+            "td.amount { text-align: right; }");
+
+        sb.append("<table><thead><tr><th>Item</th><th>Description</th><th>Code</th><th>Quantity</th><th>Price</th><th>Total</th></tr></thead><tbody>");
+        for (int i = 0; i < rows; i++) {
+            sb.append(i % 2 == 0 ? "<tr>" : "<tr class=\"odd\">");
+            sb.append("<td>").append(i + 1).append("</td>");
+            sb.append("<td>Item description number ").append(i).append("</td>");
+            sb.append("<td>ABC-").append(i * 7 % 1000).append("</td>");
+            sb.append("<td class=\"amount\">").append(i % 13 + 1).append("</td>");
+            sb.append("<td class=\"amount\">").append(i % 97).append(".50</td>");
+            sb.append("<td class=\"amount\">").append((i % 13 + 1) * (i % 97)).append(".00</td>");
+            sb.append("</tr>");
+        }
+        sb.append("</tbody></table>");
+
+        return endDocument(sb);
+    }
+
+    private static String createDenseText(int paragraphs) {
+        StringBuilder sb = startDocument(
+            "p { text-align: justify; margin: 0 0 6px 0; }" +
+            "h2 { font-size: 14pt; page-break-after: avoid; }" +
+            ".note { color: #555; font-style: italic; }");
+
+        for (int i = 0; i < paragraphs; i++) {
+            if (i % 20 == 0) {
+                sb.append("<h2>Section ").append(i / 20 + 1).append("</h2>");
+            }
+            sb.append("<p>").append(LOREM).append(" <b>Bold text ").append(i).append("</b> and ");
+            sb.append("<span class=\"note\">").append(LOREM).append("</span> <a href=\"#p").append(i).append("\">link</a></p>");
+        }
+
+        return endDocument(sb);
+    }
+
+    private static String createCjkText(int paragraphs) {
+        StringBuilder sb = startDocument("p { margin: 0 0 6px 0; }");
+
+        for (int i = 0; i < paragraphs; i++) {
+            sb.append("<p>").append(CJK_TEXT).append(CJK_TEXT).append(i).append("</p>");
+        }
+
+        return endDocument(sb);
+    }
+
+    private static String createRtlText(int paragraphs) {
+        StringBuilder sb = startDocument("p { margin: 0 0 6px 0; }");
+
+        for (int i = 0; i < paragraphs; i++) {
+            sb.append("<p dir=\"rtl\">").append(i % 2 == 0 ? HEBREW_TEXT : ARABIC_TEXT);
+            sb.append(" English text ").append(i).append(" ");
+            sb.append(i % 2 == 0 ? HEBREW_TEXT : ARABIC_TEXT).append("</p>");
+        }
+
+        return endDocument(sb);
+    }
+
+    private static String createImages(int images) throws IOException {
+        // A few distinct images, as documents usually repeat icons and logos.
+        String[] uris = new String[8];
+        for (int i = 0; i < uris.length; i++) {
+            uris[i] = createImageUri(i);
+        }
+
+        StringBuilder sb = startDocument("img { margin: 2px; } div { margin-bottom: 4px; }");
+
+        for (int i = 0; i < images; i++) {
+            sb.append("<div><img src=\"").append(uris[i % uris.length]).append("\" /> Image ").append(i).append("</div>");
+        }
+
+        return endDocument(sb);
+    }
+
+    private static String createImageUri(int seed) throws IOException {
+        boolean jpeg = seed % 2 == 0;
+        BufferedImage image = new BufferedImage(120 + seed * 10, 80, jpeg ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+
+        Graphics2D g = image.createGraphics();
+        for (int y = 0; y < image.getHeight(); y += 10) {
+            g.setColor(new Color((seed * 40 + y * 3) % 256, (y * 5) % 256, (seed * 90) % 256));
+            g.fillRect(0, y, image.getWidth(), 10);
+        }
+        g.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, jpeg ? "jpeg" : "png", out);
+
+        return "data:image/" + (jpeg ? "jpeg" : "png") + ";base64," + base64(out.toByteArray());
+    }
+
+    private static final char[] BASE64_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    /**
+     * Encodes in base 64 with padding, as javax.xml.bind is not available on newer JDKs
+     * and java.util.Base64 is not available on Java 6.
+     */
+    static String base64(byte[] data) {
+        StringBuilder sb = new StringBuilder((data.length + 2) / 3 * 4);
+        for (int i = 0; i < data.length; i += 3) {
+            int remaining = Math.min(data.length - i, 3);
+            int bits = (data[i] & 0xff) << 16;
+            if (remaining > 1) {
+                bits |= (data[i + 1] & 0xff) << 8;
+            }
+            if (remaining > 2) {
+                bits |= data[i + 2] & 0xff;
+            }
+            sb.append(BASE64_ALPHABET[(bits >> 18) & 0x3f]);
+            sb.append(BASE64_ALPHABET[(bits >> 12) & 0x3f]);
+            sb.append(remaining > 1 ? BASE64_ALPHABET[(bits >> 6) & 0x3f] : '=');
+            sb.append(remaining > 2 ? BASE64_ALPHABET[bits & 0x3f] : '=');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package com.openhtmltopdf.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.openhtmltopdf.bidi.support.ICUBidiReorderer;
+import com.openhtmltopdf.bidi.support.ICUBidiSplitter;
+import com.openhtmltopdf.layout.BoxBuilder;
+import com.openhtmltopdf.layout.LayoutContext;
+import com.openhtmltopdf.pdfboxout.PdfBoxFontContext;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
+import com.openhtmltopdf.render.BlockBox;
+
+/**
+ * Building the box tree of a document with BoxBuilder.createRootBox, including the cascade.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BoxBuildBenchmark {
+    @Param({ BenchmarkDocuments.LONG_TABLE, BenchmarkDocuments.DENSE_TEXT, BenchmarkDocuments.CJK,
+             BenchmarkDocuments.IMAGES, BenchmarkDocuments.RTL, BenchmarkDocuments.HAMLET })
+    public String document;
+
+    private PdfBoxRenderer _renderer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        _renderer = BenchmarkDocuments.createRenderer(document, BenchmarkDocuments.getDocument(document));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        _renderer.getPdfDocument().close();
+        _renderer.cleanup();
+    }
+
+    @Benchmark
+    public BlockBox buildBoxes() {
+        LayoutContext c = _renderer.getSharedContext().newLayoutContextInstance();
+        c.setFontContext(new PdfBoxFontContext());
+        c.setBidiSplitterFactory(new ICUBidiSplitter.ICUBidiSplitterFactory());
+        c.setBidiReorderer(new ICUBidiReorderer());
+
+        return BoxBuilder.createRootBox(c, _renderer.getDocument());
+    }
+}
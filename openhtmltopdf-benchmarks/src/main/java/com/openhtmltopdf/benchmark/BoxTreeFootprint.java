@@ -0,0 +1,107 @@
+package com.openhtmltopdf.benchmark;
+
+import java.io.IOException;
+
+import org.w3c.dom.Document;
+
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
+import com.openhtmltopdf.render.Box;
+import com.openhtmltopdf.render.InlineLayoutBox;
+import com.openhtmltopdf.render.InlineText;
+
+/**
+ * Measures the heap kept alive by the box tree of each benchmark document, in bytes per
+ * element of the document. It is not a JMH benchmark, as JMH does not measure retained
+ * memory, so run it on its own with a fixed heap:
+ * <pre>
+ * java -Xms1g -Xmx1g -cp openhtmltopdf-benchmarks/target/benchmarks.jar com.openhtmltopdf.benchmark.BoxTreeFootprint [document...]
+ * </pre>
+ * The footprint is the heap in use after layout less the heap in use before it, with the
+ * document parsed and the renderer built in both cases. It includes the styles, fonts
+ * and images loaded during layout, so the images document mostly measures its images.
+ */
+public class BoxTreeFootprint {
+    private static final String[] DOCUMENTS = {
+        BenchmarkDocuments.LONG_TABLE, BenchmarkDocuments.DENSE_TEXT, BenchmarkDocuments.CJK,
+        BenchmarkDocuments.IMAGES, BenchmarkDocuments.RTL, BenchmarkDocuments.HAMLET };
+
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws IOException {
+        String[] documents = args.length == 0 ? DOCUMENTS : args;
+
+        System.out.println("document        elements     boxes   texts   bytes/element");
+        for (String document : documents) {
+            String html = BenchmarkDocuments.getDocument(document);
+
+            long best = Long.MAX_VALUE;
+            // Elements, boxes and texts of the document
+            int[] counts = new int[3];
+            for (int run = 0; run < RUNS; run++) {
+                best = Math.min(best, measure(document, html, counts));
+            }
+
+            System.out.println(String.format("%-14s %9d %9d %7d %15d",
+                    document, counts[0], counts[1], counts[2], best / counts[0]));
+        }
+    }
+
+    /**
+     * Lays out the document once and returns the growth of the heap. This is a method of its
+     * own so that no renderer of a previous run is still referenced from the stack.
+     */
+    private static long measure(String document, String html, int[] counts) throws IOException {
+        PdfBoxRenderer renderer = BenchmarkDocuments.createRenderer(document, html);
+        try {
+            long before = usedHeap();
+            renderer.layout();
+            long after = usedHeap();
+
+            counts[0] = countElements(renderer.getDocument());
+            counts[1] = 0;
+            counts[2] = 0;
+            countBoxes(renderer.getRootBox(), counts);
+            return after - before;
+        } finally {
+            renderer.getPdfDocument().close();
+            renderer.cleanup();
+        }
+    }
+
+    private static int countElements(Document doc) {
+        return doc.getElementsByTagName("*").getLength();
+    }
+
+    private static void countBoxes(Box box, int[] counts) {
+        counts[1]++;
+        for (int i = 0; i < box.getChildCount(); i++) {
+            countBoxes(box.getChild(i), counts);
+        }
+        if (box instanceof InlineLayoutBox) {
+            for (Object child : ((InlineLayoutBox) box).getInlineChildren()) {
+                if (child instanceof InlineText) {
+                    counts[2]++;
+                } else {
+                    countBoxes((Box) child, counts);
+                }
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // PDFBox objects have finalizers, so what they reference is only freed a few
+        // collections later. Collect at least four times, then until the heap stops shrinking.
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            System.runFinalization();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (i >= 3 && now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
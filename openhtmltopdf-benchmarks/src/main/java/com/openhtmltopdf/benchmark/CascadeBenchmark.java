@@ -0,0 +1,76 @@
+package com.openhtmltopdf.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.openhtmltopdf.context.StyleReference;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
+
+/**
+ * Matching the selectors of the stylesheets against every element of a document
+ * to find its cascaded style, as is done when the box tree is built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CascadeBenchmark {
+    @Param({ BenchmarkDocuments.LONG_TABLE, BenchmarkDocuments.DENSE_TEXT, BenchmarkDocuments.CJK,
+             BenchmarkDocuments.IMAGES, BenchmarkDocuments.RTL, BenchmarkDocuments.HAMLET })
+    public String document;
+
+    private PdfBoxRenderer _renderer;
+    private StyleReference _css;
+    private final List<Element> _elements = new ArrayList<Element>();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        _renderer = BenchmarkDocuments.createRenderer(document, BenchmarkDocuments.getDocument(document));
+        _css = _renderer.getSharedContext().getCss();
+        collectElements(_renderer.getDocument().getDocumentElement());
+    }
+
+    private void collectElements(Element e) {
+        _elements.add(e);
+        for (Node n = e.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n.getNodeType() == Node.ELEMENT_NODE) {
+                collectElements((Element) n);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        _renderer.getPdfDocument().close();
+        _renderer.cleanup();
+    }
+
+    @Benchmark
+    public void cascade(Blackhole bh) {
+        // Elements are in document order, so each parent is matched before its children.
+        for (Element e : _elements) {
+            bh.consume(_css.getCascadedStyle(e, true));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.openhtmltopdf.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.openhtmltopdf.css.parser.CSSErrorHandler;
+import com.openhtmltopdf.css.parser.CSSParser;
+import com.openhtmltopdf.css.sheet.Stylesheet;
+import com.openhtmltopdf.css.sheet.StylesheetInfo;
+import com.openhtmltopdf.util.IOUtil;
+
+/**
+ * Parsing a stylesheet: the default stylesheet for XHTML, which is parsed for every
+ * document, and the stylesheet of the profiling corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CssParseBenchmark {
+    @Param({ "/resources/css/XhtmlNamespaceHandler.css", "/profiling/general.css" })
+    public String stylesheet;
+
+    private String _css;
+
+    private static final CSSErrorHandler ERROR_HANDLER = new CSSErrorHandler() {
+        public void error(String uri, String message) {
+        }
+    };
+
+    @Setup
+    public void setup() throws IOException {
+        InputStream in = CssParseBenchmark.class.getResourceAsStream(stylesheet);
+        try {
+            _css = new String(IOUtil.readBytes(in), "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    @Benchmark
+    public Stylesheet cssParse() throws IOException {
+        return new CSSParser(ERROR_HANDLER).parseStylesheet(stylesheet, StylesheetInfo.AUTHOR, new StringReader(_css));
+    }
+}
@@ -0,0 +1,55 @@
+package com.openhtmltopdf.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
+
+/**
+ * Laying out a document with PdfBoxRenderer.layout, which builds the box tree and lays out
+ * every page. The renderer is reused, so styles, fonts and images are already loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LayoutBenchmark {
+    @Param({ BenchmarkDocuments.LONG_TABLE, BenchmarkDocuments.DENSE_TEXT, BenchmarkDocuments.CJK,
+             BenchmarkDocuments.IMAGES, BenchmarkDocuments.RTL, BenchmarkDocuments.HAMLET })
+    public String document;
+
+    private PdfBoxRenderer _renderer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        _renderer = BenchmarkDocuments.createRenderer(document, BenchmarkDocuments.getDocument(document));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        _renderer.getPdfDocument().close();
+        _renderer.cleanup();
+    }
+
+    @Benchmark
+    public Object layout() {
+        _renderer.layout();
+        return _renderer.getRootBox();
+    }
+}
@@ -0,0 +1,65 @@
+package com.openhtmltopdf.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
+
+/**
+ * Saving a painted document with PDDocument.save, which subsets and embeds fonts and
+ * writes every object. Each invocation uses a new renderer painted beforehand.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SaveBenchmark {
+    @Param({ BenchmarkDocuments.LONG_TABLE, BenchmarkDocuments.DENSE_TEXT, BenchmarkDocuments.CJK,
+             BenchmarkDocuments.IMAGES, BenchmarkDocuments.RTL, BenchmarkDocuments.HAMLET })
+    public String document;
+
+    private String _html;
+    private PdfBoxRenderer _renderer;
+
+    @Setup(Level.Trial)
+    public void setupDocument() throws IOException {
+        _html = BenchmarkDocuments.getDocument(document);
+    }
+
+    @Setup(Level.Invocation)
+    public void setup() throws IOException {
+        _renderer = BenchmarkDocuments.createRenderer(document, _html);
+        _renderer.layout();
+        _renderer.createPDF(new ByteArrayOutputStream(), false);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        _renderer.finishPDF();
+        _renderer.cleanup();
+    }
+
+    @Benchmark
+    public int save() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        _renderer.getPdfDocument().save(out);
+        return out.size();
+    }
+}
@@ -0,0 +1,54 @@
+package com.openhtmltopdf.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
+
+/**
+ * Laying out the long-table document with twice as many rows in each step, to check that
+ * the layout time of a paginated table grows linearly with its number of rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TableLayoutBenchmark {
+    @Param({ "8000", "16000", "32000" })
+    public int rows;
+
+    private PdfBoxRenderer _renderer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        _renderer = BenchmarkDocuments.createRenderer(BenchmarkDocuments.LONG_TABLE, BenchmarkDocuments.getLongTable(rows));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        _renderer.getPdfDocument().close();
+        _renderer.cleanup();
+    }
+
+    @Benchmark
+    public Object layout() {
+        _renderer.layout();
+        return _renderer.getRootBox();
+    }
+}
@@ -1,10 +1,13 @@
 package com.openhtmltopdf.bidi;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 
 import org.w3c.dom.CharacterData;
 import org.w3c.dom.Document;
@@ -14,6 +17,7 @@ import org.w3c.dom.Text;
 
 import com.openhtmltopdf.css.style.CalculatedStyle;
 import com.openhtmltopdf.layout.LayoutContext;
+import com.openhtmltopdf.util.ParallelRanges;
 
 /**
  * This class aims to split text into paragraphs where they can be passed to the
@@ -24,40 +28,61 @@ public class ParagraphSplitter {
 	
 	public static class Paragraph {
         private final StringBuilder builder = new StringBuilder();
-        private final List<Text> textNodes = new ArrayList<Text>();
+        private final Map<Text, Integer> textStarts = new IdentityHashMap<Text, Integer>();
         
         private final TreeMap<Integer, BidiTextRun> splitPoints = new TreeMap<Integer, BidiTextRun>();
         
         private Paragraph() { }
         
         private void add(String text, Text textNode) {
+            textStarts.put(textNode, builder.length());
             builder.append(text);
-            textNodes.add(textNode);
         }
         
-        private void runBidiSplitter(BidiSplitter splitter, LayoutContext c) {
-        	splitter.setParagraph(builder.toString(), c.getDefaultTextDirection());
+        private void runBidiSplitter(BidiSplitter splitter, byte defaultDirection) {
+        	splitter.setParagraph(builder.toString(), defaultDirection);
         	copySplitPointsFromBidiSplitter(splitter);
         }
+        
+        /**
+         * Whether the bidi algorithm would find a single left to right run in a paragraph
+         * whose base direction is left to right. That is the case if the paragraph has no
+         * right to left or arabic number characters and no directional embeddings or isolates.
+         */
+        private boolean isLeftToRightOnly() {
+            int length = builder.length();
+            if (length == 0) {
+                return false;
+            }
+            
+            for (int i = 0; i < length; i++) {
+                char c = builder.charAt(i);
+                if (Character.isHighSurrogate(c) && i + 1 < length) {
+                    int codePoint = builder.codePointAt(i);
+                    if (isBidiCodePoint(codePoint)) {
+                        return false;
+                    }
+                    i += Character.charCount(codePoint) - 1;
+                } else if (BIDI_CHARS.get(c)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private void setLeftToRightOnly() {
+            splitPoints.put(0, new BidiTextRun(0, builder.length(), BidiSplitter.LTR));
+        }
          
         /**
          * @param text
          * @return the first index of text from a Text node.
          */
         public int getFirstCharIndexInParagraph(Text text) {
+            Integer position = textStarts.get(text);
         	
-        	int position = 0;
-        	
-            for (Text t : textNodes) {
-            	if (text == t) {
-            		return position;
-            	}
-            
-            	position += t.getLength();
-            }
-        	
-            assert(false);
-        	return -1;
+            assert(position != null);
+        	return position != null ? position.intValue() : -1;
         }
         
         private void copySplitPointsFromBidiSplitter(BidiSplitter splitter) {
@@ -96,7 +121,50 @@ public class ParagraphSplitter {
         }
 	}
 	
+    /**
+     * The BMP characters which may make the bidi algorithm find more than one run in
+     * a left to right paragraph: strong right to left characters, arabic numbers and
+     * explicit embeddings. The right to left blocks are included whole, so that
+     * characters the JDK does not know yet are not taken as left to right.
+     */
+    private static final BitSet BIDI_CHARS = new BitSet(0x10000);
+    
+    static {
+        for (int c = 0; c < 0x10000; c++) {
+            if (isBidiDirectionality(Character.getDirectionality((char) c))) {
+                BIDI_CHARS.set(c);
+            }
+        }
+        BIDI_CHARS.set(0x0590, 0x0900);  // Hebrew to Arabic Extended-A
+        BIDI_CHARS.set(0x2066, 0x206A);  // Isolates
+        BIDI_CHARS.set(0xFB1D, 0xFE00);  // Hebrew and Arabic presentation forms
+        BIDI_CHARS.set(0xFE70, 0xFF00);  // Arabic presentation forms B
+    }
+    
+    private static boolean isBidiDirectionality(byte directionality) {
+        switch (directionality) {
+        case Character.DIRECTIONALITY_RIGHT_TO_LEFT:
+        case Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC:
+        case Character.DIRECTIONALITY_ARABIC_NUMBER:
+        case Character.DIRECTIONALITY_LEFT_TO_RIGHT_EMBEDDING:
+        case Character.DIRECTIONALITY_LEFT_TO_RIGHT_OVERRIDE:
+        case Character.DIRECTIONALITY_RIGHT_TO_LEFT_EMBEDDING:
+        case Character.DIRECTIONALITY_RIGHT_TO_LEFT_OVERRIDE:
+        case Character.DIRECTIONALITY_POP_DIRECTIONAL_FORMAT:
+            return true;
+        default:
+            return false;
+        }
+    }
+    
+    private static boolean isBidiCodePoint(int codePoint) {
+        return (codePoint >= 0x10800 && codePoint < 0x11000) ||
+               (codePoint >= 0x1E800 && codePoint < 0x1F000) ||
+               isBidiDirectionality(Character.getDirectionality(codePoint));
+    }
+    
     private final Map<Text, Paragraph> paragraphs = new HashMap<Text, Paragraph>();
+    private final List<Paragraph> allParagraphs = new ArrayList<Paragraph>();
     
     public Paragraph lookupParagraph(Text node) {
     	return paragraphs.get(node);
@@ -108,14 +176,47 @@ public class ParagraphSplitter {
 	}
 
     /**
-     * Run bidi splitting on the document's paragraphs.
+     * Run bidi splitting on the document's paragraphs. A left to right document's paragraphs
+     * without any right to left text are not passed to the splitter, as they are a single
+     * left to right run. The others are split on the bidi executor of the layout context,
+     * if there is one.
      * @param c
      */
     public void runBidiOnParagraphs(LayoutContext c) {
-    	for (Paragraph p : paragraphs.values())
-    	{
-    		p.runBidiSplitter(c.getBidiSplitterFactory().createBidiSplitter(), c);
+        final byte defaultDirection = c.getDefaultTextDirection();
+        final List<Paragraph> mixed = new ArrayList<Paragraph>();
+        
+    	for (Paragraph p : allParagraphs) {
+    	    if (defaultDirection == BidiSplitter.LTR && p.isLeftToRightOnly()) {
+    	        p.setLeftToRightOnly();
+    	    } else {
+    	        mixed.add(p);
+    	    }
+    	}
+    	
+    	final BidiSplitterFactory factory = c.getBidiSplitterFactory();
+    	ExecutorService executor = c.getBidiExecutor();
+    	
+    	if (executor == null || mixed.size() < 2) {
+    	    runBidiSplitter(factory, mixed, 0, mixed.size(), defaultDirection);
+    	    return;
     	}
+    	
+    	ParallelRanges.run(executor, mixed.size(), new ParallelRanges.RangeTask<RuntimeException>() {
+    	    public void run(int range, int start, int end) {
+    	        runBidiSplitter(factory, mixed, start, end, defaultDirection);
+    	    }
+    	}, RuntimeException.class);
+    }
+    
+    /**
+     * Splits the paragraphs from start (inclusive) to end (exclusive) with one splitter each.
+     */
+    private static void runBidiSplitter(BidiSplitterFactory factory, List<Paragraph> paragraphs,
+            int start, int end, byte defaultDirection) {
+        for (int i = start; i < end; i++) {
+            paragraphs.get(i).runBidiSplitter(factory.createBidiSplitter(), defaultDirection);
+        }
     }
     
     private void splitParagraphs(LayoutContext c, Node parent, Paragraph nearestBlock) {
@@ -129,6 +230,9 @@ public class ParagraphSplitter {
             if (node.getNodeType() == Node.TEXT_NODE
 		            || node.getNodeType() == Node.CDATA_SECTION_NODE) {
                 String text = ((Text) node).getData();
+                if (nearestBlock.textStarts.isEmpty()) {
+                    allParagraphs.add(nearestBlock);
+                }
             	nearestBlock.add(text, (Text) node);
             	paragraphs.put((Text) node, nearestBlock);
             }
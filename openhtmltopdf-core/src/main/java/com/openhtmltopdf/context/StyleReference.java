@@ -43,6 +43,7 @@ import com.openhtmltopdf.extend.NamespaceHandler;
 import com.openhtmltopdf.extend.UserAgentCallback;
 import com.openhtmltopdf.extend.UserInterface;
 import com.openhtmltopdf.layout.SharedContext;
+import com.openhtmltopdf.util.RenderMetrics;
 import com.openhtmltopdf.util.XRLog;
 
 
@@ -202,7 +203,17 @@ public class StyleReference {
      */
     public CascadedStyle getCascadedStyle(Element e, boolean restyle) {
         if (e == null) return CascadedStyle.emptyCascadedStyle;
-        return _matcher.getCascadedStyle(e, restyle);
+
+        RenderMetrics metrics = _context.getRenderMetrics();
+        if (metrics == null) {
+            return _matcher.getCascadedStyle(e, restyle);
+        }
+
+        long start = System.nanoTime();
+        CascadedStyle result = _matcher.getCascadedStyle(e, restyle);
+        metrics.addTime(RenderMetrics.Phase.CASCADE, start);
+        metrics.increment(RenderMetrics.Counter.ELEMENTS_STYLED);
+        return result;
     }
     
     public PageInfo getPageStyle(String pageName, String pseudoPage) {
@@ -275,6 +286,17 @@ public class StyleReference {
         return infos;
     }
     
+    /**
+     * Gets a stylesheet before the document context is set, parsing it if it is not yet in the
+     * cache of stylesheets for the document. Used to find the resources a document needs up front.
+     */
+    public Stylesheet getStylesheet(StylesheetInfo info) {
+        if (info.isInline()) {
+            return _stylesheetFactory.parse(new StringReader(info.getContent()), info);
+        }
+        return _stylesheetFactory.getStylesheet(info);
+    }
+    
     public void removeStyle(Element e) {
         if (_matcher != null) {
             _matcher.removeStyle(e);
@@ -293,6 +315,13 @@ public class StyleReference {
     public void setSupportCMYKColors(boolean b) {
         _stylesheetFactory.setSupportCMYKColors(b);
     }
+
+    /**
+     * Sets a cache of parsed stylesheets which may be shared with other renderers.
+     */
+    public void setStylesheetCache(StylesheetCache cache) {
+        _stylesheetFactory.setStylesheetCache(cache);
+    }
 }
 
 /*
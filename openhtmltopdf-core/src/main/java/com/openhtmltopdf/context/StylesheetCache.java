@@ -0,0 +1,156 @@
+package com.openhtmltopdf.context;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.openhtmltopdf.css.sheet.Stylesheet;
+
+/**
+ * A bounded, least recently used cache of parsed stylesheets which may be shared
+ * between renderers and threads, so that a stylesheet used by many documents is only
+ * parsed once. Stylesheets are treated as immutable once parsed.
+ * <br><br>
+ * Sheets are keyed by resolved URI, origin and media. If content checking is on (the default)
+ * a hash of the CSS text is also part of the key, so a changed stylesheet is parsed again,
+ * at the cost of still loading the stylesheet for each document. With content checking off
+ * a stylesheet is not loaded again once it is in the cache.
+ * Inline stylesheets are always keyed by their content.
+ */
+public class StylesheetCache {
+    private final int _maxEntries;
+    private final boolean _checkContent;
+    private final Map<Key, Stylesheet> _cache;
+    private long _hits;
+    private long _misses;
+
+    private static class Key {
+        private final String uri;
+        private final int origin;
+        private final String media;
+        private final boolean cmyk;
+        private final String hash;
+
+        Key(String uri, int origin, String media, boolean cmyk, String hash) {
+            this.uri = uri;
+            this.origin = origin;
+            this.media = media;
+            this.cmyk = cmyk;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = uri == null ? 0 : uri.hashCode();
+            result = 31 * result + origin;
+            result = 31 * result + media.hashCode();
+            result = 31 * result + (cmyk ? 1 : 0);
+            result = 31 * result + (hash == null ? 0 : hash.hashCode());
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return origin == other.origin &&
+                   cmyk == other.cmyk &&
+                   media.equals(other.media) &&
+                   (uri == null ? other.uri == null : uri.equals(other.uri)) &&
+                   (hash == null ? other.hash == null : hash.equals(other.hash));
+        }
+    }
+
+    /**
+     * Creates a cache which checks the content of stylesheets.
+     * @param maxEntries the number of stylesheets to keep before the least recently used are evicted.
+     */
+    public StylesheetCache(int maxEntries) {
+        this(maxEntries, true);
+    }
+
+    /**
+     * @param maxEntries the number of stylesheets to keep before the least recently used are evicted.
+     * @param checkContent whether to load the stylesheet and compare its content with the cached
+     * stylesheet for each document. If false, a stylesheet is never loaded again while it is in the cache.
+     */
+    public StylesheetCache(final int maxEntries, boolean checkContent) {
+        _maxEntries = maxEntries;
+        _checkContent = checkContent;
+        _cache = new LinkedHashMap<Key, Stylesheet>(Math.min(maxEntries, 64), 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Stylesheet> eldest) {
+                return size() > _maxEntries;
+            }
+        };
+    }
+
+    static Object createKey(String uri, int origin, List media, boolean cmyk, String content) {
+        return new Key(uri, origin, String.valueOf(media), cmyk, content == null ? null : hash(content));
+    }
+
+    synchronized Stylesheet get(Object key) {
+        Stylesheet result = _cache.get(key);
+
+        if (result != null) {
+            _hits++;
+        } else {
+            _misses++;
+        }
+
+        return result;
+    }
+
+    synchronized void put(Object key, Stylesheet sheet) {
+        _cache.put((Key) key, sheet);
+    }
+
+    private static String hash(String content) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest = md.digest(content.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (int i = 0; i < digest.length; i++) {
+                sb.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 and UTF-8 are required on every Java platform.
+            throw new RuntimeException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public boolean isCheckContent() {
+        return _checkContent;
+    }
+
+    public int getMaxEntries() {
+        return _maxEntries;
+    }
+
+    public synchronized int size() {
+        return _cache.size();
+    }
+
+    public synchronized long getHitCount() {
+        return _hits;
+    }
+
+    public synchronized long getMissCount() {
+        return _misses;
+    }
+
+    public synchronized void clear() {
+        _cache.clear();
+    }
+}
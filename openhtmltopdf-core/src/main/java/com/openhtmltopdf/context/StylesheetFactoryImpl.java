@@ -21,6 +21,7 @@ package com.openhtmltopdf.context;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 import java.util.logging.Level;
 
 import com.openhtmltopdf.css.extend.StylesheetFactory;
@@ -31,6 +32,7 @@ import com.openhtmltopdf.css.sheet.Stylesheet;
 import com.openhtmltopdf.css.sheet.StylesheetInfo;
 import com.openhtmltopdf.extend.UserAgentCallback;
 import com.openhtmltopdf.resource.CSSResource;
+import com.openhtmltopdf.util.IOUtil;
 import com.openhtmltopdf.util.XRLog;
 
 /**
@@ -60,6 +62,8 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
                 }
             };
     private CSSParser _cssParser;
+    private boolean _supportCMYKColors;
+    private StylesheetCache _sharedCache;
 
     public StylesheetFactoryImpl(UserAgentCallback userAgentCallback) {
         _userAgentCallback = userAgentCallback;
@@ -71,8 +75,30 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
     }
 
     public synchronized Stylesheet parse(Reader reader, StylesheetInfo info) {
+        return parse(reader, info, null);
+    }
+
+    /**
+     * @param key the shared cache key for the sheet or null to key it by its content.
+     */
+    private synchronized Stylesheet parse(Reader reader, StylesheetInfo info, Object key) {
         try {
-            return _cssParser.parseStylesheet(info.getUri(), info.getOrigin(), reader);
+            if (_sharedCache == null) {
+                return _cssParser.parseStylesheet(info.getUri(), info.getOrigin(), reader);
+            }
+
+            String css = IOUtil.readString(reader);
+            if (key == null) {
+                key = StylesheetCache.createKey(info.getUri(), info.getOrigin(), info.getMedia(), _supportCMYKColors, css);
+                Stylesheet cached = _sharedCache.get(key);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+
+            Stylesheet sheet = _cssParser.parseStylesheet(info.getUri(), info.getOrigin(), new StringReader(css));
+            _sharedCache.put(key, sheet);
+            return sheet;
         } catch (IOException e) {
             XRLog.cssParse(Level.WARNING, "Couldn't parse stylesheet at URI " + info.getUri() + ": " + e.getMessage(), e);
             e.printStackTrace();
@@ -84,6 +110,15 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
      * @return Returns null if uri could not be loaded
      */
     private Stylesheet parse(StylesheetInfo info) {
+        Object key = null;
+        if (_sharedCache != null && !_sharedCache.isCheckContent()) {
+            key = StylesheetCache.createKey(info.getUri(), info.getOrigin(), info.getMedia(), _supportCMYKColors, null);
+            Stylesheet cached = _sharedCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         CSSResource cr = _userAgentCallback.getCSSResource(info.getUri());
         if (cr == null) {
         	return null;
@@ -95,7 +130,7 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
         }
         
         try {
-            return parse(reader, info);
+            return parse(reader, info, key);
         } finally {
             try {
                reader.close();
@@ -180,6 +215,19 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
     }
     
     public void setSupportCMYKColors(boolean b) {
+        _supportCMYKColors = b;
         _cssParser.setSupportCMYKColors(b);
     }
+
+    /**
+     * Sets a cache of parsed stylesheets which may be shared with other factories,
+     * or null to parse every stylesheet this factory loads.
+     */
+    public void setStylesheetCache(StylesheetCache cache) {
+        _sharedCache = cache;
+    }
+
+    public StylesheetCache getStylesheetCache() {
+        return _sharedCache;
+    }
 }
@@ -19,7 +19,6 @@
  */
 package com.openhtmltopdf.css.newmatch;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
@@ -61,8 +60,13 @@ public class CascadedStyle {
      * Map of PropertyDeclarations, keyed by {@link CSSName}
      */
     private Map cascadedProperties;
-    
-    private String fingerprint;
+
+    /**
+     * The values of cascadedProperties in property order, and a hash of them,
+     * set once the properties are cascaded.
+     */
+    private PropertyDeclaration[] declarations;
+    private int fingerprintHash;
     
     /**
      * Creates a <code>CascadedStyle</code>, setting the display property to
@@ -155,6 +159,19 @@ public class CascadedStyle {
                 cascadedProperties.put(prop.getCSSName(), prop);
             }
         }
+
+        updateFingerprint();
+    }
+
+    private void updateFingerprint() {
+        declarations = (PropertyDeclaration[]) cascadedProperties.values().toArray(
+                new PropertyDeclaration[cascadedProperties.size()]);
+
+        int hash = 1;
+        for (int i = 0; i < declarations.length; i++) {
+            hash = 31 * hash + declarations[i].getFingerprintHash();
+        }
+        fingerprintHash = hash;
     }
     
     private CascadedStyle(CascadedStyle startingPoint, Iterator props) {
@@ -171,6 +188,7 @@ public class CascadedStyle {
      */
     private CascadedStyle() {
         cascadedProperties = new TreeMap();
+        updateFingerprint();
     }
 
     /**
@@ -228,26 +246,53 @@ public class CascadedStyle {
      * @return Iterator over a set of properly cascaded PropertyDeclarations.
      */
     public java.util.Iterator getCascadedPropertyDeclarations() {
-        List list = new ArrayList(cascadedProperties.size());
-        Iterator iter = cascadedProperties.values().iterator();
-        while ( iter.hasNext()) {
-            list.add(iter.next());
-        }
-        return list.iterator();
+        return Arrays.asList(declarations).iterator();
     }
 
     public int countAssigned() { return cascadedProperties.size(); }
 
+    /**
+     * @deprecated Cascaded styles are compared with {@link #equals(Object)}, and this
+     * string is now built on each call.
+     */
+    @Deprecated
     public String getFingerprint() {
-        if (this.fingerprint == null) {
-            StringBuffer sb = new StringBuffer();
-            Iterator iter = cascadedProperties.values().iterator();
-            while (iter.hasNext()) {
-                sb.append(((PropertyDeclaration)iter.next()).getFingerprint());
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < declarations.length; i++) {
+            sb.append(declarations[i].getFingerprint());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Cascaded styles are equal if they have the same properties with values which give the
+     * same computed style, so that a {@link com.openhtmltopdf.css.style.CalculatedStyle}
+     * derived from one can be used for the other.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CascadedStyle)) {
+            return false;
+        }
+
+        CascadedStyle other = (CascadedStyle) obj;
+        if (fingerprintHash != other.fingerprintHash || declarations.length != other.declarations.length) {
+            return false;
+        }
+        for (int i = 0; i < declarations.length; i++) {
+            if (!declarations[i].isFingerprintEqual(other.declarations[i])) {
+                return false;
             }
-            this.fingerprint = sb.toString();
         }
-        return this.fingerprint;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return fingerprintHash;
     }
 }// end class
 
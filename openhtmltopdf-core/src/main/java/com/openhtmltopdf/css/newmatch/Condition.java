@@ -40,6 +40,20 @@ abstract class Condition {
 
     abstract boolean matches(Object e, AttributeResolver attRes, TreeResolver treeRes);
 
+    /**
+     * the id an element must have to match this condition, or null
+     */
+    String getRequiredID() {
+        return null;
+    }
+
+    /**
+     * a class an element must have to match this condition, or null
+     */
+    String getRequiredClass() {
+        return null;
+    }
+
     /**
      * the CSS condition [attribute]
      *
@@ -316,12 +330,18 @@ abstract class Condition {
 
     private static class ClassCondition extends Condition {
 
+        private String _className;
         private String _paddedClassName;
 
         ClassCondition(String className) {
+            _className = className;
             _paddedClassName = " " + className + " ";
         }
 
+        String getRequiredClass() {
+            return _className;
+        }
+
         boolean matches(Object e, AttributeResolver attRes, TreeResolver treeRes) {
             if (attRes == null) {
                 return false;
@@ -347,6 +367,10 @@ abstract class Condition {
             _id = id;
         }
 
+        String getRequiredID() {
+            return _id;
+        }
+
         boolean matches(Object e, AttributeResolver attRes, TreeResolver treeRes) {
             if (attRes == null) {
                 return false;
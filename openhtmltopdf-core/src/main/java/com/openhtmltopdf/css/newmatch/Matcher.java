@@ -168,7 +168,6 @@ public class Matcher {
     
     private void addAllStylesheets(List stylesheets, TreeMap sorter, String medium) {
         int count = 0;
-        int pCount = 0;
         for (Iterator i = stylesheets.iterator(); i.hasNext(); ) {
             Stylesheet stylesheet = (Stylesheet)i.next();
             for (Iterator j = stylesheet.getContents().iterator(); j.hasNext(); ) {
@@ -176,11 +175,9 @@ public class Matcher {
                 if (obj instanceof Ruleset) {
                     for (Iterator k = ((Ruleset)obj).getFSSelectors().iterator(); k.hasNext(); ) {
                         Selector selector = (Selector)k.next();
-                        selector.setPos(++count);
-                        sorter.put(selector.getOrder(), selector);
+                        sorter.put(selector.getOrder(++count), selector);
                     }
                 } else if (obj instanceof PageRule) {
-                    ((PageRule)obj).setPos(++pCount);
                     _pageRules.add(obj);
                 } else if (obj instanceof MediaRule) {
                     MediaRule mediaRule = (MediaRule)obj;
@@ -189,8 +186,7 @@ public class Matcher {
                             Ruleset ruleset = (Ruleset)k.next();
                             for (Iterator l = ruleset.getFSSelectors().iterator(); l.hasNext(); ) {
                                 Selector selector = (Selector)l.next();
-                                selector.setPos(++count);
-                                sorter.put(selector.getOrder(), selector);
+                                sorter.put(selector.getOrder(++count), selector);
                             }
                         }
                     }
@@ -200,6 +196,8 @@ public class Matcher {
             _fontFaceRules.addAll(stylesheet.getFontFaceRules());
         }
         
+        // Stylesheets may be shared between matchers so are not changed here.
+        // The sort is stable, so page rules of equal specificity stay in document order.
         Collections.sort(_pageRules, new Comparator() {
             public int compare(Object o1, Object o2) {
                 PageRule p1 = (PageRule)o1;
@@ -324,6 +322,15 @@ public class Matcher {
         private List mappedSelectors;
         private HashMap children;
 
+        // Positions in axes of the selectors that may match an element, keyed by the
+        // id, class or element name they require. Built on first use.
+        private Map<String, int[]> _byID;
+        private Map<String, int[]> _byClass;
+        private Map<String, int[]> _byName;
+        private int[] _universal;
+        // Positions in axes of the descendant axis selectors, which are carried to every child.
+        private int[] _carried;
+
         Mapper(java.util.Collection selectors) {
             axes = new java.util.ArrayList(selectors.size());
             axes.addAll(selectors);
@@ -332,6 +339,84 @@ public class Matcher {
         private Mapper() {
         }
 
+        /**
+         * Sorts the selectors into buckets by the most selective thing they require of
+         * an element: an id, then a class, then an element name. Selectors
+         * that require none of these are kept in the universal bucket.
+         */
+        private void index() {
+            Map<String, List<Integer>> byID = new HashMap<String, List<Integer>>();
+            Map<String, List<Integer>> byClass = new HashMap<String, List<Integer>>();
+            Map<String, List<Integer>> byName = new HashMap<String, List<Integer>>();
+            List<Integer> universal = new ArrayList<Integer>();
+            List<Integer> carried = new ArrayList<Integer>();
+
+            for (int i = 0, size = axes.size(); i < size; i++) {
+                Selector sel = (Selector) axes.get(i);
+                if (sel.getAxis() == Selector.DESCENDANT_AXIS) {
+                    carried.add(Integer.valueOf(i));
+                } else if (sel.getAxis() == Selector.IMMEDIATE_SIBLING_AXIS) {
+                    throw new RuntimeException();
+                }
+
+                String key;
+                if ((key = sel.getRequiredID()) != null) {
+                    addToBucket(byID, key, i);
+                } else if ((key = sel.getRequiredClass()) != null) {
+                    addToBucket(byClass, key, i);
+                } else if ((key = sel.getRequiredName()) != null) {
+                    addToBucket(byName, key, i);
+                } else {
+                    universal.add(Integer.valueOf(i));
+                }
+            }
+
+            _byID = toIndexMap(byID);
+            _byClass = toIndexMap(byClass);
+            _byName = toIndexMap(byName);
+            _universal = toIndexArray(universal);
+            _carried = toIndexArray(carried);
+        }
+
+        /**
+         * Gets the positions in axes, in ascending order, of the selectors that
+         * may match the element. All other selectors are known not to match.
+         * The buckets themselves are returned when possible, so the result must not be changed.
+         */
+        private int[] getCandidates(Object e) {
+            int[] candidates = _universal;
+
+            if (!_byName.isEmpty()) {
+                candidates = mergeBucket(candidates, _byName, _treeRes.getElementName(e));
+            }
+
+            if (_attRes != null) {
+                if (!_byID.isEmpty()) {
+                    candidates = mergeBucket(candidates, _byID, _attRes.getID(e));
+                }
+                if (!_byClass.isEmpty()) {
+                    String classes = _attRes.getClass(e);
+                    if (classes != null) {
+                        // Split on spaces only, like the class condition itself.
+                        int start = 0;
+                        int len = classes.length();
+                        while (start < len) {
+                            int end = classes.indexOf(' ', start);
+                            if (end == -1) {
+                                end = len;
+                            }
+                            if (end > start) {
+                                candidates = mergeBucket(candidates, _byClass, classes.substring(start, end));
+                            }
+                            start = end + 1;
+                        }
+                    }
+                }
+            }
+
+            return candidates;
+        }
+
         /**
          * Side effect: creates and stores a Mapper for the element
          *
@@ -340,19 +425,17 @@ public class Matcher {
          *         (more correct: preserves the sort order from Matcher creation)
          */
         Mapper mapChild(Object e) {
-            //Mapper childMapper = new Mapper();
-            java.util.List childAxes = new ArrayList(axes.size() + 10);
+            if (_carried == null) {
+                index();
+            }
+            int[] candidates = getCandidates(e);
+            int[] chained = null;
+            int chainedCount = 0;
             java.util.HashMap pseudoSelectors = new java.util.HashMap();
             java.util.List mappedSelectors = new java.util.LinkedList();
             StringBuffer key = new StringBuffer();
-            for (int i = 0, size = axes.size(); i < size; i++) {
-                Selector sel = (Selector) axes.get(i);
-                if (sel.getAxis() == Selector.DESCENDANT_AXIS) {
-                    //carry it forward to other descendants
-                    childAxes.add(sel);
-                } else if (sel.getAxis() == Selector.IMMEDIATE_SIBLING_AXIS) {
-                    throw new RuntimeException();
-                }
+            for (int c = 0; c < candidates.length; c++) {
+                Selector sel = (Selector) axes.get(candidates[c]);
                 if (!sel.matches(e, _attRes, _treeRes)) {
                     continue;
                 }
@@ -390,14 +473,17 @@ public class Matcher {
                 } else if (chain.getAxis() == Selector.IMMEDIATE_SIBLING_AXIS) {
                     throw new RuntimeException();
                 } else {
-                    childAxes.add(chain);
+                    if (chained == null) {
+                        chained = new int[candidates.length - c];
+                    }
+                    chained[chainedCount++] = candidates[c];
                 }
             }
             if (children == null) children = new HashMap();
             Mapper childMapper = (Mapper) children.get(key.toString());
             if (childMapper == null) {
                 childMapper = new Mapper();
-                childMapper.axes = childAxes;
+                childMapper.axes = createChildAxes(chained, chainedCount);
                 childMapper.pseudoSelectors = pseudoSelectors;
                 childMapper.mappedSelectors = mappedSelectors;
                 children.put(key.toString(), childMapper);
@@ -406,6 +492,25 @@ public class Matcher {
             return childMapper;
         }
 
+        /**
+         * The selectors to try on the children of a matched element: the descendant
+         * axis selectors carried forward, plus the next selector in each matched chain,
+         * in the same order as the axes they came from.
+         */
+        private java.util.List createChildAxes(int[] chained, int chainedCount) {
+            java.util.List childAxes = new ArrayList(_carried.length + chainedCount);
+            int d = 0;
+            int c = 0;
+            while (d < _carried.length || c < chainedCount) {
+                if (c == chainedCount || (d < _carried.length && _carried[d] <= chained[c])) {
+                    childAxes.add(axes.get(_carried[d++]));
+                } else {
+                    childAxes.add(((Selector) axes.get(chained[c++])).getChainedSelector());
+                }
+            }
+            return childAxes;
+        }
+
         CascadedStyle getCascadedStyle(Object e) {
             CascadedStyle result;
             synchronized (e) {
@@ -463,5 +568,69 @@ public class Matcher {
             return cs;
         }
     }
-}
 
+    private static void addToBucket(Map<String, List<Integer>> buckets, String key, int index) {
+        List<Integer> bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<Integer>(2);
+            buckets.put(key, bucket);
+        }
+        bucket.add(Integer.valueOf(index));
+    }
+
+    /**
+     * Merges the positions in the bucket for the key, if there is one, into the sorted
+     * positions, leaving out positions that are already there, as a repeated class name would give.
+     */
+    private static int[] mergeBucket(int[] positions, Map<String, int[]> buckets, String key) {
+        if (key == null) {
+            return positions;
+        }
+        int[] bucket = buckets.get(key);
+        if (bucket == null) {
+            return positions;
+        }
+        if (positions.length == 0) {
+            return bucket;
+        }
+
+        int[] result = new int[positions.length + bucket.length];
+        int count = 0;
+        int p = 0;
+        int b = 0;
+        while (p < positions.length || b < bucket.length) {
+            int next;
+            if (b == bucket.length || (p < positions.length && positions[p] <= bucket[b])) {
+                next = positions[p++];
+            } else {
+                next = bucket[b++];
+            }
+            if (count == 0 || result[count - 1] != next) {
+                result[count++] = next;
+            }
+        }
+
+        if (count < result.length) {
+            int[] trimmed = new int[count];
+            System.arraycopy(result, 0, trimmed, 0, count);
+            return trimmed;
+        }
+        return result;
+    }
+
+    private static Map<String, int[]> toIndexMap(Map<String, List<Integer>> buckets) {
+        Map<String, int[]> result = new HashMap<String, int[]>(buckets.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : buckets.entrySet()) {
+            result.put(entry.getKey(), toIndexArray(entry.getValue()));
+        }
+        return result;
+    }
+
+    private static int[] toIndexArray(List<Integer> indexes) {
+        int[] result = new int[indexes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = indexes.get(i).intValue();
+        }
+        return result;
+    }
+}
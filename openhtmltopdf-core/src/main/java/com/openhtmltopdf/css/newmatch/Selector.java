@@ -49,8 +49,6 @@ public class Selector {
     private int _specificityC;
     private int _specificityD;
 
-    private int _pos;//to distinguish between selectors of same specificity
-
     private java.util.List conditions;
 
     public final static int DESCENDANT_AXIS = 0;
@@ -66,10 +64,10 @@ public class Selector {
      * Give each a unique ID to be able to create a key to internalize Matcher.Mappers
      */
     private int selectorID;
-    private static int selectorCount = 0;
+    private static final java.util.concurrent.atomic.AtomicInteger selectorCount = new java.util.concurrent.atomic.AtomicInteger();
 
     public Selector() {
-        selectorID = selectorCount++;
+        selectorID = selectorCount.getAndIncrement();
     }
 
     /**
@@ -101,6 +99,43 @@ public class Selector {
         return false;
     }
 
+    /**
+     * Gets the element name this selector requires, or null if it matches any element.
+     */
+    String getRequiredName() {
+        return _name;
+    }
+
+    /**
+     * Gets the first id this selector requires, or null if it has no id condition.
+     */
+    String getRequiredID() {
+        if (conditions != null) {
+            for (java.util.Iterator i = conditions.iterator(); i.hasNext();) {
+                String id = ((Condition) i.next()).getRequiredID();
+                if (id != null) {
+                    return id;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the first class this selector requires, or null if it has no class condition.
+     */
+    String getRequiredClass() {
+        if (conditions != null) {
+            for (java.util.Iterator i = conditions.iterator(); i.hasNext();) {
+                String className = ((Condition) i.next()).getRequiredClass();
+                if (className != null) {
+                    return className;
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Check if the given Element matches this selector's dynamic properties.
      * Note: the parser should give all class
@@ -379,19 +414,19 @@ public class Selector {
     }
 
     /**
-     * returns "a number in a large base" with specificity and specification
-     * order of selector
+     * returns "a number in a large base" with specificity of selector
+     * and the given specification order
      *
      * @return The order value
      */
-    String getOrder() {
+    String getOrder(int pos) {
         if (chainedSelector != null) {
-            return chainedSelector.getOrder();
+            return chainedSelector.getOrder(pos);
         }//only "deepest" value is correct
         String b = "000" + getSpecificityB();
         String c = "000" + getSpecificityC();
         String d = "000" + getSpecificityD();
-        String p = "00000" + _pos;
+        String p = "00000" + pos;
         return "0" + b.substring(b.length() - 3) + c.substring(c.length() - 3) + d.substring(d.length() - 3) + p.substring(p.length() - 5);
     }
 
@@ -448,14 +483,12 @@ public class Selector {
         _specificityD++;
     }
     
+    /**
+     * @deprecated The matcher gives each selector its position when it orders them, as
+     * stylesheets may be shared between matchers. This does nothing.
+     */
+    @Deprecated
     public void setPos(int pos) {
-        _pos = pos;
-        if (siblingSelector != null) {
-            siblingSelector.setPos(pos);
-        }
-        if (chainedSelector != null) {
-            chainedSelector.setPos(pos);
-        }
     }
     
     public void setParent(Ruleset ruleset) {
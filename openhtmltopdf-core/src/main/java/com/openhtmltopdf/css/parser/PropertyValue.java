@@ -218,14 +218,49 @@ public class PropertyValue implements CSSPrimitiveValue {
         return _function;
     }
     
+    private IdentValue getFingerprintIdent() {
+        if (_identValue == null) {
+            _identValue = IdentValue.getByIdentString(getStringValue());
+        }
+        return _identValue;
+    }
+
+    /**
+     * @deprecated Use {@link #isFingerprintEqual(PropertyValue)} and {@link #getFingerprintHash()}.
+     */
+    @Deprecated
     public String getFingerprint() {
         if (getPropertyValueType() == VALUE_TYPE_IDENT) {
-            if (_identValue == null) {
-                _identValue = IdentValue.getByIdentString(getStringValue());
-            }
-            return "I" + _identValue.FS_ID;
+            return "I" + getFingerprintIdent().FS_ID;
         } else {
             return getCssText();
         }
     }
+
+    /**
+     * A hash of the value consistent with {@link #isFingerprintEqual(PropertyValue)}.
+     */
+    public int getFingerprintHash() {
+        if (getPropertyValueType() == VALUE_TYPE_IDENT) {
+            return getFingerprintIdent().FS_ID;
+        } else {
+            return getCssText().hashCode();
+        }
+    }
+
+    /**
+     * Whether two values give the same computed style: the same ident or else the same CSS text.
+     */
+    public boolean isFingerprintEqual(PropertyValue other) {
+        if (this == other) {
+            return true;
+        }
+        boolean ident = getPropertyValueType() == VALUE_TYPE_IDENT;
+        if (ident != (other.getPropertyValueType() == VALUE_TYPE_IDENT)) {
+            return false;
+        }
+        return ident ?
+                getFingerprintIdent() == other.getFingerprintIdent() :
+                getCssText().equals(other.getCssText());
+    }
 }
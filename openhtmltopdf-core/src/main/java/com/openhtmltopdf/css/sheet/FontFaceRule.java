@@ -29,7 +29,6 @@ import com.openhtmltopdf.util.XRRuntimeException;
 public class FontFaceRule implements RulesetContainer {
     private int _origin;
     private Ruleset _ruleset;
-    private CalculatedStyle _calculatedStyle;
 
     public FontFaceRule(int origin) {
         _origin = origin;
@@ -50,13 +49,14 @@ public class FontFaceRule implements RulesetContainer {
         _origin = origin;
     }
 
+    /**
+     * Derives a new style from the declarations of this rule on every call. The rule
+     * may be shared between renders through a stylesheet cache, and a calculated style,
+     * which fills its caches as values are read, must only be used by one render.
+     */
     public CalculatedStyle getCalculatedStyle() {
-        if (_calculatedStyle == null) {
-            _calculatedStyle = new EmptyStyle().deriveStyle(
-                    CascadedStyle.createLayoutStyle(_ruleset.getPropertyDeclarations()));
-        }
-
-        return _calculatedStyle;
+        return new EmptyStyle().deriveStyle(
+                CascadedStyle.createLayoutStyle(_ruleset.getPropertyDeclarations()));
     }
 
     public boolean hasFontFamily() {
@@ -106,7 +106,6 @@ public class PageRule implements RulesetContainer {
         result |= (long)_specificityF << 32;
         result |= (long)_specificityG << 24;
         result |= (long)_specificityH << 16;
-        result |= _pos;
         
         return result;
     }
@@ -128,10 +127,19 @@ public class PageRule implements RulesetContainer {
         return false;
     }
 
+    /**
+     * @deprecated Page rules of equal specificity are kept in document order by the
+     * matcher. The position is no longer set or used in {@link #getOrder()}.
+     */
+    @Deprecated
     public int getPos() {
         return _pos;
     }
 
+    /**
+     * @deprecated See {@link #getPos()}.
+     */
+    @Deprecated
     public void setPos(int pos) {
         _pos = pos;
     }
@@ -71,9 +71,9 @@ public class PropertyDeclaration {
     /**
      * Description of the Field
      */
-    private boolean identIsSet;
+    private volatile boolean identIsSet;
     
-    private String _fingerprint;
+    private int _fingerprintHash;
 
     /**
      * ImportanceAndOrigin of stylesheet - how many different
@@ -155,11 +155,35 @@ public class PropertyDeclaration {
         return cssName + ": " + cssPrimitiveValue.getCssText() + ";";
     }
     
+    /**
+     * @deprecated Use {@link #isFingerprintEqual(PropertyDeclaration)} and
+     * {@link #getFingerprintHash()}. The string is now built on each call.
+     */
+    @Deprecated
     public String getFingerprint() {
-        if (_fingerprint == null) {
-            _fingerprint = 'P' + cssName.FS_ID + ':' + ((PropertyValue)cssPrimitiveValue).getFingerprint() + ';';    
+        return 'P' + cssName.FS_ID + ':' + ((PropertyValue)cssPrimitiveValue).getFingerprint() + ';';
+    }
+
+    /**
+     * A hash of the property name and value, consistent with
+     * {@link #isFingerprintEqual(PropertyDeclaration)}.
+     */
+    public int getFingerprintHash() {
+        int hash = _fingerprintHash;
+        if (hash == 0) {
+            hash = 31 * cssName.FS_ID + ((PropertyValue)cssPrimitiveValue).getFingerprintHash();
+            _fingerprintHash = hash;
         }
-        return _fingerprint;
+        return hash;
+    }
+
+    /**
+     * Whether two declarations set the same property to a value which gives the same computed style.
+     */
+    public boolean isFingerprintEqual(PropertyDeclaration other) {
+        return this == other ||
+                (cssName == other.cssName &&
+                 ((PropertyValue)cssPrimitiveValue).isFingerprintEqual((PropertyValue)other.cssPrimitiveValue));
     }
 
     /**
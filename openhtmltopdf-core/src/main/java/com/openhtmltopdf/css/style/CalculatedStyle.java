@@ -48,6 +48,7 @@ import com.openhtmltopdf.render.Box;
 import com.openhtmltopdf.render.FSFont;
 import com.openhtmltopdf.render.FSFontMetrics;
 import com.openhtmltopdf.render.RenderingContext;
+import com.openhtmltopdf.util.RenderMetrics;
 import com.openhtmltopdf.util.XRLog;
 import com.openhtmltopdf.util.XRRuntimeException;
 
@@ -65,6 +66,10 @@ import com.openhtmltopdf.util.XRRuntimeException;
  * resolution. Generally, a programmer will not use this class directly, but
  * will retrieve properties using a {@link com.openhtmltopdf.context.StyleReference}
  * implementation.
+ * <p>
+ * Values that are resolved on first use, such as inherited and initial values,
+ * fonts and the margin, border and padding, are cached under the lock of the style,
+ * as pages may be painted on several threads at once.
  *
  * @author Torbjoern Gannholm
  * @author Patrick Wright
@@ -92,9 +97,11 @@ public class CalculatedStyle {
     private BackgroundSize _backgroundSize;
 
     /**
-     * Cache child styles of this style that have the same cascaded properties
+     * Cache child styles of this style that have the same cascaded properties,
+     * keyed by the {@link CascadedStyle} which compares its properties.
+     * Created when the first child style is derived, as most styles have none.
      */
-    private final java.util.HashMap _childCache = new java.util.HashMap();
+    private java.util.HashMap<CascadedStyle, CalculatedStyle> _childCache;
     /*private java.util.HashMap _childCache = new java.util.LinkedHashMap(5, 0.75f, true) {
         private static final int MAX_ENTRIES = 10;
 
@@ -177,13 +184,31 @@ public class CalculatedStyle {
      * @param matched the CascadedStyle to apply
      * @return The derived child style
      */
-    public synchronized CalculatedStyle deriveStyle(CascadedStyle matched) {
-        String fingerprint = matched.getFingerprint();
-        CalculatedStyle cs = (CalculatedStyle) _childCache.get(fingerprint);
+    public CalculatedStyle deriveStyle(CascadedStyle matched) {
+        return deriveStyle(matched, null);
+    }
+
+    /**
+     * Derives a child style from this style, counting whether it was found in the cache.
+     *
+     * @param matched the CascadedStyle to apply
+     * @param metrics the metrics of the render, or null if they are not being collected
+     * @return The derived child style
+     */
+    public synchronized CalculatedStyle deriveStyle(CascadedStyle matched, RenderMetrics metrics) {
+        if (_childCache == null) {
+            _childCache = new java.util.HashMap<CascadedStyle, CalculatedStyle>();
+        }
+        CalculatedStyle cs = _childCache.get(matched);
 
         if (cs == null) {
             cs = new CalculatedStyle(this, matched);
-            _childCache.put(fingerprint, cs);
+            _childCache.put(matched, cs);
+            if (metrics != null) {
+                metrics.increment(RenderMetrics.Counter.STYLE_CACHE_MISSES);
+            }
+        } else if (metrics != null) {
+            metrics.increment(RenderMetrics.Counter.STYLE_CACHE_HITS);
         }
         return cs;
     }
@@ -235,7 +260,7 @@ public class CalculatedStyle {
         return valueByName(cssName).asStringArray();
     }
 
-    public void setDefaultValue(CSSName cssName, FSDerivedValue fsDerivedValue) {
+    public synchronized void setDefaultValue(CSSName cssName, FSDerivedValue fsDerivedValue) {
         if (_derivedValuesById[cssName.FS_ID] == null) {
             _derivedValuesById[cssName.FS_ID] = fsDerivedValue;
         }
@@ -303,7 +328,7 @@ public class CalculatedStyle {
         }
     }
 
-    public BackgroundSize getBackgroundSize() {
+    public synchronized BackgroundSize getBackgroundSize() {
         if (_backgroundSize == null) {
             _backgroundSize = createBackgroundSize();
         }
@@ -364,7 +389,7 @@ public class CalculatedStyle {
         }
     }
 
-    public BorderPropertySet getBorder(CssContext ctx) {
+    public synchronized BorderPropertySet getBorder(CssContext ctx) {
         if (! _bordersAllowed) {
             return BorderPropertySet.EMPTY_BORDER;
         } else {
@@ -373,7 +398,7 @@ public class CalculatedStyle {
         }
     }
 
-    public FontSpecification getFont(CssContext ctx) {
+    public synchronized FontSpecification getFont(CssContext ctx) {
         if (_font == null) {
             _font = new FontSpecification();
 
@@ -403,7 +428,7 @@ public class CalculatedStyle {
         return _font;
     }
 
-    public FontSpecification getFontSpecification() {
+    public synchronized FontSpecification getFontSpecification() {
     return _font;
     }
 
@@ -453,7 +478,7 @@ public class CalculatedStyle {
         return valueByName(cssName).getFloatProportionalTo(cssName, parentHeight, ctx);
     }
 
-    public float getLineHeight(CssContext ctx) {
+    public synchronized float getLineHeight(CssContext ctx) {
         if (! _lineHeightResolved) {
             if (isIdent(CSSName.LINE_HEIGHT, IdentValue.NORMAL)) {
                 float lineHeight1 = getFont(ctx).size * 1.1f;
@@ -487,7 +512,7 @@ public class CalculatedStyle {
         return getMarginRect(cbWidth, ctx, true);
     }
 
-    public RectPropertySet getMarginRect(float cbWidth, CssContext ctx, boolean useCache) {
+    public synchronized RectPropertySet getMarginRect(float cbWidth, CssContext ctx, boolean useCache) {
         if (! _marginsAllowed) {
             return RectPropertySet.ALL_ZEROS;
         } else {
@@ -505,7 +530,7 @@ public class CalculatedStyle {
      * @param ctx
      * @return The paddingWidth value
      */
-    public RectPropertySet getPaddingRect(float cbWidth, CssContext ctx, boolean useCache) {
+    public synchronized RectPropertySet getPaddingRect(float cbWidth, CssContext ctx, boolean useCache) {
         if (! _paddingAllowed) {
             return RectPropertySet.ALL_ZEROS;
         } else {
@@ -545,7 +570,7 @@ public class CalculatedStyle {
      * @param cssName The CSS property name, e.g. "font-family"
      * @return See desc.
      */
-    public FSDerivedValue valueByName(CSSName cssName) {
+    public synchronized FSDerivedValue valueByName(CSSName cssName) {
         FSDerivedValue val = _derivedValuesById[cssName.FS_ID];
 
         boolean needInitialValue = val == IdentValue.FS_INITIAL_VALUE;
@@ -631,7 +656,7 @@ public class CalculatedStyle {
 
     }
 
-    public RectPropertySet getCachedPadding() {
+    public synchronized RectPropertySet getCachedPadding() {
         if (_padding == null) {
             throw new XRRuntimeException("No padding property cached yet; should have called getPropertyRect() at least once before.");
         } else {
@@ -639,7 +664,7 @@ public class CalculatedStyle {
         }
     }
 
-    public RectPropertySet getCachedMargin() {
+    public synchronized RectPropertySet getCachedMargin() {
         if (_margin == null) {
             throw new XRRuntimeException("No margin property cached yet; should have called getMarginRect() at least once before.");
         } else {
@@ -759,14 +784,14 @@ public class CalculatedStyle {
         return getIdent(CSSName.WHITE_SPACE);
     }
 
-    public FSFont getFSFont(CssContext cssContext) {
+    public synchronized FSFont getFSFont(CssContext cssContext) {
         if (_FSFont == null) {
             _FSFont = cssContext.getFont(getFont(cssContext));
         }
         return _FSFont;
     }
 
-    public FSFontMetrics getFSFontMetrics(CssContext c) {
+    public synchronized FSFontMetrics getFSFontMetrics(CssContext c) {
         if (_FSFontMetrics == null) {
             _FSFontMetrics = c.getFSFontMetrics(getFSFont(c));
         }
@@ -0,0 +1,15 @@
+package com.openhtmltopdf.extend;
+
+import com.openhtmltopdf.util.RenderMetrics;
+
+/**
+ * Receives the timings and counters of a render, for example to record them
+ * with a metrics library or publish them over JMX. Metrics are only collected
+ * when a listener is set, so there is no cost otherwise.
+ */
+public interface RenderMetricsListener {
+    /**
+     * Called once the output of a render has been written.
+     */
+    public void onRenderComplete(RenderMetrics metrics);
+}
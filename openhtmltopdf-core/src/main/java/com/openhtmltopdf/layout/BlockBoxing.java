@@ -28,10 +28,13 @@ import java.util.RandomAccess;
 
 import com.openhtmltopdf.css.constants.CSSName;
 import com.openhtmltopdf.css.constants.IdentValue;
+import com.openhtmltopdf.css.style.CalculatedStyle;
+import com.openhtmltopdf.newtable.TableBox;
 import com.openhtmltopdf.render.BlockBox;
 import com.openhtmltopdf.render.Box;
 import com.openhtmltopdf.render.LineBox;
 import com.openhtmltopdf.render.PageBox;
+import com.openhtmltopdf.util.RenderMetrics;
 
 /**
  * Utility class for laying block content.  It is called when a block box
@@ -44,6 +47,7 @@ import com.openhtmltopdf.render.PageBox;
  */
 public class BlockBoxing {
     private static final int NO_PAGE_TRIM = -1;
+    private static final long NOT_TIMED = Long.MIN_VALUE;
 
     private BlockBoxing() {
     }
@@ -98,15 +102,11 @@ public class BlockBoxing {
                     boolean tryToAvoidPageBreak = child.getStyle().isAvoidPageBreakInside() && child.crossesPageBreak(c);
                     boolean keepWithInline = child.isNeedsKeepWithInline(c);
                     if (tryToAvoidPageBreak || needPageClear || keepWithInline) {
-                        c.restoreStateForRelayout(relayoutData.getLayoutState());
-                        child.reset(c);
-                        layoutBlockChild(
+                        relayoutBlockChild(
                                 c, block, child, true, childOffset, pageCount, relayoutData.getLayoutState());
 
                         if (tryToAvoidPageBreak && child.crossesPageBreak(c) && ! keepWithInline) {
-                            c.restoreStateForRelayout(relayoutData.getLayoutState());
-                            child.reset(c);
-                            layoutBlockChild(
+                            relayoutBlockChild(
                                     c, block, child, false, childOffset, pageCount, relayoutData.getLayoutState());
                         }
                     }
@@ -175,14 +175,8 @@ public class BlockBoxing {
                 int runStart = relayoutDataList.getRunStart(runEnd);
                 if ( isPageBreakBetweenChildBoxes(relayoutDataList, runStart, runEnd, c, block) ) {
                     result.setChanged(true);
-                    block.resetChildren(c, runStart, offset);
                     result.setChildOffset(relayoutRun(c, localChildren, block,
                             relayoutDataList, runStart, offset, true));
-                    if ( isPageBreakBetweenChildBoxes(relayoutDataList, runStart, runEnd, c, block) ) {
-                        block.resetChildren(c, runStart, offset);
-                        result.setChildOffset(relayoutRun(c, localChildren, block,
-                                relayoutDataList, runStart, offset, false));
-                    }
                 }
             }
         }
@@ -218,8 +212,19 @@ public class BlockBoxing {
     private static int relayoutRun(
             LayoutContext c, List localChildren, BlockBox block,
             RelayoutDataList relayoutDataList, int start, int end, boolean onNewPage) {
+        long relayoutStart = beginRelayout(c);
         int childOffset = relayoutDataList.get(start).getChildOffset();
 
+        // Children whose layout does not depend on their position on the page
+        // are kept and moved instead of being laid out again
+        boolean[] movable = findMovableChildren(c, localChildren, start, end);
+        for (int i = start; i <= end; i++) {
+            if (! movable[i - start]) {
+                ((Box) localChildren.get(i)).reset(c);
+            }
+        }
+        LayoutState endState = movable[end - start] ? c.copyStateForRelayout() : null;
+
         if (onNewPage) {
             Box startBox = (Box) localChildren.get(start);
             PageBox startPageBox = c.getRootLayer().getFirstPage(c, startBox);
@@ -240,33 +245,41 @@ public class BlockBoxing {
             //TODO:handle run-ins. For now, treat them as blocks
 
             c.restoreStateForRelayout(relayoutData.getLayoutState());
+            int previousChildOffset = relayoutData.getChildOffset();
             relayoutData.setChildOffset(childOffset);
-            boolean mayCheckKeepTogether = false;
-            if ((child.getStyle().isAvoidPageBreakInside() || child.getStyle().isKeepWithInline())
-                    && c.isMayCheckKeepTogether()) {
-                mayCheckKeepTogether = true;
-                c.setMayCheckKeepTogether(false);
-            }
-            layoutBlockChild(
-                    c, block, child, false, childOffset, NO_PAGE_TRIM, relayoutData.getLayoutState());
 
-            if (mayCheckKeepTogether) {
-                c.setMayCheckKeepTogether(true);
-                boolean tryToAvoidPageBreak =
-                    child.getStyle().isAvoidPageBreakInside() && child.crossesPageBreak(c);
-                boolean needPageClear = child.isNeedPageClear();
-                boolean keepWithInline = child.isNeedsKeepWithInline(c);
-                if (tryToAvoidPageBreak || needPageClear || keepWithInline) {
-                    c.restoreStateForRelayout(relayoutData.getLayoutState());
+            if (movable[i - start] && moveChild(c, child, childOffset - previousChildOffset)) {
+                if (i == end) {
+                    c.restoreStateForRelayout(endState);
+                }
+            } else {
+                if (movable[i - start]) {
                     child.reset(c);
-                    layoutBlockChild(
-                            c, block, child, true, childOffset, pageCount, relayoutData.getLayoutState());
-
-                    if (tryToAvoidPageBreak && child.crossesPageBreak(c) && ! keepWithInline) {
-                        c.restoreStateForRelayout(relayoutData.getLayoutState());
-                        child.reset(c);
-                        layoutBlockChild(
-                                c, block, child, false, childOffset, pageCount, relayoutData.getLayoutState());
+                }
+
+                boolean mayCheckKeepTogether = false;
+                if ((child.getStyle().isAvoidPageBreakInside() || child.getStyle().isKeepWithInline())
+                        && c.isMayCheckKeepTogether()) {
+                    mayCheckKeepTogether = true;
+                    c.setMayCheckKeepTogether(false);
+                }
+                layoutBlockChild(
+                        c, block, child, false, childOffset, NO_PAGE_TRIM, relayoutData.getLayoutState());
+
+                if (mayCheckKeepTogether) {
+                    c.setMayCheckKeepTogether(true);
+                    boolean tryToAvoidPageBreak =
+                        child.getStyle().isAvoidPageBreakInside() && child.crossesPageBreak(c);
+                    boolean needPageClear = child.isNeedPageClear();
+                    boolean keepWithInline = child.isNeedsKeepWithInline(c);
+                    if (tryToAvoidPageBreak || needPageClear || keepWithInline) {
+                        relayoutBlockChild(
+                                c, block, child, true, childOffset, pageCount, relayoutData.getLayoutState());
+
+                        if (tryToAvoidPageBreak && child.crossesPageBreak(c) && ! keepWithInline) {
+                            relayoutBlockChild(
+                                    c, block, child, false, childOffset, pageCount, relayoutData.getLayoutState());
+                        }
                     }
                 }
             }
@@ -290,9 +303,121 @@ public class BlockBoxing {
             }
         }
 
+        endRelayout(c, relayoutStart);
         return childOffset;
     }
 
+    /**
+     * Finds the children of a run which may keep their layout when the run is
+     * laid out again. Their layout must not depend on floats, layers, page
+     * breaks or page names, so that it only changes by the vertical offset.
+     */
+    private static boolean[] findMovableChildren(LayoutContext c, List localChildren, int start, int end) {
+        boolean[] result = new boolean[end - start + 1];
+        if (c.getBlockFormattingContext().getFloatManager().hasFloats() ||
+                c.getExtraSpaceTop() != 0 || c.getExtraSpaceBottom() != 0) {
+            return result;
+        }
+        for (int i = start; i <= end; i++) {
+            result[i - start] = isMovable(c, (Box) localChildren.get(i), 0);
+        }
+        return result;
+    }
+
+    private static boolean isMovable(LayoutContext c, Box box, int delta) {
+        CalculatedStyle style = box.getStyle();
+        if (box.getLayer() != null || box instanceof TableBox) {
+            return false;
+        }
+        if (style != null && (style.requiresLayer() || style.isFloated() || style.isRunning() ||
+                style.isForcePageBreakBefore() || style.isForcePageBreakAfter() ||
+                ! style.isIdent(CSSName.PAGE, IdentValue.AUTO) ||
+                style.isIdent(CSSName.FS_PAGE_SEQUENCE, IdentValue.START) ||
+                style.getFSPageBreakMinHeight(c) != 0)) {
+            return false;
+        }
+        if (box instanceof LineBox && ((LineBox) box).getNonFlowContent().size() > 0) {
+            return false;
+        }
+
+        int top = box.getAbsY() + delta;
+        if (c.getRootLayer().crossesPageBreak(c, top, top + box.getHeight())) {
+            return false;
+        }
+        if (box instanceof BlockBox) {
+            BlockBox block = (BlockBox) box;
+            PageBox page = c.getRootLayer().getPage(c, top);
+            if (block.isNeedPageClear() || (page != null && page.getTop() == top)) {
+                // The top margin of a block at the top of a page is dropped
+                return false;
+            }
+        }
+
+        for (int i = 0; i < box.getChildCount(); i++) {
+            if (! isMovable(c, box.getChild(i), delta)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves a child laid out before down by <code>delta</code>, if its layout
+     * at the new position would be the same.
+     */
+    private static boolean moveChild(LayoutContext c, BlockBox child, int delta) {
+        if (delta != 0) {
+            if (c.getPageName() != null || ! isMovable(c, child, delta)) {
+                return false;
+            }
+            PageBox from = c.getRootLayer().getPage(c, child.getAbsY());
+            PageBox to = c.getRootLayer().getPage(c, child.getAbsY() + delta);
+            if (from == null || to == null || from.getContentWidth(c) != to.getContentWidth(c)) {
+                return false;
+            }
+
+            child.setY(child.getY() + delta);
+            child.calcCanvasLocation();
+            child.calcChildLocations();
+        }
+
+        RenderMetrics metrics = c.getSharedContext().getRenderMetrics();
+        if (metrics != null) {
+            metrics.increment(RenderMetrics.Counter.RELAYOUT_MOVES);
+        }
+        return true;
+    }
+
+    /**
+     * Lays out a child again from its saved layout state, to move it past a page break.
+     */
+    private static void relayoutBlockChild(
+            LayoutContext c, BlockBox parent, BlockBox child,
+            boolean needPageClear, int childOffset, int trimmedPageCount, LayoutState layoutState) {
+        long relayoutStart = beginRelayout(c);
+        c.restoreStateForRelayout(layoutState);
+        child.reset(c);
+        layoutBlockChild(c, parent, child, needPageClear, childOffset, trimmedPageCount, layoutState);
+        endRelayout(c, relayoutStart);
+    }
+
+    private static long beginRelayout(LayoutContext c) {
+        boolean outermost = c.enterRelayout();
+        RenderMetrics metrics = c.getSharedContext().getRenderMetrics();
+        if (metrics == null) {
+            return NOT_TIMED;
+        }
+        metrics.increment(RenderMetrics.Counter.RELAYOUT_PASSES);
+        return outermost ? System.nanoTime() : NOT_TIMED;
+    }
+
+    private static void endRelayout(LayoutContext c, long relayoutStart) {
+        c.exitRelayout();
+        if (relayoutStart != NOT_TIMED) {
+            c.getSharedContext().getRenderMetrics().addTime(RenderMetrics.Phase.PAGE_BREAK_RELAYOUT, relayoutStart);
+        }
+    }
+
     private static void layoutBlockChild(
             LayoutContext c, BlockBox parent, BlockBox child,
             boolean needPageClear, int childOffset, int trimmedPageCount, LayoutState layoutState) {
@@ -49,7 +49,6 @@ import com.openhtmltopdf.css.parser.PropertyValue;
 import com.openhtmltopdf.css.sheet.PropertyDeclaration;
 import com.openhtmltopdf.css.sheet.StylesheetInfo;
 import com.openhtmltopdf.css.style.CalculatedStyle;
-import com.openhtmltopdf.css.style.EmptyStyle;
 import com.openhtmltopdf.css.style.FSDerivedValue;
 import com.openhtmltopdf.newtable.TableBox;
 import com.openhtmltopdf.newtable.TableCellBox;
@@ -61,6 +60,7 @@ import com.openhtmltopdf.render.BlockBox;
 import com.openhtmltopdf.render.Box;
 import com.openhtmltopdf.render.FloatedBoxData;
 import com.openhtmltopdf.render.InlineBox;
+import com.openhtmltopdf.util.RenderMetrics;
 
 /**
  * This class is responsible for creating the box tree from the DOM.  This is
@@ -110,6 +110,11 @@ public class BoxBuilder {
         result.setStyle(style);
         result.setElement(root);
 
+        RenderMetrics metrics = c.getSharedContext().getRenderMetrics();
+        if (metrics != null) {
+            metrics.increment(RenderMetrics.Counter.BOXES_CREATED);
+        }
+
         c.resolveCounters(style);
 
         c.pushLayer(result);
@@ -159,7 +164,7 @@ public class BoxBuilder {
         Element source = c.getRootLayer().getMaster().getElement(); // HACK
 
         ChildBoxInfo info = new ChildBoxInfo();
-        CalculatedStyle pageStyle = new EmptyStyle().deriveStyle(pageInfo.getPageStyle());
+        CalculatedStyle pageStyle = c.getSharedContext().getRootStyle().deriveStyle(pageInfo.getPageStyle());
 
         CalculatedStyle tableStyle = pageStyle.deriveStyle(
                 CascadedStyle.createLayoutStyle(new PropertyDeclaration[] {
@@ -256,7 +261,7 @@ public class BoxBuilder {
 
         PropertyDeclaration contentDecl = cascadedStyle.propertyByName(CSSName.CONTENT);
 
-        CalculatedStyle style = new EmptyStyle().deriveStyle(cascadedStyle);
+        CalculatedStyle style = c.getSharedContext().getRootStyle().deriveStyle(cascadedStyle);
 
         if (style.isDisplayNone() && ! alwaysCreate) {
             return null;
@@ -921,7 +926,7 @@ public class BoxBuilder {
 
             CalculatedStyle calculatedStyle = null;
             if (contentDecl != null || counterResetDecl != null || counterIncrDecl != null) {
-                calculatedStyle = parentStyle.deriveStyle(peStyle);
+                calculatedStyle = parentStyle.deriveStyle(peStyle, c.getSharedContext().getRenderMetrics());
                 if (calculatedStyle.isDisplayNone()) return;
                 if (calculatedStyle.isIdent(CSSName.CONTENT, IdentValue.NONE)) return;
                 if (calculatedStyle.isIdent(CSSName.CONTENT, IdentValue.NORMAL) && (peName.equals("before") || peName.equals("after")))
@@ -934,7 +939,7 @@ public class BoxBuilder {
                                 CSSName.DISPLAY,
                                 IdentValue.BLOCK),
                         });
-                    calculatedStyle = parentStyle.deriveStyle(newPeStyle);
+                    calculatedStyle = parentStyle.deriveStyle(newPeStyle, c.getSharedContext().getRenderMetrics());
                 }
                 c.resolveCounters(calculatedStyle);
             }
@@ -134,9 +134,20 @@ public class BoxCollector {
 
             if (container.getPaintingInfo() == null || intersectsAggregateBounds) {
                 if (container.getLayer() == null || container == layer.getMaster()) {
-                    for (int i = 0; i < container.getChildCount(); i++) {
-                        Box child = container.getChild(i);
-                        collect(c, clip, layer, child, blockContent, inlineContent, rangeLists);
+                    ChildBoundsIndex index = clip != null ? layer.getChildBoundsIndex(container) : null;
+                    if (index != null) {
+                        // Children not returned by the index do not intersect the clip
+                        // so would add nothing.
+                        int[] candidates = index.getCandidates(clip);
+                        for (int i = 0; i < candidates.length; i++) {
+                            Box child = container.getChild(candidates[i]);
+                            collect(c, clip, layer, child, blockContent, inlineContent, rangeLists);
+                        }
+                    } else {
+                        for (int i = 0; i < container.getChildCount(); i++) {
+                            Box child = container.getChild(i);
+                            collect(c, clip, layer, child, blockContent, inlineContent, rangeLists);
+                        }
                     }
                 }
             }
@@ -0,0 +1,160 @@
+package com.openhtmltopdf.layout;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.openhtmltopdf.render.Box;
+
+/**
+ * An index of the children of a box by the vertical extent of their aggregate
+ * bounds, so that the children which may intersect a clip (typically one page)
+ * can be found without checking every child. Used by {@link BoxCollector} for
+ * boxes with many children, such as a long body of paragraphs or a long table.
+ * <br><br>
+ * The index is only valid while the painting info of the box and its children
+ * is unchanged, which {@link #isValidFor(Box)} checks for the box itself.
+ */
+class ChildBoundsIndex {
+    /**
+     * Boxes with fewer children than this are not indexed.
+     */
+    static final int MIN_CHILDREN = 16;
+
+    private final PaintingInfo _paintingInfo;
+    private final int _childCount;
+
+    // Children with painting info, sorted by the top of their aggregate bounds.
+    private final int[] _sortedIndexes;
+    private final int[] _tops;
+    private final int[] _bottoms;
+    // The greatest bottom of the first i + 1 children in sorted order.
+    private final int[] _maxBottoms;
+
+    // Children without painting info, which must always be checked.
+    private final int[] _unbounded;
+
+    ChildBoundsIndex(Box container) {
+        _paintingInfo = container.getPaintingInfo();
+        _childCount = container.getChildCount();
+
+        int boundedCount = 0;
+        for (int i = 0; i < _childCount; i++) {
+            if (container.getChild(i).getPaintingInfo() != null) {
+                boundedCount++;
+            }
+        }
+
+        Integer[] bounded = new Integer[boundedCount];
+        _unbounded = new int[_childCount - boundedCount];
+        final Rectangle[] bounds = new Rectangle[_childCount];
+
+        int b = 0;
+        int u = 0;
+        for (int i = 0; i < _childCount; i++) {
+            PaintingInfo info = container.getChild(i).getPaintingInfo();
+            if (info != null) {
+                bounds[i] = info.getAggregateBounds();
+                bounded[b++] = Integer.valueOf(i);
+            } else {
+                _unbounded[u++] = i;
+            }
+        }
+
+        Arrays.sort(bounded, new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                int y1 = bounds[o1.intValue()].y;
+                int y2 = bounds[o2.intValue()].y;
+                return y1 < y2 ? -1 : (y1 == y2 ? 0 : 1);
+            }
+        });
+
+        _sortedIndexes = new int[boundedCount];
+        _tops = new int[boundedCount];
+        _bottoms = new int[boundedCount];
+        _maxBottoms = new int[boundedCount];
+
+        int maxBottom = Integer.MIN_VALUE;
+        for (int i = 0; i < boundedCount; i++) {
+            int index = bounded[i].intValue();
+            Rectangle r = bounds[index];
+            _sortedIndexes[i] = index;
+            _tops[i] = r.y;
+            _bottoms[i] = r.y + r.height;
+            maxBottom = Math.max(maxBottom, _bottoms[i]);
+            _maxBottoms[i] = maxBottom;
+        }
+    }
+
+    /**
+     * Whether the index still describes the children of the box. The painting
+     * info of a box and its children is replaced when it is calculated again.
+     */
+    boolean isValidFor(Box container) {
+        return container.getPaintingInfo() == _paintingInfo &&
+               container.getChildCount() == _childCount;
+    }
+
+    /**
+     * Gets the positions of the children, in ascending order, which may intersect the clip.
+     * Any child not returned has aggregate bounds entirely above or below the clip.
+     */
+    int[] getCandidates(Shape clip) {
+        Rectangle clipBounds = clip.getBounds();
+        int top = clipBounds.y;
+        int bottom = clipBounds.y + clipBounds.height;
+
+        // Children from first on may reach down to the clip.
+        int first = firstMaxBottomAtLeast(top);
+        // Children before last start above the bottom of the clip.
+        int last = firstTopAfter(bottom);
+
+        int[] result = new int[Math.max(last - first, 0) + _unbounded.length];
+        int count = 0;
+        for (int i = first; i < last; i++) {
+            if (_bottoms[i] >= top) {
+                result[count++] = _sortedIndexes[i];
+            }
+        }
+        System.arraycopy(_unbounded, 0, result, count, _unbounded.length);
+        count += _unbounded.length;
+
+        if (count < result.length) {
+            int[] trimmed = new int[count];
+            System.arraycopy(result, 0, trimmed, 0, count);
+            result = trimmed;
+        }
+        Arrays.sort(result);
+
+        return result;
+    }
+
+    private int firstMaxBottomAtLeast(int y) {
+        int low = 0;
+        int high = _maxBottoms.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (_maxBottoms[mid] >= y) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private int firstTopAfter(int y) {
+        int low = 0;
+        int high = _tops.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (_tops[mid] > y) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
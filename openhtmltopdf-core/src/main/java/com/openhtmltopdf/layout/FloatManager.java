@@ -267,6 +267,10 @@ public class FloatManager {
         }
     }
 
+    public boolean hasFloats() {
+        return _leftFloats.size() > 0 || _rightFloats.size() > 0;
+    }
+
     public void removeFloat(BlockBox floater) {
         removeFloat(floater, getFloats(LEFT));
         removeFloat(floater, getFloats(RIGHT));
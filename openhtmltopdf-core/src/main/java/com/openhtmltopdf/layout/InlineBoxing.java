@@ -44,6 +44,7 @@ import com.openhtmltopdf.render.LineBox;
 import com.openhtmltopdf.render.MarkerData;
 import com.openhtmltopdf.render.StrutMetrics;
 import com.openhtmltopdf.render.TextDecoration;
+import com.openhtmltopdf.util.RenderMetrics;
 
 /**
  * This class is responsible for flowing inline content into lines.  Block
@@ -1020,6 +1021,11 @@ public class InlineBoxing {
 
         result.calcCanvasLocation();
 
+        RenderMetrics metrics = c.getSharedContext().getRenderMetrics();
+        if (metrics != null) {
+            metrics.increment(RenderMetrics.Counter.BOXES_CREATED);
+        }
+
         return result;
     }
 
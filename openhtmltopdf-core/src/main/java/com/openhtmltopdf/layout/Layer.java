@@ -27,6 +27,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -37,7 +38,7 @@ import com.openhtmltopdf.css.constants.PageElementPosition;
 import com.openhtmltopdf.css.newmatch.PageInfo;
 import com.openhtmltopdf.css.style.CalculatedStyle;
 import com.openhtmltopdf.css.style.CssContext;
-import com.openhtmltopdf.css.style.EmptyStyle;
+import com.openhtmltopdf.newtable.TableBox;
 import com.openhtmltopdf.newtable.TableCellBox;
 import com.openhtmltopdf.render.BlockBox;
 import com.openhtmltopdf.render.Box;
@@ -46,6 +47,7 @@ import com.openhtmltopdf.render.InlineLayoutBox;
 import com.openhtmltopdf.render.PageBox;
 import com.openhtmltopdf.render.RenderingContext;
 import com.openhtmltopdf.render.ViewportBox;
+import com.openhtmltopdf.util.ThreadCtx;
 
 /**
  * All positioned content as well as content with an overflow value other
@@ -93,6 +95,8 @@ public class Layer {
     private int _selectionEndX;
     private int _selectionEndY;
     
+    private Map _childBoundsIndexes;
+    
     public Layer(Box master) {
         this(null, master);
         setStackingContext(true);
@@ -452,6 +456,33 @@ public class Layer {
         }
     }
     
+    /**
+     * Gets an index of the children of a box in this layer by their painting bounds,
+     * building it if needed, or null if the box is not worth indexing.
+     * The index is kept so that painting each page does not need to check every child.
+     * Synchronized as pages may be painted in parallel.
+     */
+    synchronized ChildBoundsIndex getChildBoundsIndex(Box container) {
+        if (container.getChildCount() < ChildBoundsIndex.MIN_CHILDREN ||
+            container.getPaintingInfo() == null ||
+            container instanceof TableBox) {
+            // The sections of a table with repeating headers or footers are moved as each page is painted.
+            return null;
+        }
+        
+        if (_childBoundsIndexes == null) {
+            _childBoundsIndexes = new IdentityHashMap();
+        }
+        
+        ChildBoundsIndex index = (ChildBoundsIndex) _childBoundsIndexes.get(container);
+        if (index == null || !index.isValidFor(container)) {
+            index = new ChildBoundsIndex(container);
+            _childBoundsIndexes.put(container, index);
+        }
+        
+        return index;
+    }
+    
     public void paintAsLayer(RenderingContext c, BlockBox startingPoint) {
         BoxRangeLists rangeLists = new BoxRangeLists();
         
@@ -545,15 +576,6 @@ public class Layer {
         return getParent() == null && isStackingContext();
     }
     
-    private void moveIfGreater(Dimension result, Dimension test) {
-        if (test.width > result.width) {
-            result.width = test.width;
-        }
-        if (test.height > result.height) {
-            result.height = test.height;
-        }
-    }
-    
     private PaintingInfo calcPaintingDimension(LayoutContext c) {
         getMaster().calcPaintingInfo(c, true);
         PaintingInfo result = (PaintingInfo)getMaster().getPaintingInfo().copyOf();
@@ -566,7 +588,7 @@ public class Layer {
                 continue;
             } else if (child.getMaster().getStyle().isAbsolute()) {
                 PaintingInfo info = child.calcPaintingDimension(c);
-                moveIfGreater(result.getOuterMarginCorner(), info.getOuterMarginCorner());
+                result.includeOuterMarginCorner(info);
             } 
         }
         
@@ -611,6 +633,39 @@ public class Layer {
         return _fixedBackground || containsFixedLayer();
     }
 
+    /**
+     * Whether painting a page leaves the box tree unchanged, so that pages may be painted
+     * in any order and on several threads. Fixed content and tables with repeating headers
+     * and footers are moved as each page is painted.
+     */
+    public boolean canPaintPagesInParallel() {
+        return !containsFixedContent() && !containsPaginatedTable(getMaster());
+    }
+
+    private static boolean containsPaginatedTable(Box box) {
+        if (box instanceof TableBox && ((TableBox) box).hasContentLimitContainer()) {
+            return true;
+        }
+
+        if (box instanceof InlineLayoutBox) {
+            InlineLayoutBox iB = (InlineLayoutBox) box;
+            for (int i = 0; i < iB.getInlineChildCount(); i++) {
+                Object child = iB.getInlineChild(i);
+                if (child instanceof Box && containsPaginatedTable((Box) child)) {
+                    return true;
+                }
+            }
+        }
+
+        for (int i = 0; i < box.getChildCount(); i++) {
+            if (containsPaginatedTable(box.getChild(i))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     public void setFixedBackground(boolean b) {
         _fixedBackground = b;
     }
@@ -797,7 +852,7 @@ public class Layer {
         PageInfo pageInfo = c.getCss().getPageStyle(pageName, pseudoPage);
         result.setPageInfo(pageInfo);
         
-        CalculatedStyle cs = new EmptyStyle().deriveStyle(pageInfo.getPageStyle());
+        CalculatedStyle cs = ThreadCtx.get().sharedContext().getRootStyle().deriveStyle(pageInfo.getPageStyle());
         result.setStyle(cs);
         result.setOuterPageWidth(result.getWidth(c));
         
@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import com.openhtmltopdf.bidi.BidiReorderer;
 import com.openhtmltopdf.bidi.BidiSplitter;
@@ -90,6 +91,9 @@ public class LayoutContext implements CssContext {
 
     private boolean _mayCheckKeepTogether = true;
 
+    // How many page break relayouts are in progress, so that nested relayouts are only timed once.
+    private int _relayoutDepth;
+
     private BreakAtLineContext _breakAtLineContext;
 
     public TextRenderer getTextRenderer() {
@@ -115,6 +119,7 @@ public class LayoutContext implements CssContext {
     private final ParagraphSplitter _splitter = new ParagraphSplitter();
     private BidiSplitterFactory _bidiSplitterFactory = new SimpleBidiSplitterFactory();
     private byte _defaultTextDirection = BidiSplitter.LTR;
+    private ExecutorService _bidiExecutor;
     
     /**
      * The paragraph splitter splits the document into paragraphs for the purpose of bi-directional
@@ -148,6 +153,22 @@ public class LayoutContext implements CssContext {
     	this._bidiSplitterFactory = factory;
     }
     
+    /**
+     * @return the executor to split paragraphs with right to left text on, or null to split
+     * them on the layout thread.
+     */
+    public ExecutorService getBidiExecutor() {
+        return _bidiExecutor;
+    }
+    
+    /**
+     * The bidi executor splits the paragraphs of the document in parallel. The bidi
+     * splitter factory must be thread safe when it is set.
+     */
+    public void setBidiExecutor(ExecutorService executor) {
+        _bidiExecutor = executor;
+    }
+    
     /**
      * @return the default text direction for a document.
      */
@@ -585,6 +606,17 @@ public class LayoutContext implements CssContext {
         _mayCheckKeepTogether = mayKeepTogether;
     }
 
+    /**
+     * @return true if this is the outermost relayout.
+     */
+    boolean enterRelayout() {
+        return _relayoutDepth++ == 0;
+    }
+
+    void exitRelayout() {
+        _relayoutDepth--;
+    }
+
     public BreakAtLineContext getBreakAtLineContext() {
         return _breakAtLineContext;
     }
@@ -30,7 +30,10 @@ import java.awt.Rectangle;
  * overflow property into account.
  */
 public class PaintingInfo {
-    private Dimension _outerMarginCorner;
+    // The outer margin corner is kept as two ints, as there is a painting info
+    // for every box of the document.
+    private int _outerMarginCornerWidth;
+    private int _outerMarginCornerHeight;
     private Rectangle _aggregateBounds;
     
     public PaintingInfo() {
@@ -44,17 +47,41 @@ public class PaintingInfo {
         _aggregateBounds = aggregateBounds;
     }
     
+    /**
+     * @return a copy of the outer margin corner, changing it does not change this painting info.
+     * Before the corner was kept as two ints this returned the dimension itself, so callers
+     * that grew it in place must use {@link #setOuterMarginCorner(Dimension)} or
+     * {@link #includeOuterMarginCorner(PaintingInfo)} instead.
+     */
     public Dimension getOuterMarginCorner() {
-        return _outerMarginCorner;
+        return new Dimension(_outerMarginCornerWidth, _outerMarginCornerHeight);
     }
     
+    /**
+     * Copies the width and height of the dimension, which may be changed afterwards.
+     */
     public void setOuterMarginCorner(Dimension outerMarginCorner) {
-        _outerMarginCorner = outerMarginCorner;
+        _outerMarginCornerWidth = outerMarginCorner.width;
+        _outerMarginCornerHeight = outerMarginCorner.height;
+    }
+    
+    /**
+     * Moves the outer margin corner right and down as far as needed to include
+     * the outer margin corner of <code>other</code>.
+     */
+    public void includeOuterMarginCorner(PaintingInfo other) {
+        if (other._outerMarginCornerWidth > _outerMarginCornerWidth) {
+            _outerMarginCornerWidth = other._outerMarginCornerWidth;
+        }
+        if (other._outerMarginCornerHeight > _outerMarginCornerHeight) {
+            _outerMarginCornerHeight = other._outerMarginCornerHeight;
+        }
     }
     
     public PaintingInfo copyOf() {
         PaintingInfo result = new PaintingInfo();
-        result.setOuterMarginCorner(new Dimension(_outerMarginCorner));
+        result._outerMarginCornerWidth = _outerMarginCornerWidth;
+        result._outerMarginCornerHeight = _outerMarginCornerHeight;
         result.setAggregateBounds(new Rectangle(_aggregateBounds));
         
         return result;
@@ -62,7 +89,7 @@ public class PaintingInfo {
     
     public void translate(int tx, int ty) {
         _aggregateBounds.translate(tx, ty);
-        _outerMarginCorner.setSize(
-                _outerMarginCorner.getWidth()+tx, _outerMarginCorner.getHeight()+ty);
+        _outerMarginCornerWidth += tx;
+        _outerMarginCornerHeight += ty;
     }
 }
@@ -54,6 +54,7 @@ import com.openhtmltopdf.simple.extend.FormSubmissionListener;
 import com.openhtmltopdf.swing.AWTFontResolver;
 import com.openhtmltopdf.swing.Java2DTextRenderer;
 import com.openhtmltopdf.swing.SwingReplacedElementFactory;
+import com.openhtmltopdf.util.RenderMetrics;
 import com.openhtmltopdf.util.ThreadCtx;
 import com.openhtmltopdf.util.XRLog;
 
@@ -110,6 +111,7 @@ public class SharedContext {
 
     private boolean print;
     private Map<Element, CalculatedStyle> styleMap;
+    private CalculatedStyle rootStyle;
     private ReplacedElementFactory replacedElementFactory;
     private Rectangle tempCanvas;
     
@@ -136,6 +138,8 @@ public class SharedContext {
 	private FSTextTransformer _unicodeToLowerTransformer = new TextUtil.DefaultToLowerTransformer(Locale.US);
 	private FSTextTransformer _unicodeToUpperTransformer = new TextUtil.DefaultToUpperTransformer(Locale.US);
 	private FSTextTransformer _unicodeToTitleTransformer = new TextUtil.DefaultToTitleTransformer();
+
+	private RenderMetrics _renderMetrics;
     
     public SharedContext() {
     }
@@ -535,12 +539,12 @@ public class SharedContext {
             Node parent = e.getParentNode();
             CalculatedStyle parentCalculatedStyle;
             if (parent instanceof Document) {
-                parentCalculatedStyle = new EmptyStyle();
+                parentCalculatedStyle = getRootStyle();
             } else {
                 parentCalculatedStyle = getStyle((Element)parent, false);
             }
 
-            result = parentCalculatedStyle.deriveStyle(getCss().getCascadedStyle(e, restyle));
+            result = parentCalculatedStyle.deriveStyle(getCss().getCascadedStyle(e, restyle), _renderMetrics);
 
             styleMap.put(e, result);
         }
@@ -548,8 +552,22 @@ public class SharedContext {
         return result;
     }
 
+    /**
+     * Gets the style which the styles of the root element, pages and margin boxes are
+     * derived from. As derived styles are cached by their parent and compared by their
+     * cascaded properties, a style is only calculated once for all the pages and margin
+     * boxes with the same properties.
+     */
+    public synchronized CalculatedStyle getRootStyle() {
+        if (rootStyle == null) {
+            rootStyle = new EmptyStyle();
+        }
+        return rootStyle;
+    }
+
     public void reset() {
        styleMap = null;
+       rootStyle = null;
        idMap = null;
        replacedElementFactory.reset();
     }
@@ -677,6 +695,17 @@ public class SharedContext {
 		ThreadCtx.get().setSharedContext(null);
 	}
 
+	/**
+	 * @return the metrics of the current render, or null if metrics are not being collected.
+	 */
+	public RenderMetrics getRenderMetrics() {
+		return _renderMetrics;
+	}
+
+	public void setRenderMetrics(RenderMetrics metrics) {
+		this._renderMetrics = metrics;
+	}
+
 	public FSTextTransformer getUnicodeToLowerTransformer() {
 		return this._unicodeToLowerTransformer;
 	}
@@ -19,7 +19,6 @@
  */
 package com.openhtmltopdf.layout;
 
-import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -37,6 +36,10 @@ public class WhitespaceStripper {
     public final static String EOL = "\n";
     public final static char EOLC = '\n';
     
+    /*
+     * These patterns state the collapsing rules of collapseWhitespace, which
+     * applies them in a single pass over the text rather than one after the other.
+     */
     public final static Pattern linefeed_space_collapse = Pattern.compile("\\s+\\n\\s+");//Pattern is thread-safe
     public final static Pattern linefeed_to_space = Pattern.compile("\\n");
     public final static Pattern tab_to_space = Pattern.compile("\\t");
@@ -130,11 +133,11 @@ public class WhitespaceStripper {
 
         text = collapseWhitespace(iB, whitespace, text, collapseLeading);
 
-        boolean collapseNext = (text.endsWith(SPACE) &&
+        boolean collapseNext = (text.length() > 0 && text.charAt(text.length() - 1) == ' ' &&
                 (whitespace == IdentValue.NORMAL || whitespace == IdentValue.NOWRAP || whitespace == IdentValue.PRE));
 
         iB.setText(text);
-        if (text.trim().equals("")) {
+        if (isBlank(text)) {
             if (whitespace == IdentValue.NORMAL || whitespace == IdentValue.NOWRAP) {
                 iB.setRemovableWhitespace(true);
             } else if (whitespace == IdentValue.PRE) {
@@ -143,40 +146,207 @@ public class WhitespaceStripper {
                 iB.setRemovableWhitespace(true);
             }
         }
-        return text.equals("") ? collapseLeading : collapseNext;
+        return text.length() == 0 ? collapseLeading : collapseNext;
+    }
+
+    /**
+     * Whether <code>text.trim()</code> would be empty, without creating the trimmed string.
+     */
+    private static boolean isBlank(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
     }
 
     private static String collapseWhitespace(InlineBox iB, IdentValue whitespace, String text, boolean collapseLeading) {
-        if (whitespace == IdentValue.NORMAL || whitespace == IdentValue.NOWRAP) {
-            text = linefeed_space_collapse.matcher(text).replaceAll(EOL);
-        } else if (whitespace == IdentValue.PRE) {
-            text = space_before_linefeed_collapse.matcher(text).replaceAll(EOL);
+        int tabSize = 0;
+        if (whitespace == IdentValue.PRE || whitespace == IdentValue.PRE_WRAP) {
+            tabSize = (int) iB.getStyle().asFloat(CSSName.TAB_SIZE);
         }
+        return collapseWhitespace(whitespace, tabSize, text, collapseLeading);
+    }
 
+    /**
+     * Collapses the whitespace of <code>text</code> as the patterns of this class
+     * would, in one pass over the text. The text is returned as it is if nothing
+     * changes, otherwise the result is built in a single buffer.
+     *
+     * @param tabSize the number of spaces that replace a tab in <code>pre</code>
+     * and <code>pre-wrap</code> text
+     * @param collapseLeading whether a leading space collapses with the end of the
+     * previous inline, in <code>normal</code> and <code>nowrap</code> text
+     */
+    static String collapseWhitespace(IdentValue whitespace, int tabSize, String text, boolean collapseLeading) {
         if (whitespace == IdentValue.NORMAL || whitespace == IdentValue.NOWRAP) {
-            text = linefeed_to_space.matcher(text).replaceAll(SPACE);
-            text = tab_to_space.matcher(text).replaceAll(SPACE);
-            text = space_collapse.matcher(text).replaceAll(SPACE);
-        } else if (whitespace == IdentValue.PRE || whitespace == IdentValue.PRE_WRAP) {
-            int tabSize = (int) iB.getStyle().asFloat(CSSName.TAB_SIZE);
-            char[] tabs = new char[tabSize];
-            Arrays.fill(tabs, ' ');
-            text = tab_to_space.matcher(text).replaceAll(new String(tabs));
+            return collapseSpacesAndLinefeeds(text, collapseLeading);
+        } else if (whitespace == IdentValue.PRE) {
+            return expandTabs(text, tabSize, true);
+        } else if (whitespace == IdentValue.PRE_WRAP) {
+            return expandTabs(text, tabSize, false);
         } else if (whitespace == IdentValue.PRE_LINE) {
-            text = tab_to_space.matcher(text).replaceAll(SPACE);
-            text = space_collapse.matcher(text).replaceAll(SPACE);
+            return collapseSpaces(text);
+        } else {
+            return text;
         }
+    }
 
-        if (whitespace == IdentValue.NORMAL || whitespace == IdentValue.NOWRAP) {
-            // collapse first space against prev inline
-            if (text.startsWith(SPACE) &&
-                    collapseLeading) {
-                text = text.substring(1, text.length());
+    /**
+     * Whether the character is matched by <code>\s</code> in a pattern.
+     */
+    private static boolean isPatternSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * <code>normal</code> and <code>nowrap</code>: a run of whitespace with a
+     * linefeed inside it becomes a single space, otherwise linefeeds and tabs
+     * become spaces and consecutive spaces collapse into one.
+     */
+    private static String collapseSpacesAndLinefeeds(String text, boolean collapseLeading) {
+        CollapsedText result = new CollapsedText(text);
+        int length = text.length();
+        boolean previousSpace = false;
+        // The first space of the result is dropped when it collapses with the previous inline
+        boolean dropSpace = collapseLeading;
+
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (! isPatternSpace(c)) {
+                result.append(i, c);
+                previousSpace = false;
+                dropSpace = false;
+                i++;
+                continue;
+            }
+
+            int end = i + 1;
+            boolean innerLinefeed = false;
+            while (end < length && isPatternSpace(text.charAt(end))) {
+                if (text.charAt(end) == EOLC && end + 1 < length && isPatternSpace(text.charAt(end + 1))) {
+                    innerLinefeed = true;
+                }
+                end++;
+            }
+
+            if (innerLinefeed) {
+                if (! dropSpace) {
+                    result.append(i, ' ');
+                }
+                previousSpace = true;
+                dropSpace = false;
+            } else {
+                for (int j = i; j < end; j++) {
+                    char ws = text.charAt(j);
+                    if (ws == EOLC || ws == '\t') {
+                        ws = ' ';
+                    }
+                    if (ws == ' ') {
+                        if (! previousSpace && ! dropSpace) {
+                            result.append(j, ' ');
+                        }
+                        previousSpace = true;
+                    } else {
+                        result.append(j, ws);
+                        previousSpace = false;
+                    }
+                    dropSpace = false;
+                }
             }
+            i = end;
         }
 
-        return text;
+        return result.toString();
     }
-}
 
+    /**
+     * <code>pre</code> and <code>pre-wrap</code>: tabs become <code>tabSize</code>
+     * spaces. In <code>pre</code> text a whitespace character right before a
+     * linefeed is removed as well.
+     */
+    private static String expandTabs(String text, int tabSize, boolean removeBeforeLinefeed) {
+        CollapsedText result = new CollapsedText(text);
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (removeBeforeLinefeed && c != EOLC && isPatternSpace(c) &&
+                    i + 1 < length && text.charAt(i + 1) == EOLC) {
+                continue;
+            }
+            if (c == '\t') {
+                for (int j = 0; j < tabSize; j++) {
+                    result.append(i, ' ');
+                }
+            } else {
+                result.append(i, c);
+            }
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * <code>pre-line</code>: tabs become spaces and consecutive spaces collapse into one.
+     */
+    private static String collapseSpaces(String text) {
+        CollapsedText result = new CollapsedText(text);
+        int length = text.length();
+        boolean previousSpace = false;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == '\t') {
+                if (! previousSpace) {
+                    result.append(i, ' ');
+                }
+                previousSpace = true;
+            } else {
+                result.append(i, c);
+                previousSpace = false;
+            }
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * The result of collapsing a text. As long as the result is a prefix of the
+     * text no characters are copied, so a text without anything to collapse is
+     * returned as it is.
+     */
+    private static class CollapsedText {
+        private final String _text;
+        private StringBuilder _buffer;
+        private int _length;
+
+        CollapsedText(String text) {
+            _text = text;
+        }
 
+        /**
+         * Appends <code>c</code>, which replaces the character of the text at <code>index</code>.
+         */
+        void append(int index, char c) {
+            if (_buffer == null) {
+                if (index == _length && _text.charAt(index) == c) {
+                    _length++;
+                    return;
+                }
+                _buffer = new StringBuilder(_text.length() + 16);
+                _buffer.append(_text, 0, _length);
+            }
+            _buffer.append(c);
+        }
+
+        public String toString() {
+            if (_buffer != null) {
+                return _buffer.toString();
+            }
+            return _length == _text.length() ? _text : _text.substring(0, _length);
+        }
+    }
+}
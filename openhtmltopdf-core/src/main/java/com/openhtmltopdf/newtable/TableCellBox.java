@@ -394,6 +394,11 @@ public class TableCellBox extends BlockBox {
         return true;
     } 
 
+    protected boolean isMayCollapseMarginsWithSiblings() {
+        // cells only have cells as siblings
+        return false;
+    }
+
     // The following rules apply for resolving conflicts and figuring out which
     // border
     // to use.
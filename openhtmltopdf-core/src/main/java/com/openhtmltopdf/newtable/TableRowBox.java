@@ -46,6 +46,8 @@ public class TableRowBox extends BlockBox {
     private int _extraSpaceTop;
     private int _extraSpaceBottom;
     
+    private boolean _needCellWidthCalc;
+    
     public TableRowBox() {
     }
     
@@ -196,7 +198,10 @@ public class TableRowBox extends BlockBox {
         if (section.isNeedCellWidthCalc()) {
             section.setCellWidths(c);
             section.setNeedCellWidthCalc(false);
+        } else if (_needCellWidthCalc) {
+            section.setCellWidths(c, this);
         }
+        _needCellWidthCalc = false;
         
         if (getChildrenContentType() != CONTENT_EMPTY) {
             int cCol = 0;
@@ -472,6 +477,11 @@ public class TableRowBox extends BlockBox {
     protected boolean isSkipWhenCollapsingMargins() {
         return true;
     }
+
+    protected boolean isMayCollapseMarginsWithSiblings() {
+        // the siblings of a row are rows
+        return false;
+    }
     
     public void paintBorder(RenderingContext c) {
         // rows never have borders
@@ -484,7 +494,7 @@ public class TableRowBox extends BlockBox {
     public void reset(LayoutContext c) {
         super.reset(c);
         setHaveBaseline(false);
-        getSection().setNeedCellWidthCalc(true);
+        _needCellWidthCalc = true;
         setContentLimitContainer(null);
     }
 
@@ -194,29 +194,58 @@ public class TableSectionBox extends BlockBox {
     void setCellWidths(LayoutContext c)
     {
         int[] columnPos = getTable().getColumnPos();
+        int hspacing = getTable().getStyle().getBorderHSpacing(c);
         
         for (Iterator i = _grid.iterator(); i.hasNext(); ) {
             RowData row = (RowData)i.next();
-            List cols = row.getRow();
-            int hspacing = getTable().getStyle().getBorderHSpacing(c);
-            for (int j = 0; j < cols.size(); j++) {
-                TableCellBox cell = (TableCellBox)cols.get(j);
-                
-                if (cell == null || cell == TableCellBox.SPANNING_CELL) {
-                    continue;
-                }
-                
-                int endCol = j;
-                int cspan = cell.getStyle().getColSpan();
-                while (cspan > 0 && endCol < cols.size()) {
-                    cspan -= getTable().spanOfEffCol(endCol);
-                    endCol++;
-                }
-                
-                int w = columnPos[endCol] - columnPos[j] - hspacing;
-                cell.setLayoutWidth(c, w);
-                cell.setX(columnPos[j] + hspacing);
+            setCellWidths(c, row.getRow(), null, columnPos, hspacing);
+        }
+    }
+    
+    /**
+     * Sets the widths of the cells of a row which was reset to be laid out again.
+     * Only the cells of the row are set, as the cells of the other rows keep their
+     * widths, so that laying out each row again is not linear in the number of rows.
+     */
+    void setCellWidths(LayoutContext c, TableRowBox row)
+    {
+        if (row.getChildCount() == 0) {
+            return;
+        }
+        
+        int cRow = ((TableCellBox)row.getChild(0)).getRow();
+        if (cRow < 0 || cRow >= _grid.size()) {
+            setCellWidths(c);
+            return;
+        }
+        
+        RowData data = (RowData)_grid.get(cRow);
+        setCellWidths(c, data.getRow(), row, getTable().getColumnPos(), getTable().getStyle().getBorderHSpacing(c));
+    }
+    
+    private void setCellWidths(LayoutContext c, List cols, TableRowBox parent, int[] columnPos, int hspacing) {
+        for (int j = 0; j < cols.size(); j++) {
+            TableCellBox cell = (TableCellBox)cols.get(j);
+            
+            if (cell == null || cell == TableCellBox.SPANNING_CELL) {
+                continue;
+            }
+            
+            if (parent != null && cell.getParent() != parent) {
+                // spans down from a row above
+                continue;
             }
+            
+            int endCol = j;
+            int cspan = cell.getStyle().getColSpan();
+            while (cspan > 0 && endCol < cols.size()) {
+                cspan -= getTable().spanOfEffCol(endCol);
+                endCol++;
+            }
+            
+            int w = columnPos[endCol] - columnPos[j] - hspacing;
+            cell.setLayoutWidth(c, w);
+            cell.setX(columnPos[j] + hspacing);
         }
     }
     
@@ -232,6 +261,11 @@ public class TableSectionBox extends BlockBox {
     protected boolean isSkipWhenCollapsingMargins() {
         return true;
     }
+
+    protected boolean isMayCollapseMarginsWithSiblings() {
+        // row groups only have row groups as siblings
+        return false;
+    }
     
     public void paintBorder(RenderingContext c) {
         // row groups never have borders
@@ -52,6 +52,7 @@ import com.openhtmltopdf.layout.PersistentBFC;
 import com.openhtmltopdf.layout.Styleable;
 import com.openhtmltopdf.newtable.TableRowBox;
 import com.openhtmltopdf.render.LineBox.LTRvsRTL;
+import com.openhtmltopdf.util.RenderMetrics;
 
 /**
  * A block box as defined in the CSS spec.  It also provides a base class for
@@ -986,6 +987,11 @@ public class BlockBox extends Box implements InlinePaintable {
     public void ensureChildren(LayoutContext c) {
         if (getChildrenContentType() == CONTENT_UNKNOWN) {
             BoxBuilder.createChildren(c, this);
+
+            RenderMetrics metrics = c.getSharedContext().getRenderMetrics();
+            if (metrics != null) {
+                metrics.add(RenderMetrics.Counter.BOXES_CREATED, getChildCount());
+            }
         }
     }
 
@@ -1132,6 +1138,16 @@ public class BlockBox extends Box implements InlinePaintable {
         return false;
     }
 
+    /**
+     * Whether a following sibling may pick up the bottom margin of this box.
+     * Boxes whose siblings are all skipped when collapsing margins return
+     * <code>false</code>, so that laying out each of them does not search
+     * through all the siblings after it.
+     */
+    protected boolean isMayCollapseMarginsWithSiblings() {
+        return true;
+    }
+
     protected boolean isMayCollapseMarginsWithChildren() {
         return (! isRoot()) && getStyle().isMayCollapseMarginsWithChildren();
     }
@@ -1174,7 +1190,7 @@ public class BlockBox extends Box implements InlinePaintable {
 
     private void setCollapsedBottomMargin(LayoutContext c, RectPropertySet margin, MarginCollapseResult collapsedMargin) {
         BlockBox next = null;
-        if (! isInline()) {
+        if (! isInline() && isMayCollapseMarginsWithSiblings()) {
             next = getNextCollapsableSibling(collapsedMargin);
         }
         if (! (next == null || next instanceof AnonymousBlockBox) &&
@@ -1845,9 +1861,7 @@ public class BlockBox extends Box implements InlinePaintable {
                     new FloatManager.FloatOperation() {
                         public void operate(Box floater) {
                             PaintingInfo info = floater.calcPaintingInfo(c, useCache);
-                            moveIfGreater(
-                                    result.getOuterMarginCorner(),
-                                    info.getOuterMarginCorner());
+                            result.includeOuterMarginCorner(info);
                         }
                     });
         }
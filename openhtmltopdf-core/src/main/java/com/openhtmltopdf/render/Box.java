@@ -72,7 +72,6 @@ public abstract class Box implements Styleable {
      */
     private int _height;
 
-    private Layer _layer = null;
     private Layer _containingLayer;
 
     private Box _parent;
@@ -88,18 +87,25 @@ public abstract class Box implements Styleable {
     private CalculatedStyle _style;
     private Box _containingBlock;
 
-    private Dimension _relativeOffset;
-
     private PaintingInfo _paintingInfo;
 
     private RectPropertySet _workingMargin;
 
     private int _index;
 
-    private String _pseudoElementOrClass;
-
     private boolean _anonymous;
 
+    private RareData _rareData;
+
+    /**
+     * The attributes that only a few boxes have, allocated by the first box that sets one.
+     */
+    private static class RareData {
+        private Layer _layer;
+        private Dimension _relativeOffset;
+        private String _pseudoElementOrClass;
+    }
+
     protected Box() {
     }
 
@@ -136,7 +142,8 @@ public abstract class Box implements Styleable {
 
     public void addChild(Box child) {
         if (_boxes == null) {
-            _boxes = new ArrayList();
+            // Most boxes end up with a single child.
+            _boxes = new ArrayList(1);
         }
         if (child == null) {
             throw new NullPointerException("trying to add null child");
@@ -353,11 +360,20 @@ public abstract class Box implements Styleable {
     }
 
     public Layer getLayer() {
-        return _layer;
+        return _rareData == null ? null : _rareData._layer;
     }
 
     public void setLayer(Layer layer) {
-        _layer = layer;
+        if (layer != null || _rareData != null) {
+            ensureRareData()._layer = layer;
+        }
+    }
+
+    private RareData ensureRareData() {
+        if (_rareData == null) {
+            _rareData = new RareData();
+        }
+        return _rareData;
     }
 
     public Dimension positionRelative(CssContext cssCtx) {
@@ -512,9 +528,9 @@ public abstract class Box implements Styleable {
 
     public void reset(LayoutContext c) {
         resetChildren(c);
-        if (_layer != null) {
-            _layer.detach();
-            _layer = null;
+        if (getLayer() != null) {
+            getLayer().detach();
+            setLayer(null);
         }
 
         setContainingLayer(null);
@@ -668,11 +684,13 @@ public abstract class Box implements Styleable {
     }
 
     public Dimension getRelativeOffset() {
-        return _relativeOffset;
+        return _rareData == null ? null : _rareData._relativeOffset;
     }
 
     public void setRelativeOffset(Dimension relativeOffset) {
-        _relativeOffset = relativeOffset;
+        if (relativeOffset != null || _rareData != null) {
+            ensureRareData()._relativeOffset = relativeOffset;
+        }
     }
 
     public Box find(CssContext cssCtx, int absX, int absY, boolean findAnonymous) {
@@ -810,7 +828,7 @@ public abstract class Box implements Styleable {
         for (int i = 0; i < getChildCount(); i++) {
             Box child = getChild(i);
             PaintingInfo info = child.calcPaintingInfo(c, useCache);
-            moveIfGreater(result.getOuterMarginCorner(), info.getOuterMarginCorner());
+            result.includeOuterMarginCorner(info);
             result.getAggregateBounds().add(info.getAggregateBounds());
         }
     }
@@ -834,6 +852,11 @@ public abstract class Box implements Styleable {
         }
     }
 
+    /**
+     * @deprecated {@link PaintingInfo#getOuterMarginCorner()} returns a copy, so moving it does
+     * not change the painting info. Use {@link PaintingInfo#includeOuterMarginCorner(PaintingInfo)}.
+     */
+    @Deprecated
     protected void moveIfGreater(Dimension result, Dimension test) {
         if (test.width > result.width) {
             result.width = test.width;
@@ -904,11 +927,13 @@ public abstract class Box implements Styleable {
     }
 
     public String getPseudoElementOrClass() {
-        return _pseudoElementOrClass;
+        return _rareData == null ? null : _rareData._pseudoElementOrClass;
     }
 
     public void setPseudoElementOrClass(String pseudoElementOrClass) {
-        _pseudoElementOrClass = pseudoElementOrClass;
+        if (pseudoElementOrClass != null || _rareData != null) {
+            ensureRareData()._pseudoElementOrClass = pseudoElementOrClass;
+        }
     }
 
     public void setX(int x) {
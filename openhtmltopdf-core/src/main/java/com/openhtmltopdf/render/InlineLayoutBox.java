@@ -45,6 +45,7 @@ import com.openhtmltopdf.layout.Layer;
 import com.openhtmltopdf.layout.LayoutContext;
 import com.openhtmltopdf.layout.PaintingInfo;
 import com.openhtmltopdf.render.LineBox.LTRvsRTL;
+import com.openhtmltopdf.util.RenderMetrics;
 
 /**
  * A {@link Box} which contains the portion of an inline element layed out on a
@@ -81,6 +82,11 @@ public class InlineLayoutBox extends Box implements InlinePaintable {
         setMarginBottom(c, 0);
         setPending(true);
         calculateHeight(c);
+
+        RenderMetrics metrics = c.getSharedContext().getRenderMetrics();
+        if (metrics != null) {
+            metrics.increment(RenderMetrics.Counter.BOXES_CREATED);
+        }
     }
     
     private InlineLayoutBox() {
@@ -129,7 +135,8 @@ public class InlineLayoutBox extends Box implements InlinePaintable {
     
     public void addInlineChild(LayoutContext c, Object child, boolean callUnmarkPending) {
         if (_inlineChildren == null) {
-            _inlineChildren = new ArrayList();
+            // Usually the only child is the text of the element.
+            _inlineChildren = new ArrayList(1);
         }
         
         _inlineChildren.add(child);
@@ -711,7 +718,7 @@ public class InlineLayoutBox extends Box implements InlinePaintable {
             Object obj = getInlineChild(i);
             if (obj instanceof Box) {
                 PaintingInfo info = ((Box)obj).calcPaintingInfo(c, useCache);
-                moveIfGreater(result.getOuterMarginCorner(), info.getOuterMarginCorner());
+                result.includeOuterMarginCorner(info);
                 result.getAggregateBounds().add(info.getAggregateBounds());
             } 
         }
@@ -46,20 +46,35 @@ public class InlineText {
     
     private int _width;
     
-    private FunctionData _functionData;
-    
     private boolean _containedLF = false;
     
-    private short _selectionStart;
-    private short _selectionEnd;
-    
-    private float[] _glyphPositions;
-    
     private boolean _trimmedLeadingSpace;
     private boolean _trimmedTrailingSpace;
     private Text _textNode;
     private byte _textDirection;
     
+    private RareData _rareData;
+    
+    /**
+     * The content function and the selection state, which only a few texts
+     * have. The glyph positions are only used to select text.
+     */
+    private static class RareData {
+        private FunctionData _functionData;
+        
+        private short _selectionStart;
+        private short _selectionEnd;
+        
+        private float[] _glyphPositions;
+    }
+    
+    private RareData ensureRareData() {
+        if (_rareData == null) {
+            _rareData = new RareData();
+        }
+        return _rareData;
+    }
+    
     /**
      * @param direction either LTR or RTL from BidiSplitter interface.
      */
@@ -159,20 +174,23 @@ public class InlineText {
     }
 
     public boolean isDynamicFunction() {
-        return _functionData != null;
+        return getFunctionData() != null;
     }
 
     public FunctionData getFunctionData() {
-        return _functionData;
+        return _rareData == null ? null : _rareData._functionData;
     }
 
     public void setFunctionData(FunctionData functionData) {
-        _functionData = functionData;
+        if (functionData != null || _rareData != null) {
+            ensureRareData()._functionData = functionData;
+        }
     }
     
     public void updateDynamicValue(RenderingContext c) {
-        String value = _functionData.getContentFunction().calculate(
-                c, _functionData.getFunction(), this);
+        FunctionData functionData = getFunctionData();
+        String value = functionData.getContentFunction().calculate(
+                c, functionData.getFunction(), this);
         _start = 0;
         _end = value.length();
         _masterText = value;
@@ -202,17 +220,18 @@ public class InlineText {
     }
     
     public boolean updateSelection(RenderingContext c, Rectangle selection) {
-        ensureGlyphPositions(c);
-        float[] positions = _glyphPositions;
+        RareData rareData = ensureRareData();
+        ensureGlyphPositions(c, rareData);
+        float[] positions = rareData._glyphPositions;
         int y = getParent().getAbsY();
         int offset = getParent().getAbsX() + getX();
         
-        int prevSelectionStart = _selectionStart;
-        int prevSelectionEnd = _selectionEnd;
+        int prevSelectionStart = rareData._selectionStart;
+        int prevSelectionEnd = rareData._selectionEnd;
         
         boolean found = false;
-        _selectionStart = 0;
-        _selectionEnd = 0;
+        rareData._selectionStart = 0;
+        rareData._selectionEnd = 0;
         for (int i = 0; i < positions.length - 2; i += 2) {
             Rectangle target = new Rectangle(
                     (int)(offset + (positions[i] + positions[i+2]) / 2),
@@ -222,24 +241,24 @@ public class InlineText {
             if (selection.intersects(target)) {
                 if (! found) {
                     found = true;
-                    _selectionStart = (short)(i / 2);
-                    _selectionEnd = (short)(i / 2 + 1);
+                    rareData._selectionStart = (short)(i / 2);
+                    rareData._selectionEnd = (short)(i / 2 + 1);
                 } else {
-                    _selectionEnd++;
+                    rareData._selectionEnd++;
                 }
             }
         }
         
-        return prevSelectionStart != _selectionStart || prevSelectionEnd != _selectionEnd;
+        return prevSelectionStart != rareData._selectionStart || prevSelectionEnd != rareData._selectionEnd;
     }
 
-    private void ensureGlyphPositions(RenderingContext c) {
-        if (_glyphPositions == null) {
+    private void ensureGlyphPositions(RenderingContext c, RareData rareData) {
+        if (rareData._glyphPositions == null) {
             FSGlyphVector glyphVector = c.getTextRenderer().getGlyphVector(
                     c.getOutputDevice(),
                     getParent().getStyle().getFSFont(c),
                     getSubstring());
-            _glyphPositions = c.getTextRenderer().getGlyphPositions(
+            rareData._glyphPositions = c.getTextRenderer().getGlyphPositions(
                     c.getOutputDevice(), 
                     getParent().getStyle().getFSFont(c),
                     glyphVector);
@@ -247,33 +266,35 @@ public class InlineText {
     }
     
     public boolean clearSelection() {
-        boolean result = _selectionStart != 0 || _selectionEnd != 0;
+        boolean result = getSelectionStart() != 0 || getSelectionEnd() != 0;
         
-        _selectionStart = 0;
-        _selectionEnd = 0;
+        if (_rareData != null) {
+            _rareData._selectionStart = 0;
+            _rareData._selectionEnd = 0;
+        }
         
         return result;
     }
     
     public boolean isSelected() {
-        return _selectionStart != _selectionEnd;
+        return getSelectionStart() != getSelectionEnd();
     }
 
     public short getSelectionEnd() {
-        return _selectionEnd;
+        return _rareData == null ? 0 : _rareData._selectionEnd;
     }
 
     public short getSelectionStart() {
-        return _selectionStart;
+        return _rareData == null ? 0 : _rareData._selectionStart;
     }
     
     public String getSelection() {
-        return getSubstring().substring(_selectionStart, _selectionEnd);
+        return getSubstring().substring(getSelectionStart(), getSelectionEnd());
     }
     
     public void selectAll() {
-        _selectionStart = 0;
-        _selectionEnd = (short)getSubstring().length();
+        setSelectionStart((short)0);
+        setSelectionEnd((short)getSubstring().length());
     }
     
     public String getTextExportText() {
@@ -352,10 +373,14 @@ public class InlineText {
         return _end;
     }
     public void setSelectionStart(short s){
-        _selectionStart = s;
+        if (s != 0 || _rareData != null) {
+            ensureRareData()._selectionStart = s;
+        }
     }
     public void setSelectionEnd(short s){
-        _selectionEnd = s;
+        if (s != 0 || _rareData != null) {
+            ensureRareData()._selectionEnd = s;
+        }
     }
 
     public Text getTextNode() {
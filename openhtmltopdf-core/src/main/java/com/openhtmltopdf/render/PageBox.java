@@ -24,6 +24,7 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -314,6 +315,15 @@ public class PageBox {
     }
     
     public void paintMarginAreas(RenderingContext c, int additionalClearance, short mode) {
+        paintMarginAreas(c, additionalClearance, mode, null);
+    }
+    
+    /**
+     * Paints the margin areas, handing those whose content does not depend on the page,
+     * such as a header of plain text, to the given painter instead, so that it can paint
+     * them once and reuse them. May be called with a null painter to paint every margin area.
+     */
+    public void paintMarginAreas(RenderingContext c, int additionalClearance, short mode, SharedMarginAreaPainter painter) {
         for (int i = 0; i < MARGIN_AREA_DEFS.length; i++) {
             MarginAreaContainer container = _marginAreas[i];
             if (container != null) {
@@ -321,9 +331,13 @@ public class PageBox {
                 Point p = container.getArea().getPaintingPosition(
                         c, this, additionalClearance, mode);
                 
-                c.getOutputDevice().translate(p.x, p.y);
-                table.getLayer().paint(c);
-                c.getOutputDevice().translate(-p.x, -p.y);
+                if (painter != null && container.getSharedKey() != null) {
+                    painter.paintSharedMarginArea(c, container.getSharedKey(), p, container.getSize(), table.getLayer());
+                } else {
+                    c.getOutputDevice().translate(p.x, p.y);
+                    table.getLayer().paint(c);
+                    c.getOutputDevice().translate(-p.x, -p.y);
+                }
             }
         }
     }
@@ -422,9 +436,59 @@ public class PageBox {
                 } finally {
                     c.setNoPageBreak(0);
                 }
-                _marginAreas[i] = new MarginAreaContainer(area, table);
+                _marginAreas[i] = new MarginAreaContainer(area, table, dim, createSharedKey(i, dim));
+            }
+        }
+    }
+    
+    /**
+     * The content of a margin area is laid out and painted the same on every page
+     * with the same page rules, unless it uses a content function, such as
+     * counter(page) or element(), which is evaluated for each page. A margin area is
+     * painted as a whole, so a function in the content of any of its margin boxes
+     * means none of them are shared.
+     * @return a key equal for margin areas that look the same, or null if the margin
+     * area may differ between pages with the same page rules.
+     */
+    private Object createSharedKey(int areaIndex, Dimension dim) {
+        MarginBoxName[] names = MARGIN_AREA_DEFS[areaIndex].getMarginBoxNames();
+        List key = new ArrayList(names.length + 3);
+        
+        key.add(Integer.valueOf(areaIndex));
+        key.add(dim);
+        // The declarations belong to the page rules, so are the same objects for every page they apply to.
+        key.add(_pageInfo.getProperties());
+        
+        for (int i = 0; i < names.length; i++) {
+            List declarations = (List) _pageInfo.getMarginBoxes().get(names[i]);
+            if (declarations != null) {
+                for (Iterator j = declarations.iterator(); j.hasNext(); ) {
+                    PropertyDeclaration decl = (PropertyDeclaration) j.next();
+                    if (decl.getCSSName() == CSSName.CONTENT && hasFunction((PropertyValue) decl.getValue())) {
+                        return null;
+                    }
+                }
             }
+            key.add(declarations);
         }
+        
+        return key;
+    }
+    
+    private static boolean hasFunction(PropertyValue value) {
+        List values = value.getValues();
+        if (values == null) {
+            return value.getPropertyValueType() == PropertyValue.VALUE_TYPE_FUNCTION;
+        }
+        
+        for (Iterator i = values.iterator(); i.hasNext(); ) {
+            PropertyValue v = (PropertyValue) i.next();
+            if (v.getPropertyValueType() == PropertyValue.VALUE_TYPE_FUNCTION) {
+                return true;
+            }
+        }
+        
+        return false;
     }
     
     public boolean isLeftPage() {
@@ -474,13 +538,38 @@ public class PageBox {
         }
     }
     
+    /**
+     * Paints margin areas whose content does not depend on the page.
+     */
+    public interface SharedMarginAreaPainter {
+        /**
+         * Paints a margin area at the given position. Margin areas with equal keys look the same,
+         * so may be painted once and reused.
+         * @param size the size of the margin area, content may overflow it.
+         * @param layer the layer of the margin area, which paints it at 0, 0.
+         */
+        void paintSharedMarginArea(RenderingContext c, Object key, Point position, Dimension size, Layer layer);
+    }
+    
     private static class MarginAreaContainer {
         private final MarginArea _area;
         private final TableBox _table;
+        private final Dimension _size;
+        private final Object _sharedKey;
         
-        public MarginAreaContainer(MarginArea area, TableBox table) {
+        public MarginAreaContainer(MarginArea area, TableBox table, Dimension size, Object sharedKey) {
             _area = area;
             _table = table;
+            _size = size;
+            _sharedKey = sharedKey;
+        }
+        
+        public Dimension getSize() {
+            return _size;
+        }
+        
+        public Object getSharedKey() {
+            return _sharedKey;
         }
 
         public MarginArea getArea() {
@@ -0,0 +1,177 @@
+package com.openhtmltopdf.resource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.ext.Locator2;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * Builds a DOM directly from the events of a SAX parser, as the identity transform
+ * from a <code>SAXSource</code> to a <code>DOMResult</code> did, without going through TrAX.
+ * Adjacent character events are joined into one text node, ignorable whitespace is dropped,
+ * CDATA sections become text and comments and processing instructions in the DTD are left out.
+ * <br><br>
+ * A builder is used for one document and is not thread safe.
+ */
+class SAXDocumentBuilder extends DefaultHandler implements LexicalHandler {
+    private static final String XMLNS_URI = "http://www.w3.org/2000/xmlns/";
+
+    private final Document _document;
+    private final List<Node> _stack = new ArrayList<Node>(32);
+    private final StringBuilder _text = new StringBuilder(256);
+    private final List<String> _namespaceDecls = new ArrayList<String>(4);
+    private final NamespaceSupport _namespaces = new NamespaceSupport();
+    private Locator _locator;
+    private boolean _inDTD;
+
+    SAXDocumentBuilder(Document document) {
+        _document = document;
+    }
+
+    Document getDocument() {
+        return _document;
+    }
+
+    private Node current() {
+        return _stack.get(_stack.size() - 1);
+    }
+
+    private void appendText() {
+        if (_text.length() > 0) {
+            current().appendChild(_document.createTextNode(_text.toString()));
+            _text.setLength(0);
+        }
+    }
+
+    @Override
+    public void setDocumentLocator(Locator locator) {
+        _locator = locator;
+    }
+
+    @Override
+    public void startDocument() {
+        _stack.add(_document);
+    }
+
+    @Override
+    public void endDocument() {
+        _stack.clear();
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) {
+        // A mapping already in scope, such as one repeated by an attribute defaulted from the DTD,
+        // is not declared again, as the identity transform left it out too.
+        String prefixKey = prefix == null ? "" : prefix;
+        if (uri.equals(_namespaces.getURI(prefixKey))) {
+            return;
+        }
+        _namespaceDecls.add(prefix);
+        _namespaceDecls.add(uri);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attrs) {
+        appendText();
+
+        if (_locator instanceof Locator2 && current() == _document) {
+            String version = ((Locator2) _locator).getXMLVersion();
+            if (version != null) {
+                _document.setXmlVersion(version);
+            }
+        }
+
+        Element element = _document.createElementNS(uri.length() == 0 ? null : uri, qName);
+
+        _namespaces.pushContext();
+        for (int i = 0; i < _namespaceDecls.size(); i += 2) {
+            String prefix = _namespaceDecls.get(i);
+            _namespaces.declarePrefix(prefix == null ? "" : prefix, _namespaceDecls.get(i + 1));
+            String name = prefix == null || prefix.length() == 0 ? "xmlns" : "xmlns:" + prefix;
+            element.setAttributeNS(XMLNS_URI, name, _namespaceDecls.get(i + 1));
+        }
+        _namespaceDecls.clear();
+
+        for (int i = 0; i < attrs.getLength(); i++) {
+            String attQName = attrs.getQName(i);
+            boolean id = "ID".equals(attrs.getType(i));
+            // Namespace declarations reported as attributes, such as those defaulted by the
+            // XHTML DTD, are plain attributes as they were with the identity transform.
+            if (attrs.getLocalName(i).length() == 0 || attQName.equals("xmlns") || attQName.startsWith("xmlns:")) {
+                element.setAttribute(attQName, attrs.getValue(i));
+                if (id) {
+                    element.setIdAttribute(attQName, true);
+                }
+            } else {
+                String attUri = attrs.getURI(i);
+                element.setAttributeNS(attUri.length() == 0 ? null : attUri, attQName, attrs.getValue(i));
+                if (id) {
+                    element.setIdAttributeNS(attUri.length() == 0 ? null : attUri, attrs.getLocalName(i), true);
+                }
+            }
+        }
+
+        current().appendChild(element);
+        _stack.add(element);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        appendText();
+        _namespaces.popContext();
+        _stack.remove(_stack.size() - 1);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        // No text nodes can be children of the document.
+        if (length > 0 && current() != _document) {
+            _text.append(ch, start, length);
+        }
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) {
+        if (_inDTD) {
+            return;
+        }
+        appendText();
+        current().appendChild(_document.createProcessingInstruction(target, data));
+    }
+
+    public void comment(char[] ch, int start, int length) {
+        if (_inDTD) {
+            return;
+        }
+        appendText();
+        current().appendChild(_document.createComment(new String(ch, start, length)));
+    }
+
+    public void startDTD(String name, String publicId, String systemId) {
+        _inDTD = true;
+    }
+
+    public void endDTD() {
+        _inDTD = false;
+    }
+
+    public void startEntity(String name) {
+    }
+
+    public void endEntity(String name) {
+    }
+
+    public void startCDATA() {
+    }
+
+    public void endCDATA() {
+    }
+}
@@ -23,14 +23,16 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.util.logging.Level;
 
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMResult;
-import javax.xml.transform.sax.SAXSource;
 
 import org.w3c.dom.Document;
 import org.xml.sax.ErrorHandler;
@@ -40,6 +42,7 @@ import org.xml.sax.SAXNotRecognizedException;
 import org.xml.sax.SAXNotSupportedException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import com.openhtmltopdf.util.Configuration;
@@ -160,37 +163,90 @@ public class XMLResource extends AbstractResource {
     }
 
     private static class XMLResourceBuilder {
-        XMLResource createXMLResource(XMLResource target) {
-            Source input = null;
-            DOMResult output = null;
-            TransformerFactory xformFactory = null;
-            Transformer idTransform = null;
-            XMLReader xmlReader = null;
-            long st = 0L;
+        private static final String LEXICAL_HANDLER_PROPERTY = "http://xml.org/sax/properties/lexical-handler";
+
+        private final DocumentBuilderFactory _documentBuilderFactory;
+
+        /**
+         * A configured parser for each thread, so that the XMLReader and DocumentBuilder
+         * are only looked up and set up once per thread rather than for each document.
+         */
+        private final ThreadLocal<PooledParser> _parsers = new ThreadLocal<PooledParser>();
+
+        private TransformerFactory _transformerFactory;
+
+        private XMLResourceBuilder() {
+            _documentBuilderFactory = DocumentBuilderFactory.newInstance();
+            _documentBuilderFactory.setNamespaceAware(true);
+            _documentBuilderFactory.setValidating(false);//validation is the root of all evil in xml - tobe
+        }
+
+        private static class PooledParser {
+            private final XMLReader xmlReader;
+            private final DocumentBuilder documentBuilder;
+            private boolean inUse;
+
+            private PooledParser(XMLReader xmlReader, DocumentBuilder documentBuilder) {
+                this.xmlReader = xmlReader;
+                this.documentBuilder = documentBuilder;
+            }
+        }
 
-            xmlReader = XMLResource.newXMLReader();
+        private PooledParser getParser() {
+            PooledParser parser = _parsers.get();
+            if (parser != null && !parser.inUse) {
+                return parser;
+            }
+
+            XMLReader xmlReader = XMLResource.newXMLReader();
             addHandlers(xmlReader);
             setParserFeatures(xmlReader);
+            try {
+                // As the identity transform did, so attributes such as xmlns defaulted by the DTD are kept.
+                xmlReader.setFeature("http://xml.org/sax/features/namespace-prefixes", true);
+            } catch (SAXException ex) {
+                XRLog.load(Level.FINE, "SAX feature not supported on this XMLReader: namespace-prefixes");
+            }
 
-            st = System.currentTimeMillis();
+            DocumentBuilder documentBuilder;
             try {
-                input = new SAXSource(xmlReader, target.getResourceInputSource());
-                DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-                dbf.setNamespaceAware(true);
-                dbf.setValidating(false);//validation is the root of all evil in xml - tobe
-                output = new DOMResult(dbf.newDocumentBuilder().newDocument());
-                xformFactory = TransformerFactory.newInstance();
-                idTransform = xformFactory.newTransformer();
-            } catch (Exception ex) {
-                throw new XRRuntimeException(
-                        "Failed on configuring SAX to DOM transformer.", ex);
+                synchronized (_documentBuilderFactory) {
+                    documentBuilder = _documentBuilderFactory.newDocumentBuilder();
+                }
+            } catch (ParserConfigurationException ex) {
+                throw new XRRuntimeException("Failed on configuring DOM builder.", ex);
+            }
+
+            PooledParser created = new PooledParser(xmlReader, documentBuilder);
+            if (parser == null) {
+                // Otherwise a document is being loaded while loading another on this thread,
+                // so the new parser is only used once.
+                _parsers.set(created);
             }
+            return created;
+        }
+
+        XMLResource createXMLResource(XMLResource target) {
+            PooledParser parser = getParser();
+            long st = System.currentTimeMillis();
 
+            parser.inUse = true;
             try {
-                idTransform.transform(input, output);
+                SAXDocumentBuilder handler = new SAXDocumentBuilder(parser.documentBuilder.newDocument());
+                parser.xmlReader.setContentHandler(handler);
+                setLexicalHandler(parser.xmlReader, handler);
+
+                parser.xmlReader.parse(target.getResourceInputSource());
+
+                target.setDocument(handler.getDocument());
             } catch (Exception ex) {
                 throw new XRRuntimeException(
-                        "Can't load the XML resource (using TRaX transformer). " + ex.getMessage(), ex);
+                        "Can't load the XML resource. " + ex.getMessage(), ex);
+            } finally {
+                // Don't keep the document reachable from the pooled parser.
+                parser.xmlReader.setContentHandler(null);
+                setLexicalHandler(parser.xmlReader, null);
+                parser.inUse = false;
             }
 
             long end = System.currentTimeMillis();
@@ -199,10 +255,20 @@ public class XMLResource extends AbstractResource {
 
             XRLog.load("Loaded document in ~" + target.getElapsedLoadTime() + "ms");
 
-            target.setDocument((Document) output.getNode());
             return target;
         }
 
+        /**
+         * Sets the handler for comments, which not every parser supports.
+         */
+        private void setLexicalHandler(XMLReader xmlReader, LexicalHandler handler) {
+            try {
+                xmlReader.setProperty(LEXICAL_HANDLER_PROPERTY, handler);
+            } catch (SAXException ex) {
+                XRLog.load(Level.FINE, "SAX lexical handler not supported on this XMLReader, comments will be left out.");
+            }
+        }
+
         /**
          * Adds the default EntityResolved and ErrorHandler for the SAX parser.
          */
@@ -278,20 +344,22 @@ public class XMLResource extends AbstractResource {
             }
         }
 
+        private synchronized Transformer newIdentityTransformer() throws TransformerConfigurationException {
+            if (_transformerFactory == null) {
+                _transformerFactory = TransformerFactory.newInstance();
+            }
+            return _transformerFactory.newTransformer();
+        }
+
         public XMLResource createXMLResource(Source source) {
             DOMResult output = null;
-            TransformerFactory xformFactory = null;
             Transformer idTransform = null;
             long st = 0L;
 
             st = System.currentTimeMillis();
             try {
-                DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-                dbf.setNamespaceAware(true);
-                dbf.setValidating(false);//validation is the root of all evil in xml - tobe
-                output = new DOMResult(dbf.newDocumentBuilder().newDocument());
-                xformFactory = TransformerFactory.newInstance();
-                idTransform = xformFactory.newTransformer();
+                output = new DOMResult(getParser().documentBuilder.newDocument());
+                idTransform = newIdentityTransformer();
             } catch (Exception ex) {
                 throw new XRRuntimeException("Failed on configuring SAX to DOM transformer.", ex);
             }
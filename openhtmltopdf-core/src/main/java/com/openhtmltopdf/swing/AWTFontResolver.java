@@ -82,9 +82,9 @@ public class AWTFontResolver implements FontResolver {
     }
 
     /**
-     * Resolves a list of font families.
+     * Resolves a list of font families. Synchronized as pages may be painted in parallel.
      */
-    public FSFont resolveFont(SharedContext ctx, String[] families, float size, IdentValue weight, IdentValue style, IdentValue variant) {
+    public synchronized FSFont resolveFont(SharedContext ctx, String[] families, float size, IdentValue weight, IdentValue style, IdentValue variant) {
     	List<Font> fonts = new ArrayList<Font>(3);
     	
         // for each font family
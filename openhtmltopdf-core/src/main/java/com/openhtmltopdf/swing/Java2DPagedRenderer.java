@@ -0,0 +1,397 @@
+package com.openhtmltopdf.swing;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.openhtmltopdf.context.StyleReference;
+import com.openhtmltopdf.css.style.CalculatedStyle;
+import com.openhtmltopdf.extend.UserInterface;
+import com.openhtmltopdf.layout.BoxBuilder;
+import com.openhtmltopdf.layout.Layer;
+import com.openhtmltopdf.layout.LayoutContext;
+import com.openhtmltopdf.layout.SharedContext;
+import com.openhtmltopdf.render.BlockBox;
+import com.openhtmltopdf.render.PageBox;
+import com.openhtmltopdf.render.RenderingContext;
+import com.openhtmltopdf.render.ViewportBox;
+import com.openhtmltopdf.simple.extend.XhtmlNamespaceHandler;
+import com.openhtmltopdf.util.Configuration;
+import com.openhtmltopdf.util.FSImageWriter;
+import com.openhtmltopdf.util.ImageUtil;
+import com.openhtmltopdf.util.ParallelRanges;
+
+/**
+ * <p>Renders an XML document, formatted with CSS, as one image per page. Unlike {@link Java2DRenderer},
+ * which lays out the document as one continuous canvas, the document is laid out in pages, as it is for
+ * PDF output, including page sizes, margins and margin boxes, and each page is painted into its own
+ * BufferedImage. Standard usage pattern is</p>
+ *
+ * <pre>
+ * Java2DPagedRenderer rend = new Java2DPagedRenderer(new File("document.xhtml"));
+ * rend.setPagePaintingExecutor(executor);
+ * rend.setScaledWidth(200);
+ * rend.writePages(new FSImageWriter(), new File("thumbnails"), "page-%03d.png");
+ * </pre>
+ *
+ * <p>With a page painting executor, pages are painted on several threads, each page with its own
+ * {@link Java2DOutputDevice}, and handed on as each one completes, so all the pages of a long document
+ * are never held in memory at once. The executor is not shut down by the renderer. Documents with fixed
+ * content or tables with repeating headers and footers are always painted on the calling thread, as
+ * painting them moves boxes in the shared box tree.</p>
+ *
+ * <p>A Java2DPagedRenderer renders one document only and is not thread-safe.</p>
+ */
+public class Java2DPagedRenderer {
+    private static final int DEFAULT_IMAGE_TYPE = BufferedImage.TYPE_INT_RGB;
+
+    private final SharedContext _sharedContext;
+    private final String _sourceDocument;
+    private final String _sourceDocumentBase;
+
+    private Document _doc;
+    private BlockBox _root;
+
+    private int _bufferedImageType = DEFAULT_IMAGE_TYPE;
+    private Map _renderingHints;
+    private int _scaledWidth;
+    private ExecutorService _pageExecutor;
+
+    /**
+     * Receives the image of each page as soon as it is painted.
+     */
+    public interface PageImageHandler {
+        /**
+         * With a page painting executor this is called from several threads at once,
+         * and not in page order.
+         *
+         * @param pageNo the page number, starting from zero.
+         * @param image the painted, and possibly scaled, page.
+         */
+        public void pageImage(int pageNo, BufferedImage image) throws IOException;
+    }
+
+    /**
+     * Creates a new instance for a given URL, also used as the base url of the document.
+     * Does not load the document until it is laid out or rendered.
+     *
+     * @param url The location of the document to be rendered.
+     */
+    public Java2DPagedRenderer(String url) {
+        this(url, url);
+    }
+
+    /**
+     * Creates a new instance for a given URL. Does not load the document until it is laid out or rendered.
+     *
+     * @param url The location of the document to be rendered.
+     * @param baseUrl The base url for the document, against which relative paths are resolved.
+     */
+    public Java2DPagedRenderer(String url, String baseUrl) {
+        this(null, url, baseUrl);
+    }
+
+    /**
+     * Creates a new instance for a given File. Does not load the document until it is laid out or rendered.
+     *
+     * @param file The file to be rendered.
+     */
+    public Java2DPagedRenderer(File file) throws IOException {
+        this(file.toURI().toURL().toExternalForm());
+    }
+
+    /**
+     * Creates a new instance pointing to the given Document.
+     *
+     * @param doc The document to be rendered.
+     * @param baseUrl The base url for the document, against which relative paths are resolved.
+     */
+    public Java2DPagedRenderer(Document doc, String baseUrl) {
+        this(doc, null, baseUrl);
+    }
+
+    private Java2DPagedRenderer(Document doc, String url, String baseUrl) {
+        _doc = doc;
+        _sourceDocument = url;
+        _sourceDocumentBase = baseUrl;
+
+        NaiveUserAgent userAgent = new NaiveUserAgent();
+        _sharedContext = new SharedContext();
+        _sharedContext.registerWithThread();
+        _sharedContext.setUserAgentCallback(userAgent);
+        _sharedContext.setCss(new StyleReference(userAgent));
+        _sharedContext.setFontResolver(new AWTFontResolver());
+        _sharedContext.setReplacedElementFactory(new SwingReplacedElementFactory());
+        _sharedContext.setTextRenderer(new Java2DTextRenderer());
+        _sharedContext.setDPI(72);
+        _sharedContext.setDotsPerPixel(1);
+        _sharedContext.setPrint(true);
+        _sharedContext.setInteractive(false);
+    }
+
+    /**
+     * Returns the SharedContext used by the renderer, to tune the rendering process before layout.
+     */
+    public SharedContext getSharedContext() {
+        return _sharedContext;
+    }
+
+    /**
+     * Sets the rendering hints applied, as overrides of the defaults, to the Graphics2D of each page.
+     *
+     * @see java.awt.Graphics2D#addRenderingHints(java.util.Map)
+     */
+    public void setRenderingHints(Map hints) {
+        _renderingHints = hints;
+    }
+
+    /**
+     * Sets the type of the BufferedImage each page is painted into; see
+     * {@link java.awt.image.BufferedImage#BufferedImage(int, int, int)}. Defaults to RGB
+     * with no support for transparency.
+     */
+    public void setBufferedImageType(int bufferedImageType) {
+        _bufferedImageType = bufferedImageType;
+    }
+
+    /**
+     * Sets the width, in pixels, each page image is scaled to, keeping its aspect ratio, with
+     * {@link ImageUtil#getScaledInstance(BufferedImage, int, int)}. Zero, the default, leaves
+     * pages at one pixel per point.
+     */
+    public void setScaledWidth(int scaledWidth) {
+        _scaledWidth = scaledWidth;
+    }
+
+    /**
+     * Sets an executor to paint pages in parallel on, or null, the default, to paint them all on
+     * the calling thread.
+     */
+    public void setPagePaintingExecutor(ExecutorService pageExecutor) {
+        _pageExecutor = pageExecutor;
+    }
+
+    /**
+     * Loads and lays out the document in pages, if not done yet.
+     */
+    public void layout() {
+        if (_root != null) {
+            return;
+        }
+
+        if (_doc == null) {
+            _doc = _sharedContext.getUserAgentCallback().getXMLResource(_sourceDocument).getDocument();
+        }
+
+        _sharedContext.reset();
+        if (Configuration.isTrue("xr.cache.stylesheets", true)) {
+            _sharedContext.getCss().flushStyleSheets();
+        } else {
+            _sharedContext.getCss().flushAllStyleSheets();
+        }
+        _sharedContext.setBaseURL(_sourceDocumentBase);
+        _sharedContext.setNamespaceHandler(new XhtmlNamespaceHandler());
+        _sharedContext.getCss().setDocumentContext(
+                _sharedContext, _sharedContext.getNamespaceHandler(), _doc, new NullUserInterface());
+
+        LayoutContext c = _sharedContext.newLayoutContextInstance();
+        c.setFontContext(new Java2DFontContext(createGraphics(ImageUtil.createCompatibleBufferedImage(1, 1))));
+        _sharedContext.getTextRenderer().setup(c.getFontContext());
+
+        PageBox first = Layer.createPageBox(c, "first");
+        Rectangle extents = new Rectangle(0, 0, first.getContentWidth(c), first.getContentHeight(c));
+        _sharedContext.setTempCanvas(extents);
+
+        BlockBox root = BoxBuilder.createRootBox(c, _doc);
+        root.setContainingBlock(new ViewportBox(extents));
+        root.layout(c);
+        root.getLayer().trimEmptyPages(c, root.getLayer().getPaintingDimension(c).height);
+        root.getLayer().layoutPages(c);
+        _root = root;
+
+        RenderingContext rc = newRenderingContext(createGraphics(ImageUtil.createCompatibleBufferedImage(1, 1)));
+        _root.getLayer().assignPagePaintingPositions(rc, Layer.PAGED_MODE_PRINT);
+    }
+
+    /**
+     * Lays out the document if needed and returns its number of pages.
+     */
+    public int getPageCount() {
+        layout();
+        return _root.getLayer().getPages().size();
+    }
+
+    /**
+     * Lays out the document if needed and paints one page.
+     *
+     * @param pageNo the page number, starting from zero.
+     */
+    public BufferedImage getPageImage(int pageNo) {
+        layout();
+        return paintPage(pageNo);
+    }
+
+    /**
+     * Lays out the document if needed and paints every page, handing each to the handler as it completes.
+     */
+    public void renderPages(PageImageHandler handler) throws IOException {
+        layout();
+
+        int pageCount = _root.getLayer().getPages().size();
+
+        if (_pageExecutor != null && pageCount > 1 && _root.getLayer().canPaintPagesInParallel()) {
+            renderPagesInParallel(handler, pageCount);
+        } else {
+            renderPages(handler, 0, pageCount);
+        }
+    }
+
+    /**
+     * Renders every page and writes each to its own file as it completes.
+     *
+     * @param writer the writer of the chosen image format, which is safe to share between threads.
+     * @param directory the directory to write to.
+     * @param fileNameFormat the {@link String#format(String, Object...)} pattern of the file names,
+     * given the page number starting from one, such as <code>page-%03d.png</code>.
+     */
+    public void writePages(final FSImageWriter writer, final File directory, final String fileNameFormat) throws IOException {
+        renderPages(new PageImageHandler() {
+            public void pageImage(int pageNo, BufferedImage image) throws IOException {
+                File file = new File(directory, String.format(fileNameFormat, pageNo + 1));
+                writer.write(image, file.getPath());
+            }
+        });
+    }
+
+    /**
+     * Paints the pages in contiguous ranges, the first on this thread and the others on the
+     * page executor.
+     */
+    private void renderPagesInParallel(final PageImageHandler handler, int pageCount) throws IOException {
+        try {
+            ParallelRanges.run(_pageExecutor, pageCount, new ParallelRanges.RangeTask<IOException>() {
+                public void run(int range, int start, int end) throws IOException {
+                    _sharedContext.registerWithThread();
+                    try {
+                        renderPages(handler, start, end);
+                    } finally {
+                        _sharedContext.removeFromThread();
+                    }
+                }
+            }, IOException.class);
+        } finally {
+            // Range 0, and any the executor ran on this thread, unregistered the context.
+            _sharedContext.registerWithThread();
+        }
+    }
+
+    /**
+     * Paints pages from start (inclusive) to end (exclusive).
+     */
+    private void renderPages(PageImageHandler handler, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            handler.pageImage(i, paintPage(i));
+        }
+    }
+
+    /**
+     * Paints one page into a new image, with its own output device and rendering context.
+     */
+    private BufferedImage paintPage(int pageNo) {
+        List pages = _root.getLayer().getPages();
+
+        if (pageNo < 0 || pageNo >= pages.size()) {
+            throw new IllegalArgumentException("Page " + pageNo + " is not between 0 " +
+                    "and " + pages.size());
+        }
+
+        PageBox page = (PageBox) pages.get(pageNo);
+        RenderingContext c = newRenderingContext(null);
+
+        BufferedImage image = ImageUtil.createCompatibleBufferedImage(
+                page.getWidth(c), page.getHeight(c), _bufferedImageType);
+        ImageUtil.clearImage(image);
+
+        Graphics2D g = createGraphics(image);
+        try {
+            Java2DOutputDevice outputDevice = new Java2DOutputDevice(g);
+            c.setFontContext(new Java2DFontContext(g));
+            c.setOutputDevice(outputDevice);
+            c.setPageCount(pages.size());
+            c.setPage(pageNo, page);
+
+            page.paintBackground(c, 0, Layer.PAGED_MODE_PRINT);
+            page.paintMarginAreas(c, 0, Layer.PAGED_MODE_PRINT);
+            page.paintBorder(c, 0, Layer.PAGED_MODE_PRINT);
+
+            Shape working = outputDevice.getClip();
+
+            Rectangle content = page.getPrintClippingBounds(c);
+            outputDevice.clip(content);
+
+            int top = -page.getPaintingTop() + page.getMarginBorderPadding(c, CalculatedStyle.TOP);
+            int left = page.getMarginBorderPadding(c, CalculatedStyle.LEFT);
+
+            outputDevice.translate(left, top);
+            _root.getLayer().paint(c);
+            outputDevice.translate(-left, -top);
+
+            outputDevice.setClip(working);
+        } finally {
+            g.dispose();
+        }
+
+        if (_scaledWidth > 0 && _scaledWidth != image.getWidth()) {
+            int scaledHeight = Math.max(1, Math.round((float) image.getHeight() * _scaledWidth / image.getWidth()));
+            image = ImageUtil.getScaledInstance(image, _scaledWidth, scaledHeight);
+        }
+
+        return image;
+    }
+
+    private Graphics2D createGraphics(BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        if (_renderingHints != null) {
+            g.addRenderingHints(_renderingHints);
+        }
+        return g;
+    }
+
+    private RenderingContext newRenderingContext(Graphics2D g) {
+        RenderingContext result = _sharedContext.newRenderingContextInstance();
+        if (g != null) {
+            result.setFontContext(new Java2DFontContext(g));
+            result.setOutputDevice(new Java2DOutputDevice(g));
+            _sharedContext.getTextRenderer().setup(result.getFontContext());
+        }
+        result.setRootLayer(_root.getLayer());
+        return result;
+    }
+
+    private static final class NullUserInterface implements UserInterface {
+        public boolean isHover(Element e) {
+            return false;
+        }
+
+        public boolean isActive(Element e) {
+            return false;
+        }
+
+        public boolean isFocus(Element e) {
+            return false;
+        }
+    }
+
+    public void cleanup() {
+        _sharedContext.removeFromThread();
+    }
+}
@@ -20,18 +20,30 @@
 package com.openhtmltopdf.swing;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 import javax.imageio.ImageIO;
@@ -45,7 +57,10 @@ import com.openhtmltopdf.extend.UserAgentCallback;
 import com.openhtmltopdf.resource.CSSResource;
 import com.openhtmltopdf.resource.ImageResource;
 import com.openhtmltopdf.resource.XMLResource;
+import com.openhtmltopdf.util.IOUtil;
 import com.openhtmltopdf.util.ImageUtil;
+import com.openhtmltopdf.util.RenderMetrics;
+import com.openhtmltopdf.util.ThreadCtx;
 import com.openhtmltopdf.util.XRLog;
 
 /**
@@ -79,6 +94,16 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
     protected FSCache _externalCache = new NullFSCache(false);
     protected FSUriResolver _resolver = DEFAULT_URI_RESOLVER;
     protected String _baseUri;
+
+    /**
+     * The content of prefetched resources, by resolved URI, until first opened.
+     */
+    private final Map<String, byte[]> _prefetched = new ConcurrentHashMap<String, byte[]>();
+
+    /**
+     * The decoded text of prefetched stylesheets, by resolved URI, until first opened.
+     */
+    private final Map<String, String> _prefetchedText = new ConcurrentHashMap<String, String>();
     
     public static class DefaultHttpStream implements HttpStream {
     	private InputStream strm;
@@ -169,13 +194,20 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
      * Empties the image cache entirely.
      */
     public void clearImageCache() {
-        _imageCache.clear();
+        synchronized (_imageCache) {
+            _imageCache.clear();
+        }
     }
 
     /**
      * Gets a InputStream for the resource identified by a resolved URI.
      */
     protected InputStream openStream(String uri) {
+        byte[] prefetched = _prefetched.remove(uri);
+        if (prefetched != null) {
+            return new ByteArrayInputStream(prefetched);
+        }
+
         java.io.InputStream is = null;
         
         try {
@@ -207,6 +239,15 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
      * Gets a reader for the identified resource by a resolved URI.
      */
     protected Reader openReader(String uri) {
+    	String prefetched = _prefetchedText.remove(uri);
+    	if (prefetched != null) {
+    		return new StringReader(prefetched);
+    	}
+    	
+    	return fetchReader(uri);
+    }
+
+    private Reader fetchReader(String uri) {
     	InputStream is = null;
     	
         try {
@@ -239,6 +280,117 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
     	
     	return null;
     }
+
+    /**
+     * Fetches resources in parallel on the executor, and keeps their content until they are
+     * first opened, so that they are then read from memory. Returns once every resource has
+     * been fetched or has failed. Failures are reported when the resource is loaded as usual.
+     * The stream factory and URI resolver must be thread safe to use this.
+     *
+     * @param uris URIs relative to the base URL, as they appear in the document.
+     */
+    public void prefetch(Collection<String> uris, ExecutorService executor) {
+        prefetch(uris, executor, false);
+    }
+
+    /**
+     * Like {@link #prefetch(Collection, ExecutorService)}, for stylesheets. These are read
+     * with the reader of the stream factory, as when they are loaded as usual, so that
+     * it may decode them in the character set given by the server.
+     */
+    public void prefetchStylesheets(Collection<String> uris, ExecutorService executor) {
+        prefetch(uris, executor, true);
+    }
+
+    /**
+     * Drops the content of prefetched resources that were never opened.
+     */
+    public void clearPrefetched() {
+        _prefetched.clear();
+        _prefetchedText.clear();
+    }
+
+    private void prefetch(Collection<String> uris, ExecutorService executor, final boolean text) {
+        RenderMetrics metrics = ThreadCtx.get().renderMetrics();
+        long start = metrics != null ? System.nanoTime() : 0;
+
+        final Map<String, ?> target = text ? _prefetchedText : _prefetched;
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        Set<String> seen = new HashSet<String>();
+
+        for (String uri : uris) {
+            if (uri == null || uri.startsWith("data:")) {
+                continue;
+            }
+
+            final String resolved = _resolver.resolveURI(_baseUri, uri);
+            if (resolved == null || target.containsKey(resolved) || !seen.add(resolved)) {
+                continue;
+            }
+
+            futures.add(executor.submit(new Runnable() {
+                public void run() {
+                    try {
+                        if (text) {
+                            fetchText(resolved);
+                        } else {
+                            fetchBytes(resolved);
+                        }
+                    } catch (IOException e) {
+                        XRLog.load(Level.INFO, "Could not prefetch " + resolved + ": " + e.getMessage());
+                    }
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    XRLog.load(Level.INFO, "Could not prefetch resource: " + e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (metrics != null) {
+            metrics.addTime(RenderMetrics.Phase.RESOURCE_LOADING, start);
+        }
+    }
+
+    private void fetchBytes(String uri) throws IOException {
+        InputStream is = openStream(uri);
+        if (is == null) {
+            return;
+        }
+        try {
+            _prefetched.put(uri, IOUtil.readBytes(is));
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private void fetchText(String uri) throws IOException {
+        Reader reader = fetchReader(uri);
+        if (reader == null) {
+            return;
+        }
+        try {
+            _prefetchedText.put(uri, IOUtil.readString(reader));
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
     
     /**
      * Retrieves the CSS located at the given URI.  It's assumed the URI does point to a CSS file--the URI will
@@ -250,6 +402,18 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
      */
     @Override
     public CSSResource getCSSResource(String uri) {
+        RenderMetrics metrics = ThreadCtx.get().renderMetrics();
+        long start = metrics != null ? System.nanoTime() : 0;
+        try {
+            return loadCSSResource(uri);
+        } finally {
+            if (metrics != null) {
+                metrics.addTime(RenderMetrics.Phase.RESOURCE_LOADING, start);
+            }
+        }
+    }
+
+    private CSSResource loadCSSResource(String uri) {
     	String resolved = _resolver.resolveURI(this._baseUri, uri);
     	
     	if (resolved == null) {
@@ -257,16 +421,34 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
     		return null;
     	}
     	
+    	// The CSS text is cached rather than the resource, as the reader of a resource can only be read once.
     	FSCacheKey cacheKey = new FSCacheKey(resolved, CSSResource.class);
-    	CSSResource res = (CSSResource) _externalCache.get(cacheKey);
+    	String css = (String) _externalCache.get(cacheKey);
     	
-    	if (res != null) {
-    		return res;
+    	if (css != null) {
+    		return new CSSResource(new StringReader(css));
     	}
     	
-        CSSResource res2 = new CSSResource(openReader(resolved));
-        _externalCache.put(cacheKey, res2);
-        return res2;
+        Reader reader = openReader(resolved);
+        if (reader == null) {
+            return new CSSResource(null);
+        }
+
+        try {
+            css = IOUtil.readString(reader);
+        } catch (IOException e) {
+            XRLog.exception("IO problem for " + resolved, e);
+            return new CSSResource(null);
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        _externalCache.put(cacheKey, css);
+        return new CSSResource(new StringReader(css));
     }
 
     /**
@@ -279,6 +461,18 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
      */
     @Override
     public ImageResource getImageResource(String uri) {
+        RenderMetrics metrics = ThreadCtx.get().renderMetrics();
+        long start = metrics != null ? System.nanoTime() : 0;
+        try {
+            return loadImageResource(uri);
+        } finally {
+            if (metrics != null) {
+                metrics.addTime(RenderMetrics.Phase.RESOURCE_LOADING, start);
+            }
+        }
+    }
+
+    private ImageResource loadImageResource(String uri) {
     	System.out.println("Getting image: " + uri);
         ImageResource ir;
         
@@ -294,7 +488,10 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
         	}
             
             // First, we check the internal per run cache.
-            ir = _imageCache.get(resolved);
+            // Guarded by itself, as pages may be painted in parallel.
+            synchronized (_imageCache) {
+                ir = _imageCache.get(resolved);
+            }
             if (ir != null) {
             	return ir;
             }
@@ -319,7 +516,9 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
                         _externalCache.put(new FSCacheKey(resolved, AWTFSImage.class), fsImage2);
                         
                         ir = new ImageResource(resolved, fsImage2);
-                        _imageCache.put(resolved, ir);
+                        synchronized (_imageCache) {
+                            _imageCache.put(resolved, ir);
+                        }
                         
                         return ir;
                     } catch (FileNotFoundException e) {
@@ -349,6 +548,18 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
      */
     @Override
     public XMLResource getXMLResource(String uri) {
+        RenderMetrics metrics = ThreadCtx.get().renderMetrics();
+        long start = metrics != null ? System.nanoTime() : 0;
+        try {
+            return loadXMLResource(uri);
+        } finally {
+            if (metrics != null) {
+                metrics.addTime(RenderMetrics.Phase.RESOURCE_LOADING, start);
+            }
+        }
+    }
+
+    private XMLResource loadXMLResource(String uri) {
     	String resolved = _resolver.resolveURI(this._baseUri, uri);
     	
     	if (resolved == null) {
@@ -381,6 +592,18 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
 
     @Override
     public byte[] getBinaryResource(String uri) {
+        RenderMetrics metrics = ThreadCtx.get().renderMetrics();
+        long start = metrics != null ? System.nanoTime() : 0;
+        try {
+            return loadBinaryResource(uri);
+        } finally {
+            if (metrics != null) {
+                metrics.addTime(RenderMetrics.Phase.RESOURCE_LOADING, start);
+            }
+        }
+    }
+
+    private byte[] loadBinaryResource(String uri) {
     	String resolved = _resolver.resolveURI(this._baseUri, uri);
     	
     	if (resolved == null) {
@@ -490,6 +713,7 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
     @Override
     public void documentStarted() {
         clearImageCache();
+        clearPrefetched();
     }
 
     @Override
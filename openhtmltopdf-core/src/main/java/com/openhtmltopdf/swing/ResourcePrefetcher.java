@@ -0,0 +1,174 @@
+package com.openhtmltopdf.swing;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.css.CSSPrimitiveValue;
+
+import com.openhtmltopdf.context.StyleReference;
+import com.openhtmltopdf.css.constants.CSSName;
+import com.openhtmltopdf.css.constants.IdentValue;
+import com.openhtmltopdf.css.sheet.FontFaceRule;
+import com.openhtmltopdf.css.sheet.MediaRule;
+import com.openhtmltopdf.css.sheet.PropertyDeclaration;
+import com.openhtmltopdf.css.sheet.Ruleset;
+import com.openhtmltopdf.css.sheet.Stylesheet;
+import com.openhtmltopdf.css.sheet.StylesheetInfo;
+import com.openhtmltopdf.css.style.FSDerivedValue;
+import com.openhtmltopdf.extend.NamespaceHandler;
+import com.openhtmltopdf.layout.SharedContext;
+
+/**
+ * Fetches the external resources of a document in parallel before layout, rather than one
+ * at a time as the cascade and layout ask for them. The resources are the linked stylesheets
+ * and the stylesheets they import, the images of the document and the <code>@font-face</code>
+ * sources and background images of its stylesheets.
+ * <br><br>
+ * Stylesheets are fetched a level of imports at a time, as the imports of a stylesheet are
+ * only known once it is parsed. The parsed stylesheets are kept by the {@link StyleReference}
+ * and the content of other resources by the {@link NaiveUserAgent} until first used.
+ */
+public class ResourcePrefetcher {
+    private final NaiveUserAgent _userAgent;
+    private final ExecutorService _executor;
+
+    public ResourcePrefetcher(NaiveUserAgent userAgent, ExecutorService executor) {
+        _userAgent = userAgent;
+        _executor = executor;
+    }
+
+    /**
+     * Fetches the resources of the document. The shared context must be registered with the thread
+     * and have its base URL and namespace handler set, but its style reference must not yet
+     * have the document context set.
+     */
+    public void prefetch(SharedContext ctx, Document doc) {
+        NamespaceHandler nsh = ctx.getNamespaceHandler();
+        StyleReference css = ctx.getCss();
+        String media = ctx.getMedia();
+
+        Set<String> uris = new LinkedHashSet<String>();
+        collectImageUris(doc.getDocumentElement(), nsh, uris);
+
+        Set<String> seenSheets = new HashSet<String>();
+        List<StylesheetInfo> sheets = getDocumentStylesheets(doc, nsh, media, seenSheets);
+
+        Set<String> sheetUris = new LinkedHashSet<String>();
+        while (!sheets.isEmpty()) {
+            for (StylesheetInfo info : sheets) {
+                if (!info.isInline()) {
+                    sheetUris.add(info.getUri());
+                }
+            }
+            _userAgent.prefetchStylesheets(sheetUris, _executor);
+            sheetUris.clear();
+
+            List<StylesheetInfo> imports = new ArrayList<StylesheetInfo>();
+            for (StylesheetInfo info : sheets) {
+                Stylesheet sheet = css.getStylesheet(info);
+                if (sheet == null) {
+                    continue;
+                }
+
+                collectStylesheetUris(sheet, media, uris);
+
+                for (Iterator i = sheet.getImportRules().iterator(); i.hasNext(); ) {
+                    StylesheetInfo imported = (StylesheetInfo) i.next();
+                    if (imported.getUri() != null && imported.appliesToMedia(media) && seenSheets.add(imported.getUri())) {
+                        imports.add(imported);
+                    }
+                }
+            }
+            sheets = imports;
+        }
+
+        _userAgent.prefetch(uris, _executor);
+    }
+
+    private List<StylesheetInfo> getDocumentStylesheets(Document doc, NamespaceHandler nsh, String media, Set<String> seenSheets) {
+        List<StylesheetInfo> result = new ArrayList<StylesheetInfo>();
+        StylesheetInfo[] refs = nsh.getStylesheets(doc);
+        if (refs == null) {
+            return result;
+        }
+
+        // Copies, resolved as StyleReference resolves them, so that the parsed sheets are found later.
+        int inlineStyleCount = 0;
+        for (int i = 0; i < refs.length; i++) {
+            if (!refs[i].appliesToMedia(media)) {
+                continue;
+            }
+
+            StylesheetInfo info = new StylesheetInfo();
+            info.setOrigin(refs[i].getOrigin());
+            info.setMedia(refs[i].getMedia());
+
+            if (refs[i].isInline()) {
+                info.setUri(_userAgent.getBaseURL() + "#inline_style_" + (++inlineStyleCount));
+                info.setContent(refs[i].getContent());
+            } else {
+                String uri = _userAgent.resolveURI(refs[i].getUri());
+                if (uri == null || !seenSheets.add(uri)) {
+                    continue;
+                }
+                info.setUri(uri);
+            }
+            result.add(info);
+        }
+        return result;
+    }
+
+    private void collectImageUris(Element e, NamespaceHandler nsh, Set<String> uris) {
+        if (e.getNodeName().equalsIgnoreCase("img")) {
+            String src = nsh.getImageSourceURI(e);
+            if (src != null && src.length() > 0) {
+                uris.add(src);
+            }
+        }
+
+        for (Node child = e.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                collectImageUris((Element) child, nsh, uris);
+            }
+        }
+    }
+
+    private void collectStylesheetUris(Stylesheet sheet, String media, Set<String> uris) {
+        for (Iterator i = sheet.getFontFaceRules().iterator(); i.hasNext(); ) {
+            FontFaceRule rule = (FontFaceRule) i.next();
+            FSDerivedValue src = rule.getCalculatedStyle().valueByName(CSSName.SRC);
+            if (src != IdentValue.NONE) {
+                uris.add(src.asString());
+            }
+        }
+
+        for (Iterator i = sheet.getContents().iterator(); i.hasNext(); ) {
+            Object content = i.next();
+            if (content instanceof Ruleset) {
+                collectRulesetUris((Ruleset) content, uris);
+            } else if (content instanceof MediaRule && ((MediaRule) content).matches(media)) {
+                for (Iterator j = ((MediaRule) content).getContents().iterator(); j.hasNext(); ) {
+                    collectRulesetUris((Ruleset) j.next(), uris);
+                }
+            }
+        }
+    }
+
+    private void collectRulesetUris(Ruleset ruleset, Set<String> uris) {
+        for (Iterator i = ruleset.getPropertyDeclarations().iterator(); i.hasNext(); ) {
+            PropertyDeclaration decl = (PropertyDeclaration) i.next();
+            if (decl.getCSSName() == CSSName.BACKGROUND_IMAGE &&
+                decl.getValue().getPrimitiveType() == CSSPrimitiveValue.CSS_URI) {
+                uris.add(decl.getValue().getStringValue());
+            }
+        }
+    }
+}
@@ -55,6 +55,32 @@ public class IOUtil {
         }
     }
 
+    /**
+     * Reads the whole of a stream into a byte array. Does not close the stream.
+     */
+    public static byte[] readBytes(InputStream is) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buf = new byte[10240];
+        int i;
+        while ((i = is.read(buf)) != -1) {
+            result.write(buf, 0, i);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Reads the whole of a reader into a string. Does not close the reader.
+     */
+    public static String readString(Reader reader) throws IOException {
+        StringBuilder result = new StringBuilder();
+        char[] buf = new char[10240];
+        int i;
+        while ((i = reader.read(buf)) != -1) {
+            result.append(buf, 0, i);
+        }
+        return result.toString();
+    }
+
     /**
      * Attempts to open a connection, and a stream, to the URI provided. timeouts will be set for opening the connection
      * and reading from it. will return the stream, or null if unable to open or read or a timeout occurred. Does not
@@ -0,0 +1,100 @@
+package com.openhtmltopdf.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a run of independent items, such as pages or paragraphs, into contiguous ranges
+ * and processes them on an executor. The first range is processed on the calling thread.
+ */
+public final class ParallelRanges {
+    private ParallelRanges() {
+    }
+
+    /**
+     * Processes the items from start (inclusive) to end (exclusive) of one range.
+     *
+     * @param <E> the checked exception the task may throw, or {@link RuntimeException} for none.
+     */
+    public interface RangeTask<E extends Exception> {
+        void run(int range, int start, int end) throws E;
+    }
+
+    /**
+     * @return the number of ranges {@link #run} splits count items into.
+     */
+    public static int rangeCount(int count) {
+        return Math.min(count, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Runs the task for each of the {@link #rangeCount(int)} ranges of count items, the first on
+     * this thread and the others on the executor. Returns only once every range has finished, even
+     * after a failure or an interrupt, so that no range is still running. An interrupt while
+     * waiting is not a failure, but the interrupt status of the thread is set again before
+     * returning. The first failure is then rethrown:
+     * as is if it is of the exception type of the task or unchecked, otherwise wrapped in a
+     * {@link RuntimeException}.
+     */
+    public static <E extends Exception> void run(ExecutorService executor, int count,
+            final RangeTask<E> task, Class<E> exceptionType) throws E {
+        int rangeCount = rangeCount(count);
+        List<Future<Void>> results = new ArrayList<Future<Void>>(Math.max(rangeCount - 1, 0));
+
+        for (int range = 1; range < rangeCount; range++) {
+            final int r = range;
+            final int start = (int) ((long) count * range / rangeCount);
+            final int end = (int) ((long) count * (range + 1) / rangeCount);
+
+            results.add(executor.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    task.run(r, start, end);
+                    return null;
+                }
+            }));
+        }
+
+        Throwable failure = null;
+        try {
+            task.run(0, 0, rangeCount == 0 ? 0 : count / rangeCount);
+        } catch (Throwable e) {
+            failure = e;
+        }
+
+        // An interrupt must not end the wait, as the caller may go on to change the state the
+        // other ranges are still reading. It is kept for the caller once they are all done.
+        boolean interrupted = false;
+        for (Future<Void> result : results) {
+            while (true) {
+                try {
+                    result.get();
+                    break;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (exceptionType.isInstance(failure)) {
+            throw exceptionType.cast(failure);
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+}
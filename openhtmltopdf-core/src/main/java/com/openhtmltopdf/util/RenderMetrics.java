@@ -0,0 +1,123 @@
+package com.openhtmltopdf.util;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timings and counters collected during one render, when a
+ * {@link com.openhtmltopdf.extend.RenderMetricsListener} is set on the builder.
+ * The metrics are kept in the {@link com.openhtmltopdf.layout.SharedContext} of the render
+ * and may be updated from several threads, as pages may be painted in parallel.
+ * <br><br>
+ * Phases may overlap. Cascade and resource loading happen during box building and layout,
+ * so their time is also part of the time of those phases. Page break relayout time is part
+ * of layout time.
+ */
+public class RenderMetrics {
+    public enum Phase {
+        /** Parsing the document to a DOM. */
+        DOCUMENT_LOAD,
+        /** Loading and parsing the stylesheets of the document. */
+        STYLESHEETS,
+        /** Creating the box tree from the DOM, including the cascade. */
+        BOX_BUILDING,
+        /** Matching the CSS rules of each element. */
+        CASCADE,
+        /** Laying out the box tree and the pages. */
+        LAYOUT,
+        /** Laying out boxes again to honor page-break-inside and page-break-before/after avoid. */
+        PAGE_BREAK_RELAYOUT,
+        /** Painting the pages to the output device. */
+        PAINT,
+        /** Writing the output. */
+        SAVE,
+        /** Fetching CSS, images, fonts and other external resources. */
+        RESOURCE_LOADING;
+    }
+
+    public enum Counter {
+        /** Elements the CSS rules were matched for. */
+        ELEMENTS_STYLED,
+        /** Element and pseudo element styles found in the cache of the parent style. */
+        STYLE_CACHE_HITS,
+        /** Element and pseudo element styles which had to be created. */
+        STYLE_CACHE_MISSES,
+        /**
+         * Block boxes built for the document, and the line and inline boxes of each layout,
+         * including those laid out again during relayout.
+         */
+        BOXES_CREATED,
+        /** Boxes laid out again to move them past a page break. */
+        RELAYOUT_PASSES,
+        /** Boxes moved past a page break without being laid out again, as their layout did not depend on the page. */
+        RELAYOUT_MOVES,
+        /** Font files loaded into the output document. */
+        FONTS_LOADED,
+        /** Characters measured or drawn with a fallback font or the replacement character, as they are not in the first font. */
+        GLYPH_FALLBACKS,
+        /** Images decoded and encoded for the output document. */
+        IMAGES_DECODED,
+        /** Form XObjects created for content drawn more than once, such as repeated SVG images. */
+        SHARED_FORMS_CREATED,
+        /** Bytes written to the output stream. */
+        BYTES_WRITTEN;
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private final AtomicLongArray _phaseNanos = new AtomicLongArray(PHASES.length);
+    private final AtomicLongArray _counts = new AtomicLongArray(COUNTERS.length);
+
+    /**
+     * Adds the time since start, as given by {@link System#nanoTime()}, to a phase.
+     */
+    public void addTime(Phase phase, long startNanos) {
+        addNanos(phase, System.nanoTime() - startNanos);
+    }
+
+    public void addNanos(Phase phase, long nanos) {
+        _phaseNanos.addAndGet(phase.ordinal(), nanos);
+    }
+
+    public void increment(Counter counter) {
+        _counts.incrementAndGet(counter.ordinal());
+    }
+
+    public void add(Counter counter, long delta) {
+        _counts.addAndGet(counter.ordinal(), delta);
+    }
+
+    /**
+     * @return the time spent in a phase, in nanoseconds.
+     */
+    public long getNanos(Phase phase) {
+        return _phaseNanos.get(phase.ordinal());
+    }
+
+    public long getCount(Counter counter) {
+        return _counts.get(counter.ordinal());
+    }
+
+    /**
+     * Gets every metric keyed by a stable name, such as <code>phase.layout.nanos</code>
+     * or <code>count.style_cache_hits</code>, for export to a metrics or monitoring library.
+     */
+    public Map<String, Long> asMap() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (Phase phase : PHASES) {
+            result.put("phase." + phase.name().toLowerCase(Locale.US) + ".nanos", Long.valueOf(getNanos(phase)));
+        }
+        for (Counter counter : COUNTERS) {
+            result.put("count." + counter.name().toLowerCase(Locale.US), Long.valueOf(getCount(counter)));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderMetrics" + asMap();
+    }
+}
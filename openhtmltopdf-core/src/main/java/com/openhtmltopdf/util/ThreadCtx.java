@@ -34,6 +34,13 @@ public class ThreadCtx {
 			return this.sharedContext;
 		}
 		
+		/**
+		 * @return the metrics of the render on this thread, or null if there is none or metrics are not being collected.
+		 */
+		public RenderMetrics renderMetrics() {
+			return this.sharedContext == null ? null : this.sharedContext.getRenderMetrics();
+		}
+		
 		public void setSharedContext(SharedContext sharedContext) {
 			this.sharedContext = sharedContext;
 		}
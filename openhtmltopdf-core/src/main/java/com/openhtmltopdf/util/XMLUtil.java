@@ -22,12 +22,16 @@ package com.openhtmltopdf.util;
 
 import java.io.File;
 import java.io.StringReader;
+import java.util.Arrays;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
 
 /**
@@ -47,6 +51,55 @@ public class XMLUtil {
         return createDocumentBuilder().parse(new File(filename).toURI().toURL().openStream());
     }
 
+    /**
+     * Writes the names, attributes and text of a node and its descendants to a string,
+     * so that nodes with the same content, wherever they are in a document, give equal
+     * strings. Attributes are written in name order and comments are left out.
+     */
+    public static String contentKey(Node node) {
+        StringBuilder sb = new StringBuilder();
+        appendContent(node, sb);
+        return sb.toString();
+    }
+
+    private static void appendContent(Node node, StringBuilder sb) {
+        switch (node.getNodeType()) {
+        case Node.ELEMENT_NODE:
+            sb.append('<').append(node.getNamespaceURI()).append(' ').append(node.getNodeName());
+
+            NamedNodeMap attributes = node.getAttributes();
+            String[] names = new String[attributes.getLength()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = attributes.item(i).getNodeName();
+            }
+            Arrays.sort(names);
+            for (String name : names) {
+                Attr attr = (Attr) attributes.getNamedItem(name);
+                sb.append(' ').append(name).append("=\"").append(escape(attr.getValue())).append('"');
+            }
+            sb.append('>');
+
+            for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                appendContent(child, sb);
+            }
+            sb.append("</>");
+            break;
+        case Node.TEXT_NODE:
+        case Node.CDATA_SECTION_NODE:
+            sb.append(escape(node.getNodeValue()));
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Escapes text and attribute values so that they can not be mistaken for markup.
+     */
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+    }
+
     private static DocumentBuilder createDocumentBuilder()
         throws ParserConfigurationException {
 
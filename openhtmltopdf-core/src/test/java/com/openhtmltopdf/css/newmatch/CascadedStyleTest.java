@@ -0,0 +1,124 @@
+package com.openhtmltopdf.css.newmatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.*;
+
+import com.openhtmltopdf.css.constants.CSSName;
+import com.openhtmltopdf.css.parser.CSSErrorHandler;
+import com.openhtmltopdf.css.parser.CSSParser;
+import com.openhtmltopdf.css.sheet.StylesheetInfo;
+import com.openhtmltopdf.css.style.CalculatedStyle;
+import com.openhtmltopdf.css.style.EmptyStyle;
+
+/**
+ * Checks that cascaded styles are equal, and so share a derived style, exactly
+ * when the declarations that win the cascade set the same values.
+ */
+public class CascadedStyleTest {
+	private static final CSSParser PARSER = new CSSParser(new CSSErrorHandler() {
+		public void error(String uri, String message) {
+			Assert.fail(message);
+		}
+	});
+
+	/**
+	 * The declarations of a rule in the given origin, as if matched in that order.
+	 */
+	private static List declarations(int origin, String css) {
+		return PARSER.parseDeclaration(origin, css).getPropertyDeclarations();
+	}
+
+	private static CascadedStyle cascade(List first, List second) {
+		List all = new ArrayList(first);
+		all.addAll(second);
+		return CascadedStyle.createLayoutStyle(all);
+	}
+
+	private static CascadedStyle cascade(int origin, String css) {
+		return CascadedStyle.createLayoutStyle(declarations(origin, css));
+	}
+
+	@Test
+	public void testEqualDeclarationsFromDifferentRulesDeriveTheSameStyle() {
+		CascadedStyle a = cascade(StylesheetInfo.AUTHOR, "color: #ff0000; margin-left: 10px; display: block");
+		CascadedStyle b = cascade(StylesheetInfo.AUTHOR, "display: block; margin-left: 10px; color: #ff0000");
+
+		Assert.assertThat(b, equalTo(a));
+		Assert.assertThat(b.hashCode(), equalTo(a.hashCode()));
+
+		CalculatedStyle parent = new EmptyStyle();
+		Assert.assertThat(parent.deriveStyle(b), sameInstance(parent.deriveStyle(a)));
+	}
+
+	@Test
+	public void testImportanceAndOriginOfTheSameWinningValuesDoNotMatter() {
+		// The cascade is resolved, so only the winning values are compared.
+		CascadedStyle author = cascade(StylesheetInfo.AUTHOR, "color: #ff0000");
+		CascadedStyle important = cascade(StylesheetInfo.AUTHOR, "color: #ff0000 !important");
+		CascadedStyle user = cascade(StylesheetInfo.USER, "color: #ff0000");
+
+		Assert.assertThat(important, equalTo(author));
+		Assert.assertThat(user, equalTo(author));
+	}
+
+	@Test
+	public void testSingleValueDifferenceDerivesADifferentStyle() {
+		CascadedStyle a = cascade(StylesheetInfo.AUTHOR, "color: #ff0000; margin-left: 10px; display: block");
+		CascadedStyle b = cascade(StylesheetInfo.AUTHOR, "color: #ff0000; margin-left: 11px; display: block");
+		CascadedStyle c = cascade(StylesheetInfo.AUTHOR, "color: #ff0000; margin-left: 10px; display: inline");
+
+		Assert.assertThat(b, not(equalTo(a)));
+		Assert.assertThat(c, not(equalTo(a)));
+
+		CalculatedStyle parent = new EmptyStyle();
+		Assert.assertThat(parent.deriveStyle(b), not(sameInstance(parent.deriveStyle(a))));
+		Assert.assertThat(parent.deriveStyle(c), not(sameInstance(parent.deriveStyle(a))));
+	}
+
+	@Test
+	public void testImportantDeclarationDerivesADifferentStyle() {
+		CascadedStyle normal = cascade(
+				declarations(StylesheetInfo.AUTHOR, "color: #ff0000"),
+				declarations(StylesheetInfo.AUTHOR, "color: #0000ff"));
+		CascadedStyle important = cascade(
+				declarations(StylesheetInfo.AUTHOR, "color: #ff0000 !important"),
+				declarations(StylesheetInfo.AUTHOR, "color: #0000ff"));
+
+		Assert.assertThat(important, not(equalTo(normal)));
+
+		CalculatedStyle parent = new EmptyStyle();
+		Assert.assertThat(parent.deriveStyle(normal).asString(CSSName.COLOR), equalTo("#0000ff"));
+		Assert.assertThat(parent.deriveStyle(important).asString(CSSName.COLOR), equalTo("#ff0000"));
+	}
+
+	@Test
+	public void testOriginDerivesADifferentStyle() {
+		CascadedStyle authorLast = cascade(
+				declarations(StylesheetInfo.USER_AGENT, "color: #ff0000"),
+				declarations(StylesheetInfo.AUTHOR, "color: #0000ff"));
+		CascadedStyle userAgentLast = cascade(
+				declarations(StylesheetInfo.AUTHOR, "color: #ff0000"),
+				declarations(StylesheetInfo.USER_AGENT, "color: #0000ff"));
+
+		Assert.assertThat(userAgentLast, not(equalTo(authorLast)));
+
+		CalculatedStyle parent = new EmptyStyle();
+		Assert.assertThat(parent.deriveStyle(authorLast).asString(CSSName.COLOR), equalTo("#0000ff"));
+		Assert.assertThat(parent.deriveStyle(userAgentLast).asString(CSSName.COLOR), equalTo("#ff0000"));
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testDeprecatedFingerprintFollowsEquality() {
+		CascadedStyle a = cascade(StylesheetInfo.AUTHOR, "color: #ff0000; margin-left: 10px");
+		CascadedStyle b = cascade(StylesheetInfo.AUTHOR, "margin-left: 10px; color: #ff0000");
+		CascadedStyle c = cascade(StylesheetInfo.AUTHOR, "margin-left: 12px; color: #ff0000");
+
+		Assert.assertThat(b.getFingerprint(), equalTo(a.getFingerprint()));
+		Assert.assertThat(c.getFingerprint(), not(equalTo(a.getFingerprint())));
+	}
+}
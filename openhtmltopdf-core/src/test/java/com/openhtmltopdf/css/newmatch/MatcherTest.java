@@ -0,0 +1,340 @@
+package com.openhtmltopdf.css.newmatch;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import com.openhtmltopdf.css.constants.CSSName;
+import com.openhtmltopdf.css.extend.AttributeResolver;
+import com.openhtmltopdf.css.extend.TreeResolver;
+import com.openhtmltopdf.css.extend.lib.DOMTreeResolver;
+import com.openhtmltopdf.css.parser.CSSErrorHandler;
+import com.openhtmltopdf.css.parser.CSSParser;
+import com.openhtmltopdf.css.sheet.PropertyDeclaration;
+import com.openhtmltopdf.css.sheet.Ruleset;
+import com.openhtmltopdf.css.sheet.Stylesheet;
+import com.openhtmltopdf.css.sheet.StylesheetInfo;
+
+/**
+ * Checks that the selectors the matcher finds for an element, through its id, class,
+ * element name and universal buckets and the descendant selectors carried to children,
+ * cascade in exactly the order of trying every selector in specificity and source order.
+ */
+public class MatcherTest {
+	private static final CSSName[] PROPERTIES = new CSSName[] {
+		CSSName.COLOR, CSSName.MARGIN_TOP, CSSName.PADDING_LEFT, CSSName.FONT_SIZE };
+
+	private static final TreeResolver TREE_RESOLVER = new DOMTreeResolver();
+
+	private static final AttributeResolver ATTRIBUTE_RESOLVER = new AttributeResolver() {
+		public String getAttributeValue(Object e, String attrName) {
+			Element element = (Element) e;
+			return element.hasAttribute(attrName) ? element.getAttribute(attrName) : null;
+		}
+
+		public String getAttributeValue(Object e, String namespaceURI, String attrName) {
+			return getAttributeValue(e, attrName);
+		}
+
+		public String getClass(Object e) {
+			return getAttributeValue(e, "class");
+		}
+
+		public String getID(Object e) {
+			return getAttributeValue(e, "id");
+		}
+
+		public String getNonCssStyling(Object e) {
+			return null;
+		}
+
+		public String getElementStyling(Object e) {
+			return null;
+		}
+
+		public String getLang(Object e) {
+			return null;
+		}
+
+		public boolean isLink(Object e) {
+			return false;
+		}
+
+		public boolean isVisited(Object e) {
+			return false;
+		}
+
+		public boolean isHover(Object e) {
+			return false;
+		}
+
+		public boolean isActive(Object e) {
+			return false;
+		}
+
+		public boolean isFocus(Object e) {
+			return false;
+		}
+	};
+
+	private static Stylesheet parse(String css) throws IOException {
+		CSSParser parser = new CSSParser(new CSSErrorHandler() {
+			public void error(String uri, String message) {
+				Assert.fail(message);
+			}
+		});
+		return parser.parseStylesheet("test.css", StylesheetInfo.AUTHOR, new StringReader(css));
+	}
+
+	private static Document parseXml(String xml) throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+	}
+
+	/**
+	 * The cascaded style given by trying every selector against the element,
+	 * in the order of specificity then position in the stylesheet.
+	 */
+	private static CascadedStyle referenceStyle(Stylesheet sheet, Element e) {
+		TreeMap sorted = new TreeMap();
+		int count = 0;
+		for (Iterator i = sheet.getContents().iterator(); i.hasNext(); ) {
+			Ruleset ruleset = (Ruleset) i.next();
+			for (Iterator j = ruleset.getFSSelectors().iterator(); j.hasNext(); ) {
+				Selector selector = (Selector) j.next();
+				sorted.put(selector.getOrder(++count), selector);
+			}
+		}
+
+		List declarations = new ArrayList();
+		for (Iterator i = sorted.values().iterator(); i.hasNext(); ) {
+			Selector selector = (Selector) i.next();
+			List chain = new ArrayList();
+			for (Selector s = selector; s != null; s = s.getChainedSelector()) {
+				chain.add(s);
+			}
+			if (matchesChain(chain, chain.size() - 1, e)) {
+				declarations.addAll(selector.getRuleset().getPropertyDeclarations());
+			}
+		}
+
+		return new CascadedStyle(declarations.iterator());
+	}
+
+	private static boolean matchesChain(List chain, int index, Object e) {
+		Selector selector = (Selector) chain.get(index);
+		if (!selector.matches(e, ATTRIBUTE_RESOLVER, TREE_RESOLVER) ||
+			!selector.matchesDynamic(e, ATTRIBUTE_RESOLVER, TREE_RESOLVER)) {
+			return false;
+		}
+		if (index == 0) {
+			return true;
+		}
+
+		Object parent = TREE_RESOLVER.getParentElement(e);
+		if (selector.getAxis() == Selector.CHILD_AXIS) {
+			return parent != null && matchesChain(chain, index - 1, parent);
+		}
+		for (Object ancestor = parent; ancestor != null; ancestor = TREE_RESOLVER.getParentElement(ancestor)) {
+			if (matchesChain(chain, index - 1, ancestor)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void assertSameCascade(String css, String xml) throws Exception {
+		Stylesheet sheet = parse(css);
+		Document doc = parseXml(xml);
+		Matcher matcher = new Matcher(TREE_RESOLVER, ATTRIBUTE_RESOLVER, null,
+				Collections.singletonList(sheet), "print");
+
+		NodeList elements = doc.getElementsByTagName("*");
+		for (int i = 0; i < elements.getLength(); i++) {
+			Element e = (Element) elements.item(i);
+			CascadedStyle expected = referenceStyle(sheet, e);
+			CascadedStyle actual = matcher.getCascadedStyle(e, false);
+
+			for (CSSName name : PROPERTIES) {
+				PropertyDeclaration want = expected.propertyByName(name);
+				PropertyDeclaration got = actual.propertyByName(name);
+				if (want != got) {
+					Assert.fail("Element " + i + " <" + e.getNodeName() + " id=" + e.getAttribute("id") +
+							" class=" + e.getAttribute("class") + "> " + name + " expected " +
+							(want == null ? null : want.getValue().getCssText()) + " but got " +
+							(got == null ? null : got.getValue().getCssText()) + " for:\n" + css);
+				}
+			}
+		}
+	}
+
+	private static String color(Element e, String css) throws Exception {
+		Matcher matcher = new Matcher(TREE_RESOLVER, ATTRIBUTE_RESOLVER, null,
+				Collections.singletonList(parse(css)), "print");
+		return matcher.getCascadedStyle(e, false).propertyByName(CSSName.COLOR).getValue().getCssText();
+	}
+
+	private static Element target(String xml) throws Exception {
+		Document doc = parseXml(xml);
+		NodeList elements = doc.getElementsByTagName("*");
+		for (int i = 0; i < elements.getLength(); i++) {
+			Element e = (Element) elements.item(i);
+			if ("t".equals(e.getAttribute("id"))) {
+				return e;
+			}
+		}
+		throw new AssertionError("no element with id t");
+	}
+
+	@Test
+	public void testIdBeatsLaterClassNameAndUniversal() throws Exception {
+		Element e = target("<div><p id='t' class='a' title='x'/></div>");
+		Assert.assertEquals("#ff0000", color(e, "#t { color: red } .a { color: blue } p { color: green } * { color: black } [title] { color: gray }"));
+	}
+
+	@Test
+	public void testLaterRuleWinsTieBetweenClassBuckets() throws Exception {
+		// The classes are listed on the element in the opposite order to the rules.
+		Element e = target("<div><p id='t' class='b a'/></div>");
+		Assert.assertEquals("#008000", color(e, ".a { color: red } .b { color: green }"));
+		Assert.assertEquals("#ff0000", color(e, ".b { color: green } .a { color: red }"));
+	}
+
+	@Test
+	public void testLaterRuleWinsTieBetweenClassAndUniversalBuckets() throws Exception {
+		// [title] has the specificity of a class, but is in the universal bucket.
+		Element e = target("<div><p id='t' class='a' title='x'/></div>");
+		Assert.assertEquals("#008000", color(e, ".a { color: red } [title] { color: green }"));
+		Assert.assertEquals("#ff0000", color(e, "[title] { color: green } .a { color: red }"));
+	}
+
+	@Test
+	public void testLaterRuleWinsTieBetweenNameAndCarriedDescendant() throws Exception {
+		// div p and p.x have specificity 0,0,2 and 0,1,1, span p is carried from the span.
+		Element e = target("<div><span><p id='t' class='a'/></span></div>");
+		Assert.assertEquals("#0000ff", color(e, "div p { color: red } span p { color: blue }"));
+		Assert.assertEquals("#ff0000", color(e, "span p { color: blue } div p { color: red }"));
+		Assert.assertEquals("#008000", color(e, "p.a { color: green } div p { color: red }"));
+		Assert.assertEquals("#008000", color(e, "div .a { color: red } p.a { color: green }"));
+		Assert.assertEquals("#ff0000", color(e, "p.a { color: green } div .a { color: red }"));
+	}
+
+	@Test
+	public void testRepeatedClassMatchesOnce() throws Exception {
+		Element e = target("<div><p id='t' class='a a  b'/></div>");
+		Assert.assertEquals("#ff0000", color(e, ".b { color: green } .a { color: red }"));
+	}
+
+	@Test
+	public void testGeneratedStylesheetsCascadeAsBefore() throws Exception {
+		Random random = new Random(20161018L);
+		for (int round = 0; round < 200; round++) {
+			assertSameCascade(generateCss(random), generateXml(random));
+		}
+	}
+
+	private static final String[] NAMES = new String[] { "div", "p", "span", "em" };
+	private static final String[] CLASSES = new String[] { "a", "b", "c" };
+
+	private static String generateXml(Random random) {
+		StringBuilder sb = new StringBuilder();
+		int[] id = new int[1];
+		appendElement(sb, random, 0, id);
+		return sb.toString();
+	}
+
+	private static void appendElement(StringBuilder sb, Random random, int depth, int[] id) {
+		String name = NAMES[random.nextInt(NAMES.length)];
+		sb.append('<').append(name);
+		if (random.nextInt(3) == 0) {
+			sb.append(" id='i").append(id[0]++ % 4).append('\'');
+		}
+		if (random.nextBoolean()) {
+			sb.append(" class='");
+			int classes = 1 + random.nextInt(3);
+			for (int i = 0; i < classes; i++) {
+				sb.append(CLASSES[random.nextInt(CLASSES.length)]).append(' ');
+			}
+			sb.append('\'');
+		}
+		if (random.nextInt(4) == 0) {
+			sb.append(" title='x'");
+		}
+		sb.append('>');
+		if (depth < 4) {
+			int children = random.nextInt(4);
+			for (int i = 0; i < children; i++) {
+				appendElement(sb, random, depth + 1, id);
+			}
+		}
+		sb.append("</").append(name).append('>');
+	}
+
+	private static String generateCss(Random random) {
+		StringBuilder sb = new StringBuilder();
+		int rules = 5 + random.nextInt(30);
+		for (int r = 0; r < rules; r++) {
+			int compounds = 1 + random.nextInt(3);
+			for (int c = 0; c < compounds; c++) {
+				if (c > 0) {
+					sb.append(random.nextBoolean() ? " " : " > ");
+				}
+				appendCompound(sb, random);
+			}
+			sb.append(" { ");
+			int declarations = 1 + random.nextInt(2);
+			for (int d = 0; d < declarations; d++) {
+				CSSName name = PROPERTIES[random.nextInt(PROPERTIES.length)];
+				sb.append(name).append(": ");
+				if (name == CSSName.COLOR) {
+					sb.append("rgb(").append(r).append(", 0, 0)");
+				} else {
+					sb.append(r + 1).append("px");
+				}
+				if (random.nextInt(8) == 0) {
+					sb.append(" !important");
+				}
+				sb.append("; ");
+			}
+			sb.append("}\n");
+		}
+		return sb.toString();
+	}
+
+	private static void appendCompound(StringBuilder sb, Random random) {
+		boolean any = false;
+		if (random.nextBoolean()) {
+			sb.append(NAMES[random.nextInt(NAMES.length)]);
+			any = true;
+		}
+		if (random.nextInt(5) == 0) {
+			sb.append("#i").append(random.nextInt(4));
+			any = true;
+		}
+		int classes = random.nextInt(3);
+		for (int i = 0; i < classes; i++) {
+			sb.append('.').append(CLASSES[random.nextInt(CLASSES.length)]);
+			any = true;
+		}
+		if (random.nextInt(5) == 0) {
+			sb.append("[title]");
+			any = true;
+		}
+		if (!any) {
+			sb.append('*');
+		}
+	}
+}
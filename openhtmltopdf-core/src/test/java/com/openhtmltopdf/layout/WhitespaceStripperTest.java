@@ -0,0 +1,150 @@
+package com.openhtmltopdf.layout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.openhtmltopdf.css.constants.IdentValue;
+
+/**
+ * Compares the single pass whitespace collapsing of {@link WhitespaceStripper} with
+ * the patterns it replaced, over the text of the documents in the tests directory.
+ */
+public class WhitespaceStripperTest {
+    private static final IdentValue[] MODES = {
+        IdentValue.NORMAL, IdentValue.NOWRAP, IdentValue.PRE, IdentValue.PRE_WRAP, IdentValue.PRE_LINE };
+
+    private static final int[] TAB_SIZES = { 0, 1, 8 };
+
+    private static final String[] EDGE_CASES = {
+        "", " ", "\n", "\t", "  ", " \n", "\n ", " \n ", "\r\n", "\r\n ", " \r\n", "a\r\nb",
+        "\t\n\t", "a \t b", "a\f\nb", "a \u000B  b", "\n\n", " \n\n ", "a\t\t\n\nb  ",
+        "  leading", "trailing  ", "\u00a0 \u00a0", " x \r y \n z\t"
+    };
+
+    @Test
+    public void testEdgeCases() {
+        assertSameAsPatterns(Arrays.asList(EDGE_CASES));
+    }
+
+    @Test
+    public void testTestsCorpus() throws IOException {
+        File dir = new File("../tests");
+        Assert.assertTrue("Can not find the tests directory", dir.isDirectory());
+
+        List<String> texts = new ArrayList<String>();
+        collectTexts(dir, texts);
+        Assert.assertTrue(texts.size() > 1000);
+
+        assertSameAsPatterns(texts);
+    }
+
+    private static void assertSameAsPatterns(List<String> texts) {
+        for (String text : texts) {
+            for (IdentValue mode : MODES) {
+                for (int tabSize : TAB_SIZES) {
+                    for (int leading = 0; leading < 2; leading++) {
+                        boolean collapseLeading = leading == 1;
+                        String expected = collapseWithPatterns(mode, tabSize, text, collapseLeading);
+                        String actual = WhitespaceStripper.collapseWhitespace(mode, tabSize, text, collapseLeading);
+                        if (! expected.equals(actual)) {
+                            Assert.fail("white-space: " + mode + ", tab size " + tabSize +
+                                    ", collapse leading " + collapseLeading + " of [" + escape(text) + "]: expected [" +
+                                    escape(expected) + "] but was [" + escape(actual) + "]");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The collapsing as it was done before, one pattern after the other.
+     */
+    private static String collapseWithPatterns(IdentValue whitespace, int tabSize, String text, boolean collapseLeading) {
+        if (whitespace == IdentValue.NORMAL || whitespace == IdentValue.NOWRAP) {
+            text = WhitespaceStripper.linefeed_space_collapse.matcher(text).replaceAll(WhitespaceStripper.EOL);
+        } else if (whitespace == IdentValue.PRE) {
+            text = WhitespaceStripper.space_before_linefeed_collapse.matcher(text).replaceAll(WhitespaceStripper.EOL);
+        }
+
+        if (whitespace == IdentValue.NORMAL || whitespace == IdentValue.NOWRAP) {
+            text = WhitespaceStripper.linefeed_to_space.matcher(text).replaceAll(WhitespaceStripper.SPACE);
+            text = WhitespaceStripper.tab_to_space.matcher(text).replaceAll(WhitespaceStripper.SPACE);
+            text = WhitespaceStripper.space_collapse.matcher(text).replaceAll(WhitespaceStripper.SPACE);
+        } else if (whitespace == IdentValue.PRE || whitespace == IdentValue.PRE_WRAP) {
+            char[] tabs = new char[tabSize];
+            Arrays.fill(tabs, ' ');
+            text = WhitespaceStripper.tab_to_space.matcher(text).replaceAll(new String(tabs));
+        } else if (whitespace == IdentValue.PRE_LINE) {
+            text = WhitespaceStripper.tab_to_space.matcher(text).replaceAll(WhitespaceStripper.SPACE);
+            text = WhitespaceStripper.space_collapse.matcher(text).replaceAll(WhitespaceStripper.SPACE);
+        }
+
+        if (whitespace == IdentValue.NORMAL || whitespace == IdentValue.NOWRAP) {
+            if (text.startsWith(WhitespaceStripper.SPACE) && collapseLeading) {
+                text = text.substring(1, text.length());
+            }
+        }
+
+        return text;
+    }
+
+    /**
+     * Adds the whole of every document and the text between its tags.
+     */
+    private static void collectTexts(File dir, List<String> texts) throws IOException {
+        File[] files = dir.listFiles();
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                collectTexts(file, texts);
+            } else if (name.endsWith(".xhtml") || name.endsWith(".html") || name.endsWith(".css")) {
+                String content = read(file);
+                texts.add(content);
+
+                int start = 0;
+                while (start < content.length()) {
+                    int open = content.indexOf('<', start);
+                    if (open < 0) {
+                        open = content.length();
+                    }
+                    if (open > start) {
+                        texts.add(content.substring(start, open));
+                    }
+                    int close = content.indexOf('>', open);
+                    start = close < 0 ? content.length() : close + 1;
+                }
+            }
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("\r", "\\r").replace("\n", "\\n").replace("\t", "\\t")
+                .replace("\f", "\\f").replace("\u000B", "\\v");
+    }
+}
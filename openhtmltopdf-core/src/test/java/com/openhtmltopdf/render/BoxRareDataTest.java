@@ -0,0 +1,87 @@
+package com.openhtmltopdf.render;
+
+import java.awt.Dimension;
+
+import org.junit.Assert;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.*;
+
+import com.openhtmltopdf.css.style.EmptyStyle;
+import com.openhtmltopdf.layout.Layer;
+
+/**
+ * The layer, relative offset and pseudo element of a box are kept apart from it, so each must
+ * read back as set, whatever the others are, and clearing one must not clear the others.
+ */
+public class BoxRareDataTest {
+	/**
+	 * A layer reads the position and z-index of its box.
+	 */
+	private static Box newBox() {
+		Box box = new BlockBox();
+		box.setStyle(new EmptyStyle());
+		return box;
+	}
+
+	@Test
+	public void testNewBoxHasNone() {
+		Box box = newBox();
+		Assert.assertNull(box.getLayer());
+		Assert.assertNull(box.getRelativeOffset());
+		Assert.assertNull(box.getPseudoElementOrClass());
+
+		// Clearing what was never set does not fail.
+		box.setLayer(null);
+		box.setRelativeOffset(null);
+		box.setPseudoElementOrClass(null);
+		Assert.assertNull(box.getLayer());
+		Assert.assertNull(box.getRelativeOffset());
+		Assert.assertNull(box.getPseudoElementOrClass());
+	}
+
+	@Test
+	public void testEachRoundTrips() {
+		Box box = newBox();
+		Layer layer = new Layer(box);
+		Assert.assertThat(box.getLayer(), sameInstance(layer));
+		Assert.assertNull(box.getRelativeOffset());
+		Assert.assertNull(box.getPseudoElementOrClass());
+
+		box = newBox();
+		Dimension offset = new Dimension(3, -4);
+		box.setRelativeOffset(offset);
+		Assert.assertThat(box.getRelativeOffset(), sameInstance(offset));
+		Assert.assertNull(box.getLayer());
+		Assert.assertNull(box.getPseudoElementOrClass());
+
+		box = newBox();
+		box.setPseudoElementOrClass("before");
+		Assert.assertThat(box.getPseudoElementOrClass(), equalTo("before"));
+		Assert.assertNull(box.getLayer());
+		Assert.assertNull(box.getRelativeOffset());
+	}
+
+	@Test
+	public void testClearingOneKeepsTheOthers() {
+		Box box = newBox();
+		Layer layer = new Layer(box);
+		Dimension offset = new Dimension(1, 2);
+		box.setRelativeOffset(offset);
+		box.setPseudoElementOrClass("after");
+
+		box.setLayer(null);
+		Assert.assertNull(box.getLayer());
+		Assert.assertThat(box.getRelativeOffset(), sameInstance(offset));
+		Assert.assertThat(box.getPseudoElementOrClass(), equalTo("after"));
+
+		box.setRelativeOffset(null);
+		Assert.assertNull(box.getRelativeOffset());
+		Assert.assertThat(box.getPseudoElementOrClass(), equalTo("after"));
+
+		box.setLayer(layer);
+		box.setPseudoElementOrClass(null);
+		Assert.assertThat(box.getLayer(), sameInstance(layer));
+		Assert.assertNull(box.getPseudoElementOrClass());
+		Assert.assertNull(box.getRelativeOffset());
+	}
+}
@@ -0,0 +1,160 @@
+package com.openhtmltopdf.resource;
+
+import java.io.StringReader;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.sax.SAXSource;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import com.openhtmltopdf.util.XRRuntimeException;
+
+public class XMLResourceTest {
+	private static final String NAMESPACES_ENTITIES_CDATA =
+			"<?xml version=\"1.0\"?>\n" +
+			"<!DOCTYPE root [\n" +
+			"  <!ENTITY greeting \"Hello &#38;amp; welcome\">\n" +
+			"  <!ATTLIST item kind CDATA \"plain\">\n" +
+			"]>\n" +
+			"<?xml-stylesheet type=\"text/css\" href=\"style.css\"?>\n" +
+			"<!-- before the root -->\n" +
+			"<root xmlns=\"urn:default\" xmlns:x=\"urn:x\" x:attr=\"1\" plain=\"2\">\n" +
+			"  <x:child x:flag=\"yes\">&greeting; &#233;&lt;&gt;</x:child>\n" +
+			"  <item/>\n" +
+			"  <![CDATA[ <not> & markup ]]>text after the section\n" +
+			"  <?target some data?>\n" +
+			"  <!-- a comment -->\n" +
+			"  <inner xmlns=\"urn:other\" xmlns:x=\"urn:x2\"><x:deep x:attr=\"3\"/>tail</inner>\n" +
+			"  <empty xmlns=\"\"><y:z xmlns:y=\"urn:y\" y:a=\"&amp;\"/></empty>\n" +
+			"</root>\n" +
+			"<?trailing pi?>\n";
+
+	private static final String XHTML =
+			"<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Strict//EN\" \"http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd\">\n" +
+			"<html xmlns=\"http://www.w3.org/1999/xhtml\" xml:lang=\"en\"><head><title>T&eacute;st</title>\n" +
+			"<style type=\"text/css\"><![CDATA[ p > em { color: red; } ]]></style></head>\n" +
+			"<body><p id=\"first\">One&nbsp;two &amp; <em>three</em></p>\n" +
+			"<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" width=\"10\" height=\"10\">" +
+			"<use xlink:href=\"#r\"/></svg></body></html>\n";
+
+	/**
+	 * Builds the document as XMLResource did before it had its own SAX handler, with an identity
+	 * transform from a SAXSource to a DOMResult.
+	 */
+	private static Document loadWithIdentityTransform(String xml) throws Exception {
+		XMLReader xmlReader = XMLResource.newXMLReader();
+		xmlReader.setEntityResolver(FSEntityResolver.instance());
+		xmlReader.setFeature("http://xml.org/sax/features/validation", false);
+		xmlReader.setFeature("http://xml.org/sax/features/namespaces", true);
+
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		dbf.setValidating(false);
+		DOMResult output = new DOMResult(dbf.newDocumentBuilder().newDocument());
+
+		TransformerFactory.newInstance().newTransformer().transform(
+				new SAXSource(xmlReader, new InputSource(new StringReader(xml))), output);
+		return (Document) output.getNode();
+	}
+
+	private static Document load(String xml) {
+		return XMLResource.load(new StringReader(xml)).getDocument();
+	}
+
+	/**
+	 * Writes the tree with every name, namespace and value, with attributes in name order.
+	 */
+	private static void dump(Node node, String indent, StringBuilder sb) {
+		sb.append(indent).append(node.getNodeType()).append(' ').append(node.getNodeName())
+		  .append(" {").append(node.getNamespaceURI()).append('}').append(node.getLocalName());
+		if (node.getNodeValue() != null) {
+			sb.append(" = [").append(node.getNodeValue()).append(']');
+		}
+		sb.append('\n');
+
+		NamedNodeMap attrs = node.getAttributes();
+		if (attrs != null) {
+			Map<String, Node> sorted = new TreeMap<String, Node>();
+			for (int i = 0; i < attrs.getLength(); i++) {
+				sorted.put(attrs.item(i).getNodeName(), attrs.item(i));
+			}
+			for (Node attr : sorted.values()) {
+				dump(attr, indent + "  @", sb);
+			}
+		}
+
+		for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+			dump(child, indent + "  ", sb);
+		}
+	}
+
+	private static String dump(Document doc) {
+		StringBuilder sb = new StringBuilder();
+		dump(doc, "", sb);
+		return sb.toString();
+	}
+
+	/**
+	 * The identity transform copied the comments of an external DTD into the document,
+	 * before the root element. These are now left out.
+	 */
+	private static Document removeDocumentComments(Document doc) {
+		Node child = doc.getFirstChild();
+		while (child != null) {
+			Node next = child.getNextSibling();
+			if (child.getNodeType() == Node.COMMENT_NODE) {
+				doc.removeChild(child);
+			}
+			child = next;
+		}
+		return doc;
+	}
+
+	@Test
+	public void testNamespacesEntitiesCdataAndInstructionsMatchIdentityTransform() throws Exception {
+		String expected = dump(loadWithIdentityTransform(NAMESPACES_ENTITIES_CDATA));
+		Assert.assertEquals(expected, dump(load(NAMESPACES_ENTITIES_CDATA)));
+		// Parsed a second time with the parser pooled for this thread.
+		Assert.assertEquals(expected, dump(load(NAMESPACES_ENTITIES_CDATA)));
+	}
+
+	@Test
+	public void testXhtmlWithDoctypeMatchesIdentityTransform() throws Exception {
+		Document doc = load(XHTML);
+		Assert.assertEquals(dump(removeDocumentComments(loadWithIdentityTransform(XHTML))), dump(doc));
+		Assert.assertNotNull(doc.getElementById("first"));
+	}
+
+	@Test
+	public void testParserIsReusableAfterFailure() throws Exception {
+		String expected = dump(loadWithIdentityTransform(NAMESPACES_ENTITIES_CDATA));
+		String[] broken = {
+				"<root><open></root>",
+				"<root>&undefined;</root>",
+				"<root xmlns:x=\"urn:x\"><x:a><x:b>text",
+				"<?xml version=\"1.0\"?><!DOCTYPE root [ <!ENTITY e \"<unclosed>\"> ]><root>&e;</root>",
+		};
+
+		for (String xml : broken) {
+			try {
+				load(xml);
+				Assert.fail("Expected a failure for " + xml);
+			} catch (XRRuntimeException e) {
+				// expected
+			}
+
+			// The same pooled parser, with no state left from the failed document.
+			Assert.assertEquals(expected, dump(load(NAMESPACES_ENTITIES_CDATA)));
+		}
+	}
+}
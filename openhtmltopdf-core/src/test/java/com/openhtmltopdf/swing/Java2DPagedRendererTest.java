@@ -0,0 +1,143 @@
+package com.openhtmltopdf.swing;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.*;
+
+import com.openhtmltopdf.resource.XMLResource;
+
+public class Java2DPagedRendererTest {
+	private static final int PAGES = 6;
+	private static final int PAGE_WIDTH = 200;
+	private static final int PAGE_HEIGHT = 300;
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Pages of text and colored blocks, with a page counter in a margin box.
+	 */
+	private static String document() {
+		StringBuilder sb = new StringBuilder("<html><head><style>" +
+				"@page { size: " + PAGE_WIDTH + "px " + PAGE_HEIGHT + "px; margin: 30px 20px; " +
+				"  @bottom-center { content: 'Page ' counter(page) ' of ' counter(pages); font-size: 10px; } }\n" +
+				"body { margin: 0; font-size: 12px; }\n" +
+				"div.page { page-break-after: always; }\n" +
+				"div.block { height: 40px; border: 2px solid #003399; }\n" +
+				"</style></head><body>");
+		for (int i = 0; i < PAGES; i++) {
+			sb.append("<div class='page'><p>Page ").append(i + 1).append(" has some text on it.</p>")
+			  .append("<div class='block' style='background-color: #").append(i % 2 == 0 ? "cc3300" : "33cc00")
+			  .append("; width: ").append(20 * (i + 1)).append("px'></div></div>");
+		}
+		return sb.append("</body></html>").toString();
+	}
+
+	/**
+	 * Renders the document and returns the image of each page, checking each page is handed on once.
+	 *
+	 * @param threads if not null, receives the threads the pages were painted on.
+	 */
+	private static Map<Integer, BufferedImage> render(ExecutorService executor, int scaledWidth,
+			final Set<Thread> threads) throws IOException {
+		Java2DPagedRenderer renderer = new Java2DPagedRenderer(
+				XMLResource.load(new StringReader(document())).getDocument(), null);
+		try {
+			renderer.setPagePaintingExecutor(executor);
+			renderer.setScaledWidth(scaledWidth);
+			Assert.assertThat(renderer.getPageCount(), equalTo(PAGES));
+
+			final Map<Integer, BufferedImage> images = new TreeMap<Integer, BufferedImage>();
+			renderer.renderPages(new Java2DPagedRenderer.PageImageHandler() {
+				public void pageImage(int pageNo, BufferedImage image) {
+					synchronized (images) {
+						if (threads != null) {
+							threads.add(Thread.currentThread());
+						}
+						Assert.assertNull("page " + pageNo + " painted twice", images.put(pageNo, image));
+					}
+				}
+			});
+			return images;
+		} finally {
+			renderer.cleanup();
+		}
+	}
+
+	private static void assertSameImages(Map<Integer, BufferedImage> expected, Map<Integer, BufferedImage> actual) {
+		Assert.assertThat(actual.keySet(), equalTo(expected.keySet()));
+		for (Integer pageNo : expected.keySet()) {
+			BufferedImage e = expected.get(pageNo);
+			BufferedImage a = actual.get(pageNo);
+			Assert.assertThat(a.getWidth(), equalTo(e.getWidth()));
+			Assert.assertThat(a.getHeight(), equalTo(e.getHeight()));
+			for (int y = 0; y < e.getHeight(); y++) {
+				for (int x = 0; x < e.getWidth(); x++) {
+					if (a.getRGB(x, y) != e.getRGB(x, y)) {
+						Assert.fail("page " + pageNo + " differs at " + x + "," + y);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPageCountAndSize() throws IOException {
+		Map<Integer, BufferedImage> images = render(null, 0, null);
+		Assert.assertThat(images.size(), equalTo(PAGES));
+		for (BufferedImage image : images.values()) {
+			Assert.assertThat(image.getWidth(), equalTo(PAGE_WIDTH));
+			Assert.assertThat(image.getHeight(), equalTo(PAGE_HEIGHT));
+		}
+
+		// The blocks differ in width and color, so no two pages are the same.
+		int[] first = images.get(0).getRGB(0, 0, PAGE_WIDTH, PAGE_HEIGHT, null, 0, PAGE_WIDTH);
+		int[] second = images.get(1).getRGB(0, 0, PAGE_WIDTH, PAGE_HEIGHT, null, 0, PAGE_WIDTH);
+		Assert.assertFalse(Arrays.equals(first, second));
+	}
+
+	@Test
+	public void testScaledPagesKeepTheirAspectRatio() throws IOException {
+		Map<Integer, BufferedImage> images = render(null, PAGE_WIDTH / 2, null);
+		Assert.assertThat(images.size(), equalTo(PAGES));
+		for (BufferedImage image : images.values()) {
+			Assert.assertThat(image.getWidth(), equalTo(PAGE_WIDTH / 2));
+			Assert.assertThat(image.getHeight(), equalTo(PAGE_HEIGHT / 2));
+		}
+	}
+
+	@Test
+	public void testParallelPagesMatchSequentialPages() throws IOException {
+		Map<Integer, BufferedImage> expected = render(null, 0, null);
+		for (int run = 0; run < 3; run++) {
+			Set<Thread> threads = new HashSet<Thread>();
+			assertSameImages(expected, render(executor, 0, threads));
+
+			// The first range of pages is painted on this thread and the others on the executor.
+			Assert.assertTrue(threads.contains(Thread.currentThread()));
+			Assert.assertTrue(threads.size() > 1);
+		}
+	}
+}
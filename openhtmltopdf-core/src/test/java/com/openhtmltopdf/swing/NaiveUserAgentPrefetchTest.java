@@ -0,0 +1,96 @@
+package com.openhtmltopdf.swing;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.*;
+
+import com.openhtmltopdf.extend.HttpStream;
+import com.openhtmltopdf.extend.HttpStreamFactory;
+import com.openhtmltopdf.util.IOUtil;
+
+public class NaiveUserAgentPrefetchTest {
+	private static final String CSS = "p::before { content: 'été'; }";
+
+	/**
+	 * Serves the stylesheet in ISO-8859-1, as a server giving the charset in its headers would,
+	 * and counts the requests.
+	 */
+	private static class Latin1StreamFactory implements HttpStreamFactory {
+		final AtomicInteger requests = new AtomicInteger();
+
+		public HttpStream getUrl(String url) {
+			requests.incrementAndGet();
+			return new HttpStream() {
+				public InputStream getStream() {
+					try {
+						return new ByteArrayInputStream(CSS.getBytes("ISO-8859-1"));
+					} catch (UnsupportedEncodingException e) {
+						throw new RuntimeException(e);
+					}
+				}
+
+				public Reader getReader() {
+					try {
+						return new InputStreamReader(getStream(), "ISO-8859-1");
+					} catch (UnsupportedEncodingException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+		}
+	}
+
+	private ExecutorService executor;
+	private Latin1StreamFactory factory;
+	private NaiveUserAgent userAgent;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(2);
+		factory = new Latin1StreamFactory();
+		userAgent = new NaiveUserAgent();
+		userAgent.setHttpStreamFactory(factory);
+		userAgent.setBaseURL("http://example.invalid/doc.html");
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void testPrefetchedStylesheetIsDecodedByStreamFactory() throws IOException {
+		userAgent.prefetchStylesheets(Collections.singletonList("style.css"), executor);
+		Assert.assertThat(factory.requests.get(), equalTo(1));
+
+		Reader reader = userAgent.openReader("http://example.invalid/style.css");
+		Assert.assertThat(IOUtil.readString(reader), equalTo(CSS));
+		Assert.assertThat(factory.requests.get(), equalTo(1));
+	}
+
+	@Test
+	public void testDocumentStartedDropsUnopenedResources() throws IOException {
+		userAgent.prefetch(Collections.singletonList("image.png"), executor);
+		userAgent.prefetchStylesheets(Collections.singletonList("style.css"), executor);
+		Assert.assertThat(factory.requests.get(), equalTo(2));
+
+		userAgent.documentStarted();
+
+		userAgent.openStream("http://example.invalid/image.png").close();
+		userAgent.openReader("http://example.invalid/style.css").close();
+		Assert.assertThat(factory.requests.get(), equalTo(4));
+	}
+}
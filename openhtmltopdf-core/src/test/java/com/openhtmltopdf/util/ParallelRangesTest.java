@@ -0,0 +1,120 @@
+package com.openhtmltopdf.util;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.*;
+
+public class ParallelRangesTest {
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void testEveryItemIsProcessedOnce() {
+		final int count = 1000;
+		final AtomicIntegerArray seen = new AtomicIntegerArray(count);
+
+		ParallelRanges.run(executor, count, new ParallelRanges.RangeTask<RuntimeException>() {
+			public void run(int range, int start, int end) {
+				for (int i = start; i < end; i++) {
+					seen.incrementAndGet(i);
+				}
+			}
+		}, RuntimeException.class);
+
+		for (int i = 0; i < count; i++) {
+			Assert.assertThat("item " + i, seen.get(i), equalTo(1));
+		}
+	}
+
+	@Test
+	public void testFailureIsRethrownOnceEveryRangeHasFinished() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicBoolean finished = new AtomicBoolean();
+
+		releaseLater(release);
+		try {
+			ParallelRanges.run(executor, 2, new ParallelRanges.RangeTask<IOException>() {
+				public void run(int range, int start, int end) throws IOException {
+					if (range == 0) {
+						throw new IOException("range 0");
+					}
+					awaitUninterruptibly(release);
+					finished.set(true);
+				}
+			}, IOException.class);
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertThat(e.getMessage(), equalTo("range 0"));
+		}
+		Assert.assertTrue(finished.get());
+	}
+
+	@Test
+	public void testInterruptDoesNotEndTheWait() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicBoolean finished = new AtomicBoolean();
+
+		releaseLater(release);
+		ParallelRanges.run(executor, 2, new ParallelRanges.RangeTask<RuntimeException>() {
+			public void run(int range, int start, int end) {
+				if (range == 0) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				awaitUninterruptibly(release);
+				finished.set(true);
+			}
+		}, RuntimeException.class);
+
+		Assert.assertTrue(finished.get());
+		// The interrupt is kept for the caller.
+		Assert.assertTrue(Thread.interrupted());
+	}
+
+	/**
+	 * Opens the latch a little later on another thread, so that the calling thread is
+	 * already waiting on the other ranges.
+	 */
+	private static void releaseLater(final CountDownLatch release) {
+		new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					// release anyway
+				}
+				release.countDown();
+			}
+		}.start();
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		while (true) {
+			try {
+				Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+				return;
+			} catch (InterruptedException e) {
+				// keep waiting
+			}
+		}
+	}
+}
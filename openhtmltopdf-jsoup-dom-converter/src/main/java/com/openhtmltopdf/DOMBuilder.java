@@ -10,6 +10,8 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
+import com.openhtmltopdf.jsoupdom.JsoupDocument;
+
 /**
 *
 * @author <a href="mailto:kasper@dfki.de">Walter Kasper</a>
@@ -52,6 +54,20 @@ public class DOMBuilder {
     return document;
   }
 
+  /**
+   * Returns a read-only W3C DOM view of the supplied Jsoup document, with
+   * the same content as {@link #jsoup2DOM(org.jsoup.nodes.Document)} but
+   * without copying each node and attribute. The Jsoup document must not be
+   * changed while the view is used.
+   *
+   * @param jsoupDocument
+   * The Jsoup document to wrap.
+   * @return A read-only W3C Document backed by the Jsoup document.
+   */
+  public static Document jsoup2DOMView(org.jsoup.nodes.Document jsoupDocument) {
+    return new JsoupDocument(jsoupDocument);
+  }
+
   /**
    * The internal helper that copies content from the specified Jsoup
    * <tt>Node</tt> into a W3C {@link Node}.
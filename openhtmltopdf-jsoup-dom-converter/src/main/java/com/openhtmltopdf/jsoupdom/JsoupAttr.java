@@ -0,0 +1,85 @@
+package com.openhtmltopdf.jsoupdom;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * An attribute of a {@link JsoupElement}. As in a parsed DOM, the value is also
+ * available as a text child, which some DOM implementations read when importing
+ * the attribute.
+ */
+class JsoupAttr extends JsoupNode implements Attr {
+  private final JsoupElement _owner;
+  private final String _name;
+  private String _value;
+
+  JsoupAttr(JsoupDocument document, JsoupElement owner, String name, String value) {
+    super(document, null);
+    _owner = owner;
+    _name = name;
+    _value = value;
+  }
+
+  /**
+   * Replaces the value of an attribute while the attributes of an element are
+   * created, for names which two Jsoup attributes share once renamed.
+   */
+  void setValueInternal(String value) {
+    _value = value;
+  }
+
+  @Override
+  List<JsoupNode> createChildren() {
+    return Collections.<JsoupNode>singletonList(new JsoupText(getJsoupDocument(), this, _value));
+  }
+
+  public String getNodeName() {
+    return _name;
+  }
+
+  public short getNodeType() {
+    return ATTRIBUTE_NODE;
+  }
+
+  @Override
+  public String getNodeValue() {
+    return _value;
+  }
+
+  @Override
+  public String getTextContent() {
+    return _value;
+  }
+
+  public String getName() {
+    return _name;
+  }
+
+  public boolean getSpecified() {
+    return true;
+  }
+
+  public String getValue() {
+    return _value;
+  }
+
+  public void setValue(String value) {
+    throw readOnly();
+  }
+
+  public Element getOwnerElement() {
+    return _owner;
+  }
+
+  public TypeInfo getSchemaTypeInfo() {
+    return null;
+  }
+
+  public boolean isId() {
+    return "id".equals(_name);
+  }
+}
@@ -0,0 +1,23 @@
+package com.openhtmltopdf.jsoupdom;
+
+import org.w3c.dom.CDATASection;
+
+/**
+ * A CDATA section, for a Jsoup <tt>DataNode</tt> such as the content of a
+ * <tt>style</tt> or <tt>script</tt> element.
+ */
+class JsoupCDATASection extends JsoupText implements CDATASection {
+  JsoupCDATASection(JsoupDocument document, JsoupNode parent, String data) {
+    super(document, parent, data);
+  }
+
+  @Override
+  public String getNodeName() {
+    return "#cdata-section";
+  }
+
+  @Override
+  public short getNodeType() {
+    return CDATA_SECTION_NODE;
+  }
+}
@@ -0,0 +1,298 @@
+package com.openhtmltopdf.jsoupdom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.TextNode;
+import org.w3c.dom.Attr;
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.Comment;
+import org.w3c.dom.DOMConfiguration;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.Element;
+import org.w3c.dom.EntityReference;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.ProcessingInstruction;
+import org.w3c.dom.Text;
+
+/**
+ * A read-only W3C DOM view of a Jsoup document, which can be rendered without
+ * copying the document as {@link com.openhtmltopdf.DOMBuilder#jsoup2DOM(org.jsoup.nodes.Document)}
+ * does. The view has the same content as the copy: comments and the doctype are
+ * left out, text is kept except at document level, and the content of
+ * <tt>style</tt> and <tt>script</tt> elements is seen as CDATA sections.
+ * <p>
+ * W3C nodes are created as the tree is walked and attributes are read from the
+ * Jsoup nodes. The Jsoup document must not be changed once the view is in use.
+ */
+public class JsoupDocument extends JsoupNode implements Document {
+  static final DOMImplementation IMPLEMENTATION = new JsoupDOMImplementation();
+
+  private final org.jsoup.nodes.Document _document;
+  private volatile Set<String> _declaredPrefixes;
+  private volatile Map<String, JsoupElement> _ids;
+
+  public JsoupDocument(org.jsoup.nodes.Document document) {
+    super(null, null);
+    _document = document;
+  }
+
+  @Override
+  List<JsoupNode> createChildren() {
+    return createChildren(this, this, _document.childNodes(), false);
+  }
+
+  static List<JsoupNode> createChildren(JsoupDocument document, JsoupNode parent,
+      List<org.jsoup.nodes.Node> nodes, boolean withText) {
+    if (nodes.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    List<JsoupNode> result = new ArrayList<JsoupNode>(nodes.size());
+    for (int i = 0; i < nodes.size(); i++) {
+      org.jsoup.nodes.Node node = nodes.get(i);
+      if (node instanceof org.jsoup.nodes.Element) {
+        result.add(new JsoupElement(document, parent, (org.jsoup.nodes.Element) node));
+      } else if (node instanceof TextNode) {
+        if (withText) {
+          result.add(new JsoupText(document, parent, ((TextNode) node).getWholeText()));
+        }
+      } else if (node instanceof DataNode) {
+        result.add(new JsoupCDATASection(document, parent, ((DataNode) node).getWholeData()));
+      }
+    }
+    return result;
+  }
+
+  static void collectElements(JsoupNode parent, String name, List<JsoupElement> result) {
+    for (JsoupNode child : parent.getChildList()) {
+      if (child instanceof JsoupElement) {
+        if (name.equals("*") || name.equals(child.getNodeName())) {
+          result.add((JsoupElement) child);
+        }
+        collectElements(child, name, result);
+      }
+    }
+  }
+
+  /**
+   * Whether a namespace prefix is declared with an <tt>xmlns:prefix</tt>
+   * attribute anywhere in the document.
+   */
+  boolean isDeclaredPrefix(String prefix) {
+    Set<String> prefixes = _declaredPrefixes;
+    if (prefixes == null) {
+      prefixes = new HashSet<String>();
+      for (org.jsoup.nodes.Element e : _document.getAllElements()) {
+        for (Attribute a : e.attributes()) {
+          if (a.getKey().startsWith("xmlns:")) {
+            prefixes.add(a.getKey().substring(a.getKey().lastIndexOf(':') + 1));
+          }
+        }
+      }
+      _declaredPrefixes = prefixes;
+    }
+    return prefixes.contains(prefix);
+  }
+
+  public String getNodeName() {
+    return "#document";
+  }
+
+  public short getNodeType() {
+    return DOCUMENT_NODE;
+  }
+
+  @Override
+  public String getTextContent() {
+    return null;
+  }
+
+  public DocumentType getDoctype() {
+    return null;
+  }
+
+  public DOMImplementation getImplementation() {
+    return IMPLEMENTATION;
+  }
+
+  public Element getDocumentElement() {
+    for (JsoupNode child : getChildList()) {
+      if (child instanceof JsoupElement) {
+        return (JsoupElement) child;
+      }
+    }
+    return null;
+  }
+
+  public NodeList getElementsByTagName(String tagname) {
+    List<JsoupElement> result = new ArrayList<JsoupElement>();
+    collectElements(this, tagname, result);
+    return new JsoupNodeList(result);
+  }
+
+  public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
+    if (namespaceURI != null && !namespaceURI.equals("*")) {
+      return new JsoupNodeList(Collections.<JsoupElement>emptyList());
+    }
+    return getElementsByTagName(localName);
+  }
+
+  /**
+   * Finds an element by its <tt>id</tt> attribute. If several elements have the
+   * same id, the last one is found, as in the copy made by <tt>jsoup2DOM</tt>.
+   */
+  public Element getElementById(String elementId) {
+    Map<String, JsoupElement> ids = _ids;
+    if (ids == null) {
+      ids = new HashMap<String, JsoupElement>();
+      collectIds(this, ids);
+      _ids = ids;
+    }
+    return ids.get(elementId);
+  }
+
+  private static void collectIds(JsoupNode parent, Map<String, JsoupElement> ids) {
+    for (JsoupNode child : parent.getChildList()) {
+      if (child instanceof JsoupElement) {
+        JsoupElement e = (JsoupElement) child;
+        if (e.hasAttribute("id")) {
+          ids.put(e.getAttribute("id"), e);
+        }
+        collectIds(e, ids);
+      }
+    }
+  }
+
+  public String getInputEncoding() {
+    return null;
+  }
+
+  public String getXmlEncoding() {
+    return null;
+  }
+
+  public boolean getXmlStandalone() {
+    return false;
+  }
+
+  public void setXmlStandalone(boolean xmlStandalone) {
+    throw readOnly();
+  }
+
+  public String getXmlVersion() {
+    return "1.0";
+  }
+
+  public void setXmlVersion(String xmlVersion) {
+    throw readOnly();
+  }
+
+  public boolean getStrictErrorChecking() {
+    return true;
+  }
+
+  public void setStrictErrorChecking(boolean strictErrorChecking) {
+  }
+
+  public String getDocumentURI() {
+    return null;
+  }
+
+  public void setDocumentURI(String documentURI) {
+    throw readOnly();
+  }
+
+  public Element createElement(String tagName) {
+    throw readOnly();
+  }
+
+  public DocumentFragment createDocumentFragment() {
+    throw readOnly();
+  }
+
+  public Text createTextNode(String data) {
+    throw readOnly();
+  }
+
+  public Comment createComment(String data) {
+    throw readOnly();
+  }
+
+  public CDATASection createCDATASection(String data) {
+    throw readOnly();
+  }
+
+  public ProcessingInstruction createProcessingInstruction(String target, String data) {
+    throw readOnly();
+  }
+
+  public Attr createAttribute(String name) {
+    throw readOnly();
+  }
+
+  public EntityReference createEntityReference(String name) {
+    throw readOnly();
+  }
+
+  public Node importNode(Node importedNode, boolean deep) {
+    throw readOnly();
+  }
+
+  public Element createElementNS(String namespaceURI, String qualifiedName) {
+    throw readOnly();
+  }
+
+  public Attr createAttributeNS(String namespaceURI, String qualifiedName) {
+    throw readOnly();
+  }
+
+  public Node adoptNode(Node source) {
+    throw readOnly();
+  }
+
+  public DOMConfiguration getDomConfig() {
+    throw notSupported();
+  }
+
+  public void normalizeDocument() {
+  }
+
+  public Node renameNode(Node n, String namespaceURI, String qualifiedName) {
+    throw readOnly();
+  }
+
+  private static class JsoupDOMImplementation implements DOMImplementation {
+    public boolean hasFeature(String feature, String version) {
+      boolean anyVersion = version == null || version.length() == 0;
+      if (feature.startsWith("+")) {
+        feature = feature.substring(1);
+      }
+      return (feature.equalsIgnoreCase("Core") || feature.equalsIgnoreCase("XML")) &&
+          (anyVersion || version.equals("1.0") || version.equals("2.0") || version.equals("3.0"));
+    }
+
+    public DocumentType createDocumentType(String qualifiedName, String publicId, String systemId) {
+      throw notSupported();
+    }
+
+    public Document createDocument(String namespaceURI, String qualifiedName, DocumentType doctype) {
+      throw notSupported();
+    }
+
+    public Object getFeature(String feature, String version) {
+      return null;
+    }
+  }
+}
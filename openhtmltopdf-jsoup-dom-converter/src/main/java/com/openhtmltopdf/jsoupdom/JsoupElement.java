@@ -0,0 +1,219 @@
+package com.openhtmltopdf.jsoupdom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Attributes;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * An element backed by a Jsoup element. It has no namespace and its attributes
+ * are named as {@link com.openhtmltopdf.DOMBuilder#jsoup2DOM(org.jsoup.nodes.Document)}
+ * names them: <tt>xmlns</tt> is left out and the colon of a name with an undeclared
+ * prefix is replaced with an underscore.
+ */
+class JsoupElement extends JsoupNode implements Element {
+  private static final Comparator<JsoupAttr> ATTR_ORDER = new Comparator<JsoupAttr>() {
+    public int compare(JsoupAttr a1, JsoupAttr a2) {
+      return a1.getName().compareTo(a2.getName());
+    }
+  };
+
+  private final org.jsoup.nodes.Element _element;
+  private final String _tagName;
+  private volatile List<JsoupAttr> _attrs;
+
+  JsoupElement(JsoupDocument document, JsoupNode parent, org.jsoup.nodes.Element element) {
+    super(document, parent);
+    _element = element;
+    _tagName = element.tagName();
+  }
+
+  @Override
+  List<JsoupNode> createChildren() {
+    return JsoupDocument.createChildren(getJsoupDocument(), this, _element.childNodes(), true);
+  }
+
+  private List<JsoupAttr> getAttrList() {
+    List<JsoupAttr> attrs = _attrs;
+    if (attrs == null) {
+      synchronized (this) {
+        attrs = _attrs;
+        if (attrs == null) {
+          attrs = createAttrs();
+          _attrs = attrs;
+        }
+      }
+    }
+    return attrs;
+  }
+
+  private List<JsoupAttr> createAttrs() {
+    Attributes attributes = _element.attributes();
+    if (attributes.size() == 0) {
+      return Collections.emptyList();
+    }
+
+    List<JsoupAttr> result = new ArrayList<JsoupAttr>(attributes.size());
+    for (Attribute a : attributes) {
+      String name = a.getKey();
+      if (name.equals("xmlns")) {
+        continue;
+      }
+
+      int colon = name.indexOf(':');
+      if (colon > 0) {
+        String prefix = name.substring(0, colon);
+        if (!prefix.equals("xmlns") && !prefix.equals("xml") &&
+            !getJsoupDocument().isDeclaredPrefix(prefix)) {
+          name = name.replace(':', '_');
+        }
+      }
+
+      JsoupAttr existing = JsoupNamedNodeMap.find(result, name);
+      if (existing != null) {
+        existing.setValueInternal(a.getValue());
+      } else {
+        result.add(new JsoupAttr(getJsoupDocument(), this, name, a.getValue()));
+      }
+    }
+
+    // The DOM implementation of the JDK keeps attributes sorted by name.
+    Collections.sort(result, ATTR_ORDER);
+    return result;
+  }
+
+  /**
+   * Whether an attribute can be looked up in the Jsoup element by its name.
+   * Jsoup keys are lower case and are only renamed if they contain a colon.
+   */
+  private static boolean isPlainName(String name) {
+    if (name.length() == 0 || name.equals("xmlns")) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (c == ':' || c == '_' || Character.isUpperCase(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public String getNodeName() {
+    return _tagName;
+  }
+
+  public short getNodeType() {
+    return ELEMENT_NODE;
+  }
+
+  @Override
+  public NamedNodeMap getAttributes() {
+    return new JsoupNamedNodeMap(getAttrList());
+  }
+
+  @Override
+  public boolean hasAttributes() {
+    return !getAttrList().isEmpty();
+  }
+
+  public String getTagName() {
+    return _tagName;
+  }
+
+  public String getAttribute(String name) {
+    if (isPlainName(name)) {
+      return _element.attributes().get(name);
+    }
+    JsoupAttr attr = JsoupNamedNodeMap.find(getAttrList(), name);
+    return attr == null ? "" : attr.getValue();
+  }
+
+  public boolean hasAttribute(String name) {
+    if (isPlainName(name)) {
+      return _element.attributes().hasKey(name);
+    }
+    return JsoupNamedNodeMap.find(getAttrList(), name) != null;
+  }
+
+  public Attr getAttributeNode(String name) {
+    return JsoupNamedNodeMap.find(getAttrList(), name);
+  }
+
+  public String getAttributeNS(String namespaceURI, String localName) {
+    return namespaceURI == null ? getAttribute(localName) : "";
+  }
+
+  public boolean hasAttributeNS(String namespaceURI, String localName) {
+    return namespaceURI == null && hasAttribute(localName);
+  }
+
+  public Attr getAttributeNodeNS(String namespaceURI, String localName) {
+    return namespaceURI == null ? getAttributeNode(localName) : null;
+  }
+
+  public NodeList getElementsByTagName(String name) {
+    List<JsoupElement> result = new ArrayList<JsoupElement>();
+    JsoupDocument.collectElements(this, name, result);
+    return new JsoupNodeList(result);
+  }
+
+  public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
+    if (namespaceURI != null && !namespaceURI.equals("*")) {
+      return new JsoupNodeList(Collections.<JsoupElement>emptyList());
+    }
+    return getElementsByTagName(localName);
+  }
+
+  public void setAttribute(String name, String value) {
+    throw readOnly();
+  }
+
+  public void removeAttribute(String name) {
+    throw readOnly();
+  }
+
+  public Attr setAttributeNode(Attr newAttr) {
+    throw readOnly();
+  }
+
+  public Attr removeAttributeNode(Attr oldAttr) {
+    throw readOnly();
+  }
+
+  public void setAttributeNS(String namespaceURI, String qualifiedName, String value) {
+    throw readOnly();
+  }
+
+  public void removeAttributeNS(String namespaceURI, String localName) {
+    throw readOnly();
+  }
+
+  public Attr setAttributeNodeNS(Attr newAttr) {
+    throw readOnly();
+  }
+
+  public TypeInfo getSchemaTypeInfo() {
+    return null;
+  }
+
+  public void setIdAttribute(String name, boolean isId) {
+    throw readOnly();
+  }
+
+  public void setIdAttributeNS(String namespaceURI, String localName, boolean isId) {
+    throw readOnly();
+  }
+
+  public void setIdAttributeNode(Attr idAttr, boolean isId) {
+    throw readOnly();
+  }
+}
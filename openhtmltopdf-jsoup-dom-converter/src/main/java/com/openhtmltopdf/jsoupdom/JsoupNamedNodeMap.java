@@ -0,0 +1,61 @@
+package com.openhtmltopdf.jsoupdom;
+
+import java.util.List;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * The attributes of an element. Attributes have no namespace, as with
+ * {@link com.openhtmltopdf.DOMBuilder#jsoup2DOM(org.jsoup.nodes.Document)},
+ * so the namespace aware methods only find attributes when given no namespace.
+ */
+class JsoupNamedNodeMap implements NamedNodeMap {
+  private final List<JsoupAttr> _attrs;
+
+  JsoupNamedNodeMap(List<JsoupAttr> attrs) {
+    _attrs = attrs;
+  }
+
+  static JsoupAttr find(List<JsoupAttr> attrs, String name) {
+    for (int i = 0; i < attrs.size(); i++) {
+      JsoupAttr attr = attrs.get(i);
+      if (attr.getName().equals(name)) {
+        return attr;
+      }
+    }
+    return null;
+  }
+
+  public Node getNamedItem(String name) {
+    return find(_attrs, name);
+  }
+
+  public Node setNamedItem(Node arg) {
+    throw JsoupNode.readOnly();
+  }
+
+  public Node removeNamedItem(String name) {
+    throw JsoupNode.readOnly();
+  }
+
+  public Node item(int index) {
+    return index >= 0 && index < _attrs.size() ? _attrs.get(index) : null;
+  }
+
+  public int getLength() {
+    return _attrs.size();
+  }
+
+  public Node getNamedItemNS(String namespaceURI, String localName) {
+    return namespaceURI == null ? find(_attrs, localName) : null;
+  }
+
+  public Node setNamedItemNS(Node arg) {
+    throw JsoupNode.readOnly();
+  }
+
+  public Node removeNamedItemNS(String namespaceURI, String localName) {
+    throw JsoupNode.readOnly();
+  }
+}
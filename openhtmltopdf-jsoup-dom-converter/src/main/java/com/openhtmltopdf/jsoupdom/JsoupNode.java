@@ -0,0 +1,234 @@
+package com.openhtmltopdf.jsoupdom;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.UserDataHandler;
+
+/**
+ * The base of the read-only W3C DOM nodes which are backed by Jsoup nodes.
+ * <p>
+ * Each node is created once, with the child list of its parent, so the same
+ * Jsoup node is always seen as the same W3C node. Child lists are created the
+ * first time they are asked for, which may happen from several threads.
+ * <p>
+ * Methods which would change the tree throw a <tt>DOMException</tt> with
+ * <tt>NO_MODIFICATION_ALLOWED_ERR</tt>. Other methods which are not needed to
+ * render a document throw one with <tt>NOT_SUPPORTED_ERR</tt>.
+ */
+abstract class JsoupNode implements Node {
+  private final JsoupDocument _document;
+  private final JsoupNode _parent;
+  private int _index;
+  private volatile List<JsoupNode> _children;
+  private Map<String, Object> _userData;
+
+  JsoupNode(JsoupDocument document, JsoupNode parent) {
+    _document = document;
+    _parent = parent;
+  }
+
+  /**
+   * Creates the child nodes, in document order. Called at most once.
+   */
+  List<JsoupNode> createChildren() {
+    return Collections.emptyList();
+  }
+
+  final List<JsoupNode> getChildList() {
+    List<JsoupNode> children = _children;
+    if (children == null) {
+      synchronized (this) {
+        children = _children;
+        if (children == null) {
+          children = createChildren();
+          for (int i = 0; i < children.size(); i++) {
+            children.get(i)._index = i;
+          }
+          _children = children;
+        }
+      }
+    }
+    return children;
+  }
+
+  final JsoupDocument getJsoupDocument() {
+    return _document != null ? _document : (JsoupDocument) this;
+  }
+
+  static DOMException readOnly() {
+    return new DOMException(DOMException.NO_MODIFICATION_ALLOWED_ERR, "The Jsoup DOM view is read-only");
+  }
+
+  static DOMException notSupported() {
+    return new DOMException(DOMException.NOT_SUPPORTED_ERR, "Not supported by the Jsoup DOM view");
+  }
+
+  public String getNodeValue() {
+    return null;
+  }
+
+  public void setNodeValue(String nodeValue) {
+    throw readOnly();
+  }
+
+  public Node getParentNode() {
+    return _parent;
+  }
+
+  public NodeList getChildNodes() {
+    return new JsoupNodeList(getChildList());
+  }
+
+  public Node getFirstChild() {
+    List<JsoupNode> children = getChildList();
+    return children.isEmpty() ? null : children.get(0);
+  }
+
+  public Node getLastChild() {
+    List<JsoupNode> children = getChildList();
+    return children.isEmpty() ? null : children.get(children.size() - 1);
+  }
+
+  public Node getPreviousSibling() {
+    return _parent == null || _index == 0 ? null : _parent.getChildList().get(_index - 1);
+  }
+
+  public Node getNextSibling() {
+    if (_parent == null) {
+      return null;
+    }
+    List<JsoupNode> siblings = _parent.getChildList();
+    return _index + 1 < siblings.size() ? siblings.get(_index + 1) : null;
+  }
+
+  public NamedNodeMap getAttributes() {
+    return null;
+  }
+
+  public Document getOwnerDocument() {
+    return _document;
+  }
+
+  public Node insertBefore(Node newChild, Node refChild) {
+    throw readOnly();
+  }
+
+  public Node replaceChild(Node newChild, Node oldChild) {
+    throw readOnly();
+  }
+
+  public Node removeChild(Node oldChild) {
+    throw readOnly();
+  }
+
+  public Node appendChild(Node newChild) {
+    throw readOnly();
+  }
+
+  public boolean hasChildNodes() {
+    return !getChildList().isEmpty();
+  }
+
+  public Node cloneNode(boolean deep) {
+    throw notSupported();
+  }
+
+  public void normalize() {
+  }
+
+  public boolean isSupported(String feature, String version) {
+    return JsoupDocument.IMPLEMENTATION.hasFeature(feature, version);
+  }
+
+  public String getNamespaceURI() {
+    return null;
+  }
+
+  public String getPrefix() {
+    return null;
+  }
+
+  public void setPrefix(String prefix) {
+    throw readOnly();
+  }
+
+  public String getLocalName() {
+    return null;
+  }
+
+  public boolean hasAttributes() {
+    return false;
+  }
+
+  public String getBaseURI() {
+    return null;
+  }
+
+  public short compareDocumentPosition(Node other) {
+    throw notSupported();
+  }
+
+  public String getTextContent() {
+    StringBuilder sb = new StringBuilder();
+    appendTextContent(sb);
+    return sb.toString();
+  }
+
+  void appendTextContent(StringBuilder sb) {
+    for (JsoupNode child : getChildList()) {
+      child.appendTextContent(sb);
+    }
+  }
+
+  public void setTextContent(String textContent) {
+    throw readOnly();
+  }
+
+  public boolean isSameNode(Node other) {
+    return this == other;
+  }
+
+  public String lookupPrefix(String namespaceURI) {
+    return null;
+  }
+
+  public boolean isDefaultNamespace(String namespaceURI) {
+    return namespaceURI == null;
+  }
+
+  public String lookupNamespaceURI(String prefix) {
+    return null;
+  }
+
+  public boolean isEqualNode(Node arg) {
+    throw notSupported();
+  }
+
+  public Object getFeature(String feature, String version) {
+    return null;
+  }
+
+  public synchronized Object setUserData(String key, Object data, UserDataHandler handler) {
+    if (_userData == null) {
+      _userData = new HashMap<String, Object>();
+    }
+    return data == null ? _userData.remove(key) : _userData.put(key, data);
+  }
+
+  public synchronized Object getUserData(String key) {
+    return _userData == null ? null : _userData.get(key);
+  }
+
+  @Override
+  public String toString() {
+    return "[" + getNodeName() + ": " + getNodeValue() + "]";
+  }
+}
@@ -0,0 +1,22 @@
+package com.openhtmltopdf.jsoupdom;
+
+import java.util.List;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+class JsoupNodeList implements NodeList {
+  private final List<? extends Node> _nodes;
+
+  JsoupNodeList(List<? extends Node> nodes) {
+    _nodes = nodes;
+  }
+
+  public Node item(int index) {
+    return index >= 0 && index < _nodes.size() ? _nodes.get(index) : null;
+  }
+
+  public int getLength() {
+    return _nodes.size();
+  }
+}
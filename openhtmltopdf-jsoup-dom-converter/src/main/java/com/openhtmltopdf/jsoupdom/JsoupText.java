@@ -0,0 +1,85 @@
+package com.openhtmltopdf.jsoupdom;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Text;
+
+/**
+ * A text node, for a Jsoup <tt>TextNode</tt> or the value of an attribute.
+ */
+class JsoupText extends JsoupNode implements Text {
+  private final String _data;
+
+  JsoupText(JsoupDocument document, JsoupNode parent, String data) {
+    super(document, parent);
+    _data = data;
+  }
+
+  public String getNodeName() {
+    return "#text";
+  }
+
+  public short getNodeType() {
+    return TEXT_NODE;
+  }
+
+  @Override
+  public String getNodeValue() {
+    return _data;
+  }
+
+  @Override
+  void appendTextContent(StringBuilder sb) {
+    sb.append(_data);
+  }
+
+  public String getData() {
+    return _data;
+  }
+
+  public void setData(String data) {
+    throw readOnly();
+  }
+
+  public int getLength() {
+    return _data.length();
+  }
+
+  public String substringData(int offset, int count) {
+    if (offset < 0 || offset > _data.length() || count < 0) {
+      throw new DOMException(DOMException.INDEX_SIZE_ERR, "Offset or count out of range");
+    }
+    return _data.substring(offset, Math.min(_data.length(), offset + count));
+  }
+
+  public void appendData(String arg) {
+    throw readOnly();
+  }
+
+  public void insertData(int offset, String arg) {
+    throw readOnly();
+  }
+
+  public void deleteData(int offset, int count) {
+    throw readOnly();
+  }
+
+  public void replaceData(int offset, int count, String arg) {
+    throw readOnly();
+  }
+
+  public Text splitText(int offset) {
+    throw readOnly();
+  }
+
+  public boolean isElementContentWhitespace() {
+    return false;
+  }
+
+  public String getWholeText() {
+    return _data;
+  }
+
+  public Text replaceWholeText(String content) {
+    throw readOnly();
+  }
+}
@@ -0,0 +1,139 @@
+package com.openhtmltopdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.jsoup.Jsoup;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import com.openhtmltopdf.svgsupport.BatikSVGDrawer;
+import com.openhtmltopdf.util.IOUtil;
+
+public class DOMBuilderTest {
+  private static final String HTML =
+      "<!DOCTYPE html>\n" +
+      "<html lang='en'><head><title>Jsoup view</title>\n" +
+      "<style>@page { size: 300px 300px; margin: 20px; } p.note { color: #336699; border: 1px solid gray; }</style>\n" +
+      "<script>var x = 1 < 2 && true;</script></head>\n" +
+      "<body>\n" +
+      "<!-- a comment -->\n" +
+      "<h1 id='top' xml:lang='en'>Heading</h1>\n" +
+      "<p class='note' data-x='1' foo:bar='undeclared prefix'>Some <b>bold</b> &amp; <i>italic</i> text.</p>\n" +
+      "<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink' width='100' height='60'>\n" +
+      "  <defs><rect id='r' width='40' height='20' fill='#cc3300'/></defs>\n" +
+      "  <use xlink:href='#r' x='10' y='10'/>\n" +
+      "  <circle cx='70' cy='30' r='15' stroke='#003399' stroke-width='2' fill='none'/>\n" +
+      "</svg>\n" +
+      "<table><tr><td>cell</td><td style='text-align: right'>2</td></tr></table>\n" +
+      "</body></html>";
+
+  /**
+   * Writes the tree with every name, namespace and value, with attributes in name order.
+   */
+  private static void dump(Node node, String indent, StringBuilder sb) {
+    sb.append(indent).append(node.getNodeType()).append(' ').append(node.getNodeName())
+      .append(" {").append(node.getNamespaceURI()).append('}').append(node.getLocalName());
+    if (node.getNodeValue() != null) {
+      sb.append(" = [").append(node.getNodeValue()).append(']');
+    }
+    sb.append('\n');
+
+    NamedNodeMap attrs = node.getAttributes();
+    if (attrs != null) {
+      Map<String, Node> sorted = new TreeMap<String, Node>();
+      for (int i = 0; i < attrs.getLength(); i++) {
+        sorted.put(attrs.item(i).getNodeName(), attrs.item(i));
+      }
+      for (Node attr : sorted.values()) {
+        dump(attr, indent + "  @", sb);
+      }
+    }
+
+    for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+      dump(child, indent + "  ", sb);
+    }
+  }
+
+  private static String dump(Document doc) {
+    StringBuilder sb = new StringBuilder();
+    dump(doc, "", sb);
+    return sb.toString();
+  }
+
+  private static List<byte[]> render(Document doc) throws Exception {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    PdfRendererBuilder builder = new PdfRendererBuilder();
+    builder.withW3cDocument(doc, "http://example.invalid/");
+    builder.useSVGDrawer(new BatikSVGDrawer());
+    builder.toStream(os);
+    builder.run();
+
+    PDDocument pdf = PDDocument.load(os.toByteArray());
+    try {
+      List<byte[]> result = new ArrayList<byte[]>();
+      for (PDPage page : pdf.getPages()) {
+        InputStream is = page.getContents();
+        try {
+          result.add(IOUtil.readBytes(is));
+        } finally {
+          is.close();
+        }
+      }
+      return result;
+    } finally {
+      pdf.close();
+    }
+  }
+
+  @Test
+  public void testViewHasTheContentOfTheCopy() {
+    org.jsoup.nodes.Document jsoup = Jsoup.parse(HTML);
+    Document copy = DOMBuilder.jsoup2DOM(jsoup);
+    Document view = DOMBuilder.jsoup2DOMView(jsoup);
+
+    Assert.assertEquals(dump(copy), dump(view));
+
+    Element top = view.getElementById("top");
+    Assert.assertNotNull(top);
+    Assert.assertEquals("en", top.getAttribute("xml:lang"));
+    Assert.assertEquals("http://www.w3.org/1999/xlink", ((Element) view.getElementsByTagName("svg").item(0)).getAttribute("xmlns:xlink"));
+    Assert.assertEquals("#r", ((Element) view.getElementsByTagName("use").item(0)).getAttribute("xlink:href"));
+  }
+
+  @Test
+  public void testViewRendersAsTheCopy() throws Exception {
+    org.jsoup.nodes.Document jsoup = Jsoup.parse(HTML);
+    List<byte[]> expected = render(DOMBuilder.jsoup2DOM(jsoup));
+    List<byte[]> actual = render(DOMBuilder.jsoup2DOMView(jsoup));
+
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertTrue("page " + i + " differs", Arrays.equals(expected.get(i), actual.get(i)));
+    }
+  }
+
+  @Test
+  public void testSvgIsImportedFromTheView() throws Exception {
+    org.jsoup.nodes.Document jsoup = Jsoup.parse(HTML);
+    List<byte[]> withSvg = render(DOMBuilder.jsoup2DOMView(jsoup));
+
+    jsoup.select("svg").first().children().remove();
+    List<byte[]> emptySvg = render(DOMBuilder.jsoup2DOMView(jsoup));
+
+    // The shapes of the SVG were drawn, so it was imported into the SVG document.
+    Assert.assertFalse(Arrays.equals(withSvg.get(0), emptySvg.get(0)));
+  }
+}
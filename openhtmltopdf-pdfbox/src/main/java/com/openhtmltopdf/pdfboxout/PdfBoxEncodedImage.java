@@ -0,0 +1,131 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceCMYK;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import com.openhtmltopdf.util.IOUtil;
+
+/**
+ * An image as it is encoded in a PDF, that is the JPEG bytes or the Flate compressed
+ * raster with its dimensions and color space, independent of any document.
+ * <br><br>
+ * {@link PdfBoxUserAgent} keeps these in the external cache (rather than the image
+ * objects, which belong to one document) so that an image used by many documents
+ * is only decoded and compressed once. Instances are immutable and may be shared
+ * between threads.
+ */
+public class PdfBoxEncodedImage {
+    private final byte[] _data;
+    private final COSName _filter;
+    private final int _width;
+    private final int _height;
+    private final int _bitsPerComponent;
+    private final PDColorSpace _colorSpace;
+    private final float[] _decode;
+    private final PdfBoxEncodedImage _softMask;
+    private final boolean _isJpeg;
+
+    private PdfBoxEncodedImage(byte[] data, COSName filter, int width, int height, int bitsPerComponent,
+            PDColorSpace colorSpace, float[] decode, PdfBoxEncodedImage softMask, boolean isJpeg) {
+        _data = data;
+        _filter = filter;
+        _width = width;
+        _height = height;
+        _bitsPerComponent = bitsPerComponent;
+        _colorSpace = colorSpace;
+        _decode = decode;
+        _softMask = softMask;
+        _isJpeg = isJpeg;
+    }
+
+    /**
+     * Copies the encoded stream of an image created by <code>JPEGFactory</code> or <code>LosslessFactory</code>.
+     * @return the encoded image or null if the image uses something other than a single filter and a device color space.
+     */
+    public static PdfBoxEncodedImage fromXObject(PDImageXObject xobject, boolean isJpeg) throws IOException {
+        COSBase filter = xobject.getCOSObject().getFilters();
+        PDColorSpace colorSpace = xobject.getColorSpace();
+
+        if (!(filter instanceof COSName) || !isDeviceColorSpace(colorSpace)) {
+            return null;
+        }
+
+        PdfBoxEncodedImage softMask = null;
+        PDImageXObject mask = xobject.getSoftMask();
+        if (mask != null) {
+            softMask = fromXObject(mask, false);
+            if (softMask == null) {
+                return null;
+            }
+        }
+
+        COSArray decodeArray = xobject.getDecode();
+        float[] decode = decodeArray != null ? decodeArray.toFloatArray() : null;
+
+        byte[] data;
+        InputStream raw = xobject.getCOSObject().createRawInputStream();
+        try {
+            data = IOUtil.readBytes(raw);
+        } finally {
+            raw.close();
+        }
+
+        return new PdfBoxEncodedImage(data, (COSName) filter, xobject.getWidth(), xobject.getHeight(),
+                xobject.getBitsPerComponent(), colorSpace, decode, softMask, isJpeg);
+    }
+
+    private static boolean isDeviceColorSpace(PDColorSpace colorSpace) {
+        return colorSpace == PDDeviceRGB.INSTANCE ||
+               colorSpace == PDDeviceGray.INSTANCE ||
+               colorSpace == PDDeviceCMYK.INSTANCE;
+    }
+
+    /**
+     * Creates an image object in the document from the encoded stream, without decoding it.
+     */
+    public PDImageXObject createXObject(PDDocument doc) throws IOException {
+        PDImageXObject xobject = new PDImageXObject(doc, new ByteArrayInputStream(_data), _filter,
+                _width, _height, _bitsPerComponent, _colorSpace);
+
+        if (_decode != null) {
+            COSArray decode = new COSArray();
+            decode.setFloatArray(_decode);
+            xobject.setDecode(decode);
+        }
+
+        if (_softMask != null) {
+            xobject.getCOSObject().setItem(COSName.SMASK, _softMask.createXObject(doc));
+        }
+
+        return xobject;
+    }
+
+    /**
+     * @return the width of the image in pixels.
+     */
+    public int getWidth() {
+        return _width;
+    }
+
+    /**
+     * @return the height of the image in pixels.
+     */
+    public int getHeight() {
+        return _height;
+    }
+
+    public boolean isJpeg() {
+        return _isJpeg;
+    }
+}
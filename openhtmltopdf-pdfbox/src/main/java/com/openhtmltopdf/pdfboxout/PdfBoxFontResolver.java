@@ -19,6 +19,7 @@
  */
 package com.openhtmltopdf.pdfboxout;
 
+import org.apache.fontbox.ttf.TrueTypeFont;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
@@ -34,6 +35,8 @@ import com.openhtmltopdf.css.value.FontSpecification;
 import com.openhtmltopdf.extend.FontResolver;
 import com.openhtmltopdf.layout.SharedContext;
 import com.openhtmltopdf.render.FSFont;
+import com.openhtmltopdf.util.IOUtil;
+import com.openhtmltopdf.util.RenderMetrics;
 import com.openhtmltopdf.util.XRLog;
 
 import java.io.*;
@@ -51,7 +54,10 @@ public class PdfBoxFontResolver implements FontResolver {
     }
 
     public FSFont resolveFont(SharedContext renderingContext, FontSpecification spec) {
-        return resolveFont(renderingContext, spec.families, spec.size, spec.fontWeight, spec.fontStyle, spec.variant);
+        // Fonts may be resolved, and loaded into the document, while pages are painted in parallel.
+        synchronized (_doc) {
+            return resolveFont(renderingContext, spec.families, spec.size, spec.fontWeight, spec.fontStyle, spec.variant);
+        }
     }
 
     public void flushCache() {
@@ -136,17 +142,16 @@ public class PdfBoxFontResolver implements FontResolver {
     }
 
     public void addFont(String path, String fontFamilyNameOverride) throws IOException {
-        InputStream is = new FileInputStream(path);
-        
-        try {
-            addFont(is, fontFamilyNameOverride);
-        } finally {
-            is.close();
-        }
+        addFont(TrueTypeFontCache.getDefault().getFont(new File(path)), fontFamilyNameOverride);
     }
     
     public void addFont(InputStream is, String fontFamilyNameOverride) throws IOException {
-        PDType0Font font = PDType0Font.load(_doc, is, true);
+        addFont(TrueTypeFontCache.getDefault().getFont(IOUtil.readBytes(is)), fontFamilyNameOverride);
+    }
+    
+    private void addFont(TrueTypeFont ttf, String fontFamilyNameOverride) throws IOException {
+        PDType0Font font = PDType0Font.load(_doc, ttf, true);
+        countFontLoaded();
 
         String[] fontFamilyNames;
         
@@ -174,13 +179,21 @@ public class PdfBoxFontResolver implements FontResolver {
         }
     }
 
+    private void countFontLoaded() {
+        RenderMetrics metrics = _sharedContext.getRenderMetrics();
+        if (metrics != null) {
+            metrics.increment(RenderMetrics.Counter.FONTS_LOADED);
+        }
+    }
+
     private void addFontFaceFont(
             String fontFamilyNameOverride, IdentValue fontWeightOverride, IdentValue fontStyleOverride, String uri, byte[] font1, boolean subset)
             throws IOException {
         String lower = uri.toLowerCase(Locale.US);
         
         if (lower.endsWith(".ttf")) {
-            PDType0Font font = PDType0Font.load(_doc, new ByteArrayInputStream(font1), subset);
+            PDType0Font font = PDType0Font.load(_doc, TrueTypeFontCache.getDefault().getFont(font1), subset);
+            countFontLoaded();
             
             String[] fontFamilyNames;
             if (fontFamilyNameOverride != null) {
@@ -624,6 +637,15 @@ public class PdfBoxFontResolver implements FontResolver {
 
         private boolean _isFromFontFace;
 
+        private static final float UNCHECKED = Float.NEGATIVE_INFINITY;
+
+        /**
+         * Advance widths for the basic multilingual plane in 256 entry pages,
+         * allocated as they are first used.
+         */
+        private float[][] _bmpAdvances;
+        private Map<Integer, Float> _supplementaryAdvances;
+
         public FontDescription() {
         }
 
@@ -642,8 +664,10 @@ public class PdfBoxFontResolver implements FontResolver {
             return _font;
         }
 
-        public void setFont(PDFont font) {
+        public synchronized void setFont(PDFont font) {
             _font = font;
+            _bmpAdvances = null;
+            _supplementaryAdvances = null;
         }
 
         public int getWeight() {
@@ -713,6 +737,84 @@ public class PdfBoxFontResolver implements FontResolver {
             return _isFromFontFace;
         }
 
+        /**
+         * Gets the advance width of a code point in glyph space units (thousandths of an em)
+         * or NaN if the font has no glyph for the code point. Each code point is measured with
+         * the underlying PDFont only once, so repeated measuring does not depend on PDFont
+         * throwing an exception for missing glyphs.
+         */
+        public synchronized float getCodePointWidth(int codePoint) {
+            if (codePoint <= 0xFFFF) {
+                if (_bmpAdvances == null) {
+                    _bmpAdvances = new float[256][];
+                }
+
+                float[] page = _bmpAdvances[codePoint >> 8];
+                if (page == null) {
+                    page = new float[256];
+                    Arrays.fill(page, UNCHECKED);
+                    _bmpAdvances[codePoint >> 8] = page;
+                }
+
+                float width = page[codePoint & 0xFF];
+                if (width == UNCHECKED) {
+                    width = measureCodePoint(codePoint);
+                    page[codePoint & 0xFF] = width;
+                }
+                return width;
+            }
+
+            if (_supplementaryAdvances == null) {
+                _supplementaryAdvances = new HashMap<Integer, Float>();
+            }
+
+            Float width = _supplementaryAdvances.get(codePoint);
+            if (width == null) {
+                width = measureCodePoint(codePoint);
+                _supplementaryAdvances.put(codePoint, width);
+            }
+            return width;
+        }
+
+        /**
+         * @return whether the font has a glyph for the code point.
+         */
+        public boolean hasCodePoint(int codePoint) {
+            return !Float.isNaN(getCodePointWidth(codePoint));
+        }
+
+        /**
+         * Gets the width of a string in glyph space units (thousandths of an em)
+         * or NaN if the font is missing a glyph for any character of the string.
+         */
+        public float getStringWidth(String str) {
+            float width = 0;
+
+            for (int i = 0; i < str.length(); ) {
+                int codePoint = str.codePointAt(i);
+                i += Character.charCount(codePoint);
+
+                float w = getCodePointWidth(codePoint);
+                if (Float.isNaN(w)) {
+                    return Float.NaN;
+                }
+                width += w;
+            }
+
+            return width;
+        }
+
+        private float measureCodePoint(int codePoint) {
+            try {
+                return _font.getStringWidth(new String(Character.toChars(codePoint)));
+            } catch (IllegalArgumentException e) {
+                // PDFont::getStringWidth throws an IllegalArgumentException if the character doesn't exist in the font.
+                return Float.NaN;
+            } catch (IOException e) {
+                throw new PdfContentStreamAdapter.PdfException("getCodePointWidth", e);
+            }
+        }
+
         public void setFromFontFace(boolean isFromFontFace) {
             _isFromFontFace = isFromFontFace;
         }
@@ -215,6 +215,14 @@ public class PdfBoxLinkManager {
         _links.add(link);
     }
     
+    /**
+     * Adds the links found by another link manager, such as that of a page worker, to be processed by this one.
+     */
+    public void addLinks(PdfBoxLinkManager other)
+    {
+        _links.addAll(other._links);
+    }
+    
     public void processLinks()
     {
         for (int i = 0; i < _links.size(); i++)
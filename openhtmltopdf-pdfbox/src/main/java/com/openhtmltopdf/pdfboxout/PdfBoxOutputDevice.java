@@ -21,7 +21,9 @@ package com.openhtmltopdf.pdfboxout;
 
 import java.awt.BasicStroke;
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Paint;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.Stroke;
@@ -58,6 +60,8 @@ import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
 import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
@@ -83,6 +87,7 @@ import com.openhtmltopdf.css.style.CalculatedStyle;
 import com.openhtmltopdf.css.style.CssContext;
 import com.openhtmltopdf.extend.FSImage;
 import com.openhtmltopdf.extend.OutputDevice;
+import com.openhtmltopdf.layout.Layer;
 import com.openhtmltopdf.layout.SharedContext;
 import com.openhtmltopdf.pdfboxout.PdfBoxFontResolver.FontDescription;
 import com.openhtmltopdf.pdfboxout.PdfBoxForm.CheckboxStyle;
@@ -96,11 +101,13 @@ import com.openhtmltopdf.render.JustificationInfo;
 import com.openhtmltopdf.render.PageBox;
 import com.openhtmltopdf.render.RenderingContext;
 import com.openhtmltopdf.util.Configuration;
+import com.openhtmltopdf.util.RenderMetrics;
+import com.openhtmltopdf.util.ThreadCtx;
 import com.openhtmltopdf.util.XRLog;
 
 import static com.openhtmltopdf.test.DocumentDiffTest.width;
 
-public class PdfBoxOutputDevice extends AbstractOutputDevice implements OutputDevice {
+public class PdfBoxOutputDevice extends AbstractOutputDevice implements OutputDevice, PageBox.SharedMarginAreaPainter {
     private static final int FILL = 1;
     private static final int STROKE = 2;
     private static final int CLIP = 3;
@@ -108,6 +115,9 @@ public class PdfBoxOutputDevice extends AbstractOutputDevice implements OutputDe
     private static final AffineTransform IDENTITY = new AffineTransform();
 
     private static final BasicStroke STROKE_ONE = new BasicStroke(1);
+    
+    /** Points shared forms may be painted beyond their size, in each direction, as the largest page size PDF allows. */
+    private static final float SHARED_FORM_OVERFLOW = 14400f;
 
     private static final boolean ROUND_RECT_DIMENSIONS_DOWN = Configuration.isTrue("xr.pdf.round.rect.dimensions.down", false);
 
@@ -160,7 +170,14 @@ public class PdfBoxOutputDevice extends AbstractOutputDevice implements OutputDe
     
     private RenderingContext _renderingContext;
     
+    /**
+     * Form XObjects of content that is drawn the same wherever it appears, by content key.
+     * Shared with page workers and only used while holding the lock of the document.
+     */
+    private Map<Object, PDFormXObject> _sharedForms = new HashMap<Object, PDFormXObject>();
+    
     private BidiReorderer _reorderer = new SimpleBidiReorderer();
+    private TextWidthCache _widthCache;
 
     public PdfBoxOutputDevice(float dotsPerPoint, boolean testMode) {
         _dotsPerPoint = dotsPerPoint;
@@ -404,28 +421,23 @@ public class PdfBoxOutputDevice extends AbstractOutputDevice implements OutputDe
     }
 
     public void drawString(String s, float x, float y, JustificationInfo info) {
-        PDFont firstFont = _font.getFontDescription().get(0).getFont();
-        
         // First check if the string will print with the current font entirely.
-        try {
-            firstFont.getStringWidth(s);
-            // We got here, so all is good.
+        if (PdfBoxTextRenderer.measure(_font, s, _reorderer, _widthCache).firstFontOnly) {
             drawStringFast(s, x, y, info, _font.getFontDescription().get(0), _font.getSize2D());
             return;
-        } 
-        catch (Exception e) {
-            // Fallthrough, we'll have to process the string into font runs.
         }
         
+        // We'll have to process the string into font runs.
         List<FontRun> fontRuns = PdfBoxTextRenderer.divideIntoFontRuns(_font, s, _reorderer);
         
         float xOffset = 0f;
         for (FontRun run : fontRuns) {
             drawStringFast(run.str, x + xOffset, y, info, run.des, _font.getSize2D());
-            try {
-                xOffset += (run.des.getFont().getStringWidth(run.str) / 1000f) * _font.getSize2D();
-            } catch (Exception e) {
-                XRLog.render(Level.WARNING, "BUG. Font didn't contain expected character.", e);
+            float runWidth = run.des.getStringWidth(run.str);
+            if (Float.isNaN(runWidth)) {
+                XRLog.render(Level.WARNING, "BUG. Font didn't contain expected character.");
+            } else {
+                xOffset += (runWidth / 1000f) * _font.getSize2D();
             }
         }
     }
@@ -452,7 +464,10 @@ public class PdfBoxOutputDevice extends AbstractOutputDevice implements OutputDe
         fontSize = fontSize / _dotsPerPoint;
         
         _cp.beginText();
-        _cp.setFont(desc.getFont(), fontSize);
+        synchronized (_writer) {
+            // Using a font adds it to the fonts of the document to be subset, see createPageWorker.
+            _cp.setFont(desc.getFont(), fontSize);
+        }
         _cp.setTextMatrix((float) mx[0], b, c, (float) mx[3], (float) mx[4], (float) mx[5]);
 
         if (info != null ) {
@@ -464,7 +479,9 @@ public class PdfBoxOutputDevice extends AbstractOutputDevice implements OutputDe
             _cp.setSpaceSpacing(0.0f);
         }
         
-        _cp.drawString(s);
+        synchronized (_writer) {
+            _cp.drawString(s);
+        }
         _cp.endText();
     }
     
@@ -825,6 +842,11 @@ public class PdfBoxOutputDevice extends AbstractOutputDevice implements OutputDe
         }
         img.clearBytes();
         img.setXObject(xobject);
+
+        RenderMetrics metrics = ThreadCtx.get().renderMetrics();
+        if (metrics != null) {
+            metrics.increment(RenderMetrics.Counter.IMAGES_DECODED);
+        }
     }
 
     public void drawImage(FSImage fsImage, int x, int y) {
@@ -844,6 +866,131 @@ public class PdfBoxOutputDevice extends AbstractOutputDevice implements OutputDe
         _cp.drawImage(xobject, (float) mx[4], (float) mx[5], (float) mx[0],
                 (float) mx[3]);
     }
+    /**
+     * Paints content into a Form XObject.
+     */
+    interface FormContent {
+        /**
+         * Paints the content with its top left corner at 0, 0.
+         */
+        void paint(PdfBoxOutputDevice outputDevice);
+    }
+
+    /**
+     * Draws content that looks the same wherever it is drawn, such as an SVG repeated on
+     * every page, with its top left corner at x, y. The first time a key is drawn in the
+     * document its content is painted into a Form XObject of width by height dots, and every
+     * time it is drawn the form is placed with a single Do operator.
+     * Like content drawn directly, the content is not clipped to width by height dots: the
+     * bounding box of the form, which clips it, reaches {@link #SHARED_FORM_OVERFLOW} points
+     * beyond that size on each side, so only content painted further out than that is cut off.
+     * Must be called while holding the lock of the document.
+     */
+    void drawSharedForm(Object key, double x, double y, int width, int height, FormContent content) {
+        PDFormXObject form = _sharedForms.get(key);
+        if (form == null) {
+            form = createForm(width, height, content);
+            _sharedForms.put(key, form);
+        }
+
+        // The form has its origin at the bottom left corner, so flip it into our
+        // top down coordinates, then place it as the content would have been painted.
+        AffineTransform placement = normalizeMatrix(_transform);
+        placement.translate(x, y);
+        placement.scale(_dotsPerPoint, _dotsPerPoint);
+        placement.concatenate(new AffineTransform(1, 0, 0, -1, 0, height / _dotsPerPoint));
+
+        _cp.saveGraphics();
+        _cp.setPdfMatrix(placement);
+        _cp.drawForm(form);
+        _cp.restoreGraphics();
+    }
+
+    /**
+     * Margin areas which look the same on many pages, such as a running header of plain text,
+     * are painted into a form once and placed on every page.
+     */
+    @Override
+    public void paintSharedMarginArea(final RenderingContext c, Object key, Point position, Dimension size, final Layer layer) {
+        synchronized (_writer) {
+            drawSharedForm(key, position.x, position.y, size.width, size.height, new FormContent() {
+                @Override
+                public void paint(PdfBoxOutputDevice outputDevice) {
+                    layer.paint(c);
+                }
+            });
+        }
+    }
+
+    /**
+     * Paints content into a new form, by pointing this device at the stream of the form,
+     * as if it were a page of width by height dots, while it is painted.
+     * The bounding box of the form leaves {@link #SHARED_FORM_OVERFLOW} points on each side
+     * for content that overflows that size.
+     */
+    private PDFormXObject createForm(int width, int height, FormContent content) {
+        float formWidth = width / _dotsPerPoint;
+        float formHeight = height / _dotsPerPoint;
+
+        PDAppearanceStream form = new PDAppearanceStream(_writer);
+        form.setResources(new PDResources());
+        form.setBBox(new PDRectangle(-SHARED_FORM_OVERFLOW, -SHARED_FORM_OVERFLOW,
+                formWidth + 2 * SHARED_FORM_OVERFLOW, formHeight + 2 * SHARED_FORM_OVERFLOW));
+
+        PdfContentStreamAdapter cp = _cp;
+        float pageHeight = _pageHeight;
+        AffineTransform transform = _transform;
+        Area clip = _clip;
+        FSColor color = _color;
+        FSColor fillColor = _fillColor;
+        FSColor strokeColor = _strokeColor;
+        Stroke stroke = _stroke;
+        Stroke originalStroke = _originalStroke;
+        Stroke oldStroke = _oldStroke;
+        PdfBoxFSFont font = _font;
+
+        try {
+            _cp = new PdfContentStreamAdapter(new PDPageContentStream(_writer, form));
+            _pageHeight = formHeight;
+            _transform = AffineTransform.getScaleInstance(1.0d / _dotsPerPoint, 1.0d / _dotsPerPoint);
+            _clip = null;
+            _cp.saveGraphics();
+
+            // A form starts with the graphics state it is drawn in, so set everything it uses.
+            _fillColor = null;
+            _strokeColor = null;
+            _stroke = transformStroke(STROKE_ONE);
+            _originalStroke = _stroke;
+            _oldStroke = _stroke;
+            setStrokeDiff(_stroke, null);
+
+            content.paint(this);
+            _cp.restoreGraphics();
+            _cp.closeContent();
+        } catch (IOException e) {
+            throw new PdfContentStreamAdapter.PdfException("createForm", e);
+        } finally {
+            _cp = cp;
+            _pageHeight = pageHeight;
+            _transform = transform;
+            _clip = clip;
+            _color = color;
+            _fillColor = fillColor;
+            _strokeColor = strokeColor;
+            _stroke = stroke;
+            _originalStroke = originalStroke;
+            _oldStroke = oldStroke;
+            _font = font;
+        }
+
+        RenderMetrics metrics = ThreadCtx.get().renderMetrics();
+        if (metrics != null) {
+            metrics.increment(RenderMetrics.Counter.SHARED_FORMS_CREATED);
+        }
+
+        return form;
+    }
+
 /*
     private void drawPDFAsImage(PDFAsImage image, int x, int y) {
         URI uri = image.getURI();
@@ -896,6 +1043,49 @@ public class PdfBoxOutputDevice extends AbstractOutputDevice implements OutputDe
         loadMetadata(doc);
     }
 
+    /**
+     * Creates a device to paint some of the pages of the document on another thread.
+     * It shares the document and settings of this device but has its own graphics state,
+     * links, forms and controls, which are added to this device in page order with
+     * {@link #mergePageWorker(PdfBoxOutputDevice)} once its pages are painted.
+     * <br><br>
+     * Changes to the document, such as creating streams and adding to the fonts to be subset,
+     * are made while holding the lock of the document.
+     */
+    PdfBoxOutputDevice createPageWorker() {
+        PdfBoxOutputDevice worker = new PdfBoxOutputDevice(_dotsPerPoint, _testMode);
+        worker._writer = _writer;
+        worker._sharedContext = _sharedContext;
+        worker._root = _root;
+        worker._startPageNo = _startPageNo;
+        worker._reorderer = _reorderer;
+        worker._widthCache = _widthCache;
+        worker._sharedForms = _sharedForms;
+        worker._linkManager = new PdfBoxLinkManager(_sharedContext, _dotsPerPoint, _root, worker);
+        return worker;
+    }
+
+    /**
+     * Adds the links, forms and controls found by a worker to this device. Workers must
+     * be merged in the order of their pages, so the result is the same as painting every
+     * page with this device.
+     */
+    void mergePageWorker(PdfBoxOutputDevice worker) {
+        _linkManager.addLinks(worker._linkManager);
+
+        for (Map.Entry<Element, PdfBoxForm> entry : worker.forms.entrySet()) {
+            if (seenForms.add(entry.getKey())) {
+                forms.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        for (PdfBoxForm.Control ctrl : worker.controls) {
+            if (seenControls.add(ctrl.box.getElement())) {
+                controls.add(ctrl);
+            }
+        }
+    }
+
     public void finish(RenderingContext c, Box root) {
         processControls();
         _linkManager.processLinks();
@@ -1286,6 +1476,10 @@ public class PdfBoxOutputDevice extends AbstractOutputDevice implements OutputDe
         _renderingContext = result;
     }
 
+    public void setTextWidthCache(TextWidthCache widthCache) {
+        _widthCache = widthCache;
+    }
+
     public void setBidiReorderer(BidiReorderer reorderer) {
         _reorderer = reorderer;
     }
@@ -24,14 +24,18 @@ import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.geom.Rectangle2D;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.regex.Pattern;
 
 import javax.xml.transform.OutputKeys;
@@ -42,6 +46,7 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 import org.apache.pdfbox.pdmodel.PDPage;
@@ -59,6 +64,7 @@ import com.openhtmltopdf.bidi.BidiSplitter;
 import com.openhtmltopdf.bidi.BidiSplitterFactory;
 import com.openhtmltopdf.bidi.SimpleBidiReorderer;
 import com.openhtmltopdf.context.StyleReference;
+import com.openhtmltopdf.context.StylesheetCache;
 import com.openhtmltopdf.css.style.CalculatedStyle;
 import com.openhtmltopdf.extend.FSCache;
 import com.openhtmltopdf.extend.FSTextBreaker;
@@ -66,6 +72,7 @@ import com.openhtmltopdf.extend.FSTextTransformer;
 import com.openhtmltopdf.extend.FSUriResolver;
 import com.openhtmltopdf.extend.HttpStreamFactory;
 import com.openhtmltopdf.extend.NamespaceHandler;
+import com.openhtmltopdf.extend.RenderMetricsListener;
 import com.openhtmltopdf.extend.SVGDrawer;
 import com.openhtmltopdf.extend.UserInterface;
 import com.openhtmltopdf.layout.BoxBuilder;
@@ -78,7 +85,11 @@ import com.openhtmltopdf.render.RenderingContext;
 import com.openhtmltopdf.render.ViewportBox;
 import com.openhtmltopdf.resource.XMLResource;
 import com.openhtmltopdf.simple.extend.XhtmlNamespaceHandler;
+import com.openhtmltopdf.swing.NaiveUserAgent;
+import com.openhtmltopdf.swing.ResourcePrefetcher;
 import com.openhtmltopdf.util.Configuration;
+import com.openhtmltopdf.util.ParallelRanges;
+import com.openhtmltopdf.util.RenderMetrics;
 import com.openhtmltopdf.util.XRLog;
 
 public class PdfBoxRenderer {
@@ -113,6 +124,13 @@ public class PdfBoxRenderer {
     private BidiSplitterFactory _splitterFactory;
     private byte _defaultTextDirection = BidiSplitter.LTR;
     private BidiReorderer _reorderer;
+    private ExecutorService _bidiExecutor;
+    
+    private ExecutorService _pageExecutor;
+    
+    private RenderMetricsListener _metricsListener;
+    
+    private ExecutorService _prefetchExecutor;
 
     /**
      * @param testMode
@@ -187,10 +205,12 @@ public class PdfBoxRenderer {
         final FSTextTransformer toUpperTransformer;
         final FSTextTransformer toTitleTransformer;
         final boolean textDirection;
+        final ExecutorService bidiExecutor;
         
         UnicodeImplementation(BidiReorderer reorderer, BidiSplitterFactory splitterFactory, 
                 FSTextBreaker lineBreaker, FSTextTransformer toLower, FSTextTransformer toUpper,
-                FSTextTransformer toTitle, boolean textDirection, FSTextBreaker charBreaker) {
+                FSTextTransformer toTitle, boolean textDirection, FSTextBreaker charBreaker,
+                ExecutorService bidiExecutor) {
             this.reorderer = reorderer;
             this.splitterFactory = splitterFactory;
             this.lineBreaker = lineBreaker;
@@ -199,6 +219,7 @@ public class PdfBoxRenderer {
             this.toTitleTransformer = toTitle;
             this.textDirection = textDirection;
             this.charBreaker = charBreaker;
+            this.bidiExecutor = bidiExecutor;
         }
     }
     
@@ -230,20 +251,38 @@ public class PdfBoxRenderer {
         }
     }
     
+    static class AddedFont {
+        final File file;
+        final byte[] data;
+        final String family;
+        
+        AddedFont(File file, byte[] data, String family) {
+            this.file = file;
+            this.data = data;
+            this.family = family;
+        }
+    }
+    
     /**
      * This method is constantly changing as options are added to the builder.
      */
     PdfBoxRenderer(BaseDocument doc, UnicodeImplementation unicode, 
             HttpStreamFactory httpStreamFactory, 
             OutputStream os, FSUriResolver resolver, FSCache cache, SVGDrawer svgImpl,
-            PageDimensions pageSize, float pdfVersion, String replacementText, boolean testMode) {
+            PageDimensions pageSize, float pdfVersion, String replacementText, boolean testMode,
+            List<AddedFont> fonts, int textWidthCacheSize, StylesheetCache stylesheetCache,
+            MemoryUsageSetting memoryUsage, ExecutorService pageExecutor, RenderMetricsListener metricsListener,
+            ExecutorService prefetchExecutor) {
         
-        _pdfDoc = new PDDocument();
+        _pdfDoc = memoryUsage != null ? new PDDocument(memoryUsage) : new PDDocument();
         _pdfDoc.setVersion(pdfVersion);
         
         _svgImpl = svgImpl;
         _dotsPerPoint = DEFAULT_DOTS_PER_POINT;
         _testMode = testMode;
+        _pageExecutor = pageExecutor;
+        _metricsListener = metricsListener;
+        _prefetchExecutor = prefetchExecutor;
         _outputDevice = new PdfBoxOutputDevice(DEFAULT_DOTS_PER_POINT, testMode);
         _outputDevice.setWriter(_pdfDoc);
         
@@ -264,8 +303,15 @@ public class PdfBoxRenderer {
         _sharedContext = new SharedContext();
         _sharedContext.registerWithThread();
         
+        if (metricsListener != null) {
+            _sharedContext.setRenderMetrics(new RenderMetrics());
+        }
+        
         _sharedContext.setUserAgentCallback(userAgent);
         _sharedContext.setCss(new StyleReference(userAgent));
+        if (stylesheetCache != null) {
+            _sharedContext.getCss().setStylesheetCache(stylesheetCache);
+        }
         userAgent.setSharedContext(_sharedContext);
         _outputDevice.setSharedContext(_sharedContext);
 
@@ -275,7 +321,14 @@ public class PdfBoxRenderer {
         PdfBoxReplacedElementFactory replacedElementFactory = new PdfBoxReplacedElementFactory(_outputDevice, svgImpl);
         _sharedContext.setReplacedElementFactory(replacedElementFactory);
 
-        _sharedContext.setTextRenderer(new PdfBoxTextRenderer());
+        PdfBoxTextRenderer textRenderer = new PdfBoxTextRenderer();
+        if (textWidthCacheSize > 0) {
+            TextWidthCache widthCache = new TextWidthCache(textWidthCacheSize);
+            textRenderer.setTextWidthCache(widthCache);
+            _outputDevice.setTextWidthCache(widthCache);
+        }
+        
+        _sharedContext.setTextRenderer(textRenderer);
         _sharedContext.setDPI(DEFAULT_PDF_POINTS_PER_INCH * _dotsPerPoint);
         _sharedContext.setDotsPerPixel(DEFAULT_DOTS_PER_PIXEL);
         _sharedContext.setPrint(true);
@@ -291,6 +344,8 @@ public class PdfBoxRenderer {
             this._splitterFactory = unicode.splitterFactory;
         }
         
+        this._bidiExecutor = unicode.bidiExecutor;
+        
         if (unicode.reorderer != null) {
             this._reorderer = unicode.reorderer;
             this._outputDevice.setBidiReorderer(_reorderer);
@@ -318,6 +373,18 @@ public class PdfBoxRenderer {
         
         this._defaultTextDirection = unicode.textDirection ? BidiSplitter.RTL : BidiSplitter.LTR;
         
+        for (AddedFont font : fonts) {
+            try {
+                if (font.data != null) {
+                    fontResolver.addFont(new ByteArrayInputStream(font.data), font.family);
+                } else {
+                    fontResolver.addFont(font.file.getAbsolutePath(), font.family);
+                }
+            } catch (IOException e) {
+                XRLog.exception("Could not load font " + font.file, e);
+            }
+        }
+        
         if (doc.html != null) {
             this.setDocumentFromStringP(doc.html, doc.baseUri);
         }
@@ -387,7 +454,10 @@ public class PdfBoxRenderer {
     }
 
     private Document loadDocument(String uri) {
-        return _sharedContext.getUserAgentCallback().getXMLResource(uri).getDocument();
+        long start = startPhase();
+        Document doc = _sharedContext.getUserAgentCallback().getXMLResource(uri).getDocument();
+        endPhase(RenderMetrics.Phase.DOCUMENT_LOAD, start);
+        return doc;
     }
 
     /**
@@ -413,7 +483,9 @@ public class PdfBoxRenderer {
     
     private void setDocumentFromStringP(String content, String baseUrl) {
         InputSource is = new InputSource(new BufferedReader(new StringReader(content)));
+        long start = startPhase();
         Document dom = XMLResource.load(is).getDocument();
+        endPhase(RenderMetrics.Phase.DOCUMENT_LOAD, start);
         setDocumentP(dom, baseUrl);
     }
     
@@ -430,12 +502,20 @@ public class PdfBoxRenderer {
         }
         _sharedContext.setBaseURL(url);
         _sharedContext.setNamespaceHandler(nsh);
+        
+        clearPrefetched();
+        if (_prefetchExecutor != null && _sharedContext.getUserAgentCallback() instanceof NaiveUserAgent) {
+            new ResourcePrefetcher((NaiveUserAgent) _sharedContext.getUserAgentCallback(), _prefetchExecutor).prefetch(_sharedContext, doc);
+        }
+        
+        long start = startPhase();
         _sharedContext.getCss().setDocumentContext(_sharedContext, _sharedContext.getNamespaceHandler(), doc, new NullUserInterface());
         getFontResolver().importFontFaces(_sharedContext.getCss().getFontFaceRules());
         
         if (_svgImpl != null) {
             _svgImpl.importFontFaceRules(_sharedContext.getCss().getFontFaceRules(), _sharedContext);
         }
+        endPhase(RenderMetrics.Phase.STYLESHEETS, start);
     }
     
     /**
@@ -494,12 +574,17 @@ public class PdfBoxRenderer {
 
     public void layout() {
         LayoutContext c = newLayoutContext();
+        long start = startPhase();
         BlockBox root = BoxBuilder.createRootBox(c, _doc);
+        endPhase(RenderMetrics.Phase.BOX_BUILDING, start);
+        
+        start = startPhase();
         root.setContainingBlock(new ViewportBox(getInitialExtents(c)));
         root.layout(c);
         Dimension dim = root.getLayer().getPaintingDimension(c);
         root.getLayer().trimEmptyPages(c, dim.height);
         root.getLayer().layoutPages(c);
+        endPhase(RenderMetrics.Phase.LAYOUT, start);
         _root = root;
     }
 
@@ -510,15 +595,19 @@ public class PdfBoxRenderer {
     }
 
     private RenderingContext newRenderingContext() {
+        return newRenderingContext(_outputDevice);
+    }
+
+    private RenderingContext newRenderingContext(PdfBoxOutputDevice outputDevice) {
         RenderingContext result = _sharedContext.newRenderingContextInstance();
         result.setFontContext(new PdfBoxFontContext());
 
-        result.setOutputDevice(_outputDevice);
+        result.setOutputDevice(outputDevice);
         
         if (_reorderer != null)
             result.setBidiReorderer(_reorderer);
         
-        _outputDevice.setRenderingContext(result);
+        outputDevice.setRenderingContext(result);
 
         _sharedContext.getTextRenderer().setup(result.getFontContext());
 
@@ -534,6 +623,8 @@ public class PdfBoxRenderer {
         if (_splitterFactory != null)
             result.setBidiSplitterFactory(_splitterFactory);
         
+        result.setBidiExecutor(_bidiExecutor);
+        
         if (_reorderer != null)
         	result.setBidiReorderer(_reorderer);
 
@@ -569,13 +660,20 @@ public class PdfBoxRenderer {
 
         _outputDevice.setStartPageNo(_pdfDoc.getNumberOfPages());
 
-        writePDF(pages, c, firstPageSize, _pdfDoc);
+        long start = startPhase();
+        try {
+            writePDF(pages, c, firstPageSize, _pdfDoc);
+        } finally {
+            clearPrefetched();
+        }
+        endPhase(RenderMetrics.Phase.PAINT, start);
     }
 
     public void finishPDF() throws IOException {
         if (_pdfDoc != null) {
             fireOnClose();
             _pdfDoc.close();
+            fireRenderComplete();
         }
     }
 
@@ -610,12 +708,29 @@ public class PdfBoxRenderer {
 
         firePreOpen();
 
-        writePDF(pages, c, firstPageSize, _pdfDoc);
+        long start = startPhase();
+        try {
+            writePDF(pages, c, firstPageSize, _pdfDoc);
+        } finally {
+            clearPrefetched();
+        }
+        endPhase(RenderMetrics.Phase.PAINT, start);
 
         if (finish) {
             fireOnClose();
-            _pdfDoc.save(os);
+            save(os);
             _pdfDoc.close();
+            fireRenderComplete();
+        }
+    }
+
+    /**
+     * Drops prefetched resources that were not used, once the document has been painted
+     * or when another document is set.
+     */
+    private void clearPrefetched() {
+        if (_sharedContext.getUserAgentCallback() instanceof NaiveUserAgent) {
+            ((NaiveUserAgent) _sharedContext.getUserAgentCallback()).clearPrefetched();
         }
     }
 
@@ -637,6 +752,64 @@ public class PdfBoxRenderer {
         }
     }
 
+    private void fireRenderComplete() {
+        if (_metricsListener != null) {
+            _metricsListener.onRenderComplete(_sharedContext.getRenderMetrics());
+        }
+    }
+
+    private void save(OutputStream os) throws IOException {
+        RenderMetrics metrics = _sharedContext.getRenderMetrics();
+        if (metrics == null) {
+            _pdfDoc.save(os);
+            return;
+        }
+
+        long start = System.nanoTime();
+        ByteCountingOutputStream counting = new ByteCountingOutputStream(os);
+        _pdfDoc.save(counting);
+        metrics.addTime(RenderMetrics.Phase.SAVE, start);
+        metrics.add(RenderMetrics.Counter.BYTES_WRITTEN, counting.getCount());
+    }
+
+    private long startPhase() {
+        return _sharedContext.getRenderMetrics() != null ? System.nanoTime() : 0;
+    }
+
+    private void endPhase(RenderMetrics.Phase phase, long start) {
+        RenderMetrics metrics = _sharedContext.getRenderMetrics();
+        if (metrics != null) {
+            metrics.addTime(phase, start);
+        }
+    }
+
+    /**
+     * Counts the bytes of the saved PDF for the render metrics.
+     */
+    private static class ByteCountingOutputStream extends FilterOutputStream {
+        private long _count;
+
+        ByteCountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            _count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            _count += len;
+        }
+
+        long getCount() {
+            return _count;
+        }
+    }
+
     private void writePDF(List<PageBox> pages, RenderingContext c, Rectangle2D firstPageSize, PDDocument doc) throws IOException {
         _outputDevice.setRoot(_root);
         _outputDevice.start(_doc);
@@ -653,11 +826,17 @@ public class PdfBoxRenderer {
         firePreWrite(pageCount); // opportunity to adjust meta data
         setDidValues(doc); // set PDF header fields from meta data
         
+        if (_pageExecutor != null && pageCount > 1 && _root.getLayer().canPaintPagesInParallel()) {
+            writePagesInParallel(pages, c, page, doc);
+            _outputDevice.finish(c, _root);
+            return;
+        }
+        
         for (int i = 0; i < pageCount; i++) {
             PageBox currentPage = pages.get(i);
             
             c.setPage(i, currentPage);
-            paintPage(c, currentPage);
+            paintPage(c, _outputDevice, currentPage);
             _outputDevice.finishPage();
             
             if (i != pageCount - 1) {
@@ -674,6 +853,87 @@ public class PdfBoxRenderer {
         _outputDevice.finish(c, _root);
     }
 
+    /**
+     * Paints the pages in contiguous ranges, the first on this thread with the output device
+     * of the renderer and the others on the page executor, each with its own output device
+     * and rendering context. All pages are added to the document, in order, before any are
+     * painted. The links, forms and controls found by each worker are merged in page order.
+     */
+    private void writePagesInParallel(final List<PageBox> pages, RenderingContext c, PDPage firstPage, final PDDocument doc) throws IOException {
+        final int pageCount = pages.size();
+        final List<PDPage> pdPages = new ArrayList<PDPage>(pageCount);
+        final float[] pageHeights = new float[pageCount];
+
+        pdPages.add(firstPage);
+        pageHeights[0] = firstPage.getMediaBox().getHeight();
+
+        for (int i = 1; i < pageCount; i++) {
+            PageBox nextPage = pages.get(i);
+            Rectangle2D nextPageSize = new Rectangle2D.Float(0, 0, nextPage.getWidth(c) / _dotsPerPoint,
+                    nextPage.getHeight(c) / _dotsPerPoint);
+            PDPage pageNext = new PDPage(new PDRectangle((float) nextPageSize.getWidth(), (float) nextPageSize.getHeight()));
+            doc.addPage(pageNext);
+            pdPages.add(pageNext);
+            pageHeights[i] = (float) nextPageSize.getHeight();
+        }
+
+        int rangeCount = ParallelRanges.rangeCount(pageCount);
+        final PdfBoxOutputDevice[] devices = new PdfBoxOutputDevice[rangeCount];
+        final RenderingContext[] contexts = new RenderingContext[rangeCount];
+
+        devices[0] = _outputDevice;
+        contexts[0] = c;
+
+        for (int range = 1; range < rangeCount; range++) {
+            devices[range] = _outputDevice.createPageWorker();
+            contexts[range] = newRenderingContext(devices[range]);
+            contexts[range].setInitialPageNo(c.getInitialPageNo());
+            contexts[range].setPageCount(pageCount);
+        }
+
+        try {
+            ParallelRanges.run(_pageExecutor, pageCount, new ParallelRanges.RangeTask<IOException>() {
+                public void run(int range, int start, int end) throws IOException {
+                    _sharedContext.registerWithThread();
+                    try {
+                        paintPages(contexts[range], devices[range], pages, pdPages, pageHeights, start, end, doc);
+                    } finally {
+                        _sharedContext.removeFromThread();
+                    }
+                }
+            }, IOException.class);
+        } finally {
+            // Range 0, and any the executor ran on this thread, unregistered the context.
+            _sharedContext.registerWithThread();
+        }
+
+        for (int range = 1; range < rangeCount; range++) {
+            _outputDevice.mergePageWorker(devices[range]);
+        }
+    }
+
+    /**
+     * Paints pages from start (inclusive) to end (exclusive). The first page of the document
+     * has already been initialized by writePDF.
+     */
+    private void paintPages(RenderingContext c, PdfBoxOutputDevice outputDevice, List<PageBox> pages,
+            List<PDPage> pdPages, float[] pageHeights, int start, int end, PDDocument doc) throws IOException {
+        for (int i = start; i < end; i++) {
+            if (i != 0) {
+                PDPageContentStream cs;
+                synchronized (doc) {
+                    cs = new PDPageContentStream(doc, pdPages.get(i), AppendMode.APPEND, !_testMode);
+                }
+                outputDevice.initializePage(cs, pdPages.get(i), pageHeights[i]);
+            }
+
+            PageBox currentPage = pages.get(i);
+            c.setPage(i, currentPage);
+            paintPage(c, outputDevice, currentPage);
+            outputDevice.finishPage();
+        }
+    }
+
     // Sets the document information dictionary values from html metadata
     private void setDidValues(PDDocument doc) {
         String v = _outputDevice.getMetadataByName("title");
@@ -702,27 +962,27 @@ public class PdfBoxRenderer {
         doc.setDocumentInformation(info);
     }
 
-    private void paintPage(RenderingContext c, PageBox page) throws IOException {
+    private void paintPage(RenderingContext c, PdfBoxOutputDevice outputDevice, PageBox page) throws IOException {
         // TODO: provideMetadataToPage(_pdfDoc, page);
 
         page.paintBackground(c, 0, Layer.PAGED_MODE_PRINT);
-        page.paintMarginAreas(c, 0, Layer.PAGED_MODE_PRINT);
+        page.paintMarginAreas(c, 0, Layer.PAGED_MODE_PRINT, outputDevice);
         page.paintBorder(c, 0, Layer.PAGED_MODE_PRINT);
 
-        Shape working = _outputDevice.getClip();
+        Shape working = outputDevice.getClip();
 
         Rectangle content = page.getPrintClippingBounds(c);
-        _outputDevice.clip(content);
+        outputDevice.clip(content);
 
         int top = -page.getPaintingTop() + page.getMarginBorderPadding(c, CalculatedStyle.TOP);
 
         int left = page.getMarginBorderPadding(c, CalculatedStyle.LEFT);
 
-        _outputDevice.translate(left, top);
+        outputDevice.translate(left, top);
         _root.getLayer().paint(c);
-        _outputDevice.translate(-left, -top);
+        outputDevice.translate(-left, -top);
 
-        _outputDevice.setClip(working);
+        outputDevice.setClip(working);
     }
 /* TODO : Metadata
     private void provideMetadataToPage(PdfWriter writer, PageBox page) throws IOException {
@@ -834,6 +1094,13 @@ public class PdfBoxRenderer {
     public void setListener(PDFCreationListener listener) {
         _listener = listener;
     }
+
+    /**
+     * @return the metrics collected so far, or null if no metrics listener was set on the builder.
+     */
+    public RenderMetrics getRenderMetrics() {
+        return _sharedContext.getRenderMetrics();
+    }
     
     public void cleanup() {
         _sharedContext.removeFromThread();
@@ -8,6 +8,7 @@ import com.openhtmltopdf.extend.SVGDrawer;
 import com.openhtmltopdf.layout.LayoutContext;
 import com.openhtmltopdf.render.BlockBox;
 import com.openhtmltopdf.render.RenderingContext;
+import com.openhtmltopdf.util.XMLUtil;
 
 public class PdfBoxSVGReplacedElement implements PdfBoxReplacedElement {
     private final Element e;
@@ -16,6 +17,7 @@ public class PdfBoxSVGReplacedElement implements PdfBoxReplacedElement {
     private final int width;
     private final int height;
     private final int dotsPerPixel;
+    private String formKey;
     
     public PdfBoxSVGReplacedElement(Element e, SVGDrawer svgImpl, int cssWidth, int cssHeight, int dotsPerPixel) {
         this.e = e;
@@ -79,7 +81,24 @@ public class PdfBoxSVGReplacedElement implements PdfBoxReplacedElement {
     }
 
     @Override
-    public void paint(RenderingContext c, PdfBoxOutputDevice outputDevice, BlockBox box) {
-        svg.drawSVG(e, outputDevice, c, point.getX(), point.getY(), this.dotsPerPixel * 96f);
+    public void paint(final RenderingContext c, PdfBoxOutputDevice outputDevice, BlockBox box) {
+        if (formKey == null) {
+            formKey = XMLUtil.contentKey(e) + '|' + this.dotsPerPixel;
+        }
+        
+        int formWidth = svg.getSVGWidth(e) * this.dotsPerPixel;
+        int formHeight = svg.getSVGHeight(e) * this.dotsPerPixel;
+        
+        // Drawing an SVG may add images to the document, so it is not done in parallel with other pages.
+        // An SVG that appears more than once, such as a logo on every page, is only drawn once, into a form.
+        synchronized (outputDevice.getWriter()) {
+            outputDevice.drawSharedForm(formKey, point.getX(), point.getY(), formWidth, formHeight,
+                    new PdfBoxOutputDevice.FormContent() {
+                @Override
+                public void paint(PdfBoxOutputDevice formDevice) {
+                    svg.drawSVG(e, formDevice, c, 0, 0, dotsPerPixel * 96f);
+                }
+            });
+        }
     }
 }
@@ -32,10 +32,12 @@ import com.openhtmltopdf.extend.OutputDevice;
 import com.openhtmltopdf.extend.TextRenderer;
 import com.openhtmltopdf.pdfboxout.PdfBoxFontResolver.FontDescription;
 import com.openhtmltopdf.pdfboxout.PdfBoxOutputDevice.FontRun;
+import com.openhtmltopdf.pdfboxout.TextWidthCache.Measurement;
 import com.openhtmltopdf.render.FSFont;
 import com.openhtmltopdf.render.FSFontMetrics;
 import com.openhtmltopdf.render.JustificationInfo;
 import com.openhtmltopdf.util.OpenUtil;
+import com.openhtmltopdf.util.RenderMetrics;
 import com.openhtmltopdf.util.ThreadCtx;
 import com.openhtmltopdf.util.XRLog;
 
@@ -43,10 +45,22 @@ public class PdfBoxTextRenderer implements TextRenderer {
     private static float TEXT_MEASURING_DELTA = 0.01f;
     
     private BidiReorderer _reorderer;
+    private TextWidthCache _widthCache;
     
     public void setup(FontContext context, BidiReorderer reorderer) {
         this._reorderer = reorderer;
     }
+    
+    /**
+     * Sets the cache used to share measured text widths, or null to measure every time.
+     */
+    public void setTextWidthCache(TextWidthCache widthCache) {
+        this._widthCache = widthCache;
+    }
+    
+    public TextWidthCache getTextWidthCache() {
+        return _widthCache;
+    }
 
     public void drawString(OutputDevice outputDevice, String string, float x, float y) {
         ((PdfBoxOutputDevice)outputDevice).drawString(string, x, y, null);
@@ -132,34 +146,22 @@ public class PdfBoxTextRenderer implements TextRenderer {
         List<FontDescription> descriptions = ((PdfBoxFSFont) font).getFontDescription();
         
         for (FontDescription des : descriptions) {
-            try {
-                des.getFont().getStringWidth(replaceStr);
-
-                // Got here without throwing, so the text exists in font.
+            if (!Float.isNaN(des.getStringWidth(replaceStr))) {
+                // The text exists in font.
                 ReplacementChar replace = new ReplacementChar();
                 replace.replacement = replaceStr;
                 replace.fontDescription = des;
                 return replace;
-            } catch (Exception e)
-            {
-                // Could not use replacement character in this font.
             }
         }
 
         // Still haven't found a font supporting our replacement text, try space character.
-        replaceStr = " ";
         for (FontDescription des : descriptions) {
-            try {
-                des.getFont().getStringWidth(replaceStr);
-
-                // Got here without throwing, so the char exists in font.
+            if (des.hasCodePoint(' ')) {
                 ReplacementChar replace = new ReplacementChar();
                 replace.replacement = " ";
                 replace.fontDescription = des;
                 return replace;
-            } catch (Exception e)
-            {
-                // Could not use space in this font!
             }
         }
     
@@ -173,94 +175,84 @@ public class PdfBoxTextRenderer implements TextRenderer {
     
     public static List<FontRun> divideIntoFontRuns(FSFont font, String str, BidiReorderer reorderer) {
         StringBuilder sb = new StringBuilder();
-        ReplacementChar replace = PdfBoxTextRenderer.getReplacementChar(font);
+        ReplacementChar replace = null;
         List<FontDescription> fonts = ((PdfBoxFSFont) font).getFontDescription();
         List<FontRun> runs = new ArrayList<FontRun>();
         FontRun current = new FontRun();
+        int fallbacks = 0;
         
         for (int i = 0; i < str.length(); ) {
             int unicode = str.codePointAt(i);
             i += Character.charCount(unicode);
-            String ch = String.valueOf(Character.toChars(unicode));
-            boolean gotChar = false;
+            FontDescription found = null;
+            String text = null;
+            // Deshaped at most once per character, not once per font.
+            String deshaped = null;
+            boolean replaced = false;
             
-            FONT_LOOP:
             for (FontDescription des : fonts) {
-                try {
-                    des.getFont().getStringWidth(ch);
-                    // We got here, so this font has this character.
-                    if (current.des == null) {
-                        // First character of run.
-                        current.des = des;
-                    }
-                    else if (des != current.des) {
-                        // We have changed font, so we'll start a new font run.
-                        current.str = sb.toString();
-                        runs.add(current);
-                        current = new FontRun();
-                        current.des = des;
-                        sb = new StringBuilder();
-                    }
-
-                    sb.append(ch);
-                    gotChar = true;
+                if (des.hasCodePoint(unicode)) {
+                    // This font has this character.
+                    found = des;
                     break;
                 }
-                catch (Exception e1) {
-                    if (reorderer.isLiveImplementation()) {
-                        // Character is not in font! Next, we try deshaping.
-                        String deshaped = reorderer.deshapeText(ch);
-                        try {
-                            des.getFont().getStringWidth(deshaped);
-                            // We got here, so this font has this deshaped character.
-                            if (current.des == null) {
-                                // First character of run.
-                                current.des = des;
-                            }
-                            else if (des != current.des) {
-                                // We have changed font, so we'll start a new font run.
-                                current.str = sb.toString();
-                                runs.add(current);
-                                current = new FontRun();
-                                current.des = des;
-                                sb = new StringBuilder();
-                            }
-                            sb.append(deshaped);
-                            gotChar = true;
-                            break FONT_LOOP;
-                        }
-                        catch (Exception e2) {
-                            // Keep trying with next font.
-                        }
+                
+                if (reorderer.isLiveImplementation()) {
+                    // Character is not in font! Next, we try deshaping.
+                    if (deshaped == null) {
+                        deshaped = reorderer.deshapeText(String.valueOf(Character.toChars(unicode)));
+                    }
+                    if (!Float.isNaN(des.getStringWidth(deshaped))) {
+                        // This font has this deshaped character.
+                        found = des;
+                        text = deshaped;
+                        break;
                     }
                 }
             }
             
-            if (!gotChar) {
+            if (found == null) {
                 // We still don't have the character after all that. So use replacement character.
-                if (current.des == null) {
-                    // First character of run.
-                    current.des = replace.fontDescription;
-                }
-                else if (replace.fontDescription != current.des) {
-                    // We have changed font, so we'll start a new font run.
-                    current.str = sb.toString();
-                    runs.add(current);
-                    current = new FontRun();
-                    current.des = replace.fontDescription;
-                    sb = new StringBuilder();
+                if (replace == null) {
+                    replace = PdfBoxTextRenderer.getReplacementChar(font);
                 }
                 
+                found = replace.fontDescription;
+                replaced = true;
+                
                 if (Character.isSpaceChar(unicode) || Character.isWhitespace(unicode)) {
-                    sb.append(' ');
+                    text = " ";
                 }
                 else if (!OpenUtil.isCodePointPrintable(unicode)) {
-                    // Do nothing
+                    text = "";
                 }
                 else {
-                    sb.append(replace.replacement);
+                    text = replace.replacement;
                 }
             }
+            
+            if (found != fonts.get(0) || replaced) {
+                fallbacks++;
+            }
+            
+            if (current.des == null) {
+                // First character of run.
+                current.des = found;
+            }
+            else if (found != current.des) {
+                // We have changed font, so we'll start a new font run.
+                current.str = sb.toString();
+                runs.add(current);
+                current = new FontRun();
+                current.des = found;
+                sb = new StringBuilder();
+            }
+            
+            if (text == null) {
+                sb.appendCodePoint(unicode);
+            } else {
+                sb.append(text);
+            }
         }
 
         if (sb.length() > 0) {
@@ -268,39 +260,65 @@ public class PdfBoxTextRenderer implements TextRenderer {
             runs.add(current);
         }
         
+        if (fallbacks > 0) {
+            RenderMetrics metrics = ThreadCtx.get().renderMetrics();
+            if (metrics != null) {
+                metrics.add(RenderMetrics.Counter.GLYPH_FALLBACKS, fallbacks);
+            }
+        }
+        
         return runs;
     }
     
-    private float getStringWidthSlow(FSFont bf, String str) {
-        List<FontRun> runs = divideIntoFontRuns(bf, str, _reorderer);
-        float strWidth = 0;
+    /**
+     * Measures a string in glyph space units, using fallback fonts and the replacement
+     * character for characters missing from the first font. Measurements are kept in the
+     * width cache, if one is given.
+     */
+    static Measurement measure(FSFont bf, String str, BidiReorderer reorderer, TextWidthCache widthCache) {
+        List<FontDescription> fonts = ((PdfBoxFSFont) bf).getFontDescription();
+        Measurement result;
+        
+        if (widthCache != null) {
+            result = widthCache.get(fonts, str);
+            if (result != null) {
+                return result;
+            }
+        }
+        
+        // First try using the first given font in the list.
+        float strWidth = fonts.get(0).getStringWidth(str);
         
-        for (FontRun run : runs) {
-            try {
-                strWidth += run.des.getFont().getStringWidth(run.str);
-            } catch (Exception e) {
-                XRLog.render(Level.WARNING, "BUG. Font didn't contain expected character.", e);
+        if (!Float.isNaN(strWidth)) {
+            result = new Measurement(strWidth, true);
+        } else {
+            // The first font doesn't have every character, so split into font runs.
+            List<FontRun> runs = divideIntoFontRuns(bf, str, reorderer);
+            strWidth = 0;
+
+            for (FontRun run : runs) {
+                float runWidth = run.des.getStringWidth(run.str);
+
+                if (Float.isNaN(runWidth)) {
+                    XRLog.render(Level.WARNING, "BUG. Font didn't contain expected character.");
+                } else {
+                    strWidth += runWidth;
+                }
             }
+            
+            result = new Measurement(strWidth, false);
+        }
+        
+        if (widthCache != null) {
+            widthCache.put(fonts, str, result);
         }
 
-        return strWidth;
+        return result;
     }
 
     @Override
     public int getWidth(FontContext context, FSFont font, String string) {
-        float result = 0f;
-
-        try {
-            // First try using the first given font in the list.
-            result = ((PdfBoxFSFont) font).getFontDescription().get(0).getFont().getStringWidth(string) / 1000f * font.getSize2D();
-        } catch (IllegalArgumentException e2) {
-            // PDFont::getStringWidth throws an IllegalArgumentException if the character doesn't exist in the font.
-            // So we do it one character by character instead.
-            result = getStringWidthSlow(font, string) / 1000f * font.getSize2D();
-        }
-        catch (IOException e) {
-            throw new PdfContentStreamAdapter.PdfException("getWidth", e);
-        }
+        float result = measure(font, string, _reorderer, _widthCache).width / 1000f * font.getSize2D();
 
         if (result - Math.floor(result) < TEXT_MEASURING_DELTA) {
             return (int)result;
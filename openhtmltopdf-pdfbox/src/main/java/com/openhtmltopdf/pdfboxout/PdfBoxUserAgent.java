@@ -32,6 +32,7 @@ import com.openhtmltopdf.resource.ImageResource;
 import com.openhtmltopdf.swing.FSCacheKey;
 import com.openhtmltopdf.swing.NaiveUserAgent;
 import com.openhtmltopdf.util.ImageUtil;
+import com.openhtmltopdf.util.RenderMetrics;
 import com.openhtmltopdf.util.XRLog;
 
 public class PdfBoxUserAgent extends NaiveUserAgent {
@@ -56,6 +57,21 @@ public class PdfBoxUserAgent extends NaiveUserAgent {
     }
     
     public ImageResource getImageResource(String uriStr) {
+        // Images may be loaded, and added to the document, while pages are painted in parallel.
+        RenderMetrics metrics = _sharedContext.getRenderMetrics();
+        long start = metrics != null ? System.nanoTime() : 0;
+        try {
+            synchronized (_outputDevice.getWriter()) {
+                return loadImageResource(uriStr);
+            }
+        } finally {
+            if (metrics != null) {
+                metrics.addTime(RenderMetrics.Phase.RESOURCE_LOADING, start);
+            }
+        }
+    }
+
+    private ImageResource loadImageResource(String uriStr) {
         String uriResolved = resolveURI(uriStr);
         
         if (uriResolved == null) {
@@ -64,10 +80,6 @@ public class PdfBoxUserAgent extends NaiveUserAgent {
         }
         
         ImageResource resource = _imageCache.get(uriResolved);
-        
-        if (resource == null) {
-            resource = (ImageResource) _externalCache.get(new FSCacheKey(uriResolved, PdfBoxImage.class));
-        }
 
         if (resource != null && resource.getImage() instanceof PdfBoxImage) {
             // Make copy of PdfBoxImage so we don't stuff up the cache.
@@ -81,7 +93,8 @@ public class PdfBoxUserAgent extends NaiveUserAgent {
             _outputDevice.realizeImage((PdfBoxImage) resource.getImage());
             _imageCache.put(uriResolved, resource);
         } else {
-            InputStream is = openStream(uriResolved);
+            resource = loadEncodedImageResource(uriStr, uriResolved);
+            InputStream is = resource == null ? openStream(uriResolved) : null;
             
             if (is != null) {
                 try {
@@ -104,9 +117,13 @@ public class PdfBoxUserAgent extends NaiveUserAgent {
                         scaleToOutputResolution(fsImage);
                         _outputDevice.realizeImage(fsImage);
                         resource = new ImageResource(uriResolved, fsImage);
+
+                        PdfBoxEncodedImage encoded = PdfBoxEncodedImage.fromXObject(fsImage.getXObject(), fsImage.isJpeg());
+                        if (encoded != null) {
+                            _externalCache.put(new FSCacheKey(uriResolved, PdfBoxEncodedImage.class), encoded);
+                        }
                     }
                     _imageCache.put(uriResolved, resource);
-                    _externalCache.put(new FSCacheKey(uriResolved, PdfBoxImage.class), resource);
                 } catch (Exception e) {
                     XRLog.exception(
                             "Can't read image file; unexpected problem for URI '"
@@ -129,6 +146,30 @@ public class PdfBoxUserAgent extends NaiveUserAgent {
         return resource;
     }
     
+    /**
+     * Creates the image from an encoded image in the external cache, if there is one,
+     * without loading or decoding it again. The image objects themselves are not cached
+     * between documents as they belong to one document.
+     */
+    private ImageResource loadEncodedImageResource(String uriStr, String uriResolved) {
+        PdfBoxEncodedImage encoded = (PdfBoxEncodedImage) _externalCache.get(new FSCacheKey(uriResolved, PdfBoxEncodedImage.class));
+        if (encoded == null) {
+            return null;
+        }
+
+        try {
+            PdfBoxImage fsImage = new PdfBoxImage(null, uriStr, encoded.getWidth(), encoded.getHeight(),
+                    encoded.isJpeg(), encoded.createXObject(_outputDevice.getWriter()));
+            scaleToOutputResolution(fsImage);
+            ImageResource resource = new ImageResource(uriResolved, fsImage);
+            _imageCache.put(uriResolved, resource);
+            return resource;
+        } catch (IOException e) {
+            XRLog.exception("Can't create image from cache for URI '" + uriStr + "'", e);
+            return null;
+        }
+    }
+
     private ImageResource loadEmbeddedBase64ImageResource(final String uri) {
         try {
             byte[] buffer = ImageUtil.getEmbeddedBase64Image(uri);
@@ -5,6 +5,7 @@ import java.io.IOException;
 
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 import org.apache.pdfbox.util.Matrix;
@@ -280,6 +281,14 @@ public class PdfContentStreamAdapter {
         }
     }
 
+    public void drawForm(PDFormXObject form) {
+        try {
+            cs.drawForm(form);
+        } catch (IOException e) {
+            logAndThrow("drawForm", e);
+        }
+    }
+
     public void setMiterLimit(float miterLimit) {
         // TODO Not currently supported by PDF-BOX.
     }
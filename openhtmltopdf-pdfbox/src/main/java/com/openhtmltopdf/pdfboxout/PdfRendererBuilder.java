@@ -1,21 +1,32 @@
 package com.openhtmltopdf.pdfboxout;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.w3c.dom.Document;
 
 import com.openhtmltopdf.bidi.BidiReorderer;
 import com.openhtmltopdf.bidi.BidiSplitterFactory;
+import com.openhtmltopdf.context.StylesheetCache;
 import com.openhtmltopdf.extend.FSCache;
 import com.openhtmltopdf.extend.FSTextBreaker;
 import com.openhtmltopdf.extend.FSTextTransformer;
 import com.openhtmltopdf.extend.FSUriResolver;
 import com.openhtmltopdf.extend.HttpStreamFactory;
+import com.openhtmltopdf.extend.RenderMetricsListener;
 import com.openhtmltopdf.extend.SVGDrawer;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer.AddedFont;
 import com.openhtmltopdf.pdfboxout.PdfBoxRenderer.BaseDocument;
 import com.openhtmltopdf.pdfboxout.PdfBoxRenderer.PageDimensions;
 import com.openhtmltopdf.pdfboxout.PdfBoxRenderer.UnicodeImplementation;
+import com.openhtmltopdf.util.IOUtil;
 
 public class PdfRendererBuilder
 {
@@ -50,7 +61,14 @@ public class PdfRendererBuilder
     private FSTextTransformer _unicodeToUpperTransformer;
     private FSTextTransformer _unicodeToLowerTransformer;
     private FSTextTransformer _unicodeToTitleTransformer;
-
+    private final List<AddedFont> _fonts = new ArrayList<AddedFont>();
+    private int _textWidthCacheSize;
+    private StylesheetCache _stylesheetCache;
+    private MemoryUsageSetting _memoryUsage;
+    private ExecutorService _pageExecutor;
+    private RenderMetricsListener _metricsListener;
+    private ExecutorService _prefetchExecutor;
+    private ExecutorService _bidiExecutor;
     
     /**
      * Run the XHTML/XML to PDF conversion and output to an output stream set by toStream.
@@ -75,13 +93,46 @@ public class PdfRendererBuilder
      */
     public PdfBoxRenderer buildPdfRenderer() {
         UnicodeImplementation unicode = new UnicodeImplementation(_reorderer, _splitter, _lineBreaker, 
-                _unicodeToLowerTransformer, _unicodeToUpperTransformer, _unicodeToTitleTransformer, _textDirection, _charBreaker);
+                _unicodeToLowerTransformer, _unicodeToUpperTransformer, _unicodeToTitleTransformer, _textDirection, _charBreaker, _bidiExecutor);
 
         PageDimensions pageSize = new PageDimensions(_pageWidth, _pageHeight, _isPageSizeInches);
         
         BaseDocument doc = new BaseDocument(_baseUri, _html, _document, _file, _uri);
         
-        return new PdfBoxRenderer(doc, unicode, _httpStreamFactory, _os, _resolver, _cache, _svgImpl, pageSize, _pdfVersion, _replacementText, _testMode);
+        return new PdfBoxRenderer(doc, unicode, _httpStreamFactory, _os, _resolver, _cache, _svgImpl, pageSize, _pdfVersion, _replacementText, _testMode, _fonts, _textWidthCacheSize, _stylesheetCache, _memoryUsage, _pageExecutor, _metricsListener, _prefetchExecutor);
+    }
+    
+    /**
+     * Build an immutable template holding every option set on this builder except the
+     * document and output stream. The template can be kept for the life of the application
+     * and used from many threads to create renderers for individual documents.
+     * Fonts added with {@link #useFont(File, String)} are read into memory once, here.
+     * <br><br>
+     * <b>NOTE:</b> The unicode implementations (splitter, reorderer, breakers and transformers)
+     * are shared between every renderer created from the template so must be thread safe.
+     * The default line and character breakers are created per renderer, but a breaker
+     * wrapping a <code>BreakIterator</code> given to {@link #useUnicodeLineBreaker(FSTextBreaker)}
+     * or {@link #useUnicodeCharacterBreaker(FSTextBreaker)} is NOT thread safe.
+     * @return
+     * @throws IOException if a font file can not be read.
+     */
+    public PdfRendererTemplate buildTemplate() throws IOException {
+        UnicodeImplementation unicode = new UnicodeImplementation(_reorderer, _splitter, _lineBreaker, 
+                _unicodeToLowerTransformer, _unicodeToUpperTransformer, _unicodeToTitleTransformer, _textDirection, _charBreaker, _bidiExecutor);
+
+        PageDimensions pageSize = new PageDimensions(_pageWidth, _pageHeight, _isPageSizeInches);
+        
+        List<AddedFont> fonts = new ArrayList<AddedFont>(_fonts.size());
+        for (AddedFont font : _fonts) {
+            InputStream is = new FileInputStream(font.file);
+            try {
+                fonts.add(new AddedFont(font.file, IOUtil.readBytes(is), font.family));
+            } finally {
+                is.close();
+            }
+        }
+        
+        return new PdfRendererTemplate(unicode, _httpStreamFactory, _resolver, _cache, _svgImpl, pageSize, _pdfVersion, _replacementText, _testMode, fonts, _textWidthCacheSize, _stylesheetCache, _memoryUsage, _pageExecutor, _metricsListener, _prefetchExecutor);
     }
     
     /**
@@ -146,6 +197,20 @@ public class PdfRendererBuilder
         return this;
     }
     
+    /**
+     * Split the paragraphs of the document which contain right to left text into directional
+     * runs in parallel, on this executor and the calling thread. Paragraphs of left to right
+     * text are never passed to the splitter. The splitter factory must be thread safe; the
+     * one of the rtl-support module is. The executor is not shut down by the renderer and
+     * may be shared.
+     * @param executor
+     * @return
+     */
+    public PdfRendererBuilder useUnicodeBidiSplitterExecutor(ExecutorService executor) {
+        this._bidiExecutor = executor;
+        return this;
+    }
+    
     /**
      * Provides a reorderer to properly reverse RTL text. No-op by default.
      * @param reorderer
@@ -236,6 +301,97 @@ public class PdfRendererBuilder
         return this;
     }
     
+    /**
+     * Add a TrueType font file to be loaded for every document.
+     * @param fontFile
+     * @param fontFamily the family name to use in CSS, or null to use the name embedded in the font.
+     * @return
+     */
+    public PdfRendererBuilder useFont(File fontFile, String fontFamily) {
+        this._fonts.add(new AddedFont(fontFile, null, fontFamily));
+        return this;
+    }
+    
+    /**
+     * Remember the widths of measured words so that text repeated through the document,
+     * such as table headers and labels, is only measured once per document.
+     * Turned off by default.
+     * @param maxEntries the number of widths to remember, or zero to turn off the cache.
+     * @return
+     */
+    public PdfRendererBuilder useTextWidthCache(int maxEntries) {
+        this._textWidthCacheSize = maxEntries;
+        return this;
+    }
+    
+    /**
+     * Use a cache of parsed stylesheets, so that stylesheets shared by many documents
+     * are only parsed once. The cache may be shared between builders, templates and threads.
+     * @param cache
+     * @return
+     */
+    public PdfRendererBuilder useStylesheetCache(StylesheetCache cache) {
+        this._stylesheetCache = cache;
+        return this;
+    }
+    
+    /**
+     * Set the memory usage setting the PDFBox document is created with. PDFBox uses it for the
+     * scratch buffers holding the data of the streams created for the document, such as page
+     * contents, images and embedded fonts, from when the data is written until the document is
+     * saved and closed. By default stream data is kept in main memory.
+     * <code>MemoryUsageSetting.setupMixed(maxMainMemoryBytes)</code> keeps up to that many bytes
+     * in main memory and the rest in a temporary file, and
+     * <code>MemoryUsageSetting.setupTempFileOnly()</code> keeps it all in a temporary file.
+     * The setting only covers stream data. The other objects of the document, and the
+     * fonts that are subset when the document is saved, are still kept in main memory.
+     * @param memoryUsage
+     * @return
+     */
+    public PdfRendererBuilder usePdfMemoryUsage(MemoryUsageSetting memoryUsage) {
+        this._memoryUsage = memoryUsage;
+        return this;
+    }
+    
+    /**
+     * Paint the pages of the document in parallel, on this executor and the calling thread,
+     * rather than one after another. Documents with fixed content or tables with repeating
+     * headers or footers are still painted one page at a time, as painting moves that content.
+     * The executor is not shut down by the renderer and may be shared.
+     * @param executor
+     * @return
+     */
+    public PdfRendererBuilder usePagePaintingExecutor(ExecutorService executor) {
+        this._pageExecutor = executor;
+        return this;
+    }
+    
+    /**
+     * Collect timings and counters for each render, such as the time spent in layout and the
+     * number of boxes created, and pass them to this listener once the PDF has been written.
+     * The listener may be called from several threads if renderers run concurrently.
+     * @param listener
+     * @return
+     */
+    public PdfRendererBuilder useRenderMetricsListener(RenderMetricsListener listener) {
+        this._metricsListener = listener;
+        return this;
+    }
+    
+    /**
+     * Fetch the stylesheets, images and fonts of the document in parallel on this executor
+     * before layout, rather than one at a time as layout needs them. This helps most with
+     * documents which load many resources over the network. The HTTP stream factory and
+     * URI resolver, if set, must be thread safe. The executor is not shut down by the renderer
+     * and may be shared, but should be bounded, as a task is submitted for each resource.
+     * @param executor
+     * @return
+     */
+    public PdfRendererBuilder useResourcePrefetchExecutor(ExecutorService executor) {
+        this._prefetchExecutor = executor;
+        return this;
+    }
+    
     /**
      * Set the PDF version, typically we use 1.7.
      * If you set a lower version, it is your responsibility to make sure
@@ -0,0 +1,153 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.w3c.dom.Document;
+
+import com.openhtmltopdf.context.StylesheetCache;
+import com.openhtmltopdf.extend.FSCache;
+import com.openhtmltopdf.extend.FSUriResolver;
+import com.openhtmltopdf.extend.HttpStreamFactory;
+import com.openhtmltopdf.extend.RenderMetricsListener;
+import com.openhtmltopdf.extend.SVGDrawer;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer.AddedFont;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer.BaseDocument;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer.PageDimensions;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer.UnicodeImplementation;
+
+/**
+ * An immutable set of renderer options, built once with {@link PdfRendererBuilder#buildTemplate()}
+ * and then used to create a renderer for each document. A template may be shared between threads.
+ * Each renderer created has its own shared context, font resolver and output device so renderers
+ * may run concurrently.
+ */
+public class PdfRendererTemplate {
+    private final UnicodeImplementation _unicode;
+    private final HttpStreamFactory _httpStreamFactory;
+    private final FSUriResolver _resolver;
+    private final FSCache _cache;
+    private final SVGDrawer _svgImpl;
+    private final PageDimensions _pageSize;
+    private final float _pdfVersion;
+    private final String _replacementText;
+    private final boolean _testMode;
+    private final List<AddedFont> _fonts;
+    private final int _textWidthCacheSize;
+    private final StylesheetCache _stylesheetCache;
+    private final MemoryUsageSetting _memoryUsage;
+    private final ExecutorService _pageExecutor;
+    private final RenderMetricsListener _metricsListener;
+    private final ExecutorService _prefetchExecutor;
+
+    PdfRendererTemplate(UnicodeImplementation unicode, HttpStreamFactory httpStreamFactory,
+            FSUriResolver resolver, FSCache cache, SVGDrawer svgImpl, PageDimensions pageSize,
+            float pdfVersion, String replacementText, boolean testMode, List<AddedFont> fonts,
+            int textWidthCacheSize, StylesheetCache stylesheetCache, MemoryUsageSetting memoryUsage,
+            ExecutorService pageExecutor, RenderMetricsListener metricsListener, ExecutorService prefetchExecutor) {
+        _unicode = unicode;
+        _httpStreamFactory = httpStreamFactory;
+        _resolver = resolver;
+        _cache = cache;
+        _svgImpl = svgImpl;
+        _pageSize = pageSize;
+        _pdfVersion = pdfVersion;
+        _replacementText = replacementText;
+        _testMode = testMode;
+        _fonts = Collections.unmodifiableList(fonts);
+        _textWidthCacheSize = textWidthCacheSize;
+        _stylesheetCache = stylesheetCache;
+        _memoryUsage = memoryUsage;
+        _pageExecutor = pageExecutor;
+        _metricsListener = metricsListener;
+        _prefetchExecutor = prefetchExecutor;
+    }
+
+    /**
+     * Convert a string containing XHTML/XML to PDF on the calling thread.
+     * The caller is required to close the output stream.
+     * @param html
+     * @param baseUri
+     * @param os
+     * @throws Exception
+     */
+    public void run(String html, String baseUri, OutputStream os) throws Exception {
+        run(buildPdfRenderer(html, baseUri, os));
+    }
+
+    /**
+     * Convert a w3c DOM Document to PDF on the calling thread.
+     * The caller is required to close the output stream.
+     * @param doc
+     * @param baseUri
+     * @param os
+     * @throws Exception
+     */
+    public void run(Document doc, String baseUri, OutputStream os) throws Exception {
+        run(buildPdfRenderer(doc, baseUri, os));
+    }
+
+    private void run(PdfBoxRenderer renderer) throws Exception {
+        try {
+            renderer.layout();
+            renderer.createPDF();
+        } finally {
+            renderer.cleanup();
+        }
+    }
+
+    /**
+     * Build a renderer for a string containing XHTML/XML.
+     * Remember to call {@link PdfBoxRenderer#cleanup()} after use.
+     * @param html
+     * @param baseUri
+     * @param os
+     * @return
+     */
+    public PdfBoxRenderer buildPdfRenderer(String html, String baseUri, OutputStream os) {
+        return buildPdfRenderer(new BaseDocument(baseUri, html, null, null, null), os);
+    }
+
+    /**
+     * Build a renderer for a w3c DOM Document acquired from an external source.
+     * Remember to call {@link PdfBoxRenderer#cleanup()} after use.
+     * @param doc
+     * @param baseUri
+     * @param os
+     * @return
+     */
+    public PdfBoxRenderer buildPdfRenderer(Document doc, String baseUri, OutputStream os) {
+        return buildPdfRenderer(new BaseDocument(baseUri, null, doc, null, null), os);
+    }
+
+    /**
+     * Build a renderer for a file containing XHTML/XML in UTF-8 encoding.
+     * Remember to call {@link PdfBoxRenderer#cleanup()} after use.
+     * @param file
+     * @param os
+     * @return
+     */
+    public PdfBoxRenderer buildPdfRenderer(File file, OutputStream os) {
+        return buildPdfRenderer(new BaseDocument(null, null, null, file, null), os);
+    }
+
+    /**
+     * Build a renderer for a URI which MUST point to a strict XHTML/XML document.
+     * Remember to call {@link PdfBoxRenderer#cleanup()} after use.
+     * @param uri
+     * @param os
+     * @return
+     */
+    public PdfBoxRenderer buildPdfRendererFromUri(String uri, OutputStream os) {
+        return buildPdfRenderer(new BaseDocument(null, null, null, null, uri), os);
+    }
+
+    private PdfBoxRenderer buildPdfRenderer(BaseDocument doc, OutputStream os) {
+        return new PdfBoxRenderer(doc, _unicode, _httpStreamFactory, os, _resolver, _cache, _svgImpl,
+                _pageSize, _pdfVersion, _replacementText, _testMode, _fonts, _textWidthCacheSize, _stylesheetCache, _memoryUsage, _pageExecutor, _metricsListener, _prefetchExecutor);
+    }
+}
@@ -0,0 +1,111 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.openhtmltopdf.pdfboxout.PdfBoxFontResolver.FontDescription;
+
+/**
+ * A bounded, least recently used cache of measured text widths, shared by the line breaker,
+ * inline layout and text drawing of one renderer. Widths are kept in glyph space units
+ * (thousandths of an em), so the same word measured at different font sizes shares one entry.
+ * Keys are the text and the identity of the fonts (including fallback fonts) used to measure it.
+ */
+public class TextWidthCache {
+    private final int _maxEntries;
+    private final Map<Key, Measurement> _cache;
+    private long _hits;
+    private long _misses;
+
+    static class Measurement {
+        /**
+         * Width of the text in glyph space units.
+         */
+        final float width;
+
+        /**
+         * Whether the first font contains every character of the text,
+         * so the text can be drawn without splitting it into font runs.
+         */
+        final boolean firstFontOnly;
+
+        Measurement(float width, boolean firstFontOnly) {
+            this.width = width;
+            this.firstFontOnly = firstFontOnly;
+        }
+    }
+
+    private static class Key {
+        private final List<FontDescription> fonts;
+        private final String text;
+        private final int hash;
+
+        Key(List<FontDescription> fonts, String text) {
+            this.fonts = fonts;
+            this.text = text;
+            this.hash = fonts.hashCode() * 31 + text.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && text.equals(other.text) && fonts.equals(other.fonts);
+        }
+    }
+
+    /**
+     * @param maxEntries the number of measurements to keep before the least recently used are evicted.
+     */
+    public TextWidthCache(final int maxEntries) {
+        _maxEntries = maxEntries;
+        _cache = new LinkedHashMap<Key, Measurement>(Math.min(maxEntries, 1024), 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Measurement> eldest) {
+                return size() > _maxEntries;
+            }
+        };
+    }
+
+    synchronized Measurement get(List<FontDescription> fonts, String text) {
+        Measurement result = _cache.get(new Key(fonts, text));
+
+        if (result != null) {
+            _hits++;
+        } else {
+            _misses++;
+        }
+
+        return result;
+    }
+
+    synchronized void put(List<FontDescription> fonts, String text, Measurement measurement) {
+        _cache.put(new Key(fonts, text), measurement);
+    }
+
+    public int getMaxEntries() {
+        return _maxEntries;
+    }
+
+    public synchronized int size() {
+        return _cache.size();
+    }
+
+    public synchronized long getHitCount() {
+        return _hits;
+    }
+
+    public synchronized long getMissCount() {
+        return _misses;
+    }
+}
@@ -0,0 +1,194 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+
+import com.openhtmltopdf.util.Configuration;
+import com.openhtmltopdf.util.IOUtil;
+import com.openhtmltopdf.util.XRLog;
+
+/**
+ * A process wide cache of parsed TrueType fonts so that the same font files
+ * are not parsed again for every document. Fonts are keyed by file path (plus size
+ * and modified time) or by a hash of their content and evicted in least recently used
+ * order when the total size of the cached font files exceeds the configured number of bytes.
+ * <br><br>
+ * Fonts are always parsed from memory, so an evicted font holds no file handle and
+ * is simply left for the garbage collector once no document refers to it.
+ * <br><br>
+ * The default bound is read from the <code>xr.pdf.font-cache.max-bytes</code>
+ * configuration key. A bound of zero disables the cache.
+ */
+public class TrueTypeFontCache {
+    private static final TrueTypeFontCache DEFAULT_INSTANCE =
+            new TrueTypeFontCache(Configuration.valueAsLong("xr.pdf.font-cache.max-bytes", 64L * 1024 * 1024));
+
+    private final LinkedHashMap<String, Entry> _cache = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long _maxBytes;
+    private long _currentBytes;
+    private long _hits;
+    private long _misses;
+
+    private static class Entry {
+        final TrueTypeFont font;
+        final int size;
+
+        Entry(TrueTypeFont font, int size) {
+            this.font = font;
+            this.size = size;
+        }
+    }
+
+    public TrueTypeFontCache(long maxBytes) {
+        _maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the process wide font cache used by {@link PdfBoxFontResolver}.
+     */
+    public static TrueTypeFontCache getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Gets the parsed font for a file, parsing and caching it if needed.
+     */
+    public TrueTypeFont getFont(File file) throws IOException {
+        String key = "file:" + file.getAbsolutePath() + ':' + file.length() + ':' + file.lastModified();
+
+        TrueTypeFont font = get(key);
+        if (font != null) {
+            return font;
+        }
+
+        InputStream is = new FileInputStream(file);
+        try {
+            return parseAndPut(key, IOUtil.readBytes(is));
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Gets the parsed font for the given font file content, parsing and caching it if needed.
+     */
+    public TrueTypeFont getFont(byte[] data) throws IOException {
+        String key = "sha1:" + hash(data);
+
+        TrueTypeFont font = get(key);
+        if (font != null) {
+            return font;
+        }
+
+        return parseAndPut(key, data);
+    }
+
+    private synchronized TrueTypeFont get(String key) {
+        Entry entry = _cache.get(key);
+
+        if (entry != null) {
+            _hits++;
+            return entry.font;
+        }
+
+        _misses++;
+        return null;
+    }
+
+    private TrueTypeFont parseAndPut(String key, byte[] data) throws IOException {
+        TrueTypeFont font = new TTFParser().parse(new ByteArrayInputStream(data));
+
+        // Read the tables we need up front, before the font is visible to other threads.
+        font.getCmap();
+        font.getHorizontalMetrics();
+        font.getNaming();
+        font.getOS2Windows();
+        font.getPostScript();
+
+        synchronized (this) {
+            if (data.length > _maxBytes) {
+                return font;
+            }
+
+            Entry existing = _cache.get(key);
+            if (existing != null) {
+                // Another thread parsed the same font first.
+                return existing.font;
+            }
+
+            _cache.put(key, new Entry(font, data.length));
+            _currentBytes += data.length;
+            evict();
+        }
+
+        XRLog.load("Added font to cache: " + key);
+        return font;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iter = _cache.entrySet().iterator();
+
+        while (_currentBytes > _maxBytes && iter.hasNext()) {
+            Map.Entry<String, Entry> eldest = iter.next();
+            _currentBytes -= eldest.getValue().size;
+            iter.remove();
+        }
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest = md.digest(data);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (int i = 0; i < digest.length; i++) {
+                sb.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is required on every Java platform.
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Sets the maximum total size in bytes of the font files held in the cache,
+     * evicting fonts if needed. Zero disables the cache.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        _maxBytes = maxBytes;
+        evict();
+    }
+
+    public synchronized long getMaxBytes() {
+        return _maxBytes;
+    }
+
+    public synchronized long getCurrentBytes() {
+        return _currentBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return _hits;
+    }
+
+    public synchronized long getMissCount() {
+        return _misses;
+    }
+
+    public synchronized void clear() {
+        _cache.clear();
+        _currentBytes = 0;
+    }
+}
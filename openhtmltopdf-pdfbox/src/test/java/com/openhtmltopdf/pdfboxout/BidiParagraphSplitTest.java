@@ -0,0 +1,156 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.*;
+
+import com.openhtmltopdf.bidi.BidiSplitter;
+import com.openhtmltopdf.bidi.BidiSplitterFactory;
+import com.openhtmltopdf.bidi.BidiTextRun;
+
+/**
+ * Which paragraphs are passed to the bidi splitter, and that splitting them on an executor
+ * gives the same runs and output as splitting them on the layout thread.
+ */
+public class BidiParagraphSplitTest {
+	private static final char HEBREW_ALEF = '\u05D0';
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Splits at each change between right to left and other characters, and records each
+	 * paragraph with its runs and the thread it was split on.
+	 */
+	private static class RecordingSplitterFactory implements BidiSplitterFactory {
+		final List<String> splits = Collections.synchronizedList(new ArrayList<String>());
+		final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+		public BidiSplitter createBidiSplitter() {
+			return new BidiSplitter() {
+				private final List<BidiTextRun> runs = new ArrayList<BidiTextRun>();
+
+				public void setParagraph(String paragraph, byte defaultDirection) {
+					StringBuilder record = new StringBuilder(paragraph);
+					int start = 0;
+					for (int i = 1; i <= paragraph.length(); i++) {
+						if (i == paragraph.length() || isRtl(paragraph.charAt(i)) != isRtl(paragraph.charAt(start))) {
+							byte direction = isRtl(paragraph.charAt(start)) ? BidiSplitter.RTL : BidiSplitter.LTR;
+							runs.add(new BidiTextRun(start, i - start, direction));
+							record.append('|').append(start).append(',').append(i - start).append(',').append(direction);
+							start = i;
+						}
+					}
+					splits.add(record.toString());
+					threads.add(Thread.currentThread());
+				}
+
+				public int countTextRuns() {
+					return runs.size();
+				}
+
+				public BidiTextRun getVisualRun(int runIndex) {
+					return runs.get(runIndex);
+				}
+			};
+		}
+
+		List<String> getSortedSplits() {
+			List<String> result = new ArrayList<String>(splits);
+			Collections.sort(result);
+			return result;
+		}
+
+		private static boolean isRtl(char c) {
+			byte d = Character.getDirectionality(c);
+			return d == Character.DIRECTIONALITY_RIGHT_TO_LEFT || d == Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC;
+		}
+	}
+
+	private static String document(String... paragraphs) {
+		StringBuilder sb = new StringBuilder("<html><head><style>" +
+				"@page { size: 300px 300px; margin: 10px; }\n" +
+				"body { margin: 0; font-size: 10px; }\n" +
+				"</style></head><body>");
+		for (String p : paragraphs) {
+			sb.append("<p>").append(p).append("</p>");
+		}
+		return sb.append("</body></html>").toString();
+	}
+
+	private static byte[] render(String html, RecordingSplitterFactory factory, ExecutorService executor) throws Exception {
+		PdfRendererBuilder builder = new PdfRendererBuilder();
+		builder.withHtmlContent(html, null);
+		builder.useUnicodeBidiSplitter(factory);
+		if (executor != null) {
+			builder.useUnicodeBidiSplitterExecutor(executor);
+		}
+		return RenderTestSupport.render(builder);
+	}
+
+	@Test
+	public void testLeftToRightParagraphsAreNotSplit() throws Exception {
+		RecordingSplitterFactory factory = new RecordingSplitterFactory();
+		render(document("Only left to right text.", "With <b>inline</b> markup, digits 123 and punctuation (!)."),
+				factory, null);
+		Assert.assertThat(factory.splits.size(), equalTo(0));
+	}
+
+	@Test
+	public void testParagraphWithOneRightToLeftCharacterIsSplit() throws Exception {
+		RecordingSplitterFactory factory = new RecordingSplitterFactory();
+		render(document("Only left to right text.", "One " + HEBREW_ALEF + " letter.", "More left to right text."),
+				factory, null);
+
+		// Only the paragraph with the letter, in three runs.
+		Assert.assertThat(factory.splits, equalTo(Arrays.asList(
+				"One " + HEBREW_ALEF + " letter.|0,4,0|4,1,1|5,8,0")));
+	}
+
+	@Test
+	public void testExecutorGivesTheSameRunsAsTheLayoutThread() throws Exception {
+		String[] paragraphs = new String[64];
+		for (int i = 0; i < paragraphs.length; i++) {
+			paragraphs[i] = i % 3 == 0 ? "Paragraph " + i + " left to right." :
+				"Paragraph " + i + " " + HEBREW_ALEF + HEBREW_ALEF + " and " + HEBREW_ALEF + " mixed.";
+		}
+		String html = document(paragraphs);
+
+		RecordingSplitterFactory serial = new RecordingSplitterFactory();
+		byte[] expected = render(html, serial, null);
+		Assert.assertThat(serial.threads, equalTo(Collections.singleton(Thread.currentThread())));
+
+		RecordingSplitterFactory parallel = new RecordingSplitterFactory();
+		byte[] actual = render(html, parallel, executor);
+		Assert.assertTrue(parallel.threads.size() > 1);
+
+		Assert.assertThat(parallel.getSortedSplits(), equalTo(serial.getSortedSplits()));
+
+		List<byte[]> expectedPages = RenderTestSupport.pageContents(expected);
+		List<byte[]> actualPages = RenderTestSupport.pageContents(actual);
+		Assert.assertThat(actualPages.size(), equalTo(expectedPages.size()));
+		for (int i = 0; i < expectedPages.size(); i++) {
+			Assert.assertTrue("page " + i + " differs", Arrays.equals(expectedPages.get(i), actualPages.get(i)));
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.*;
+
+import com.openhtmltopdf.extend.RenderMetricsListener;
+import com.openhtmltopdf.render.BlockBox;
+import com.openhtmltopdf.render.Box;
+import com.openhtmltopdf.render.PageBox;
+import com.openhtmltopdf.util.RenderMetrics;
+
+/**
+ * Checks where the children of a <code>page-break-before/after: avoid</code> run end up
+ * when the run is laid out again on a new page, both when children are moved and when
+ * they are laid out again.
+ */
+public class PageBreakAvoidRelayoutTest {
+	private static final String[] IDS = { "a", "b", "c", "d", "e", "f" };
+
+	/**
+	 * Six blocks on 200px pages. The run from b to e, with f after it, does not fit on the
+	 * first page, so is laid out again from the top of the second. b starts the page and e
+	 * crossed the page break, so are laid out again, while c, d and f may be moved.
+	 */
+	private static String document(String runStyle, String cContent) {
+		return "<html><head><style>" +
+				"@page { size: 200px 200px; margin: 0; }\n" +
+				"body { margin: 0; }\n" +
+				"div { height: 30px; }\n" +
+				"#a { height: 100px; }\n" +
+				".run { page-break-after: avoid; " + runStyle + " }\n" +
+				"</style></head><body>" +
+				"<div id='a'>a</div>" +
+				"<div id='b' class='run'>b</div>" +
+				"<div id='c' class='run'>" + cContent + "</div>" +
+				"<div id='d' class='run'>d</div>" +
+				"<div id='e' class='run'>e</div>" +
+				"<div id='f'>f</div>" +
+				"</body></html>";
+	}
+
+	private static class Layout {
+		final int[] pageTops;
+		final int[] absY = new int[IDS.length];
+		final int[] height = new int[IDS.length];
+		final long moves;
+
+		Layout(PdfBoxRenderer renderer) {
+			List pages = renderer.getRootBox().getLayer().getPages();
+			pageTops = new int[pages.size()];
+			for (int i = 0; i < pageTops.length; i++) {
+				pageTops[i] = ((PageBox) pages.get(i)).getTop();
+			}
+			for (int i = 0; i < IDS.length; i++) {
+				Box box = find(renderer.getRootBox(), IDS[i]);
+				Assert.assertNotNull(IDS[i], box);
+				absY[i] = box.getAbsY();
+				height[i] = box.getHeight();
+			}
+			moves = renderer.getRenderMetrics().getCount(RenderMetrics.Counter.RELAYOUT_MOVES);
+		}
+	}
+
+	private static Box find(Box box, String id) {
+		if (box instanceof BlockBox && box.getElement() != null && id.equals(box.getElement().getAttribute("id"))) {
+			return box;
+		}
+		for (int i = 0; i < box.getChildCount(); i++) {
+			Box result = find(box.getChild(i), id);
+			if (result != null) {
+				return result;
+			}
+		}
+		return null;
+	}
+
+	private static Layout layout(String html) throws Exception {
+		PdfRendererBuilder builder = new PdfRendererBuilder();
+		builder.withHtmlContent(html, null);
+		builder.useRenderMetricsListener(new RenderMetricsListener() {
+			public void onRenderComplete(RenderMetrics metrics) {
+			}
+		});
+		PdfBoxRenderer renderer = builder.buildPdfRenderer();
+		try {
+			renderer.layout();
+			return new Layout(renderer);
+		} finally {
+			renderer.getPdfDocument().close();
+			renderer.cleanup();
+		}
+	}
+
+	/**
+	 * The run starts at the top of the second page and its children follow each other.
+	 */
+	private static void assertRunOnSecondPage(Layout layout) {
+		Assert.assertThat(layout.pageTops.length, equalTo(2));
+		Assert.assertThat(layout.absY[0], equalTo(layout.pageTops[0]));
+		Assert.assertThat(layout.absY[1], equalTo(layout.pageTops[1]));
+		for (int i = 2; i < IDS.length; i++) {
+			Assert.assertThat(IDS[i], layout.absY[i], equalTo(layout.absY[i - 1] + layout.height[i - 1]));
+		}
+	}
+
+	private static void assertSameLayout(Layout expected, Layout actual) {
+		for (int i = 0; i < IDS.length; i++) {
+			Assert.assertThat(IDS[i], actual.absY[i], equalTo(expected.absY[i]));
+			Assert.assertThat(IDS[i], actual.height[i], equalTo(expected.height[i]));
+		}
+	}
+
+	@Test
+	public void testMovedChildrenArePlacedAsIfLaidOutAgain() throws Exception {
+		Layout moved = layout(document("", "c"));
+		assertRunOnSecondPage(moved);
+		Assert.assertThat(moved.moves, equalTo(3L));
+
+		// A relatively positioned child has a layer, so is laid out again rather than moved.
+		// Only f, which is not in the run, is still moved.
+		Layout relaidOut = layout(document("position: relative;", "c"));
+		assertRunOnSecondPage(relaidOut);
+		Assert.assertThat(relaidOut.moves, equalTo(1L));
+
+		assertSameLayout(relaidOut, moved);
+	}
+
+	@Test
+	public void testRunWithFloatIsLaidOutAgain() throws Exception {
+		Layout moved = layout(document("", "c"));
+
+		// The float stays within c, so does not change the layout, but any float in the
+		// block formatting context stops the children of the run from being moved.
+		Layout withFloat = layout(document("", "<div style='float: left; width: 10px; height: 10px;'></div>c"));
+		assertRunOnSecondPage(withFloat);
+		Assert.assertThat(withFloat.moves, equalTo(0L));
+
+		assertSameLayout(moved, withFloat);
+	}
+
+	@Test
+	public void testRunThatFitsIsNotLaidOutAgain() throws Exception {
+		// Without a, the whole run fits on the first page.
+		Layout layout = layout(document("", "c").replace("#a { height: 100px; }", "#a { height: 0; }"));
+		Assert.assertThat(layout.pageTops.length, equalTo(1));
+		for (int i = 1; i < IDS.length; i++) {
+			Assert.assertThat(IDS[i], layout.absY[i], equalTo(layout.absY[i - 1] + layout.height[i - 1]));
+		}
+		Assert.assertThat(layout.moves, equalTo(0L));
+	}
+}
@@ -0,0 +1,74 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelPagePaintingTest {
+	private static String baseUri;
+
+	@BeforeClass
+	public static void writeResources() throws Exception {
+		File dir = RenderTestSupport.createTempDir();
+		RenderTestSupport.writeTempFile(dir, "font.ttf", RenderTestSupport.fontData());
+		baseUri = dir.toURI().toString();
+	}
+
+	private static String document() {
+		StringBuilder sb = new StringBuilder("<html><head><style>" +
+				"@font-face { font-family: 'Test'; src: url(font.ttf); }\n" +
+				"@page { size: 300px 400px; margin: 30px; " +
+				"  @bottom-center { content: 'Page ' counter(page) ' of ' counter(pages); font-family: 'Test'; font-size: 8px; } }\n" +
+				"body { font-family: 'Test'; font-size: 11px; }\n" +
+				"h2 { font-size: 1.5em; border-bottom: 1px solid #336699; }\n" +
+				"div.box { background-color: #eeeeee; border: 2px dashed #993366; padding: 4px; margin: 5% 0; }\n" +
+				"li { line-height: 1.4; }\n" +
+				"</style></head><body>");
+		for (int i = 0; i < 30; i++) {
+			sb.append("<h2>Section ").append(i).append("</h2>")
+			  .append("<p>Some <b>bold</b> and <em>emphasized</em> text with a <a href='#s").append((i + 7) % 30)
+			  .append("'>link to another section</a> in paragraph ").append(i).append(".</p>")
+			  .append("<div class='box' id='s").append(i).append("'><ul>");
+			for (int j = 0; j < i % 5 + 1; j++) {
+				sb.append("<li>Item ").append(j).append(" of section ").append(i).append("</li>");
+			}
+			sb.append("</ul></div>");
+		}
+		return sb.append("</body></html>").toString();
+	}
+
+	private static List<byte[]> render(ExecutorService executor) throws Exception {
+		PdfRendererBuilder builder = new PdfRendererBuilder();
+		builder.withHtmlContent(document(), baseUri);
+		if (executor != null) {
+			builder.usePagePaintingExecutor(executor);
+		}
+		return RenderTestSupport.pageContents(RenderTestSupport.render(builder));
+	}
+
+	@Test
+	public void testParallelPagesMatchSequentialPages() throws Exception {
+		List<byte[]> expected = render(null);
+		Assert.assertTrue(expected.size() > 10);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			// Several runs, as the threads interleave differently each time.
+			for (int run = 0; run < 5; run++) {
+				List<byte[]> actual = render(executor);
+				Assert.assertEquals(expected.size(), actual.size());
+				for (int i = 0; i < expected.size(); i++) {
+					Assert.assertTrue("page " + i + " differs", Arrays.equals(expected.get(i), actual.get(i)));
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
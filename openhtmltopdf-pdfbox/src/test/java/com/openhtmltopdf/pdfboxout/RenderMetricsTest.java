@@ -0,0 +1,89 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.*;
+
+import com.openhtmltopdf.extend.RenderMetricsListener;
+import com.openhtmltopdf.util.RenderMetrics;
+
+public class RenderMetricsTest {
+	/**
+	 * Text in a font loaded from the document folder, with a character the font does not
+	 * have, an image, and a block which does not fit at the bottom of the first page.
+	 */
+	private static final String HTML =
+			"<html><head><style>" +
+			"@font-face { font-family: 'Test'; src: url(font.ttf); }\n" +
+			"@page { size: 200px 200px; margin: 0; }\n" +
+			"body { margin: 0; font-family: 'Test'; font-size: 12px; }\n" +
+			"#avoid { page-break-inside: avoid; height: 80px; }\n" +
+			"</style></head><body>" +
+			"<div style='height: 150px'>Latin and \u4e00</div>" +
+			"<div id='avoid'><img src='image.png' width='20' height='20'/></div>" +
+			"</body></html>";
+
+	private static byte[] png() throws Exception {
+		BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.RED);
+		g.fillRect(0, 0, 2, 2);
+		g.dispose();
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", os);
+		return os.toByteArray();
+	}
+
+	@Test
+	public void testListenerIsCalledWithTheCountsOfTheRender() throws Exception {
+		File dir = RenderTestSupport.createTempDir();
+		RenderTestSupport.writeTempFile(dir, "font.ttf", RenderTestSupport.fontData());
+		RenderTestSupport.writeTempFile(dir, "image.png", png());
+
+		final List<RenderMetrics> calls = new ArrayList<RenderMetrics>();
+		PdfRendererBuilder builder = new PdfRendererBuilder();
+		builder.withHtmlContent(HTML, new File(dir, "doc.html").toURI().toString());
+		builder.useRenderMetricsListener(new RenderMetricsListener() {
+			public void onRenderComplete(RenderMetrics metrics) {
+				calls.add(metrics);
+			}
+		});
+		byte[] pdf = RenderTestSupport.render(builder);
+
+		Assert.assertThat(calls.size(), equalTo(1));
+		RenderMetrics metrics = calls.get(0);
+
+		Assert.assertTrue(metrics.toString(), metrics.getNanos(RenderMetrics.Phase.CASCADE) > 0);
+		Assert.assertTrue(metrics.toString(), metrics.getCount(RenderMetrics.Counter.ELEMENTS_STYLED) > 0);
+		Assert.assertTrue(metrics.toString(), metrics.getCount(RenderMetrics.Counter.RELAYOUT_PASSES) > 0);
+		Assert.assertTrue(metrics.toString(), metrics.getNanos(RenderMetrics.Phase.PAGE_BREAK_RELAYOUT) > 0);
+		Assert.assertTrue(metrics.toString(), metrics.getCount(RenderMetrics.Counter.FONTS_LOADED) > 0);
+		Assert.assertTrue(metrics.toString(), metrics.getCount(RenderMetrics.Counter.GLYPH_FALLBACKS) > 0);
+		Assert.assertThat(metrics.toString(), metrics.getCount(RenderMetrics.Counter.IMAGES_DECODED), equalTo(1L));
+		Assert.assertThat(metrics.toString(), metrics.getCount(RenderMetrics.Counter.BYTES_WRITTEN), equalTo((long) pdf.length));
+	}
+
+	@Test
+	public void testNoMetricsWithoutListener() throws Exception {
+		PdfRendererBuilder builder = new PdfRendererBuilder();
+		builder.withHtmlContent("<html><body>No listener</body></html>", null);
+		PdfBoxRenderer renderer = builder.buildPdfRenderer();
+		try {
+			renderer.layout();
+			Assert.assertNull(renderer.getRenderMetrics());
+		} finally {
+			renderer.getPdfDocument().close();
+			renderer.cleanup();
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import com.openhtmltopdf.util.IOUtil;
+
+/**
+ * Rendering helpers shared by the tests of this package.
+ */
+class RenderTestSupport {
+	static final String FONT_RESOURCE = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+	private RenderTestSupport() {
+	}
+
+	/**
+	 * @return the bytes of the font bundled with PDFBox.
+	 */
+	static byte[] fontData() throws IOException {
+		InputStream is = RenderTestSupport.class.getResourceAsStream(FONT_RESOURCE);
+		try {
+			return IOUtil.readBytes(is);
+		} finally {
+			is.close();
+		}
+	}
+
+	static File writeTempFile(File dir, String name, byte[] content) throws IOException {
+		File file = new File(dir, name);
+		file.deleteOnExit();
+		OutputStream os = new FileOutputStream(file);
+		try {
+			os.write(content);
+		} finally {
+			os.close();
+		}
+		return file;
+	}
+
+	static File createTempDir() throws IOException {
+		File dir = File.createTempFile("openhtmltopdf-test", "");
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Could not create " + dir);
+		}
+		dir.deleteOnExit();
+		return dir;
+	}
+
+	/**
+	 * Runs the builder, which must not have been given a stream, and returns the PDF.
+	 */
+	static byte[] render(PdfRendererBuilder builder) throws Exception {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		builder.toStream(os);
+		builder.run();
+		return os.toByteArray();
+	}
+
+	/**
+	 * The decoded content stream of each page. These do not include the creation
+	 * date or the document id, so are the same for the same input.
+	 */
+	static List<byte[]> pageContents(byte[] pdf) throws IOException {
+		PDDocument doc = PDDocument.load(pdf);
+		try {
+			List<byte[]> result = new ArrayList<byte[]>();
+			for (PDPage page : doc.getPages()) {
+				InputStream is = page.getContents();
+				try {
+					result.add(IOUtil.readBytes(is));
+				} finally {
+					is.close();
+				}
+			}
+			return result;
+		} finally {
+			doc.close();
+		}
+	}
+}
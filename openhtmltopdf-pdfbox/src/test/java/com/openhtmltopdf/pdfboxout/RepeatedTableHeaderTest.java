@@ -0,0 +1,109 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.openhtmltopdf.layout.LayoutContext;
+import com.openhtmltopdf.render.BlockBox;
+import com.openhtmltopdf.render.Box;
+import com.openhtmltopdf.render.PageBox;
+
+/**
+ * A repeated table header with more rows than the child bounds index leaves unindexed
+ * is moved to the top of each page as it is painted. Its rows must still be found on every
+ * page, by painting and by hit testing.
+ */
+public class RepeatedTableHeaderTest {
+	private static final int HEADER_ROWS = 20;
+	private static final int BODY_ROWS = 120;
+
+	private static String document() {
+		StringBuilder sb = new StringBuilder("<html><head><style>" +
+				"@page { size: 300px 600px; margin: 10px; }\n" +
+				"body { margin: 0; font-size: 8px; }\n" +
+				"table { -fs-table-paginate: paginate; border-collapse: collapse; width: 100%; }\n" +
+				"td, th { padding: 0; height: 10px; }\n" +
+				"</style></head><body><table><thead>");
+		for (int i = 1; i <= HEADER_ROWS; i++) {
+			sb.append("<tr id='h").append(i).append("'><th>Head").append(i).append("x</th></tr>");
+		}
+		sb.append("</thead><tbody>");
+		for (int i = 1; i <= BODY_ROWS; i++) {
+			sb.append("<tr><td>Body").append(i).append("x</td></tr>");
+		}
+		return sb.append("</tbody></table></body></html>").toString();
+	}
+
+	private static Box find(Box box, String id) {
+		if (box instanceof BlockBox && box.getElement() != null && id.equals(box.getElement().getAttribute("id"))) {
+			return box;
+		}
+		for (int i = 0; i < box.getChildCount(); i++) {
+			Box result = find(box.getChild(i), id);
+			if (result != null) {
+				return result;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isWithin(Box box, Box ancestor) {
+		for (Box b = box; b != null; b = b.getParent()) {
+			if (b == ancestor) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void testMovedHeaderRowsArePaintedAndFoundOnEveryPage() throws Exception {
+		PdfRendererBuilder builder = new PdfRendererBuilder();
+		builder.withHtmlContent(document(), null);
+		PdfBoxRenderer renderer = builder.buildPdfRenderer();
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try {
+			renderer.layout();
+			renderer.createPDF(os);
+
+			List pages = renderer.getRootBox().getLayer().getPages();
+			Assert.assertTrue(pages.size() >= 3);
+			PageBox last = (PageBox) pages.get(pages.size() - 1);
+
+			// Painting the last page left the header at its top.
+			LayoutContext c = renderer.getSharedContext().newLayoutContextInstance();
+			for (int i = 1; i <= HEADER_ROWS; i++) {
+				Box row = find(renderer.getRootBox(), "h" + i);
+				Assert.assertNotNull(row);
+				Assert.assertTrue("h" + i + " not on the last page",
+						row.getAbsY() >= last.getTop() && row.getAbsY() + row.getHeight() <= last.getBottom());
+
+				Box hit = renderer.getRootBox().getLayer().find(
+						c, row.getAbsX() + 1, row.getAbsY() + row.getHeight() / 2, true);
+				Assert.assertTrue("h" + i + " not hit", isWithin(hit, row));
+			}
+		} finally {
+			renderer.cleanup();
+		}
+
+		PDDocument pdf = PDDocument.load(os.toByteArray());
+		try {
+			PDFTextStripper stripper = new PDFTextStripper();
+			for (int page = 1; page <= pdf.getNumberOfPages(); page++) {
+				stripper.setStartPage(page);
+				stripper.setEndPage(page);
+				String text = stripper.getText(pdf);
+				for (int i = 1; i <= HEADER_ROWS; i++) {
+					Assert.assertTrue("Head" + i + " not on page " + page, text.contains("Head" + i + "x"));
+				}
+			}
+		} finally {
+			pdf.close();
+		}
+	}
+}
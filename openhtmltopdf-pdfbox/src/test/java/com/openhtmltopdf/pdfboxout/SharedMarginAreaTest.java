@@ -0,0 +1,123 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.Assert;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * A margin area with the same content on every page is painted into a form once and placed
+ * on each page, while one with a content function is still painted for each page.
+ */
+public class SharedMarginAreaTest {
+	private static final int PAGES = 4;
+
+	/**
+	 * A static top center, a page counter at the bottom, and a running element at the left,
+	 * which changes with each page.
+	 */
+	private static String document() {
+		StringBuilder sb = new StringBuilder("<html><head><style>" +
+				"@page { size: 300px 300px; margin: 40px;\n" +
+				"  @top-center { content: 'x'; }\n" +
+				"  @bottom-center { content: 'Page ' counter(page); }\n" +
+				"  @left-middle { content: element(chapter); }\n" +
+				"}\n" +
+				"body { margin: 0; font-size: 10px; }\n" +
+				".chapter { position: running(chapter); }\n" +
+				".page { page-break-after: always; }\n" +
+				"</style></head><body>");
+		for (int i = 1; i <= PAGES; i++) {
+			sb.append("<div class='chapter'>Ch").append(i).append("</div>");
+			sb.append("<div class='page'>Body").append(i).append("</div>");
+		}
+		return sb.append("</body></html>").toString();
+	}
+
+	private static List<COSBase> forms(PDPage page) throws Exception {
+		List<COSBase> result = new ArrayList<COSBase>();
+		for (COSName name : page.getResources().getXObjectNames()) {
+			PDXObject xobject = page.getResources().getXObject(name);
+			if (xobject instanceof PDFormXObject) {
+				result.add(xobject.getCOSObject());
+			}
+		}
+		return result;
+	}
+
+	private static int count(String text, String part) {
+		int result = 0;
+		for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+			result++;
+		}
+		return result;
+	}
+
+	@Test
+	public void testStaticMarginAreaIsOneFormOnEveryPage() throws Exception {
+		PdfRendererBuilder builder = new PdfRendererBuilder();
+		builder.withHtmlContent(document(), null);
+		byte[] pdf = RenderTestSupport.render(builder);
+
+		List<byte[]> contents = RenderTestSupport.pageContents(pdf);
+		PDDocument doc = PDDocument.load(pdf);
+		try {
+			Assert.assertThat(doc.getNumberOfPages(), equalTo(PAGES));
+
+			COSBase shared = null;
+			for (int i = 0; i < PAGES; i++) {
+				List<COSBase> forms = forms(doc.getPage(i));
+				Assert.assertThat("forms on page " + i, forms.size(), equalTo(1));
+				if (shared == null) {
+					shared = forms.get(0);
+				}
+				Assert.assertThat("form on page " + i, forms.get(0), sameInstance(shared));
+
+				String content = new String(contents.get(i), "ISO-8859-1");
+				Assert.assertThat("Do on page " + i, count(content, " Do"), equalTo(1));
+			}
+		} finally {
+			doc.close();
+		}
+	}
+
+	@Test
+	public void testMarginAreasWithFunctionsDifferPerPage() throws Exception {
+		PdfRendererBuilder builder = new PdfRendererBuilder();
+		builder.withHtmlContent(document(), null);
+		byte[] pdf = RenderTestSupport.render(builder);
+
+		PDDocument doc = PDDocument.load(pdf);
+		try {
+			PDFTextStripper stripper = new PDFTextStripper();
+			for (int i = 1; i <= PAGES; i++) {
+				stripper.setStartPage(i);
+				stripper.setEndPage(i);
+				String text = stripper.getText(doc);
+
+				// The shared form is still drawn as text on each page.
+				Assert.assertTrue(text, text.contains("x"));
+				Assert.assertTrue(text, text.contains("Page " + i));
+				Assert.assertTrue(text, text.contains("Ch" + i));
+				Assert.assertTrue(text, text.contains("Body" + i));
+				for (int j = 1; j <= PAGES; j++) {
+					if (j != i) {
+						Assert.assertFalse(text, text.contains("Page " + j));
+						Assert.assertFalse(text, text.contains("Ch" + j));
+					}
+				}
+			}
+		} finally {
+			doc.close();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.openhtmltopdf.context.StylesheetCache;
+
+public class SharedStylesheetCacheTest {
+	private static final int THREADS = 4;
+	private static final int DOCUMENTS_PER_THREAD = 6;
+
+	private static String baseUri;
+
+	@BeforeClass
+	public static void writeResources() throws Exception {
+		File dir = RenderTestSupport.createTempDir();
+		RenderTestSupport.writeTempFile(dir, "font.ttf", RenderTestSupport.fontData());
+		RenderTestSupport.writeTempFile(dir, "style.css", (
+				"@font-face { font-family: 'Shared'; src: url(font.ttf); }\n" +
+				"@page { size: 300px 300px; margin: 20px; }\n" +
+				"body { font-family: 'Shared'; font-size: 12px; }\n" +
+				"p.odd { color: #336699; margin-left: 10%; }\n" +
+				"p.even { color: #993366; font-size: 14px; border-bottom: 1px solid gray; }\n" +
+				"p em { font-size: 1.2em; }\n").getBytes("UTF-8"));
+		baseUri = dir.toURI().toString();
+	}
+
+	private static String document(int n) {
+		StringBuilder sb = new StringBuilder("<html><head><link rel='stylesheet' href='style.css'/></head><body>");
+		for (int i = 0; i < 40; i++) {
+			sb.append("<p class='").append(i % 2 == 0 ? "even" : "odd").append("'>Document ").append(n)
+			  .append(", paragraph <em>").append(i).append("</em> of text in the shared font.</p>");
+		}
+		return sb.append("</body></html>").toString();
+	}
+
+	private static List<byte[]> render(int n, StylesheetCache cache) throws Exception {
+		PdfRendererBuilder builder = new PdfRendererBuilder();
+		builder.withHtmlContent(document(n), baseUri);
+		if (cache != null) {
+			builder.useStylesheetCache(cache);
+		}
+		return RenderTestSupport.pageContents(RenderTestSupport.render(builder));
+	}
+
+	private static void assertSamePages(List<byte[]> expected, List<byte[]> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertTrue("page " + i + " differs", Arrays.equals(expected.get(i), actual.get(i)));
+		}
+	}
+
+	@Test
+	public void testConcurrentRendersWithSharedCache() throws Exception {
+		final List<List<byte[]>> expected = new ArrayList<List<byte[]>>();
+		for (int n = 0; n < THREADS; n++) {
+			expected.add(render(n, null));
+		}
+
+		final StylesheetCache cache = new StylesheetCache(16);
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int t = 0; t < THREADS; t++) {
+				final int n = t;
+				futures.add(executor.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						start.await();
+						for (int i = 0; i < DOCUMENTS_PER_THREAD; i++) {
+							assertSamePages(expected.get(n), render(n, cache));
+						}
+						return null;
+					}
+				}));
+			}
+
+			start.countDown();
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		// Every render after the first found the stylesheet in the cache.
+		Assert.assertEquals(1, cache.size());
+		Assert.assertTrue(cache.getHitCount() >= THREADS * DOCUMENTS_PER_THREAD - THREADS);
+	}
+}
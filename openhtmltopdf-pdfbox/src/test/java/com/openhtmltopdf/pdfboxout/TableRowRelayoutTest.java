@@ -0,0 +1,113 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.*;
+
+import com.openhtmltopdf.extend.RenderMetricsListener;
+import com.openhtmltopdf.newtable.TableCellBox;
+import com.openhtmltopdf.newtable.TableRowBox;
+import com.openhtmltopdf.newtable.TableSectionBox;
+import com.openhtmltopdf.render.Box;
+import com.openhtmltopdf.util.RenderMetrics;
+
+/**
+ * Rows which do not fit at the bottom of a page are laid out again on the next one.
+ * Only the cells of such a row have their widths set again, so they must end up as wide,
+ * and in the same place, as the cells of the rows which were laid out once.
+ */
+public class TableRowRelayoutTest {
+	private static final int ROWS = 200;
+
+	/**
+	 * Rows of three cells, with every seventh row having a cell over two columns, and every
+	 * eleventh a cell over two rows, on pages that break within rows.
+	 */
+	private static String document() {
+		StringBuilder sb = new StringBuilder("<html><head><style>" +
+				"@page { size: 300px 230px; margin: 10px; }\n" +
+				"body { margin: 0; font-size: 8px; }\n" +
+				"table { -fs-table-paginate: paginate; border-collapse: collapse; width: 100%; }\n" +
+				"td { padding: 1px 2px; height: 17px; border: 1px solid black; }\n" +
+				"tr { page-break-inside: avoid; }\n" +
+				"</style></head><body><table>" +
+				"<colgroup><col style='width: 20%'/><col style='width: 50%'/><col style='width: 30%'/></colgroup>" +
+				"<tbody>");
+		boolean spanned = false;
+		for (int i = 0; i < ROWS; i++) {
+			sb.append("<tr>");
+			if (spanned) {
+				sb.append("<td>").append(i).append("</td><td>b</td>");
+				spanned = false;
+			} else if (i % 11 == 5) {
+				sb.append("<td>").append(i).append("</td><td>b</td><td rowspan='2'>spans two rows</td>");
+				spanned = true;
+			} else if (i % 7 == 3) {
+				sb.append("<td colspan='2'>").append(i).append(" spans two columns</td><td>c</td>");
+			} else {
+				sb.append("<td>").append(i).append("</td><td>b</td><td>c</td>");
+			}
+			sb.append("</tr>");
+		}
+		return sb.append("</tbody></table></body></html>").toString();
+	}
+
+	private static TableSectionBox findSection(Box box) {
+		if (box instanceof TableSectionBox) {
+			return (TableSectionBox) box;
+		}
+		for (int i = 0; i < box.getChildCount(); i++) {
+			TableSectionBox result = findSection(box.getChild(i));
+			if (result != null) {
+				return result;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testRelaidOutRowsKeepTheirCellWidths() throws Exception {
+		PdfRendererBuilder builder = new PdfRendererBuilder();
+		builder.withHtmlContent(document(), null);
+		builder.useRenderMetricsListener(new RenderMetricsListener() {
+			public void onRenderComplete(RenderMetrics metrics) {
+			}
+		});
+		PdfBoxRenderer renderer = builder.buildPdfRenderer();
+		try {
+			renderer.layout();
+			Assert.assertTrue(renderer.getRootBox().getLayer().getPages().size() > 10);
+			Assert.assertTrue(renderer.getRenderMetrics().getCount(RenderMetrics.Counter.RELAYOUT_PASSES) > 10);
+
+			TableSectionBox section = findSection(renderer.getRootBox());
+			Assert.assertThat(section.getChildCount(), equalTo(ROWS));
+
+			// The first cell found for each column and span sets the expected place and width.
+			Map<String, int[]> expected = new HashMap<String, int[]>();
+			for (int i = 0; i < section.getChildCount(); i++) {
+				TableRowBox row = (TableRowBox) section.getChild(i);
+				for (int j = 0; j < row.getChildCount(); j++) {
+					TableCellBox cell = (TableCellBox) row.getChild(j);
+					String key = cell.getCol() + "/" + cell.getStyle().getColSpan();
+					int[] actual = { cell.getX(), cell.getContentWidth() };
+					Assert.assertTrue("row " + i + " cell " + j, actual[1] > 0);
+
+					int[] first = expected.get(key);
+					if (first == null) {
+						expected.put(key, actual);
+					} else {
+						Assert.assertThat("x of row " + i + " cell " + j, actual[0], equalTo(first[0]));
+						Assert.assertThat("width of row " + i + " cell " + j, actual[1], equalTo(first[1]));
+					}
+				}
+			}
+			Assert.assertThat(expected.size(), equalTo(4));
+		} finally {
+			renderer.getPdfDocument().close();
+			renderer.cleanup();
+		}
+	}
+}
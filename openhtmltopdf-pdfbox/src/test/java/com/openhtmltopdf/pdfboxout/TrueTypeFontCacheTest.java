@@ -0,0 +1,144 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.*;
+
+import com.openhtmltopdf.util.IOUtil;
+
+public class TrueTypeFontCacheTest {
+	private static byte[] fontData;
+
+	@BeforeClass
+	public static void loadFont() throws IOException {
+		// The fallback font shipped with PDFBox.
+		InputStream is = TrueTypeFontCacheTest.class.getResourceAsStream("/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf");
+		try {
+			fontData = IOUtil.readBytes(is);
+		} finally {
+			is.close();
+		}
+	}
+
+	private static File writeFontFile() throws IOException {
+		File file = File.createTempFile("font-cache-test", ".ttf");
+		file.deleteOnExit();
+		OutputStream os = new FileOutputStream(file);
+		try {
+			os.write(fontData);
+		} finally {
+			os.close();
+		}
+		return file;
+	}
+
+	@Test
+	public void testFileFontIsParsedOnce() throws IOException {
+		TrueTypeFontCache cache = new TrueTypeFontCache(fontData.length * 4L);
+		File file = writeFontFile();
+
+		TrueTypeFont first = cache.getFont(file);
+		TrueTypeFont second = cache.getFont(file);
+
+		Assert.assertThat(second, sameInstance(first));
+		Assert.assertThat(cache.getMissCount(), equalTo(1L));
+		Assert.assertThat(cache.getHitCount(), equalTo(1L));
+		Assert.assertThat(cache.getCurrentBytes(), equalTo((long) fontData.length));
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsedAtByteBound() throws IOException {
+		// Room for two copies of the font, but not three.
+		TrueTypeFontCache cache = new TrueTypeFontCache(fontData.length * 2L + fontData.length / 2);
+		File a = writeFontFile();
+		File b = writeFontFile();
+		File c = writeFontFile();
+
+		TrueTypeFont fontA = cache.getFont(a);
+		TrueTypeFont fontB = cache.getFont(b);
+		// Use a, so that b is the least recently used.
+		Assert.assertThat(cache.getFont(a), sameInstance(fontA));
+
+		cache.getFont(c);
+		Assert.assertThat(cache.getCurrentBytes(), equalTo(fontData.length * 2L));
+
+		Assert.assertThat(cache.getFont(a), sameInstance(fontA));
+		Assert.assertThat(cache.getFont(b), not(sameInstance(fontB)));
+	}
+
+	@Test
+	public void testFontLargerThanBoundIsNotCached() throws IOException {
+		TrueTypeFontCache cache = new TrueTypeFontCache(fontData.length - 1);
+		File file = writeFontFile();
+
+		TrueTypeFont first = cache.getFont(file);
+		Assert.assertThat(first, notNullValue());
+		Assert.assertThat(cache.getCurrentBytes(), equalTo(0L));
+		Assert.assertThat(cache.getFont(file), not(sameInstance(first)));
+	}
+
+	@Test
+	public void testSetMaxBytesEvicts() throws IOException {
+		TrueTypeFontCache cache = new TrueTypeFontCache(fontData.length * 4L);
+		cache.getFont(writeFontFile());
+		cache.getFont(writeFontFile());
+
+		cache.setMaxBytes(fontData.length);
+		Assert.assertThat(cache.getCurrentBytes(), equalTo((long) fontData.length));
+
+		cache.setMaxBytes(0);
+		Assert.assertThat(cache.getCurrentBytes(), equalTo(0L));
+	}
+
+	@Test
+	public void testChangedModifiedTimeInvalidatesFileFont() throws IOException {
+		TrueTypeFontCache cache = new TrueTypeFontCache(fontData.length * 4L);
+		File file = writeFontFile();
+		Assert.assertTrue(file.setLastModified(1000000000000L));
+
+		TrueTypeFont first = cache.getFont(file);
+		Assert.assertThat(cache.getFont(file), sameInstance(first));
+
+		Assert.assertTrue(file.setLastModified(1000000060000L));
+		TrueTypeFont changed = cache.getFont(file);
+
+		Assert.assertThat(changed, not(sameInstance(first)));
+		Assert.assertThat(cache.getMissCount(), equalTo(2L));
+	}
+
+	@Test
+	public void testStreamFontsAreKeyedByContent() throws IOException {
+		TrueTypeFontCache cache = new TrueTypeFontCache(fontData.length * 4L);
+
+		TrueTypeFont first = cache.getFont(fontData);
+		// A separate copy of the same bytes, as read from a stream for another document.
+		TrueTypeFont second = cache.getFont(fontData.clone());
+
+		Assert.assertThat(second, sameInstance(first));
+		Assert.assertThat(cache.getHitCount(), equalTo(1L));
+		Assert.assertThat(cache.getCurrentBytes(), equalTo((long) fontData.length));
+	}
+
+	@Test
+	public void testStreamFontsWithDifferentContentAreNotShared() throws IOException {
+		TrueTypeFontCache cache = new TrueTypeFontCache(fontData.length * 4L);
+		byte[] changed = fontData.clone();
+		// Change a byte of the table directory checksum, which the parser does not verify.
+		changed[12 + 4] ^= 0x01;
+
+		TrueTypeFont first = cache.getFont(fontData);
+		TrueTypeFont second = cache.getFont(changed);
+
+		Assert.assertThat(second, not(sameInstance(first)));
+		Assert.assertThat(cache.getMissCount(), equalTo(2L));
+		Assert.assertThat(cache.getCurrentBytes(), equalTo(fontData.length * 2L));
+	}
+}
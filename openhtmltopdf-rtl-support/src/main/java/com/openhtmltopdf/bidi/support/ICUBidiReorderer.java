@@ -12,15 +12,41 @@ public class ICUBidiReorderer implements BidiReorderer {
 	ArabicShaping shaper = new ArabicShaping(ArabicShaping.TEXT_DIRECTION_LOGICAL | ArabicShaping.LETTERS_SHAPE | ArabicShaping.LENGTH_GROW_SHRINK);
 	ArabicShaping deshaper = new ArabicShaping(ArabicShaping.TEXT_DIRECTION_LOGICAL | ArabicShaping.LETTERS_UNSHAPE | ArabicShaping.LENGTH_GROW_SHRINK);
 	
+	private final ShapedTextCache cache;
+	
+	/**
+	 * Creates a reorderer that shares the process wide {@link ShapedTextCache}.
+	 */
+	public ICUBidiReorderer() {
+		this(ShapedTextCache.getDefault());
+	}
+	
+	/**
+	 * @param cache the cache of shaped, deshaped and reordered text to use, or null to not cache.
+	 */
+	public ICUBidiReorderer(ShapedTextCache cache) {
+		this.cache = cache;
+	}
+	
 	@Override
 	public String reorderRTLTextToLTR(String text) {
-		return Bidi.writeReverse(text, Bidi.DO_MIRRORING);
+		String cached = getCached(ShapedTextCache.REORDER, text);
+		if (cached != null) {
+			return cached;
+		}
+		
+		return putCached(ShapedTextCache.REORDER, text, Bidi.writeReverse(text, Bidi.DO_MIRRORING));
 	}
 
 	@Override
 	public String shapeText(String text) {
+		String cached = getCached(ShapedTextCache.SHAPE, text);
+		if (cached != null) {
+			return cached;
+		}
+		
 		try {
-			return shaper.shape(text);
+			return putCached(ShapedTextCache.SHAPE, text, shaper.shape(text));
 		} catch (ArabicShapingException e) {
 			XRLog.general(Level.WARNING, "Exception while shaping text", e);
 			return text;
@@ -29,13 +55,32 @@ public class ICUBidiReorderer implements BidiReorderer {
 
 	@Override
 	public String deshapeText(String text) {
+		String cached = getCached(ShapedTextCache.DESHAPE, text);
+		if (cached != null) {
+			return cached;
+		}
+		
 		try {
-			return deshaper.shape(text);
+			return putCached(ShapedTextCache.DESHAPE, text, deshaper.shape(text));
 		} catch (ArabicShapingException e) {
 			XRLog.general(Level.WARNING, "Exception while deshaping text", e);
 			return text;
 		}
 	}
+	
+	private String getCached(int operation, String text) {
+		if (cache == null || !cache.isCacheable(text)) {
+			return null;
+		}
+		return cache.get(operation, text);
+	}
+	
+	private String putCached(int operation, String text, String result) {
+		if (cache != null && cache.isCacheable(text)) {
+			cache.put(operation, text, result);
+		}
+		return result;
+	}
 
 	@Override
 	public boolean isLiveImplementation() {
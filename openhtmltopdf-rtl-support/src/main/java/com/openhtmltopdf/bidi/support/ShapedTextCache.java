@@ -0,0 +1,122 @@
+package com.openhtmltopdf.bidi.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.openhtmltopdf.util.Configuration;
+
+/**
+ * A bounded, least recently used cache of the results of shaping, deshaping and
+ * reordering text with ICU, so that labels repeated on every line of a document, or
+ * in every document, are only processed once.
+ * <br><br>
+ * The process wide instance used by {@link ICUBidiReorderer} is bounded by the
+ * <code>xr.text.shaped-cache.max-entries</code> configuration key. A bound of zero disables it.
+ * Only texts of up to {@link #MAX_TEXT_LENGTH} characters are cached, so the bound on the
+ * number of entries is also a bound on memory.
+ */
+public class ShapedTextCache {
+	private static final ShapedTextCache DEFAULT_INSTANCE =
+			new ShapedTextCache(Configuration.valueAsInt("xr.text.shaped-cache.max-entries", 8192));
+
+	/**
+	 * Longer texts, typically whole paragraphs being reordered, are unlikely to repeat.
+	 */
+	public static final int MAX_TEXT_LENGTH = 128;
+
+	static final int SHAPE = 0;
+	static final int DESHAPE = 1;
+	static final int REORDER = 2;
+
+	private final int _maxEntries;
+	private final Map<Key, String> _cache;
+	private long _hits;
+	private long _misses;
+
+	private static class Key {
+		private final int operation;
+		private final String text;
+
+		Key(int operation, String text) {
+			this.operation = operation;
+			this.text = text;
+		}
+
+		@Override
+		public int hashCode() {
+			return text.hashCode() * 31 + operation;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return operation == other.operation && text.equals(other.text);
+		}
+	}
+
+	/**
+	 * @param maxEntries the number of texts to keep before the least recently used are evicted.
+	 */
+	public ShapedTextCache(final int maxEntries) {
+		_maxEntries = maxEntries;
+		_cache = new LinkedHashMap<Key, String>(Math.min(maxEntries, 1024), 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+				return size() > _maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @return the process wide cache shared by all {@link ICUBidiReorderer} instances created
+	 * with the default constructor.
+	 */
+	public static ShapedTextCache getDefault() {
+		return DEFAULT_INSTANCE;
+	}
+
+	boolean isCacheable(String text) {
+		return _maxEntries > 0 && text.length() <= MAX_TEXT_LENGTH;
+	}
+
+	synchronized String get(int operation, String text) {
+		String result = _cache.get(new Key(operation, text));
+
+		if (result != null) {
+			_hits++;
+		} else {
+			_misses++;
+		}
+
+		return result;
+	}
+
+	synchronized void put(int operation, String text, String result) {
+		_cache.put(new Key(operation, text), result);
+	}
+
+	public int getMaxEntries() {
+		return _maxEntries;
+	}
+
+	public synchronized int size() {
+		return _cache.size();
+	}
+
+	public synchronized void clear() {
+		_cache.clear();
+	}
+
+	public synchronized long getHitCount() {
+		return _hits;
+	}
+
+	public synchronized long getMissCount() {
+		return _misses;
+	}
+}
@@ -0,0 +1,119 @@
+package com.openhtmltopdf.bidi.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+import static org.hamcrest.CoreMatchers.*;
+
+import com.ibm.icu.text.ArabicShaping;
+import com.ibm.icu.text.Bidi;
+
+public class ShapedTextCacheTest {
+	/**
+	 * The bound set for the tests in the pom.
+	 */
+	private static final int CONFIGURED_MAX_ENTRIES = 16;
+
+	private static final String ARABIC = "مرحبا بالعالم";
+
+	private static String arabicOfLength(int length) {
+		StringBuilder sb = new StringBuilder(length);
+		while (sb.length() < length) {
+			sb.append(ARABIC.charAt(sb.length() % ARABIC.length()));
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testDefaultIsBoundedByConfiguration() {
+		ShapedTextCache cache = ShapedTextCache.getDefault();
+		Assert.assertThat(cache.getMaxEntries(), equalTo(CONFIGURED_MAX_ENTRIES));
+
+		cache.clear();
+		ICUBidiReorderer reorderer = new ICUBidiReorderer();
+		for (int i = 0; i < CONFIGURED_MAX_ENTRIES + 4; i++) {
+			reorderer.shapeText(ARABIC + i);
+		}
+		Assert.assertThat(cache.size(), equalTo(CONFIGURED_MAX_ENTRIES));
+
+		// The first four were evicted, the last is still there.
+		long misses = cache.getMissCount();
+		reorderer.shapeText(ARABIC + 0);
+		Assert.assertThat(cache.getMissCount(), equalTo(misses + 1));
+		long hits = cache.getHitCount();
+		reorderer.shapeText(ARABIC + (CONFIGURED_MAX_ENTRIES + 3));
+		Assert.assertThat(cache.getHitCount(), equalTo(hits + 1));
+		cache.clear();
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		ShapedTextCache cache = new ShapedTextCache(2);
+		cache.put(ShapedTextCache.SHAPE, "a", "A");
+		cache.put(ShapedTextCache.SHAPE, "b", "B");
+		// Use a, so that b is the least recently used.
+		Assert.assertThat(cache.get(ShapedTextCache.SHAPE, "a"), equalTo("A"));
+
+		cache.put(ShapedTextCache.SHAPE, "c", "C");
+		Assert.assertThat(cache.size(), equalTo(2));
+		Assert.assertThat(cache.get(ShapedTextCache.SHAPE, "a"), equalTo("A"));
+		Assert.assertNull(cache.get(ShapedTextCache.SHAPE, "b"));
+		Assert.assertThat(cache.get(ShapedTextCache.SHAPE, "c"), equalTo("C"));
+
+		// The operation is part of the key.
+		Assert.assertNull(cache.get(ShapedTextCache.DESHAPE, "a"));
+	}
+
+	@Test
+	public void testLongTextBypassesCache() {
+		ShapedTextCache cache = new ShapedTextCache(100);
+		ICUBidiReorderer reorderer = new ICUBidiReorderer(cache);
+
+		String longest = arabicOfLength(ShapedTextCache.MAX_TEXT_LENGTH);
+		String tooLong = arabicOfLength(ShapedTextCache.MAX_TEXT_LENGTH + 1);
+
+		reorderer.shapeText(tooLong);
+		reorderer.shapeText(tooLong);
+		reorderer.reorderRTLTextToLTR(tooLong);
+		Assert.assertThat(cache.size(), equalTo(0));
+		Assert.assertThat(cache.getHitCount(), equalTo(0L));
+		Assert.assertThat(cache.getMissCount(), equalTo(0L));
+
+		reorderer.shapeText(longest);
+		reorderer.shapeText(longest);
+		Assert.assertThat(cache.size(), equalTo(1));
+		Assert.assertThat(cache.getHitCount(), equalTo(1L));
+	}
+
+	@Test
+	public void testHitEqualsIcuResult() throws Exception {
+		ShapedTextCache cache = new ShapedTextCache(100);
+		ICUBidiReorderer reorderer = new ICUBidiReorderer(cache);
+
+		String shaped = new ArabicShaping(ArabicShaping.TEXT_DIRECTION_LOGICAL | ArabicShaping.LETTERS_SHAPE |
+				ArabicShaping.LENGTH_GROW_SHRINK).shape(ARABIC);
+		String deshaped = new ArabicShaping(ArabicShaping.TEXT_DIRECTION_LOGICAL | ArabicShaping.LETTERS_UNSHAPE |
+				ArabicShaping.LENGTH_GROW_SHRINK).shape(shaped);
+		String reordered = Bidi.writeReverse(ARABIC, Bidi.DO_MIRRORING);
+		Assert.assertFalse(shaped.equals(ARABIC));
+
+		for (int run = 0; run < 2; run++) {
+			Assert.assertThat(reorderer.shapeText(ARABIC), equalTo(shaped));
+			Assert.assertThat(reorderer.deshapeText(shaped), equalTo(deshaped));
+			Assert.assertThat(reorderer.reorderRTLTextToLTR(ARABIC), equalTo(reordered));
+		}
+
+		// The second run was answered from the cache.
+		Assert.assertThat(cache.getMissCount(), equalTo(3L));
+		Assert.assertThat(cache.getHitCount(), equalTo(3L));
+	}
+
+	@Test
+	public void testZeroBoundDisablesCache() {
+		ShapedTextCache cache = new ShapedTextCache(0);
+		ICUBidiReorderer reorderer = new ICUBidiReorderer(cache);
+		reorderer.shapeText(ARABIC);
+		reorderer.shapeText(ARABIC);
+		Assert.assertThat(cache.size(), equalTo(0));
+		Assert.assertThat(cache.getHitCount(), equalTo(0L));
+	}
+}
@@ -1,45 +1,150 @@
 package com.openhtmltopdf.svgsupport;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.gvt.GraphicsNode;
 import org.apache.batik.transcoder.TranscoderException;
-import org.apache.batik.transcoder.TranscoderInput;
 import org.w3c.dom.DOMImplementation;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
+import com.openhtmltopdf.css.constants.CSSName;
+import com.openhtmltopdf.css.constants.IdentValue;
 import com.openhtmltopdf.css.sheet.FontFaceRule;
+import com.openhtmltopdf.css.style.CalculatedStyle;
+import com.openhtmltopdf.css.style.FSDerivedValue;
 import com.openhtmltopdf.extend.OutputDevice;
 import com.openhtmltopdf.extend.SVGDrawer;
 import com.openhtmltopdf.layout.SharedContext;
 import com.openhtmltopdf.render.RenderingContext;
 import com.openhtmltopdf.svgsupport.PDFTranscoder.OpenHtmlFontResolver;
+import com.openhtmltopdf.util.XMLUtil;
 import com.openhtmltopdf.util.XRLog;
 
+/**
+ * Draws SVG with Batik. The GVT tree built for an SVG is kept, keyed by the base URL of the
+ * document and the content of the SVG element, in a bounded cache so that an SVG repeated in
+ * a document, or in documents rendered with the same drawer, is only built once. The cache is
+ * emptied when the font faces imported for a document, with their sources resolved against
+ * its base URL, differ from those of the previous document. Each cached tree is kept with the
+ * font resolver it was built with, and is only used while that is still the current resolver.
+ */
 public class BatikSVGDrawer implements SVGDrawer {
 
 	private static final String DEFAULT_VP_WIDTH = "400";
 	private static final String DEFAULT_VP_HEIGHT = "400";
+	private static final int DEFAULT_MAX_CACHED_GRAPHICS = 64;
+	
+	/**
+	 * Replaced by {@link #importFontFaceRules(List, SharedContext)} while holding the lock on the
+	 * graphics cache, so only read it while holding that lock.
+	 */
 	public OpenHtmlFontResolver fontResolver;
 	
+	private final Map<String, CachedGraphics> graphicsCache;
+	private String fontFacesKey;
+	
+	public BatikSVGDrawer() {
+		this(DEFAULT_MAX_CACHED_GRAPHICS);
+	}
+	
+	/**
+	 * @param maxCachedGraphics the number of distinct SVGs to keep built, zero to build every SVG each time it is drawn.
+	 */
+	public BatikSVGDrawer(final int maxCachedGraphics) {
+		this.graphicsCache = new LinkedHashMap<String, CachedGraphics>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedGraphics> eldest) {
+				return size() > maxCachedGraphics;
+			}
+		};
+	}
+	
+	/**
+	 * A built tree and the font resolver its text was laid out with.
+	 */
+	private static class CachedGraphics {
+		private final GraphicsNode root;
+		private final OpenHtmlFontResolver fontResolver;
+		
+		private CachedGraphics(GraphicsNode root, OpenHtmlFontResolver fontResolver) {
+			this.root = root;
+			this.fontResolver = fontResolver;
+		}
+	}
+	
 	@Override
 	public void importFontFaceRules(List<FontFaceRule> fontFaces, SharedContext shared) {
-		this.fontResolver = new OpenHtmlFontResolver();
-		this.fontResolver.importFontFaces(fontFaces, shared);
+		String key = getFontFacesKey(fontFaces, shared);
+		
+		synchronized (graphicsCache) {
+			if (this.fontResolver != null && key.equals(this.fontFacesKey)) {
+				// Same fonts as the previous document, so the fonts and the cached SVGs can be kept.
+				return;
+			}
+			
+			this.fontResolver = new OpenHtmlFontResolver();
+			this.fontResolver.importFontFaces(fontFaces, shared);
+			this.fontFacesKey = key;
+			this.graphicsCache.clear();
+		}
+	}
+	
+	/**
+	 * The same relative src may name a different font in a document with another base URL,
+	 * so the key has the URI each font is loaded from, resolved against the document.
+	 */
+	private static String getFontFacesKey(List<FontFaceRule> fontFaces, SharedContext shared) {
+		StringBuilder sb = new StringBuilder();
+		for (FontFaceRule rule : fontFaces) {
+			CalculatedStyle style = rule.getCalculatedStyle();
+			FSDerivedValue src = style.valueByName(CSSName.SRC);
+			sb.append(src == IdentValue.NONE ? "" : shared.getUserAgentCallback().resolveURI(src.asString())).append('|');
+			sb.append(rule.hasFontFamily() ? style.valueByName(CSSName.FONT_FAMILY).asString() : "").append('|');
+			sb.append(rule.hasFontWeight() ? style.getIdent(CSSName.FONT_WEIGHT) : "").append('|');
+			sb.append(rule.hasFontStyle() ? style.getIdent(CSSName.FONT_STYLE) : "").append('\n');
+		}
+		return sb.toString();
 	}
 	
 	@Override
 	public void drawSVG(Element svgElement, OutputDevice outputDevice, RenderingContext ctx, double x, double y, float dotsPerInch) {
-
-		if (this.fontResolver == null) {
-			XRLog.general(Level.INFO, "importFontFaceRules has not been called for this pdf transcoder");
-			this.fontResolver = new OpenHtmlFontResolver();
+		GraphicsNode root = getGraphicsNode(svgElement, ctx.getBaseURL());
+		
+		if (root != null) {
+			// A cached tree may be drawn by renders on other threads.
+			synchronized (root) {
+				PDFTranscoder.paint(root, outputDevice, ctx, x, y, dotsPerInch);
+			}
 		}
+	}
+	
+	private GraphicsNode getGraphicsNode(Element svgElement, String baseUrl) {
+		String key = baseUrl + '\n' + XMLUtil.contentKey(svgElement);
+		OpenHtmlFontResolver resolver;
 		
-		PDFTranscoder transcoder = new PDFTranscoder(outputDevice, ctx, x, y, this.fontResolver, dotsPerInch);
+		synchronized (graphicsCache) {
+			if (this.fontResolver == null) {
+				XRLog.general(Level.INFO, "importFontFaceRules has not been called for this pdf transcoder");
+				this.fontResolver = new OpenHtmlFontResolver();
+			}
+			resolver = this.fontResolver;
+			
+			CachedGraphics cached = graphicsCache.get(key);
+			if (cached != null && cached.fontResolver == resolver) {
+				return cached.root;
+			}
+		}
+		
+		PDFTranscoder transcoder = new PDFTranscoder(resolver);
+		GraphicsNode root;
 		
 		try {
 			DOMImplementation impl = SVGDOMImplementation.getDOMImplementation();
@@ -65,11 +170,21 @@ public class BatikSVGDrawer implements SVGDrawer {
 				newDocument.getDocumentElement().setAttribute("height", DEFAULT_VP_HEIGHT);
 			}
 
-			TranscoderInput in = new TranscoderInput(newDocument);
-			transcoder.transcode(in, null);
+			root = transcoder.buildGraphicsNode(newDocument);
 		} catch (TranscoderException e) {
 			XRLog.exception("Couldn't draw SVG.", e);
+			return null;
 		}
+		
+		if (root != null) {
+			synchronized (graphicsCache) {
+				if (resolver == this.fontResolver) {
+					graphicsCache.put(key, new CachedGraphics(root, resolver));
+				}
+			}
+		}
+		
+		return root;
 	}
 
 	private int parseOrDefault(String num, int def) {
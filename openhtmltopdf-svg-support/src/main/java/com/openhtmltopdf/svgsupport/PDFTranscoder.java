@@ -9,10 +9,12 @@ import java.util.Map;
 
 import org.apache.batik.bridge.FontFace;
 import org.apache.batik.bridge.FontFamilyResolver;
+import org.apache.batik.gvt.GraphicsNode;
 import org.apache.batik.gvt.font.GVTFontFamily;
 import org.apache.batik.transcoder.ErrorHandler;
 import org.apache.batik.transcoder.SVGAbstractTranscoder;
 import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderInput;
 import org.apache.batik.transcoder.TranscoderOutput;
 import org.w3c.dom.Document;
 
@@ -35,6 +37,31 @@ public class PDFTranscoder extends SVGAbstractTranscoder {
 		this.od = new PDFGraphics2DOutputDeviceAdapter(ctx, od, x, y, dotsPerInch);
 		this.fontResolver = fontResolver;
 	}
+	
+	/**
+	 * Creates a transcoder that only builds the GVT tree of an SVG document, to be painted,
+	 * possibly many times, with {@link #paint(GraphicsNode, OutputDevice, RenderingContext, double, double, float)}.
+	 */
+	public PDFTranscoder(OpenHtmlFontResolver fontResolver) {
+		this.od = null;
+		this.fontResolver = fontResolver;
+	}
+	
+	/**
+	 * Builds the GVT tree of an SVG document.
+	 * @return the root of the tree, or null if it could not be built.
+	 */
+	public GraphicsNode buildGraphicsNode(Document svg) throws TranscoderException {
+		transcode(new TranscoderInput(svg), null);
+		return this.root;
+	}
+	
+	/**
+	 * Paints a GVT tree to an output device, with its top left corner at x, y.
+	 */
+	public static void paint(GraphicsNode root, OutputDevice od, RenderingContext ctx, double x, double y, float dotsPerInch) {
+		root.paint(new PDFGraphics2DOutputDeviceAdapter(ctx, od, x, y, dotsPerInch));
+	}
 
 	public static class OpenHtmlFontResolver implements FontFamilyResolver {
 		private final Map<String, OpenHtmlGvtFontFamily> families = new HashMap<String, OpenHtmlGvtFontFamily>(4);
@@ -174,7 +201,10 @@ public class PDFTranscoder extends SVGAbstractTranscoder {
 	protected void transcode(Document svg, String uri, TranscoderOutput out) throws TranscoderException {
 		this.userAgent = new OpenHtmlUserAgent(this.fontResolver);
 		super.transcode(svg, uri, out);
-		this.root.paint(od);
+		
+		if (this.od != null) {
+			this.root.paint(od);
+		}
 	}
 	
 	@Override
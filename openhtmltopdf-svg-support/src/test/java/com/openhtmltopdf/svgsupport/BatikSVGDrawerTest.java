@@ -0,0 +1,146 @@
+package com.openhtmltopdf.svgsupport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import com.openhtmltopdf.util.IOUtil;
+
+public class BatikSVGDrawerTest {
+	private static final String FONT_RESOURCE = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+	/**
+	 * The same markup, with a relative font source, in each document.
+	 */
+	private static final String HTML =
+			"<html><head><style>" +
+			"@font-face { font-family: 'Relative'; src: url(font.ttf); }\n" +
+			"@page { size: 300px 200px; margin: 10px; }\n" +
+			"</style></head><body>" +
+			"<svg xmlns='http://www.w3.org/2000/svg' width='200' height='100'>" +
+			"<text x='10' y='50' font-family='Relative' font-size='24'>Relative font</text>" +
+			"<rect x='10' y='60' width='100' height='20' fill='#cc3300'/>" +
+			"</svg></body></html>";
+
+	private static String withFont;
+	private static String withoutFont;
+
+	@BeforeClass
+	public static void createBases() throws IOException {
+		File fontDir = createTempDir();
+		File file = new File(fontDir, "font.ttf");
+		file.deleteOnExit();
+		InputStream is = BatikSVGDrawerTest.class.getResourceAsStream(FONT_RESOURCE);
+		OutputStream os = new FileOutputStream(file);
+		try {
+			os.write(IOUtil.readBytes(is));
+		} finally {
+			os.close();
+			is.close();
+		}
+
+		withFont = new File(fontDir, "doc.html").toURI().toString();
+		withoutFont = new File(createTempDir(), "doc.html").toURI().toString();
+	}
+
+	private static File createTempDir() throws IOException {
+		File dir = File.createTempFile("openhtmltopdf-svg-test", "");
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Could not create " + dir);
+		}
+		dir.deleteOnExit();
+		return dir;
+	}
+
+	/**
+	 * Renders the document with the base and returns the decoded content stream of each page,
+	 * followed by those of its forms, into which the SVGs are drawn.
+	 */
+	private static List<byte[]> render(BatikSVGDrawer drawer, String baseUri) throws Exception {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		PdfRendererBuilder builder = new PdfRendererBuilder();
+		builder.withHtmlContent(HTML, baseUri);
+		builder.useSVGDrawer(drawer);
+		builder.toStream(os);
+		builder.run();
+
+		PDDocument pdf = PDDocument.load(os.toByteArray());
+		try {
+			List<byte[]> result = new ArrayList<byte[]>();
+			for (PDPage page : pdf.getPages()) {
+				InputStream is = page.getContents();
+				try {
+					result.add(IOUtil.readBytes(is));
+				} finally {
+					is.close();
+				}
+				for (COSName name : page.getResources().getXObjectNames()) {
+					PDXObject xobject = page.getResources().getXObject(name);
+					if (xobject instanceof PDFormXObject) {
+						is = ((PDFormXObject) xobject).getCOSObject().createInputStream();
+						try {
+							result.add(IOUtil.readBytes(is));
+						} finally {
+							is.close();
+						}
+					}
+				}
+			}
+			return result;
+		} finally {
+			pdf.close();
+		}
+	}
+
+	private static void assertSamePages(List<byte[]> expected, List<byte[]> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertTrue("page " + i + " differs", Arrays.equals(expected.get(i), actual.get(i)));
+		}
+	}
+
+	@Test
+	public void testSameSvgUnderTwoBasesUsesTheFontsOfEach() throws Exception {
+		List<byte[]> expectedWithFont = render(new BatikSVGDrawer(), withFont);
+		List<byte[]> expectedWithoutFont = render(new BatikSVGDrawer(), withoutFont);
+
+		// The relative source only names a font under the first base.
+		Assert.assertEquals(2, expectedWithFont.size());
+		Assert.assertFalse(Arrays.equals(expectedWithFont.get(1), expectedWithoutFont.get(1)));
+
+		// A drawer shared by the documents does not reuse the fonts or the SVG of the other base.
+		BatikSVGDrawer shared = new BatikSVGDrawer();
+		assertSamePages(expectedWithFont, render(shared, withFont));
+		assertSamePages(expectedWithoutFont, render(shared, withoutFont));
+		assertSamePages(expectedWithFont, render(shared, withFont));
+	}
+
+	@Test
+	public void testSameSvgUnderTheSameBaseIsCached() throws Exception {
+		List<byte[]> expected = render(new BatikSVGDrawer(), withFont);
+
+		BatikSVGDrawer shared = new BatikSVGDrawer();
+		assertSamePages(expected, render(shared, withFont));
+		Object fontResolver = shared.fontResolver;
+
+		// The fonts resolve to the same files, so are kept for the next document.
+		assertSamePages(expected, render(shared, withFont));
+		Assert.assertSame(fontResolver, shared.fontResolver);
+	}
+}